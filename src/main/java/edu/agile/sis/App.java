@@ -1,7 +1,10 @@
 package edu.agile.sis;
 
 import edu.agile.sis.db.DBConnection;
+import edu.agile.sis.db.IndexBootstrap;
+import edu.agile.sis.service.CatalogCache;
 import edu.agile.sis.ui.LoginController;
+import edu.agile.sis.util.FileStorageUtil;
 import javafx.application.Application;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
@@ -10,6 +13,9 @@ public class App extends Application {
     @Override
     public void start(Stage primaryStage) {
         DBConnection.getInstance().connectFromConfig();
+        IndexBootstrap.ensureIndexesAsync();
+        CatalogCache.getInstance().watchChanges(DBConnection.getInstance().getDatabase());
+        FileStorageUtil.sweepAbandonedUploadsAsync();
         LoginController loginController = new LoginController();
         Scene scene = new Scene(loginController.getView(), 400, 300);
         primaryStage.setTitle("AGILE SIS - Login");
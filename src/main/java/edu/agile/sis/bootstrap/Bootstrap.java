@@ -2,6 +2,8 @@ package edu.agile.sis.bootstrap;
 
 import edu.agile.sis.config.ConfigManager;
 import edu.agile.sis.db.DBConnection;
+import edu.agile.sis.db.IndexBootstrap;
+import edu.agile.sis.db.IndexUsageVerifier;
 import edu.agile.sis.service.AuthService;
 
 public class Bootstrap {
@@ -25,6 +27,10 @@ public class Bootstrap {
         try {
             DBConnection.getInstance().connectFromConfig();
             System.out.println("[Bootstrap] DB connected successfully.");
+            IndexBootstrap.ensureIndexes();
+            for (String violation : IndexUsageVerifier.verify(DBConnection.getInstance().getDatabase())) {
+                System.err.println("[Bootstrap] unindexed query: " + violation);
+            }
         } catch (Exception ex) {
             System.err.println("[Bootstrap] DB connection failed: " + ex.getMessage());
             ex.printStackTrace();
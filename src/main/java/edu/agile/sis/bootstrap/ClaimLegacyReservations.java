@@ -0,0 +1,39 @@
+package edu.agile.sis.bootstrap;
+
+import edu.agile.sis.db.DBConnection;
+import edu.agile.sis.service.ReservationService;
+
+/**
+ * Claims the time slots of reservations made before slot claims existed, so that double-booking
+ * checks see them too. Run once after upgrading; safe to re-run.
+ * Usage: ClaimLegacyReservations [batchSize]   (default: 500)
+ */
+public class ClaimLegacyReservations {
+    public static void main(String[] args) {
+        int batchSize = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+
+        System.out.println("[ClaimLegacyReservations] Starting (batchSize=" + batchSize + ")");
+
+        try {
+            DBConnection.getInstance().connectFromConfig();
+        } catch (Exception ex) {
+            System.err.println("[ClaimLegacyReservations] DB connection failed: " + ex.getMessage());
+            ex.printStackTrace();
+            return;
+        }
+
+        try {
+            long start = System.currentTimeMillis();
+            long claimed = new ReservationService().claimLegacyReservations(batchSize);
+            System.out.println("[ClaimLegacyReservations] Claimed " + claimed + " reservations in "
+                    + (System.currentTimeMillis() - start) + " ms.");
+        } catch (Exception ex) {
+            System.err.println("[ClaimLegacyReservations] Claiming failed: " + ex.getMessage());
+            ex.printStackTrace();
+        } finally {
+            DBConnection.getInstance().close();
+        }
+
+        System.out.println("[ClaimLegacyReservations] Done.");
+    }
+}
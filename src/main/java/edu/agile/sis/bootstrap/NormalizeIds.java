@@ -0,0 +1,48 @@
+package edu.agile.sis.bootstrap;
+
+import edu.agile.sis.config.ConfigManager;
+import edu.agile.sis.db.DBConnection;
+import edu.agile.sis.db.IdNormalizationMigration;
+import edu.agile.sis.db.IdPolicy;
+
+/**
+ * Rewrites _id, assignmentId, quizId, eventId and studentId to their canonical types and, once
+ * every step has finished, turns on strict id lookups in config.properties. Safe to re-run:
+ * completed steps are skipped and an interrupted step resumes with the remaining documents.
+ * Usage: NormalizeIds [batchSize]   (default: 500)
+ */
+public class NormalizeIds {
+    public static void main(String[] args) {
+        int batchSize = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+
+        System.out.println("[NormalizeIds] Starting (batchSize=" + batchSize + ")");
+
+        try {
+            DBConnection.getInstance().connectFromConfig();
+        } catch (Exception ex) {
+            System.err.println("[NormalizeIds] DB connection failed: " + ex.getMessage());
+            ex.printStackTrace();
+            return;
+        }
+
+        try {
+            long start = System.currentTimeMillis();
+            IdNormalizationMigration migration = new IdNormalizationMigration(DBConnection.getInstance().getDatabase(), batchSize);
+            long converted = migration.run();
+            System.out.println("[NormalizeIds] Rewrote " + converted + " documents in "
+                    + (System.currentTimeMillis() - start) + " ms.");
+
+            ConfigManager cfg = ConfigManager.getInstance();
+            cfg.set(IdPolicy.STRICT_KEY, "true");
+            cfg.save();
+            System.out.println("[NormalizeIds] Enabled " + IdPolicy.STRICT_KEY + " in config.properties.");
+        } catch (Exception ex) {
+            System.err.println("[NormalizeIds] Migration failed (re-run to resume): " + ex.getMessage());
+            ex.printStackTrace();
+        } finally {
+            DBConnection.getInstance().close();
+        }
+
+        System.out.println("[NormalizeIds] Done.");
+    }
+}
@@ -0,0 +1,39 @@
+package edu.agile.sis.bootstrap;
+
+import edu.agile.sis.db.DBConnection;
+import edu.agile.sis.service.GradebookService;
+
+/**
+ * Rebuilds the materialized gradebook collection from submissions and quiz_attempts.
+ * Usage: RebuildGradebook [batchSize] [threads]   (defaults: 200, 4)
+ */
+public class RebuildGradebook {
+    public static void main(String[] args) {
+        int batchSize = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+
+        System.out.println("[RebuildGradebook] Starting (batchSize=" + batchSize + ", threads=" + threads + ")");
+
+        try {
+            DBConnection.getInstance().connectFromConfig();
+        } catch (Exception ex) {
+            System.err.println("[RebuildGradebook] DB connection failed: " + ex.getMessage());
+            ex.printStackTrace();
+            return;
+        }
+
+        try {
+            long start = System.currentTimeMillis();
+            int students = new GradebookService().rebuild(batchSize, threads);
+            System.out.println("[RebuildGradebook] Rebuilt " + students + " students in "
+                    + (System.currentTimeMillis() - start) + " ms.");
+        } catch (Exception ex) {
+            System.err.println("[RebuildGradebook] Rebuild failed: " + ex.getMessage());
+            ex.printStackTrace();
+        } finally {
+            DBConnection.getInstance().close();
+        }
+
+        System.out.println("[RebuildGradebook] Done.");
+    }
+}
@@ -0,0 +1,53 @@
+package edu.agile.sis.bootstrap;
+
+import edu.agile.sis.dao.EnrollmentDAO;
+import edu.agile.sis.db.DBConnection;
+import edu.agile.sis.db.DaoRegistry;
+import edu.agile.sis.db.IndexBootstrap;
+
+/**
+ * Prepares legacy enrollment data for the registration guard: removes duplicate
+ * (studentId, courseCode) enrollments, recomputes every student's enrolledCount and then
+ * creates the indexes (including the unique enrollment index, which fails while duplicates exist).
+ * A non-unique index on the same keys, left by earlier versions, is dropped first. Exits with
+ * status 1 if the unique index is still missing afterwards. Safe to re-run. Usage: RepairEnrollments
+ */
+public class RepairEnrollments {
+    public static void main(String[] args) {
+        System.out.println("[RepairEnrollments] Starting");
+
+        try {
+            DBConnection.getInstance().connectFromConfig();
+        } catch (Exception ex) {
+            System.err.println("[RepairEnrollments] DB connection failed: " + ex.getMessage());
+            ex.printStackTrace();
+            return;
+        }
+
+        boolean ok = false;
+        try {
+            EnrollmentDAO dao = DaoRegistry.get(EnrollmentDAO.class);
+            long removed = dao.removeDuplicateEnrollments();
+            System.out.println("[RepairEnrollments] Removed " + removed + " duplicate enrollments.");
+            long updated = dao.recountEnrolled();
+            System.out.println("[RepairEnrollments] Updated enrolledCount of " + updated + " students.");
+            if (dao.dropNonUniqueStudentCourseIndex()) {
+                System.out.println("[RepairEnrollments] Dropped the non-unique (studentId, courseCode) index.");
+            }
+            IndexBootstrap.ensureIndexes();
+            if (!dao.hasUniqueStudentCourseIndex()) {
+                throw new IllegalStateException("unique (studentId, courseCode) index is missing after index creation;"
+                        + " registration cannot reject duplicate enrollments");
+            }
+            ok = true;
+        } catch (Exception ex) {
+            System.err.println("[RepairEnrollments] Repair failed: " + ex.getMessage());
+            ex.printStackTrace();
+        } finally {
+            DBConnection.getInstance().close();
+        }
+
+        if (!ok) System.exit(1);
+        System.out.println("[RepairEnrollments] Done.");
+    }
+}
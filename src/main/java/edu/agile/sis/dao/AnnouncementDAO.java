@@ -1,9 +1,8 @@
 package edu.agile.sis.dao;
 
-import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.model.*;
-import edu.agile.sis.db.DBConnection;
+import edu.agile.sis.db.DaoRegistry;
 import org.bson.Document;
 import org.bson.conversions.Bson;
 import org.bson.types.ObjectId;
@@ -16,10 +15,7 @@ public class AnnouncementDAO {
     private final MongoCollection<Document> coll;
 
     public AnnouncementDAO() {
-        this.coll = DBConnection.getInstance().getDatabase().getCollection("announcements");
-        // ensure indexes (run once)
-        coll.createIndex(Indexes.descending("isPinned", "pinnedAt", "createdAt"));
-        coll.createIndex(Indexes.ascending("category"));
+        this.coll = DaoRegistry.collection("announcements");
     }
 
     public String insert(Document doc) {
@@ -29,20 +25,21 @@ public class AnnouncementDAO {
         return id == null ? null : id.toString();
     }
 
-    public List<Document> list(int skip, int limit, String category, boolean pinnedFirst) {
+    /**
+     * One page of the feed, newest first (pinned announcements first when pinnedFirst). Pass the
+     * previous page's nextToken to continue; null starts at the top.
+     */
+    public KeysetPage list(String category, boolean pinnedFirst, int limit, String token) {
         List<Bson> filters = new ArrayList<>();
         filters.add(Filters.eq("deleted", false));
         if (category != null && !category.isBlank() && !"All".equalsIgnoreCase(category)) {
             filters.add(Filters.eq("category", category));
         }
         Bson query = filters.size() == 1 ? filters.get(0) : Filters.and(filters);
-        FindIterable<Document> it;
-        if (pinnedFirst) {
-            it = coll.find(query).sort(Sorts.orderBy(Sorts.descending("isPinned"), Sorts.descending("pinnedAt"), Sorts.descending("createdAt")));
-        } else {
-            it = coll.find(query).sort(Sorts.descending("createdAt"));
-        }
-        return it.skip(skip).limit(limit).into(new ArrayList<>());
+        List<KeysetPager.Key> keys = pinnedFirst
+                ? List.of(KeysetPager.desc("isPinned"), KeysetPager.desc("pinnedAt"), KeysetPager.desc("createdAt"))
+                : List.of(KeysetPager.desc("createdAt"));
+        return KeysetPager.fetch(coll, query, null, keys, limit, token);
     }
 
     public Document findById(String idHex) {
@@ -2,18 +2,20 @@ package edu.agile.sis.dao;
 
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.model.Filters;
-import edu.agile.sis.db.DBConnection;
+import edu.agile.sis.db.DaoRegistry;
+import edu.agile.sis.db.IdPolicy;
 import org.bson.Document;
 import org.bson.types.ObjectId;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 public class AssignmentDAO {
     private final MongoCollection<Document> coll;
 
     public AssignmentDAO() {
-        this.coll = DBConnection.getInstance().getDatabase().getCollection("assignments");
+        this.coll = DaoRegistry.collection("assignments");
     }
 
     public String insertAssignment(Document doc) {
@@ -38,6 +40,25 @@ public class AssignmentDAO {
         }
     }
 
+    /**
+     * Batch lookup: resolves every id (hex ObjectId or plain string) with a single $in query.
+     */
+    public List<Document> findByIds(Collection<String> ids) {
+        if (ids == null || ids.isEmpty()) return new ArrayList<>();
+        List<Object> keys = new ArrayList<>();
+        for (String id : ids) {
+            if (id == null || id.isBlank()) continue;
+            if (IdPolicy.isStrict()) {
+                keys.add(IdPolicy.objectId(id));
+                continue;
+            }
+            keys.add(id);
+            if (ObjectId.isValid(id)) keys.add(new ObjectId(id));
+        }
+        if (keys.isEmpty()) return new ArrayList<>();
+        return coll.find(Filters.in("_id", keys)).into(new ArrayList<>());
+    }
+
     public boolean update(String hexId, Document updates) {
         try {
             coll.updateOne(Filters.eq("_id", new ObjectId(hexId)), new Document("$set", updates));
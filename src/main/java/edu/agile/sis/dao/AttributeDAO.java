@@ -2,7 +2,7 @@ package edu.agile.sis.dao;
 
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.model.Filters;
-import edu.agile.sis.db.DBConnection;
+import edu.agile.sis.db.DaoRegistry;
 import org.bson.Document;
 
 import java.util.ArrayList;
@@ -12,7 +12,7 @@ public class AttributeDAO {
     private final MongoCollection<Document> attrs;
 
     public AttributeDAO() {
-        attrs = DBConnection.getInstance().getDatabase().getCollection("attributes");
+        attrs = DaoRegistry.collection("attributes");
     }
 
     public void insertAttribute(Document attr) {
@@ -1,7 +1,7 @@
 package edu.agile.sis.dao;
 
 import com.mongodb.client.MongoCollection;
-import edu.agile.sis.db.DBConnection;
+import edu.agile.sis.db.DaoRegistry;
 import org.bson.Document;
 
 import java.util.ArrayList;
@@ -11,7 +11,7 @@ public class AttributeMetaDAO {
     private final MongoCollection<Document> coll;
 
     public AttributeMetaDAO(){
-        this.coll = DBConnection.getInstance().getDatabase().getCollection("attribute_meta");
+        this.coll = DaoRegistry.collection("attribute_meta");
     }
 
     public void insert(Document meta){
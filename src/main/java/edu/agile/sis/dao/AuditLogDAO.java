@@ -1,9 +1,13 @@
 package edu.agile.sis.dao;
 
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoBulkWriteException;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.InsertManyOptions;
 import com.mongodb.client.model.Sorts;
-import edu.agile.sis.db.DBConnection;
+import edu.agile.sis.db.AuditWriter;
+import edu.agile.sis.db.DaoRegistry;
 import org.bson.Document;
 
 import java.util.ArrayList;
@@ -18,11 +22,12 @@ public class AuditLogDAO {
     private final MongoCollection<Document> auditLogs;
 
     public AuditLogDAO() {
-        this.auditLogs = DBConnection.getInstance().getDatabase().getCollection("audit_logs");
+        this.auditLogs = DaoRegistry.collection("audit_logs");
     }
 
     /**
-     * Insert an audit log entry.
+     * Record an audit log entry. The entry is queued on the shared AuditWriter and written in a
+     * batch shortly after; the caller does not wait for the database.
      * 
      * @param log Document containing: entityType, entityId, action, performedBy,
      *            timestamp, details
@@ -31,7 +36,21 @@ public class AuditLogDAO {
         if (log.get("timestamp") == null) {
             log.append("timestamp", new Date());
         }
-        auditLogs.insertOne(log);
+        AuditWriter.getInstance().submit(log);
+    }
+
+    /**
+     * Write a batch of entries in one unordered insertMany. Entries already stored (same _id, from
+     * a re-sent batch) are skipped; any other failure is thrown.
+     */
+    public void insertBatch(List<Document> logs) {
+        try {
+            auditLogs.insertMany(logs, new InsertManyOptions().ordered(false));
+        } catch (MongoBulkWriteException ex) {
+            boolean onlyDuplicates = ex.getWriteErrors().stream()
+                    .allMatch(e -> ErrorCategory.fromErrorCode(e.getCode()) == ErrorCategory.DUPLICATE_KEY);
+            if (!onlyDuplicates || ex.getWriteConcernError() != null) throw ex;
+        }
     }
 
     /**
@@ -41,6 +60,7 @@ public class AuditLogDAO {
      * @return List of audit log documents, sorted by timestamp descending
      */
     public List<Document> findByEntityId(String entityId) {
+        AuditWriter.getInstance().flush();
         return auditLogs.find(Filters.eq("entityId", entityId))
                 .sort(Sorts.descending("timestamp"))
                 .into(new ArrayList<>());
@@ -53,6 +73,7 @@ public class AuditLogDAO {
      * @return List of audit log documents
      */
     public List<Document> findByEntityType(String entityType) {
+        AuditWriter.getInstance().flush();
         return auditLogs.find(Filters.eq("entityType", entityType))
                 .sort(Sorts.descending("timestamp"))
                 .into(new ArrayList<>());
@@ -65,6 +86,7 @@ public class AuditLogDAO {
      * @return List of audit log documents
      */
     public List<Document> findByPerformedBy(String userId) {
+        AuditWriter.getInstance().flush();
         return auditLogs.find(Filters.eq("performedBy", userId))
                 .sort(Sorts.descending("timestamp"))
                 .into(new ArrayList<>());
@@ -1,6 +1,6 @@
 package edu.agile.sis.dao;
 
-import edu.agile.sis.db.DBConnection;
+import edu.agile.sis.db.DaoRegistry;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.model.Filters;
 import org.bson.Document;
@@ -10,7 +10,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 public class BenefitsDAO {
-    private final MongoCollection<Document> col = DBConnection.getInstance().getDatabase().getCollection("benefits");
+    private final MongoCollection<Document> col = DaoRegistry.collection("benefits");
 
     public Document insert(Document d) { col.insertOne(d); return d; }
     public List<Document> findByStaff(String staffId) { List<Document> out = new ArrayList<>(); col.find(Filters.eq("staffId", staffId)).into(out); return out; }
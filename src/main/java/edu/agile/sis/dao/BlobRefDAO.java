@@ -0,0 +1,81 @@
+package edu.agile.sis.dao;
+
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoWriteException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.Updates;
+import edu.agile.sis.db.DaoRegistry;
+import org.bson.Document;
+
+import java.util.Date;
+
+/**
+ * Reference counts for content-addressed GridFS blobs. One document per stored content:
+ * {
+ *   "_id": "attachments:<sha256 hex>",
+ *   "bucket": "attachments", "sha256": "...", "size": 12345,
+ *   "fileId": "<GridFS file id hex>",
+ *   "refs": 3,
+ *   "createdAt": Date
+ * }
+ */
+public class BlobRefDAO {
+    private static final FindOneAndUpdateOptions AFTER = new FindOneAndUpdateOptions().returnDocument(ReturnDocument.AFTER);
+
+    private final MongoCollection<Document> coll;
+
+    public BlobRefDAO() {
+        this.coll = DaoRegistry.collection("blob_refs");
+    }
+
+    public static String key(String bucket, String sha256) {
+        return bucket + ":" + sha256;
+    }
+
+    /**
+     * Adds a reference to the content, registering fileId as its blob if the content is new.
+     * Returns the counter after the increment; its fileId is the blob callers should use.
+     */
+    public Document acquire(String bucket, String sha256, long size, String fileId) {
+        String key = key(bucket, sha256);
+        FindOneAndUpdateOptions upsert = new FindOneAndUpdateOptions().upsert(true).returnDocument(ReturnDocument.AFTER);
+        try {
+            return coll.findOneAndUpdate(Filters.eq("_id", key), Updates.combine(
+                    Updates.inc("refs", 1),
+                    Updates.setOnInsert("bucket", bucket),
+                    Updates.setOnInsert("sha256", sha256),
+                    Updates.setOnInsert("size", size),
+                    Updates.setOnInsert("fileId", fileId),
+                    Updates.setOnInsert("createdAt", new Date())), upsert);
+        } catch (MongoWriteException ex) {
+            // two first uploads of the same content raced on the upsert; the loser just increments
+            if (ex.getError().getCategory() != ErrorCategory.DUPLICATE_KEY) throw ex;
+            return coll.findOneAndUpdate(Filters.eq("_id", key), Updates.inc("refs", 1), AFTER);
+        }
+    }
+
+    /** Adds a reference only if the content is already stored; null otherwise. */
+    public Document acquireExisting(String bucket, String sha256) {
+        return coll.findOneAndUpdate(Filters.and(Filters.eq("_id", key(bucket, sha256)), Filters.gt("refs", 0)),
+                Updates.inc("refs", 1), AFTER);
+    }
+
+    /** Drops one reference to the blob; null when the file is not reference-counted. */
+    public Document release(String fileId) {
+        return coll.findOneAndUpdate(Filters.and(Filters.eq("fileId", fileId), Filters.gt("refs", 0)),
+                Updates.inc("refs", -1), AFTER);
+    }
+
+    /** True if the file has a counter at all, whatever its count. */
+    public boolean isCounted(String fileId) {
+        return coll.find(Filters.eq("fileId", fileId)).limit(1).first() != null;
+    }
+
+    /** Removes the counter if nobody re-acquired it meanwhile; true means the blob may be deleted. */
+    public boolean deleteIfUnreferenced(String key) {
+        return coll.deleteOne(Filters.and(Filters.eq("_id", key), Filters.lte("refs", 0))).getDeletedCount() > 0;
+    }
+}
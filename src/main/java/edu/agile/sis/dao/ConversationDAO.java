@@ -1,6 +1,6 @@
 package edu.agile.sis.dao;
 
-import edu.agile.sis.db.DBConnection;
+import edu.agile.sis.db.DaoRegistry;
 import com.mongodb.client.MongoCollection;
 import org.bson.Document;
 
@@ -14,7 +14,7 @@ public class ConversationDAO {
     private final MongoCollection<Document> coll;
 
     public ConversationDAO() {
-        this.coll = DBConnection.getInstance().getDatabase().getCollection("messages");
+        this.coll = DaoRegistry.collection("messages");
     }
 
    
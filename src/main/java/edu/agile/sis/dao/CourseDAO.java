@@ -2,18 +2,22 @@ package edu.agile.sis.dao;
 
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.model.Filters;
-import edu.agile.sis.db.DBConnection;
+import com.mongodb.client.model.Projections;
+import edu.agile.sis.db.DaoRegistry;
 import org.bson.Document;
 import org.bson.types.ObjectId;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 public class CourseDAO {
     private final MongoCollection<Document> coll;
 
     public CourseDAO(){
-        this.coll = DBConnection.getInstance().getDatabase().getCollection("courses");
+        this.coll = DaoRegistry.collection("courses");
     }
 
     public void insertCourse(Document course){
@@ -28,6 +32,21 @@ public class CourseDAO {
         return coll.find(Filters.eq("code", code)).first();
     }
 
+    /** Which of the given course codes exist, in one query. */
+    public Set<String> findExistingCodes(Collection<String> codes){
+        Set<String> found = new HashSet<>();
+        coll.find(Filters.in("code", codes)).projection(Projections.include("code"))
+                .forEach(d -> found.add(d.getString("code")));
+        return found;
+    }
+
+    /** code and assignedStaff of the courses that have staff assigned, for PermissionIndex. */
+    public List<Document> findStaffAssignments(){
+        return coll.find(Filters.exists("assignedStaff.0"))
+                .projection(Projections.include("code", "assignedStaff"))
+                .into(new ArrayList<>());
+    }
+
     public Document findById(String id){
         try {
             return coll.find(Filters.eq("_id", new ObjectId(id))).first();
@@ -1,23 +1,59 @@
 package edu.agile.sis.dao;
 
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoWriteException;
+import com.mongodb.bulk.BulkWriteError;
 import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Accumulators;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.BulkWriteOptions;
 import com.mongodb.client.model.Filters;
-import edu.agile.sis.db.DBConnection;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import edu.agile.sis.db.DaoRegistry;
+import edu.agile.sis.db.IdPolicy;
 import org.bson.Document;
+import org.bson.conversions.Bson;
 import org.bson.types.ObjectId;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * EnrollmentDAO - DAO for enrollments collection.
  * Adds counting helpers used by EnrollmentService.
+ *
+ * (studentId, courseCode) is unique, and each student document carries enrolledCount, the number
+ * of its enrollments. Registration first raises enrolledCount with a conditional $inc that only
+ * matches below the student's limit, then inserts; so concurrent registrations can neither exceed
+ * the limit nor create duplicates.
  */
 public class EnrollmentDAO {
+    public static final String ENROLLED_COUNT = "enrolledCount";
+    /** Transient field set by reserveCourseSlots and removed before it returns. */
+    private static final String IMPORT_MARKER = "enrollImport";
+
     private final MongoCollection<Document> coll;
+    private final MongoCollection<Document> students;
 
     public EnrollmentDAO() {
-        this.coll = DBConnection.getInstance().getDatabase().getCollection("enrollments");
+        this(DaoRegistry.collection("enrollments"), DaoRegistry.collection("students"));
+    }
+
+    /** DAO over given collections (the registration benchmark runs against a throwaway database). */
+    public EnrollmentDAO(MongoCollection<Document> enrollments, MongoCollection<Document> students) {
+        this.coll = enrollments;
+        this.students = students;
     }
 
     // ----- core CRUD (original names) -----
@@ -72,11 +108,250 @@ public class EnrollmentDAO {
         return findOne(studentId, courseCode);
     }
 
+    /** Deletes the enrollment and lowers the student's enrolledCount; false if there was none. */
     public boolean deleteByStudentAndCourse(String studentId, String courseCode) {
-        long before = coll.countDocuments(Filters.and(Filters.eq("studentId", studentId), Filters.eq("courseCode", courseCode)));
-        delete(studentId, courseCode);
-        long after = coll.countDocuments(Filters.and(Filters.eq("studentId", studentId), Filters.eq("courseCode", courseCode)));
-        return after < before;
+        long deleted = coll.deleteOne(Filters.and(Filters.eq("studentId", studentId), Filters.eq("courseCode", courseCode)))
+                .getDeletedCount();
+        if (deleted == 0) return false;
+        releaseCourseSlot(studentId);
+        return true;
+    }
+
+    // ----- enrolledCount guard -----
+
+    /**
+     * Inserts the enrollment unless the student already has one for the course.
+     * @return false on a duplicate (studentId, courseCode)
+     */
+    public boolean tryInsertEnrollment(Document enrollment) {
+        try {
+            coll.insertOne(enrollment);
+            return true;
+        } catch (MongoWriteException ex) {
+            if (ex.getError().getCategory() == ErrorCategory.DUPLICATE_KEY) return false;
+            throw ex;
+        }
+    }
+
+    /**
+     * Takes one of the student's course slots: raises enrolledCount by one if it is below
+     * maxAllowed. False if the limit is reached (or the student has no enrolledCount yet, see
+     * initEnrolledCount).
+     */
+    public boolean reserveCourseSlot(String studentId, int maxAllowed) {
+        return students.updateOne(Filters.and(studentFilter(studentId), Filters.lt(ENROLLED_COUNT, maxAllowed)),
+                Updates.inc(ENROLLED_COUNT, 1)).getModifiedCount() > 0;
+    }
+
+    /** Gives back a slot taken by reserveCourseSlot (failed insert or unregistration). */
+    public void releaseCourseSlot(String studentId) {
+        students.updateOne(Filters.and(studentFilter(studentId), Filters.gt(ENROLLED_COUNT, 0)),
+                Updates.inc(ENROLLED_COUNT, -1));
+    }
+
+    /**
+     * Sets enrolledCount from the enrollments of a student that does not have one yet (records
+     * created before the counter existed) and returns the student's count. Enrollments under any
+     * of the student's ids count, as in recountEnrolled.
+     */
+    public int initEnrolledCount(String studentId) {
+        Document student = students.find(studentFilter(studentId))
+                .projection(Projections.include("core.entityId", "entityId", ENROLLED_COUNT)).first();
+        if (student != null && student.getInteger(ENROLLED_COUNT) != null) return student.getInteger(ENROLLED_COUNT);
+        int count = countDistinctCourses(student == null ? List.of(studentId) : studentKeys(student));
+        students.updateOne(Filters.and(studentFilter(studentId), Filters.exists(ENROLLED_COUNT, false)),
+                Updates.set(ENROLLED_COUNT, count));
+        Document s = students.find(studentFilter(studentId)).projection(Projections.include(ENROLLED_COUNT)).first();
+        return s == null ? count : s.getInteger(ENROLLED_COUNT, count);
+    }
+
+    // ----- bulk import -----
+
+    /**
+     * Student documents matching any of the ids (by _id, core.entityId or entityId) in one query,
+     * with only what a bulk registration needs: the ids, enrolledCount and the GPA fields.
+     */
+    public List<Document> findStudentsForEnrollment(Collection<String> studentIds) {
+        List<Object> ids = new ArrayList<>();
+        for (String id : studentIds) {
+            ids.add(id);
+            if (ObjectId.isValid(id)) ids.add(new ObjectId(id));
+        }
+        return students.find(Filters.or(
+                        Filters.in("_id", ids),
+                        Filters.in("core.entityId", studentIds),
+                        Filters.in("entityId", studentIds)))
+                .projection(Projections.fields(
+                        Projections.include("core.entityId", "core.gpa", "entityId", ENROLLED_COUNT),
+                        Projections.elemMatch("attributes", Filters.regex("key", "^\\s*gpa\\s*$", "i"))))
+                .into(new ArrayList<>());
+    }
+
+    /** Course codes each of the given students is enrolled in, in one query. */
+    public Map<String, Set<String>> findCourseCodesByStudents(Collection<String> studentIds) {
+        Map<String, Set<String>> out = new HashMap<>();
+        coll.find(Filters.in("studentId", studentIds)).projection(Projections.include("studentId", "courseCode"))
+                .forEach(d -> out.computeIfAbsent(IdPolicy.studentId(d.get("studentId")), k -> new HashSet<>())
+                        .add(d.getString("courseCode")));
+        return out;
+    }
+
+    /**
+     * Takes several course slots per student in one unordered bulk write: each student's
+     * enrolledCount goes from expected.get(id) to expected.get(id) + slots.get(id), but only if it
+     * still is expected.get(id), the value the caller checked the limit against. A student whose
+     * registrations changed meanwhile is left untouched. Ids in legacy have no enrolledCount yet;
+     * their expected value was counted from the enrollments.
+     *
+     * A bulk result has no per-write match flags, so the updates also set a marker field; when
+     * some updates missed, the marked students are read back. The marker is removed again before
+     * returning.
+     *
+     * @return the _ids whose slots were taken
+     */
+    public Set<Object> reserveCourseSlots(Map<Object, Integer> slots, Map<Object, Integer> expected, Set<Object> legacy) {
+        String importId = new ObjectId().toHexString();
+        List<WriteModel<Document>> writes = new ArrayList<>();
+        for (Map.Entry<Object, Integer> e : slots.entrySet()) {
+            int base = expected.get(e.getKey());
+            Bson current = legacy.contains(e.getKey()) ? Filters.exists(ENROLLED_COUNT, false) : Filters.eq(ENROLLED_COUNT, base);
+            writes.add(new UpdateOneModel<>(Filters.and(Filters.eq("_id", e.getKey()), current),
+                    Updates.combine(Updates.set(ENROLLED_COUNT, base + e.getValue()), Updates.set(IMPORT_MARKER, importId))));
+        }
+        if (writes.isEmpty()) return new HashSet<>();
+        Bson marked = Filters.and(Filters.in("_id", slots.keySet()), Filters.eq(IMPORT_MARKER, importId));
+        Set<Object> taken = new HashSet<>();
+        if (students.bulkWrite(writes, new BulkWriteOptions().ordered(false)).getMatchedCount() == writes.size()) {
+            taken.addAll(slots.keySet());
+        } else {
+            students.find(marked).projection(Projections.include("_id")).forEach(d -> taken.add(d.get("_id")));
+        }
+        students.updateMany(marked, Updates.unset(IMPORT_MARKER));
+        return taken;
+    }
+
+    /** Gives back slots taken by reserveCourseSlots (rows that turned out to be duplicates). */
+    public void releaseCourseSlots(Map<Object, Integer> slots) {
+        List<WriteModel<Document>> writes = new ArrayList<>();
+        for (Map.Entry<Object, Integer> e : slots.entrySet()) {
+            writes.add(new UpdateOneModel<>(Filters.eq("_id", e.getKey()), Updates.inc(ENROLLED_COUNT, -e.getValue())));
+        }
+        if (!writes.isEmpty()) students.bulkWrite(writes, new BulkWriteOptions().ordered(false));
+    }
+
+    /**
+     * Inserts enrollments with one unordered bulk write (the driver splits large batches).
+     * @return the errors, by index into docs; duplicates of existing enrollments show up as
+     *         duplicate-key errors
+     */
+    public List<BulkWriteError> insertEnrollments(List<Document> docs) {
+        if (docs.isEmpty()) return List.of();
+        List<WriteModel<Document>> writes = new ArrayList<>();
+        for (Document d : docs) writes.add(new InsertOneModel<>(d));
+        try {
+            coll.bulkWrite(writes, new BulkWriteOptions().ordered(false));
+            return List.of();
+        } catch (MongoBulkWriteException ex) {
+            if (ex.getWriteErrors().isEmpty()) throw ex;
+            return ex.getWriteErrors();
+        }
+    }
+
+    /**
+     * Repair: removes duplicate (studentId, courseCode) enrollments, keeping the earliest, so the
+     * unique index can be built.
+     * @return number of enrollments removed
+     */
+    public long removeDuplicateEnrollments() {
+        long removed = 0;
+        List<Document> groups = coll.aggregate(List.of(
+                Aggregates.sort(Sorts.ascending("_id")),
+                Aggregates.group(new Document("s", "$studentId").append("c", "$courseCode"),
+                        Accumulators.push("ids", "$_id"), Accumulators.sum("n", 1)),
+                Aggregates.match(Filters.gt("n", 1)))).allowDiskUse(true).into(new ArrayList<>());
+        for (Document g : groups) {
+            List<Object> ids = new ArrayList<>(g.getList("ids", Object.class));
+            ids.remove(0);
+            removed += coll.deleteMany(Filters.in("_id", ids)).getDeletedCount();
+        }
+        return removed;
+    }
+
+    /**
+     * Repair: drops a non-unique (studentId, courseCode) index. Earlier versions created one
+     * under the same default name, so the unique index cannot be created next to it.
+     * @return true if one was dropped
+     */
+    public boolean dropNonUniqueStudentCourseIndex() {
+        for (Document ix : coll.listIndexes()) {
+            if (isStudentCourseKey(ix.get("key", Document.class)) && !Boolean.TRUE.equals(ix.get("unique"))) {
+                coll.dropIndex(ix.getString("name"));
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** True if the unique (studentId, courseCode) index that tryInsertEnrollment relies on exists. */
+    public boolean hasUniqueStudentCourseIndex() {
+        for (Document ix : coll.listIndexes()) {
+            if (isStudentCourseKey(ix.get("key", Document.class)) && Boolean.TRUE.equals(ix.get("unique"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** {studentId: 1, courseCode: 1}, however the numbers were stored (shells write doubles). */
+    private static boolean isStudentCourseKey(Document key) {
+        if (key == null || !List.of("studentId", "courseCode").equals(new ArrayList<>(key.keySet()))) return false;
+        for (Object v : key.values()) {
+            if (!(v instanceof Number) || ((Number) v).intValue() != 1) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Repair: sets enrolledCount of every student from the enrollments collection.
+     * @return number of students updated
+     */
+    public long recountEnrolled() {
+        Map<String, Integer> counts = new HashMap<>();
+        coll.aggregate(List.of(Aggregates.group("$studentId", Accumulators.sum("n", 1))))
+                .forEach(d -> counts.put(IdPolicy.studentId(d.get("_id")), d.getInteger("n")));
+        long updated = 0;
+        for (Document s : students.find().projection(Projections.include("core.entityId", "entityId", ENROLLED_COUNT))) {
+            int n = 0;
+            for (String key : studentKeys(s)) n += counts.getOrDefault(key, 0);
+            if (!Integer.valueOf(n).equals(s.getInteger(ENROLLED_COUNT))) {
+                students.updateOne(Filters.eq("_id", s.get("_id")), Updates.set(ENROLLED_COUNT, n));
+                updated++;
+            }
+        }
+        return updated;
+    }
+
+    /** The ids an enrollment may use for this student (see EntityService.getEntityById). */
+    public static List<String> studentKeys(Document student) {
+        List<String> keys = new ArrayList<>();
+        keys.add(IdPolicy.studentId(student.get("_id")));
+        Document core = student.get("core", Document.class);
+        if (core != null && core.getString("entityId") != null && !keys.contains(core.getString("entityId"))) {
+            keys.add(core.getString("entityId"));
+        }
+        String entityId = student.getString("entityId");
+        if (entityId != null && !keys.contains(entityId)) keys.add(entityId);
+        return keys;
+    }
+
+    /** Matches the student document the same ways EntityService.getEntityById does. */
+    private static Bson studentFilter(String studentId) {
+        List<Bson> or = new ArrayList<>();
+        if (ObjectId.isValid(studentId)) or.add(Filters.eq("_id", new ObjectId(studentId)));
+        or.add(Filters.eq("_id", studentId));
+        or.add(Filters.eq("core.entityId", studentId));
+        or.add(Filters.eq("entityId", studentId));
+        return Filters.or(or);
     }
 
     // ----- new helpers -----
@@ -88,6 +363,16 @@ public class EnrollmentDAO {
         return coll.countDocuments(Filters.eq("studentId", studentEntityId));
     }
 
+    /** Distinct course codes enrolled under any of the ids (legacy ObjectId studentIds included). */
+    private int countDistinctCourses(List<String> studentKeys) {
+        List<Object> ids = new ArrayList<>();
+        for (String id : studentKeys) {
+            ids.add(id);
+            if (ObjectId.isValid(id)) ids.add(new ObjectId(id));
+        }
+        return coll.distinct("courseCode", Filters.in("studentId", ids), String.class).into(new ArrayList<>()).size();
+    }
+
     /**
      * Count distinct course codes that the student is registered for.
      * This ignores duplicate enrollment documents for the same course.
@@ -1,14 +1,10 @@
 package edu.agile.sis.dao;
 
-import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoCollection;
-import com.mongodb.client.model.Indexes;
-import com.mongodb.client.model.Sorts;
-import edu.agile.sis.db.DBConnection;
+import edu.agile.sis.db.DaoRegistry;
 import org.bson.Document;
 import org.bson.types.ObjectId;
 
-import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
@@ -16,9 +12,7 @@ public class EventDAO {
     private final MongoCollection<Document> coll;
 
     public EventDAO() {
-        this.coll = DBConnection.getInstance().getDatabase().getCollection("events");
-        coll.createIndex(Indexes.ascending("startAt"));
-        coll.createIndex(Indexes.ascending("category"));
+        this.coll = DaoRegistry.collection("events");
     }
 
     public String insert(Document doc) {
@@ -28,12 +22,12 @@ public class EventDAO {
         return id == null ? null : id.toString();
     }
 
-    public List<Document> listUpcoming(Date from, int skip, int limit, String category) {
+    /** One page of events ordered by start time; pass the previous page's nextToken to continue. */
+    public KeysetPage listUpcoming(Date from, String category, int limit, String token) {
         Document filter = new Document("deleted", false);
         if (from != null) filter.append("startAt", new Document("$gte", from));
         if (category != null && !category.isBlank() && !"All".equalsIgnoreCase(category)) filter.append("category", category);
-        FindIterable<Document> it = coll.find(filter).sort(Sorts.ascending("startAt"));
-        return it.skip(skip).limit(limit).into(new ArrayList<>());
+        return KeysetPager.fetch(coll, filter, null, List.of(KeysetPager.asc("startAt")), limit, token);
     }
 
     public Document findById(String idHex) {
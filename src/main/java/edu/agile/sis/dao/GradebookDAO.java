@@ -0,0 +1,121 @@
+package edu.agile.sis.dao;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.DeleteManyModel;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
+import edu.agile.sis.db.DaoRegistry;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DAO for the materialized gradebook collection (one document per student and course).
+ * Shape:
+ * {
+ *   "studentId": "20P1076",
+ *   "courseCode": "CSE231",
+ *   "items": { "sub_<submissionId>": { "bucket": "assign", "amount": 15.0, "subjectName": null, "credits": null },
+ *              "att_<attemptId>":    { "bucket": "quiz", "amount": 4.0, ... } },
+ *   "final": 0.0, "quiz": 4.0, "assign": 15.0,   // raw bucket sums, recomputed from items on every write
+ *   "updatedAt": Date
+ * }
+ * A student with nothing to grade has a single marker row { studentId, courseCode: null, empty: true }.
+ */
+public class GradebookDAO {
+    private final MongoCollection<Document> coll;
+
+    public GradebookDAO() {
+        this.coll = DaoRegistry.collection("gradebook");
+    }
+
+    public List<Document> findByStudent(String studentId) {
+        return coll.find(Filters.eq("studentId", studentId)).into(new ArrayList<>());
+    }
+
+    /** True once the student's rows were built (an empty marker counts). */
+    public boolean hasRows(String studentId) {
+        return coll.find(Filters.eq("studentId", studentId)).projection(new Document("_id", 1)).limit(1).first() != null;
+    }
+
+    public Document findOne(String studentId, String courseCode) {
+        return coll.find(Filters.and(Filters.eq("studentId", studentId), Filters.eq("courseCode", courseCode))).first();
+    }
+
+    /**
+     * Set (or replace) one item's contribution and recompute the bucket sums in the same
+     * update, so re-grading an item is idempotent and needs a single round trip.
+     */
+    public void upsertItem(String studentId, String courseCode, String itemKey, Document item) {
+        List<Document> pipeline = Arrays.asList(
+                new Document("$set", new Document("items", new Document("$mergeObjects", Arrays.asList(
+                        new Document("$ifNull", Arrays.asList("$items", new Document())),
+                        new Document("$literal", new Document(itemKey, item)))))
+                        .append("updatedAt", new Date())),
+                new Document("$set", new Document("final", sumBucket("final"))
+                        .append("quiz", sumBucket("quiz"))
+                        .append("assign", sumBucket("assign")))
+        );
+        coll.updateOne(Filters.and(Filters.eq("studentId", studentId), Filters.eq("courseCode", courseCode)),
+                pipeline, new UpdateOptions().upsert(true));
+    }
+
+    /**
+     * Replace the gradebook rows of the given students with freshly computed rows, in one ordered
+     * bulk write: an upserting replace per (student, course), then removal of the courses a
+     * student no longer has. Students without rows get the empty marker. Readers never see a
+     * student without rows, and concurrent rebuilds of the same student overwrite each other
+     * instead of colliding on the unique {studentId, courseCode} index.
+     */
+    public void replaceForStudents(Collection<String> studentIds, List<Document> rows) {
+        if (studentIds == null || studentIds.isEmpty()) return;
+        Map<String, List<String>> coursesByStudent = new LinkedHashMap<>();
+        for (String id : studentIds) coursesByStudent.put(id, new ArrayList<>());
+
+        List<WriteModel<Document>> ops = new ArrayList<>();
+        ReplaceOptions upsert = new ReplaceOptions().upsert(true);
+        if (rows != null) {
+            for (Document row : rows) {
+                String studentId = row.getString("studentId");
+                String courseCode = row.getString("courseCode");
+                coursesByStudent.computeIfAbsent(studentId, k -> new ArrayList<>()).add(courseCode);
+                ops.add(new ReplaceOneModel<>(key(studentId, courseCode), row, upsert));
+            }
+        }
+        for (Map.Entry<String, List<String>> e : coursesByStudent.entrySet()) {
+            String studentId = e.getKey();
+            if (e.getValue().isEmpty()) {
+                ops.add(new ReplaceOneModel<>(key(studentId, null), new Document("studentId", studentId)
+                        .append("courseCode", null).append("empty", true).append("updatedAt", new Date()), upsert));
+                ops.add(new DeleteManyModel<>(Filters.and(Filters.eq("studentId", studentId), Filters.ne("courseCode", null))));
+            } else {
+                ops.add(new DeleteManyModel<>(Filters.and(Filters.eq("studentId", studentId), Filters.nin("courseCode", e.getValue()))));
+            }
+        }
+        coll.bulkWrite(ops, new BulkWriteOptions().ordered(true));
+    }
+
+    private static Bson key(String studentId, String courseCode) {
+        return Filters.and(Filters.eq("studentId", studentId), Filters.eq("courseCode", courseCode));
+    }
+
+    private static Document sumBucket(String bucket) {
+        return new Document("$sum", new Document("$map", new Document("input",
+                new Document("$filter", new Document("input", new Document("$objectToArray", "$items"))
+                        .append("as", "i")
+                        .append("cond", new Document("$eq", Arrays.asList("$$i.v.bucket", bucket)))))
+                .append("as", "i")
+                .append("in", "$$i.v.amount")));
+    }
+}
@@ -1,27 +1,69 @@
 package edu.agile.sis.dao;
 
 import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.Updates;
 import com.mongodb.client.result.UpdateResult;
-import edu.agile.sis.db.DBConnection;
+import edu.agile.sis.db.DaoRegistry;
 import org.bson.Document;
+import org.bson.conversions.Bson;
 import org.bson.types.ObjectId;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Data Access Object for inventory items collection.
+ *
+ * State changes are single conditional findOneAndUpdate calls whose filter holds the state the
+ * caller expects (e.g. status "Available" for an assignment). Of two staff members assigning the
+ * same laptop, one update matches and the other gets null, with no read beforehand.
+ *
+ * License seats are changed with single conditional $push / $pull updates so concurrent
+ * allocations cannot overwrite each other. Licenses keep a seatCount next to assignedUsers and may
+ * carry a seatLimit, which the update filter enforces.
  */
 public class InventoryDAO {
     private final MongoCollection<Document> inventory;
+    private final AtomicBoolean seatCountsChecked = new AtomicBoolean();
+
+    /** Fields the inventory search box matches (see SearchTerms). */
+    private static final List<String> SEARCH_FIELDS = List.of("name");
+
+    private static final Bson SUMMARY_FIELDS = Projections.fields(
+            Projections.include("name", "itemType", "status", "assignedToUserId", "assignedToName", "purchaseDate",
+                    "seatCount", "seatLimit"),
+            Projections.computed("assignedUserCount",
+                    new Document("$size", new Document("$ifNull", Arrays.asList("$assignedUsers", List.of())))),
+            Projections.computed("firstAssignedUserName",
+                    new Document("$arrayElemAt", Arrays.asList("$assignedUsers.userName", 0))));
+
+    private static final Document ASSIGNED_SIZE =
+            new Document("$size", new Document("$ifNull", Arrays.asList("$assignedUsers", List.of())));
+    /** seatCount, falling back to the array size for licenses not yet backfilled. */
+    private static final Document SEAT_COUNT = new Document("$ifNull", Arrays.asList("$seatCount", ASSIGNED_SIZE));
+
+    private static final Bson REQUESTABLE_FIELDS =
+            Projections.include("name", "itemType", "status", "notes", "seatCount", "seatLimit");
 
     public InventoryDAO() {
-        this.inventory = DBConnection.getInstance().getDatabase().getCollection("inventory");
+        this(DaoRegistry.collection("inventory"));
+    }
+
+    /** DAO over a given collection (the seat stress test runs against a throwaway database). */
+    public InventoryDAO(MongoCollection<Document> inventory) {
+        this.inventory = inventory;
     }
 
     public ObjectId insertItem(Document item) {
-        inventory.insertOne(item);
+        inventory.insertOne(SearchTerms.addTo(item, SEARCH_FIELDS));
         return item.getObjectId("_id");
     }
 
@@ -29,6 +71,61 @@ public class InventoryDAO {
         return inventory.find().into(new ArrayList<>());
     }
 
+    /**
+     * List-screen rows: the table columns only. Instead of the embedded assignedUsers array a
+     * license row carries assignedUserCount and firstAssignedUserName. Load the full item with
+     * findById before opening a detail or license dialog.
+     */
+    public List<Document> findAllItemSummaries() {
+        return inventory.find().projection(SUMMARY_FIELDS).into(new ArrayList<>());
+    }
+
+    /** Sets searchTerms on items written before it was maintained (IndexBootstrap runs this). */
+    public long backfillSearchTerms() {
+        return SearchTerms.backfill(inventory, SEARCH_FIELDS);
+    }
+
+    /**
+     * One page of summary rows ordered by name. status / itemType match exactly and every word of
+     * nameQuery must start a word of the name (SearchTerms); null or blank skips a filter.
+     */
+    public KeysetPage findItemSummaryPage(String status, String itemType, String nameQuery, int limit, String token) {
+        List<Bson> filters = new ArrayList<>();
+        if (status != null && !status.isBlank()) filters.add(Filters.eq("status", status));
+        if (itemType != null && !itemType.isBlank()) filters.add(Filters.eq("itemType", itemType));
+        Bson search = SearchTerms.filter(nameQuery);
+        if (search != null) filters.add(search);
+        Bson filter = filters.isEmpty() ? null : filters.size() == 1 ? filters.get(0) : Filters.and(filters);
+        return KeysetPager.fetch(inventory, filter, SUMMARY_FIELDS, List.of(KeysetPager.asc("name")), limit, token);
+    }
+
+    /**
+     * Items userId may request, sorted by name, in one indexed query: Available items of
+     * singleUserTypes, plus licenses that are not under repair, that userId holds no seat on and
+     * that have a free seat. Rows carry the browser columns only, not the assignedUsers array.
+     */
+    public List<Document> findRequestableItems(String userId, List<String> singleUserTypes) {
+        return inventory.find(requestableFilter(userId, singleUserTypes))
+                .projection(REQUESTABLE_FIELDS)
+                .sort(Sorts.ascending("name"))
+                .into(new ArrayList<>());
+    }
+
+    static Bson requestableFilter(String userId, List<String> singleUserTypes) {
+        Bson licenses = Filters.and(
+                Filters.eq("itemType", "License"),
+                Filters.in("status", "Available", "Assigned"),
+                Filters.nor(Filters.eq("assignedUsers.userId", userId)),
+                Filters.or(Filters.eq("seatLimit", null),
+                        Filters.expr(new Document("$lt", Arrays.asList(SEAT_COUNT, "$seatLimit")))));
+        if (singleUserTypes == null || singleUserTypes.isEmpty()) {
+            return licenses;
+        }
+        return Filters.or(
+                Filters.and(Filters.in("itemType", singleUserTypes), Filters.eq("status", "Available")),
+                licenses);
+    }
+
     public Document findById(String itemId) {
         ObjectId oid = tryParseObjectId(itemId);
         if (oid == null) {
@@ -59,10 +156,155 @@ public class InventoryDAO {
 
     public UpdateResult updateItem(String itemId, Document updatedData) {
         ObjectId oid = tryParseObjectId(itemId);
-        if (oid == null) {
-            return inventory.updateOne(Filters.eq("_id", itemId), new Document("$set", updatedData));
+        Bson id = oid == null ? Filters.eq("_id", itemId) : Filters.eq("_id", oid);
+        UpdateResult result = inventory.updateOne(id, new Document("$set", updatedData));
+        if (result.getMatchedCount() > 0 && SearchTerms.touches(updatedData, SEARCH_FIELDS)) {
+            SearchTerms.refresh(inventory, id, SEARCH_FIELDS);
+        }
+        return result;
+    }
+
+    /**
+     * Assigns an Available laptop or equipment item to a user.
+     *
+     * @return the item after the update, or null when it is missing, a license, or not Available
+     */
+    public Document assignItem(String itemId, String userId, String userName) {
+        Date now = new Date();
+        return inventory.findOneAndUpdate(
+                Filters.and(idFilter(itemId), Filters.ne("itemType", "License"), Filters.eq("status", "Available")),
+                Updates.combine(
+                        Updates.set("status", "Assigned"),
+                        Updates.set("assignedToUserId", userId),
+                        Updates.set("assignedToName", userName),
+                        Updates.set("assignedDate", now),
+                        Updates.set("updatedAt", now)),
+                new FindOneAndUpdateOptions().returnDocument(ReturnDocument.AFTER));
+    }
+
+    /**
+     * Takes an Assigned laptop or equipment item back; with expectedUserId set, only from that user.
+     *
+     * @return the item as it was before (so the previous holder can be read), or null when it was
+     *         not assigned (to that user)
+     */
+    public Document releaseItem(String itemId, String expectedUserId) {
+        List<Bson> filters = new ArrayList<>(List.of(idFilter(itemId), Filters.ne("itemType", "License"),
+                Filters.eq("status", "Assigned")));
+        if (expectedUserId != null) filters.add(Filters.eq("assignedToUserId", expectedUserId));
+        return inventory.findOneAndUpdate(Filters.and(filters),
+                Updates.combine(
+                        Updates.set("status", "Available"),
+                        Updates.set("assignedToUserId", null),
+                        Updates.set("assignedToName", null),
+                        Updates.set("assignedDate", null),
+                        Updates.set("updatedAt", new Date())),
+                new FindOneAndUpdateOptions().returnDocument(ReturnDocument.BEFORE));
+    }
+
+    /**
+     * Moves an item from one of fromStatuses to toStatus. clearAssignment also drops the single-user
+     * assignment fields (licenses keep their seats).
+     *
+     * @return the item after the update, or null when it is missing or in another status
+     */
+    public Document changeStatus(String itemId, List<String> fromStatuses, String toStatus, boolean clearAssignment) {
+        List<Bson> sets = new ArrayList<>(List.of(Updates.set("status", toStatus), Updates.set("updatedAt", new Date())));
+        if (clearAssignment) {
+            sets.add(Updates.set("assignedToUserId", null));
+            sets.add(Updates.set("assignedToName", null));
+        }
+        return inventory.findOneAndUpdate(Filters.and(idFilter(itemId), Filters.in("status", fromStatuses)),
+                Updates.combine(sets), new FindOneAndUpdateOptions().returnDocument(ReturnDocument.AFTER));
+    }
+
+    /**
+     * Gives user (userId, userName, assignedDate) a seat on the license in one atomic update. The
+     * filter only matches when the user holds no seat yet and, if the license has a seatLimit, a
+     * seat is free.
+     *
+     * @return the license after the update, or null when nothing matched (missing, not a license,
+     *         user already seated, or no free seat); look at the item to tell which
+     */
+    public Document addLicenseSeat(String itemId, Document user) {
+        ensureSeatCounts();
+        Bson filter = Filters.and(idFilter(itemId),
+                Filters.eq("itemType", "License"),
+                Filters.ne("assignedUsers.userId", user.getString("userId")),
+                Filters.or(Filters.eq("seatLimit", null),
+                        Filters.expr(new Document("$lt", Arrays.asList(SEAT_COUNT, "$seatLimit")))));
+        Bson update = Updates.combine(
+                Updates.push("assignedUsers", user),
+                Updates.inc("seatCount", 1),
+                Updates.set("status", "Assigned"),
+                Updates.set("updatedAt", new Date()));
+        return inventory.findOneAndUpdate(filter, update,
+                new FindOneAndUpdateOptions().returnDocument(ReturnDocument.AFTER));
+    }
+
+    /**
+     * Takes userId's seat on the license in one atomic update; a license left without seats goes
+     * back to Available.
+     *
+     * @return the license as it was before the update (so the removed entry can still be read), or
+     *         null when the user held no seat
+     */
+    public Document removeLicenseSeat(String itemId, String userId) {
+        ensureSeatCounts();
+        Bson filter = Filters.and(idFilter(itemId),
+                Filters.eq("itemType", "License"),
+                Filters.eq("assignedUsers.userId", userId));
+        Bson update = Updates.combine(
+                Updates.pull("assignedUsers", new Document("userId", userId)),
+                Updates.inc("seatCount", -1),
+                Updates.set("updatedAt", new Date()));
+        Document before = inventory.findOneAndUpdate(filter, update,
+                new FindOneAndUpdateOptions().returnDocument(ReturnDocument.BEFORE));
+        if (before != null) {
+            // only when still empty: a seat taken in between keeps the license Assigned
+            inventory.updateOne(Filters.and(idFilter(itemId), Filters.lte("seatCount", 0), Filters.eq("status", "Assigned")),
+                    Updates.set("status", "Available"));
+        }
+        return before;
+    }
+
+    /** Frees every seat of the license. */
+    public UpdateResult clearLicenseSeats(String itemId) {
+        return inventory.updateOne(Filters.and(idFilter(itemId), Filters.eq("itemType", "License")), Updates.combine(
+                Updates.set("assignedUsers", new ArrayList<Document>()),
+                Updates.set("seatCount", 0),
+                Updates.set("status", "Available"),
+                Updates.set("updatedAt", new Date())));
+    }
+
+    /** Sets or (with null) removes the seat limit of a license. Existing seats are kept. */
+    public UpdateResult setSeatLimit(String itemId, Integer seatLimit) {
+        Bson change = seatLimit == null ? Updates.unset("seatLimit") : Updates.set("seatLimit", seatLimit);
+        return inventory.updateOne(Filters.and(idFilter(itemId), Filters.eq("itemType", "License")),
+                Updates.combine(change, Updates.set("updatedAt", new Date())));
+    }
+
+    /** $inc on a license without seatCount would start from zero, so backfill once per process first. */
+    private void ensureSeatCounts() {
+        if (seatCountsChecked.compareAndSet(false, true)) {
+            try {
+                backfillSeatCounts();
+            } catch (RuntimeException ex) {
+                seatCountsChecked.set(false);
+                throw ex;
+            }
         }
-        return inventory.updateOne(Filters.eq("_id", oid), new Document("$set", updatedData));
+    }
+
+    /**
+     * Sets seatCount on licenses created before it was maintained. Safe to run repeatedly.
+     *
+     * @return number of licenses updated
+     */
+    public long backfillSeatCounts() {
+        return inventory.updateMany(
+                Filters.and(Filters.eq("itemType", "License"), Filters.exists("seatCount", false)),
+                List.of(new Document("$set", new Document("seatCount", ASSIGNED_SIZE)))).getModifiedCount();
     }
 
     public void deleteItem(String itemId) {
@@ -74,6 +316,11 @@ public class InventoryDAO {
         }
     }
 
+    private Bson idFilter(String itemId) {
+        ObjectId oid = tryParseObjectId(itemId);
+        return oid == null ? Filters.eq("_id", itemId) : Filters.eq("_id", oid);
+    }
+
     private ObjectId tryParseObjectId(String id) {
         if (id == null)
             return null;
@@ -1,11 +1,14 @@
 package edu.agile.sis.dao;
 
 import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.ReturnDocument;
 import com.mongodb.client.model.Sorts;
 import com.mongodb.client.result.UpdateResult;
-import edu.agile.sis.db.DBConnection;
+import edu.agile.sis.db.DaoRegistry;
 import org.bson.Document;
+import org.bson.conversions.Bson;
 import org.bson.types.ObjectId;
 
 import java.util.ArrayList;
@@ -18,7 +21,7 @@ public class InventoryRequestDAO {
     private final MongoCollection<Document> requests;
 
     public InventoryRequestDAO() {
-        this.requests = DBConnection.getInstance().getDatabase().getCollection("inventory_requests");
+        this.requests = DaoRegistry.collection("inventory_requests");
     }
 
     public ObjectId insertRequest(Document request) {
@@ -77,6 +80,18 @@ public class InventoryRequestDAO {
         return requests.updateOne(Filters.eq("_id", oid), new Document("$set", updatedData));
     }
 
+    /**
+     * Applies updatedData only while the request is still in expectedStatus, in one round trip.
+     *
+     * @return the request after the update, or null when it is missing or was already moved on
+     */
+    public Document updateRequestIfStatus(String requestId, String expectedStatus, Document updatedData) {
+        ObjectId oid = tryParseObjectId(requestId);
+        Bson id = oid == null ? Filters.eq("_id", requestId) : Filters.eq("_id", oid);
+        return requests.findOneAndUpdate(Filters.and(id, Filters.eq("status", expectedStatus)),
+                new Document("$set", updatedData), new FindOneAndUpdateOptions().returnDocument(ReturnDocument.AFTER));
+    }
+
     public void deleteRequest(String requestId) {
         ObjectId oid = tryParseObjectId(requestId);
         if (oid == null) {
@@ -0,0 +1,31 @@
+package edu.agile.sis.dao;
+
+import org.bson.Document;
+
+import java.util.List;
+
+/**
+ * One page of a keyset query. nextToken is opaque to callers: pass it back to the same DAO
+ * method to get the following page; it is null on the last page.
+ */
+public class KeysetPage {
+    private final List<Document> items;
+    private final String nextToken;
+
+    public KeysetPage(List<Document> items, String nextToken) {
+        this.items = items;
+        this.nextToken = nextToken;
+    }
+
+    public List<Document> getItems() {
+        return items;
+    }
+
+    public String getNextToken() {
+        return nextToken;
+    }
+
+    public boolean hasMore() {
+        return nextToken != null;
+    }
+}
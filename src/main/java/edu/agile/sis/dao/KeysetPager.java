@@ -0,0 +1,154 @@
+package edu.agile.sis.dao;
+
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Sorts;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.json.JsonMode;
+import org.bson.json.JsonWriterSettings;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Keyset (seek) pagination: instead of skip(n), each page starts strictly after the sort-key
+ * values of the previous page's last row, with _id as the tie-breaker. With an index on the sort
+ * keys followed by _id, page 500 costs the same as page 1.
+ *
+ * The continuation token carries those last values (extended JSON, base64url) together with the
+ * sort spec, so a token from a different sort is ignored and the caller gets the first page.
+ *
+ * Missing / null sort values follow MongoDB sort order (null sorts lowest). A projection, when
+ * given, must include every sort key.
+ */
+public final class KeysetPager {
+
+    private static final JsonWriterSettings TOKEN_JSON = JsonWriterSettings.builder().outputMode(JsonMode.EXTENDED).build();
+
+    private KeysetPager() {}
+
+    public static final class Key {
+        final String field;
+        final boolean descending;
+
+        private Key(String field, boolean descending) {
+            this.field = field;
+            this.descending = descending;
+        }
+    }
+
+    public static Key asc(String field) {
+        return new Key(field, false);
+    }
+
+    public static Key desc(String field) {
+        return new Key(field, true);
+    }
+
+    /**
+     * @param filter     base filter (may be null)
+     * @param projection optional projection (null for whole documents)
+     * @param keys       sort keys; _id is appended in the direction of the last key
+     * @param limit      page size
+     * @param token      token from the previous page, or null for the first page
+     */
+    public static KeysetPage fetch(MongoCollection<Document> coll, Bson filter, Bson projection,
+                                   List<Key> keys, int limit, String token) {
+        List<Key> all = withId(keys);
+        String spec = spec(all);
+        List<Object> after = decode(token, spec, all.size());
+
+        List<Bson> clauses = new ArrayList<>();
+        if (filter != null) clauses.add(filter);
+        if (after != null) clauses.add(seek(all, after));
+        Bson query = clauses.isEmpty() ? new Document() : clauses.size() == 1 ? clauses.get(0) : Filters.and(clauses);
+
+        List<Bson> sorts = new ArrayList<>();
+        for (Key k : all) sorts.add(k.descending ? Sorts.descending(k.field) : Sorts.ascending(k.field));
+
+        FindIterable<Document> it = coll.find(query).sort(Sorts.orderBy(sorts)).limit(Math.max(1, limit) + 1);
+        if (projection != null) it = it.projection(projection);
+        List<Document> rows = it.into(new ArrayList<>());
+
+        String next = null;
+        if (rows.size() > limit) {
+            rows = new ArrayList<>(rows.subList(0, limit));
+            next = encode(spec, all, rows.get(rows.size() - 1));
+        }
+        return new KeysetPage(rows, next);
+    }
+
+    private static List<Key> withId(List<Key> keys) {
+        List<Key> all = new ArrayList<>(keys);
+        boolean idDescending = !keys.isEmpty() && keys.get(keys.size() - 1).descending;
+        if (keys.stream().noneMatch(k -> "_id".equals(k.field))) all.add(new Key("_id", idDescending));
+        return all;
+    }
+
+    private static String spec(List<Key> keys) {
+        StringBuilder sb = new StringBuilder();
+        for (Key k : keys) sb.append(k.field).append(k.descending ? ":-1," : ":1,");
+        return sb.toString();
+    }
+
+    /**
+     * (k1 after v1) OR (k1 = v1 AND k2 after v2) OR ... for the lexicographic position after the
+     * last row.
+     */
+    static Bson seek(List<Key> keys, List<Object> values) {
+        List<Bson> branches = new ArrayList<>();
+        for (int i = 0; i < keys.size(); i++) {
+            Bson after = after(keys.get(i), values.get(i));
+            if (after == null) continue;
+            List<Bson> branch = new ArrayList<>();
+            for (int j = 0; j < i; j++) branch.add(Filters.eq(keys.get(j).field, values.get(j)));
+            branch.add(after);
+            branches.add(branch.size() == 1 ? branch.get(0) : Filters.and(branch));
+        }
+        if (branches.isEmpty()) return Filters.expr(false);
+        return branches.size() == 1 ? branches.get(0) : Filters.or(branches);
+    }
+
+    /** Values that sort after v in the key's direction; null when nothing can. */
+    private static Bson after(Key k, Object v) {
+        if (v == null) {
+            // null sorts lowest: ascending continues with any non-null value, descending has nothing left
+            return k.descending ? null : Filters.ne(k.field, null);
+        }
+        if (k.descending) return Filters.or(Filters.lt(k.field, v), Filters.eq(k.field, null));
+        return Filters.gt(k.field, v);
+    }
+
+    private static String encode(String spec, List<Key> keys, Document last) {
+        List<Object> values = new ArrayList<>();
+        for (Key k : keys) values.add(valueAt(last, k.field));
+        String json = new Document("s", spec).append("v", values).toJson(TOKEN_JSON);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<Object> decode(String token, String spec, int size) {
+        if (token == null || token.isBlank()) return null;
+        try {
+            Document d = Document.parse(new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8));
+            if (!spec.equals(d.getString("s"))) return null;
+            List<Object> values = d.getList("v", Object.class);
+            return values != null && values.size() == size ? values : null;
+        } catch (Exception ex) {
+            System.err.println("[KeysetPager] ignoring malformed token: " + ex.getMessage());
+            return null;
+        }
+    }
+
+    private static Object valueAt(Document doc, String path) {
+        Object cur = doc;
+        for (String part : path.split("\\.")) {
+            if (!(cur instanceof Document)) return null;
+            cur = ((Document) cur).get(part);
+        }
+        return cur;
+    }
+}
@@ -2,10 +2,12 @@ package edu.agile.sis.dao;
 
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
 import com.mongodb.client.model.Sorts;
 import com.mongodb.client.model.Updates;
-import edu.agile.sis.db.DBConnection;
+import edu.agile.sis.db.DaoRegistry;
 import org.bson.Document;
+import org.bson.conversions.Bson;
 import org.bson.types.ObjectId;
 
 import java.util.ArrayList;
@@ -15,11 +17,17 @@ import java.util.List;
 public class LeaveDAO {
 
     private final MongoCollection<Document> col =
-            DBConnection.getInstance().getDatabase().getCollection("leaves");
+            DaoRegistry.collection("leaves");
+
+    private static final Bson SUMMARY_FIELDS =
+            Projections.include("staffId", "period", "type", "status", "reason", "approver", "createdAt");
+
+    /** Fields the leave search box matches (see SearchTerms). */
+    private static final List<String> SEARCH_FIELDS = List.of("staffId", "type", "reason", "period");
 
  
     public Document insert(Document d) {
-        col.insertOne(d);
+        col.insertOne(SearchTerms.addTo(d, SEARCH_FIELDS));
         return d;
     }
 
@@ -30,6 +38,39 @@ public class LeaveDAO {
         return out;
     }
 
+    /**
+     * Same rows as findAll, limited to the fields the leave table, search box and detail panel
+     * read; load the full request with findById when it is edited.
+     */
+    public List<Document> findAllSummaries() {
+        List<Document> out = new ArrayList<>();
+        col.find()
+                .projection(SUMMARY_FIELDS)
+                .sort(Sorts.descending("createdAt"))
+                .into(out);
+        return out;
+    }
+
+
+    /** Sets searchTerms on leaves written before it was maintained (IndexBootstrap runs this). */
+    public long backfillSearchTerms() {
+        return SearchTerms.backfill(col, SEARCH_FIELDS);
+    }
+
+    /**
+     * One page of summary rows, newest first. staffId and status match exactly; every word of
+     * search must start a word of staff, type, reason or period (SearchTerms). Null skips a filter.
+     */
+    public KeysetPage findSummaryPage(String staffId, String status, String search, int limit, String token) {
+        List<Bson> filters = new ArrayList<>();
+        if (staffId != null) filters.add(Filters.eq("staffId", staffId));
+        if (status != null && !status.isBlank()) filters.add(Filters.eq("status", status));
+        Bson terms = SearchTerms.filter(search);
+        if (terms != null) filters.add(terms);
+        Bson filter = filters.isEmpty() ? null : filters.size() == 1 ? filters.get(0) : Filters.and(filters);
+        return KeysetPager.fetch(col, filter, SUMMARY_FIELDS, List.of(KeysetPager.desc("createdAt")), limit, token);
+    }
+
 
     public List<Document> findByStaffId(String staffId) {
         List<Document> out = new ArrayList<>();
@@ -57,7 +98,11 @@ public class LeaveDAO {
             }
             if (setDoc.isEmpty()) return false;
             Document update = new Document("$set", setDoc);
-            return col.updateOne(Filters.eq("_id", oid), update).getModifiedCount() > 0;
+            boolean modified = col.updateOne(Filters.eq("_id", oid), update).getModifiedCount() > 0;
+            if (modified && SearchTerms.touches(setDoc, SEARCH_FIELDS)) {
+                SearchTerms.refresh(col, Filters.eq("_id", oid), SEARCH_FIELDS);
+            }
+            return modified;
         } catch (Exception ex) {
             ex.printStackTrace();
             return false;
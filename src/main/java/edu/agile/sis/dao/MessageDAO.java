@@ -4,7 +4,8 @@ import com.mongodb.client.AggregateIterable;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.model.Filters;
 import com.mongodb.client.model.Sorts;
-import edu.agile.sis.db.DBConnection;
+import edu.agile.sis.db.DaoRegistry;
+import edu.agile.sis.db.IdPolicy;
 import org.bson.Document;
 import org.bson.conversions.Bson;
 import org.bson.types.ObjectId;
@@ -20,9 +21,7 @@ public class MessageDAO {
     private final MongoCollection<Document> coll;
 
     public MessageDAO(){
-        this.coll = DBConnection.getInstance()
-                .getDatabase()
-                .getCollection("messages");
+        this.coll = DaoRegistry.collection("messages");
     }
 
     public void insertMessage(Document msg){
@@ -41,9 +40,28 @@ public class MessageDAO {
                 .into(new ArrayList<>());
     }
 
+    /**
+     * One page of a thread, newest first, by keyset on (createdAt, _id): token null gives the
+     * latest limit messages, the returned token the ones before them. Backed by the
+     * {threadId, createdAt, _id} index; until ids are normalized (IdPolicy strict) messages stored
+     * without a threadId are matched on studentId + staffId as well.
+     */
+    public KeysetPage findThreadPage(String threadId, String studentId, String staffId, int limit, String token){
+        Bson filter = Filters.eq("threadId", threadId);
+        if (!IdPolicy.isStrict() && studentId != null && staffId != null) {
+            filter = Filters.or(filter, Filters.and(Filters.eq("studentId", studentId), Filters.eq("staffId", staffId)));
+        }
+        return KeysetPager.fetch(coll, filter, null, List.of(KeysetPager.desc("createdAt")), limit, token);
+    }
+
     
     public List<Document> findThreadBetween(String studentId, String staffId){
         if (studentId == null || staffId == null) return new ArrayList<>();
+        if (IdPolicy.isStrict()) {
+            return coll.find(Filters.and(Filters.eq("studentId", studentId), Filters.eq("staffId", staffId)))
+                    .sort(Sorts.ascending("createdAt"))
+                    .into(new ArrayList<>());
+        }
 
         
         try {
@@ -86,6 +104,21 @@ public class MessageDAO {
                 .into(new ArrayList<>());
     }
 
+    /**
+     * Messages of one participant created after the given time, oldest first: the polling
+     * fallback of MessageFeed. field is "studentId" or "staffId".
+     */
+    public List<Document> findNewerThan(String field, String id, Date after, int limit){
+        if (!"studentId".equals(field) && !"staffId".equals(field)) {
+            throw new IllegalArgumentException("Unsupported participant field: " + field);
+        }
+        if (id == null || id.isBlank()) return new ArrayList<>();
+        return coll.find(Filters.and(Filters.eq(field, id), Filters.gt("createdAt", after)))
+                .sort(Sorts.ascending("createdAt"))
+                .limit(limit)
+                .into(new ArrayList<>());
+    }
+
    
     public List<Document> findByStaffLatestPartnerMessages(String staffId){
         if (staffId == null || staffId.isBlank()) return new ArrayList<>();
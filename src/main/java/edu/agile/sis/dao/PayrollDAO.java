@@ -1,8 +1,9 @@
 package edu.agile.sis.dao;
 
-import edu.agile.sis.db.DBConnection;
+import edu.agile.sis.db.DaoRegistry;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
 import com.mongodb.client.model.Sorts;
 import org.bson.Document;
 import org.bson.types.ObjectId;
@@ -14,7 +15,7 @@ import java.util.List;
 public class PayrollDAO {
 
     private final MongoCollection<Document> col =
-            DBConnection.getInstance().getDatabase().getCollection("payslips");
+            DaoRegistry.collection("payslips");
 
   
     public Document insert(Document d) {
@@ -54,4 +55,17 @@ public class PayrollDAO {
     return out;
  }
 
+    /**
+     * Same rows as findAll, but only the fields the payroll table and download action use
+     * (no notes); load the full payslip with findById when it is edited.
+     */
+    public List<Document> findAllSummaries() {
+        List<Document> out = new ArrayList<>();
+        col.find()
+                .projection(Projections.include("staffId", "period", "gross", "deductions", "net", "fileId", "fileName", "createdAt"))
+                .sort(Sorts.descending("period", "createdAt"))
+                .into(out);
+        return out;
+    }
+
 }
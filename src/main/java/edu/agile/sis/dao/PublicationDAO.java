@@ -4,7 +4,7 @@ import com.mongodb.client.MongoCollection;
 import com.mongodb.client.model.Filters;
 import com.mongodb.client.model.Sorts;
 import com.mongodb.client.result.UpdateResult;
-import edu.agile.sis.db.DBConnection;
+import edu.agile.sis.db.DaoRegistry;
 import org.bson.Document;
 import org.bson.types.ObjectId;
 
@@ -19,7 +19,7 @@ public class PublicationDAO {
     private final MongoCollection<Document> publications;
 
     public PublicationDAO() {
-        this.publications = DBConnection.getInstance().getDatabase().getCollection("publications");
+        this.publications = DaoRegistry.collection("publications");
     }
 
     public ObjectId insertPublication(Document publication) {
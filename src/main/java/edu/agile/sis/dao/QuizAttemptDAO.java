@@ -3,12 +3,17 @@ package edu.agile.sis.dao;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.model.Filters;
 import com.mongodb.client.model.Sorts;
-import edu.agile.sis.db.DBConnection;
+import edu.agile.sis.db.DaoRegistry;
+import edu.agile.sis.db.IdPolicy;
+import org.bson.BsonValue;
 import org.bson.Document;
 import org.bson.types.ObjectId;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * DAO for quiz attempts.
@@ -30,7 +35,7 @@ public class QuizAttemptDAO {
     private final MongoCollection<Document> coll;
 
     public QuizAttemptDAO() {
-        this.coll = DBConnection.getInstance().getDatabase().getCollection("quiz_attempts");
+        this.coll = DaoRegistry.collection("quiz_attempts");
     }
 
     public String insert(Document attempt) {
@@ -54,6 +59,26 @@ public class QuizAttemptDAO {
         return coll.find(Filters.eq("studentId", studentId)).sort(Sorts.descending("submittedAt")).into(new ArrayList<>());
     }
 
+    public List<Document> listByStudents(Collection<String> studentIds) {
+        if (studentIds == null || studentIds.isEmpty()) return new ArrayList<>();
+        List<Object> keys = new ArrayList<>();
+        for (String id : studentIds) {
+            keys.add(id);
+            if (!IdPolicy.isStrict() && ObjectId.isValid(id)) keys.add(new ObjectId(id));
+        }
+        return coll.find(Filters.in("studentId", keys)).sort(Sorts.descending("submittedAt")).into(new ArrayList<>());
+    }
+
+    /** Canonical (string) studentIds; legacy ObjectId values are decoded too rather than failing the read. */
+    public List<String> distinctStudentIds() {
+        Set<String> out = new LinkedHashSet<>();
+        for (BsonValue id : coll.distinct("studentId", BsonValue.class)) {
+            if (id.isObjectId()) out.add(IdPolicy.studentId(id.asObjectId().getValue()));
+            else if (id.isString()) out.add(id.asString().getValue());
+        }
+        return new ArrayList<>(out);
+    }
+
     public Document findById(String idHex) {
         try {
             return coll.find(Filters.eq("_id", new ObjectId(idHex))).first();
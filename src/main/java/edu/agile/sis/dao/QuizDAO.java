@@ -3,11 +3,13 @@ package edu.agile.sis.dao;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.model.Filters;
 import com.mongodb.client.model.Sorts;
-import edu.agile.sis.db.DBConnection;
+import edu.agile.sis.db.DaoRegistry;
+import edu.agile.sis.db.IdPolicy;
 import org.bson.Document;
 import org.bson.types.ObjectId;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -28,7 +30,7 @@ public class QuizDAO {
     private final MongoCollection<Document> coll;
 
     public QuizDAO() {
-        this.coll = DBConnection.getInstance().getDatabase().getCollection("quizzes");
+        this.coll = DaoRegistry.collection("quizzes");
     }
 
     /**
@@ -63,6 +65,25 @@ public class QuizDAO {
         }
     }
 
+    /**
+     * Find several quizzes with a single $in query. Each id may be a hex ObjectId or a plain string id.
+     */
+    public List<Document> findByIds(Collection<String> ids) {
+        if (ids == null || ids.isEmpty()) return new ArrayList<>();
+        List<Object> keys = new ArrayList<>();
+        for (String id : ids) {
+            if (id == null || id.isBlank()) continue;
+            if (IdPolicy.isStrict()) {
+                keys.add(IdPolicy.objectId(id));
+                continue;
+            }
+            keys.add(id);
+            if (ObjectId.isValid(id)) keys.add(new ObjectId(id));
+        }
+        if (keys.isEmpty()) return new ArrayList<>();
+        return coll.find(Filters.in("_id", keys)).into(new ArrayList<>());
+    }
+
     /**
      * Update a quiz by id (hex string). Returns true when update attempted.
      */
@@ -2,7 +2,7 @@ package edu.agile.sis.dao;
 
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.model.Filters;
-import edu.agile.sis.db.DBConnection;
+import edu.agile.sis.db.DaoRegistry;
 import org.bson.Document;
 import org.bson.types.ObjectId;
 
@@ -14,7 +14,7 @@ public class RSVPDAO {
     private final MongoCollection<Document> coll;
 
     public RSVPDAO() {
-        this.coll = DBConnection.getInstance().getDatabase().getCollection("rsvps");
+        this.coll = DaoRegistry.collection("rsvps");
     }
 
     public String insert(String eventId, String studentId, String username) {
@@ -1,37 +1,143 @@
 package edu.agile.sis.dao;
 
 import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
 import com.mongodb.client.result.UpdateResult;
-import edu.agile.sis.db.DBConnection;
+import edu.agile.sis.db.DaoRegistry;
+import org.bson.BsonType;
 import org.bson.Document;
+import org.bson.conversions.Bson;
 import org.bson.types.ObjectId;
 
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class ReservationDAO {
     private final MongoCollection<Document> reservations;
 
+    /** Fields the reservation search box matches (see SearchTerms). */
+    private static final List<String> SEARCH_FIELDS = List.of("roomId", "createdBy", "purpose");
+
     public ReservationDAO() {
-        this.reservations = DBConnection.getInstance().getDatabase().getCollection("reservations");
+        this.reservations = DaoRegistry.collection("reservations");
     }
 
     public ObjectId insertReservation(Document reservation){
-        reservations.insertOne(reservation);
+        reservations.insertOne(SearchTerms.addTo(reservation, SEARCH_FIELDS));
         ObjectId id = reservation.getObjectId("_id");
         return id;
     }
 
+    /** Inserts a series of reservations in one round trip (each doc gets its _id set). */
+    public void insertReservations(List<Document> docs){
+        if (docs.isEmpty()) return;
+        for (Document d : docs) SearchTerms.addTo(d, SEARCH_FIELDS);
+        reservations.insertMany(docs);
+    }
+
     public List<Document> findAllReservations(){
         return reservations.find().into(new ArrayList<>());
     }
 
+    /** Sets searchTerms on reservations written before it was maintained (IndexBootstrap runs this). */
+    public long backfillSearchTerms(){
+        return SearchTerms.backfill(reservations, SEARCH_FIELDS);
+    }
+
+    /**
+     * One page of reservations, latest start first. createdBy limits to one user's bookings and
+     * every word of search must start a word of room, user or purpose (SearchTerms); null skips
+     * either filter.
+     */
+    public KeysetPage findPage(String createdBy, String search, int limit, String token){
+        List<Bson> filters = new ArrayList<>();
+        if (createdBy != null) filters.add(Filters.eq("createdBy", createdBy));
+        Bson terms = SearchTerms.filter(search);
+        if (terms != null) filters.add(terms);
+        Bson filter = filters.isEmpty() ? null : filters.size() == 1 ? filters.get(0) : Filters.and(filters);
+        return KeysetPager.fetch(reservations, filter, null, List.of(KeysetPager.desc("start")), limit, token);
+    }
+
     public List<Document> findByRoomId(String roomId){
         return reservations.find(Filters.eq("roomId", roomId)).into(new ArrayList<>());
     }
 
+    /**
+     * Times of the reservations in a room that end after endingAfter (what RoomSchedules needs;
+     * bookings that are over cannot conflict with new ones).
+     */
+    public List<Document> findScheduleByRoom(String roomId, Date endingAfter){
+        return reservations.find(Filters.and(Filters.eq("roomId", roomId), Filters.gt("end", endingAfter)))
+                .projection(Projections.include("roomId", "start", "end"))
+                .into(new ArrayList<>());
+    }
+
+    /**
+     * Times of all reservations in any of roomIds that overlap [from, to), by room and start. One
+     * query for the free-slot finder instead of one per room.
+     */
+    public List<Document> findBusy(List<String> roomIds, Date from, Date to){
+        return reservations.find(Filters.and(
+                        Filters.in("roomId", roomIds),
+                        Filters.lt("start", to),
+                        Filters.gt("end", from)))
+                .projection(Projections.include("roomId", "start", "end"))
+                .sort(Sorts.ascending("roomId", "start"))
+                .into(new ArrayList<>());
+    }
+
+    /**
+     * Up to limit reservations that predate slot claims and have valid times (end after start).
+     * Once claimed they no longer match, so repeated calls walk through all of them.
+     */
+    public List<Document> findWithoutSlotClaim(int limit){
+        return reservations.find(Filters.and(
+                        Filters.exists("slotClaim", false),
+                        Filters.type("start", BsonType.DATE_TIME),
+                        Filters.type("end", BsonType.DATE_TIME),
+                        Filters.expr(new Document("$gt", List.of("$end", "$start")))))
+                .projection(Projections.include("roomId", "start", "end"))
+                .limit(limit)
+                .into(new ArrayList<>());
+    }
+
+    /**
+     * Records the slot claims of reservations that predate claims, in one unordered bulk write,
+     * except where another client already did.
+     *
+     * @param claims reservation _id -> claim id
+     * @return the _ids whose claim this call set
+     */
+    public Set<Object> setSlotClaimsIfAbsent(Map<Object, ObjectId> claims){
+        List<WriteModel<Document>> writes = new ArrayList<>(claims.size());
+        for (Map.Entry<Object, ObjectId> e : claims.entrySet()) {
+            writes.add(new UpdateOneModel<>(Filters.and(Filters.eq("_id", e.getKey()), Filters.exists("slotClaim", false)),
+                    Updates.set("slotClaim", e.getValue())));
+        }
+        Set<Object> set = new HashSet<>();
+        if (writes.isEmpty()) return set;
+        if (reservations.bulkWrite(writes, new BulkWriteOptions().ordered(false)).getMatchedCount() == writes.size()) {
+            set.addAll(claims.keySet());
+            return set;
+        }
+        // a bulk result has no per-write flags; the claim ids tell which writes got in
+        reservations.find(Filters.in("_id", claims.keySet())).projection(Projections.include("slotClaim"))
+                .forEach(d -> {
+                    if (claims.get(d.get("_id")).equals(d.get("slotClaim"))) set.add(d.get("_id"));
+                });
+        return set;
+    }
+
     public List<Document> findOverlapping(String roomId, Date start, Date end){
         // overlapping where start < existing.end AND end > existing.start
         return reservations.find(Filters.and(
@@ -62,12 +168,13 @@ public class ReservationDAO {
 
     public UpdateResult updateReservation(String reservationId, Document updatedData){
         ObjectId oid = tryParseObjectId(reservationId);
-        if (oid == null) {
-            // try to match by string equality (less common)
-            return reservations.updateOne(Filters.eq("_id", reservationId), new Document("$set", updatedData));
-        } else {
-            return reservations.updateOne(Filters.eq("_id", oid), new Document("$set", updatedData));
+        // string ids are matched by equality (less common)
+        Bson id = oid == null ? Filters.eq("_id", reservationId) : Filters.eq("_id", oid);
+        UpdateResult result = reservations.updateOne(id, new Document("$set", updatedData));
+        if (result.getMatchedCount() > 0 && SearchTerms.touches(updatedData, SEARCH_FIELDS)) {
+            SearchTerms.refresh(reservations, id, SEARCH_FIELDS);
         }
+        return result;
     }
 
     public void deleteReservation(String reservationId){
@@ -88,6 +195,11 @@ public class ReservationDAO {
         }
     }
 
+    private Bson idFilter(String reservationId){
+        ObjectId oid = tryParseObjectId(reservationId);
+        return oid == null ? Filters.eq("_id", reservationId) : Filters.eq("_id", oid);
+    }
+
     private ObjectId tryParseObjectId(String id){
         if (id == null) return null;
         try {
@@ -0,0 +1,183 @@
+package edu.agile.sis.dao;
+
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoWriteException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import edu.agile.sis.db.DaoRegistry;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Time-slot claims that make double booking impossible. One document per room and UTC day lists
+ * the reservations touching that day:
+ * {
+ *   "_id": "room_101|2025-03-14",
+ *   "roomId": "room_101", "day": "2025-03-14",
+ *   "slots": [ { "s": Date, "e": Date, "r": "<reservation id>", "c": ObjectId }, ... ]
+ * }
+ *
+ * A claim pushes the interval into every day it touches, with a filter that only matches while no
+ * other reservation's slot overlaps it. Two overlapping bookings share at least one day document,
+ * and updates to one document are atomic, so only one of them can get in. When the day document
+ * exists but the filter does not match, the upsert tries to insert a second document with the same
+ * _id and fails with a duplicate key, which is reported as a conflict. Each claim carries its own
+ * id ("c"), so it can be released without touching a newer claim of the same reservation.
+ */
+public class RoomSlotDAO {
+    private final MongoCollection<Document> slots;
+
+    public RoomSlotDAO() {
+        this(DaoRegistry.collection("room_slots"));
+    }
+
+    /** DAO over a given collection (the conflict benchmark runs against a throwaway database). */
+    public RoomSlotDAO(MongoCollection<Document> slots) {
+        this.slots = slots;
+    }
+
+    /**
+     * Claims [start, end) in roomId for reservationId. Slots already held by reservationId itself
+     * (e.g. its times before an edit) do not count as conflicts.
+     *
+     * @return false on conflict; nothing stays claimed in that case
+     */
+    public boolean claim(String roomId, Date start, Date end, String reservationId, ObjectId claimId) {
+        Document slot = slot(start, end, reservationId, claimId);
+        Bson free = Filters.not(Filters.elemMatch("slots", Filters.and(
+                Filters.lt("s", end), Filters.gt("e", start), Filters.ne("r", reservationId))));
+        List<String> claimed = new ArrayList<>();
+        for (String day : days(start, end)) {
+            String id = docId(roomId, day);
+            try {
+                slots.updateOne(Filters.and(Filters.eq("_id", id), free),
+                        Updates.combine(Updates.push("slots", slot),
+                                Updates.setOnInsert("roomId", roomId), Updates.setOnInsert("day", day)),
+                        new UpdateOptions().upsert(true));
+            } catch (RuntimeException ex) {
+                release(roomId, claimed, claimId);
+                if (ex instanceof MongoWriteException
+                        && ((MongoWriteException) ex).getError().getCategory() == ErrorCategory.DUPLICATE_KEY) {
+                    return false;
+                }
+                throw ex;
+            }
+            claimed.add(day);
+        }
+        return true;
+    }
+
+    /**
+     * Claims several slots of one room in a single ordered bulk write, all or nothing: slots.get(i)
+     * is claimed for reservationIds.get(i) with claimIds.get(i). The slots may not overlap each
+     * other (each would see the other as a conflict).
+     *
+     * @return false on conflict; nothing stays claimed in that case
+     */
+    public boolean claimAll(String roomId, List<Date[]> slotTimes, List<String> reservationIds, List<ObjectId> claimIds) {
+        List<UpdateOneModel<Document>> writes = new ArrayList<>();
+        Set<String> touched = new LinkedHashSet<>();
+        for (int i = 0; i < slotTimes.size(); i++) {
+            Date start = slotTimes.get(i)[0];
+            Date end = slotTimes.get(i)[1];
+            Document slot = slot(start, end, reservationIds.get(i), claimIds.get(i));
+            Bson free = Filters.not(Filters.elemMatch("slots", Filters.and(
+                    Filters.lt("s", end), Filters.gt("e", start), Filters.ne("r", reservationIds.get(i)))));
+            for (String day : days(start, end)) {
+                String id = docId(roomId, day);
+                touched.add(day);
+                writes.add(new UpdateOneModel<>(Filters.and(Filters.eq("_id", id), free),
+                        Updates.combine(Updates.push("slots", slot),
+                                Updates.setOnInsert("roomId", roomId), Updates.setOnInsert("day", day)),
+                        new UpdateOptions().upsert(true)));
+            }
+        }
+        if (writes.isEmpty()) return true;
+        try {
+            slots.bulkWrite(writes, new BulkWriteOptions().ordered(true));
+            return true;
+        } catch (MongoBulkWriteException ex) {
+            // ordered: everything before the failed write was applied and must be undone
+            List<String> ids = new ArrayList<>();
+            for (String day : touched) ids.add(docId(roomId, day));
+            slots.updateMany(Filters.in("_id", ids),
+                    Updates.pull("slots", new Document("c", new Document("$in", claimIds))));
+            boolean conflict = !ex.getWriteErrors().isEmpty() && ex.getWriteErrors().stream()
+                    .allMatch(e -> ErrorCategory.fromErrorCode(e.getCode()) == ErrorCategory.DUPLICATE_KEY);
+            if (conflict) return false;
+            throw ex;
+        }
+    }
+
+    /**
+     * Records reservations that predate slot claims, without a conflict check (existing data may
+     * already overlap), in one unordered bulk write. reservations.get(i) (with _id, roomId, start
+     * and end) is claimed with claimIds.get(i).
+     */
+    public void claimUnchecked(List<Document> reservations, List<ObjectId> claimIds) {
+        List<UpdateOneModel<Document>> writes = new ArrayList<>();
+        for (int i = 0; i < reservations.size(); i++) {
+            Document r = reservations.get(i);
+            Object id = r.get("_id");
+            String roomId = r.getString("roomId");
+            Date start = r.getDate("start");
+            Date end = r.getDate("end");
+            Document slot = slot(start, end, id instanceof ObjectId ? ((ObjectId) id).toHexString() : String.valueOf(id),
+                    claimIds.get(i));
+            for (String day : days(start, end)) {
+                writes.add(new UpdateOneModel<>(Filters.eq("_id", docId(roomId, day)),
+                        Updates.combine(Updates.push("slots", slot),
+                                Updates.setOnInsert("roomId", roomId), Updates.setOnInsert("day", day)),
+                        new UpdateOptions().upsert(true)));
+            }
+        }
+        if (!writes.isEmpty()) slots.bulkWrite(writes, new BulkWriteOptions().ordered(false));
+    }
+
+    /** Releases the claim claimId made for [start, end). */
+    public void release(String roomId, Date start, Date end, ObjectId claimId) {
+        release(roomId, days(start, end), claimId);
+    }
+
+    private void release(String roomId, List<String> days, ObjectId claimId) {
+        if (days.isEmpty()) return;
+        List<String> ids = new ArrayList<>();
+        for (String day : days) ids.add(docId(roomId, day));
+        slots.updateMany(Filters.in("_id", ids), Updates.pull("slots", new Document("c", claimId)));
+    }
+
+    /** UTC days touched by [start, end), in order. */
+    static List<String> days(Date start, Date end) {
+        List<String> days = new ArrayList<>();
+        LocalDate first = LocalDate.ofInstant(start.toInstant(), ZoneOffset.UTC);
+        // end is exclusive: a booking ending exactly at midnight does not touch the next day
+        LocalDate last = LocalDate.ofInstant(Instant.ofEpochMilli(end.getTime() - 1), ZoneOffset.UTC);
+        for (LocalDate d = first; !d.isAfter(last); d = d.plusDays(1)) {
+            days.add(d.toString());
+        }
+        return days;
+    }
+
+    private static String docId(String roomId, String day) {
+        return roomId + "|" + day;
+    }
+
+    private static Document slot(Date start, Date end, String reservationId, ObjectId claimId) {
+        return new Document("s", start).append("e", end).append("r", reservationId).append("c", claimId);
+    }
+}
@@ -0,0 +1,106 @@
+package edu.agile.sis.dao;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Word index behind the search boxes of the paged list screens.
+ *
+ * A searchable document stores the lowercased words of its searchable fields in searchTerms,
+ * which has a multikey index. A search matches the documents that have, for every word typed, a
+ * term starting with it: "dell lap" finds "Dell Laptop #001". Those are anchored, case-sensitive
+ * prefix regexes the index can bound, where a case-insensitive substring match scans the whole
+ * collection. Documents written before the field existed are backfilled by IndexBootstrap, off the
+ * UI thread at startup; until that has run once on a database, searches can miss them.
+ */
+final class SearchTerms {
+    static final String FIELD = "searchTerms";
+
+    private static final Pattern WORD = Pattern.compile("[\\p{L}\\p{N}]+");
+    private static final int BACKFILL_BATCH = 500;
+
+    private SearchTerms() {}
+
+    /** The distinct lowercased words of fields in doc. */
+    static List<String> of(Document doc, List<String> fields) {
+        Set<String> terms = new LinkedHashSet<>();
+        for (String f : fields) {
+            Object v = doc.get(f);
+            if (v != null) words(v.toString(), terms);
+        }
+        return new ArrayList<>(terms);
+    }
+
+    /** Sets searchTerms on a document about to be inserted. */
+    static Document addTo(Document doc, List<String> fields) {
+        doc.put(FIELD, of(doc, fields));
+        return doc;
+    }
+
+    static boolean touches(Document updates, List<String> fields) {
+        for (String f : fields) {
+            if (updates.containsKey(f)) return true;
+        }
+        return false;
+    }
+
+    /** Filter for what was typed in a search box, or null when it holds no words. */
+    static Bson filter(String query) {
+        if (query == null) return null;
+        Set<String> words = new LinkedHashSet<>();
+        words(query, words);
+        List<Bson> parts = new ArrayList<>();
+        // words are letters and digits only, so they need no regex quoting
+        for (String w : words) parts.add(Filters.regex(FIELD, "^" + w));
+        if (parts.isEmpty()) return null;
+        return parts.size() == 1 ? parts.get(0) : Filters.and(parts);
+    }
+
+    /** Recomputes searchTerms of the document matching idFilter from its stored fields. */
+    static void refresh(MongoCollection<Document> coll, Bson idFilter, List<String> fields) {
+        Document d = coll.find(idFilter).projection(Projections.include(fields)).first();
+        if (d != null) coll.updateOne(idFilter, Updates.set(FIELD, of(d, fields)));
+    }
+
+    /**
+     * Sets searchTerms on documents written before it was maintained. Safe to run repeatedly.
+     *
+     * @return number of documents updated
+     */
+    static long backfill(MongoCollection<Document> coll, List<String> fields) {
+        long updated = 0;
+        while (true) {
+            List<Document> batch = coll.find(Filters.exists(FIELD, false))
+                    .projection(Projections.include(fields))
+                    .limit(BACKFILL_BATCH)
+                    .into(new ArrayList<>());
+            if (batch.isEmpty()) return updated;
+            List<WriteModel<Document>> writes = new ArrayList<>(batch.size());
+            for (Document d : batch) {
+                writes.add(new UpdateOneModel<>(Filters.eq("_id", d.get("_id")), Updates.set(FIELD, of(d, fields))));
+            }
+            coll.bulkWrite(writes, new BulkWriteOptions().ordered(false));
+            updated += batch.size();
+        }
+    }
+
+    private static void words(String text, Set<String> out) {
+        Matcher m = WORD.matcher(text.toLowerCase(Locale.ROOT));
+        while (m.find()) out.add(m.group());
+    }
+}
@@ -2,7 +2,7 @@ package edu.agile.sis.dao;
 
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.model.Filters;
-import edu.agile.sis.db.DBConnection;
+import edu.agile.sis.db.DaoRegistry;
 import org.bson.Document;
 import org.bson.types.ObjectId;
 
@@ -13,7 +13,7 @@ public class StaffDAO {
     private final MongoCollection<Document> staffColl;
 
     public StaffDAO(){
-        this.staffColl = DBConnection.getInstance().getDatabase().getCollection("staff");
+        this.staffColl = DaoRegistry.collection("staff");
     }
 
     public void insertStaff(Document staff){
@@ -3,11 +3,15 @@ package edu.agile.sis.dao;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.model.Filters;
 import com.mongodb.client.model.Sorts;
-import edu.agile.sis.db.DBConnection;
+import edu.agile.sis.db.DaoRegistry;
+import edu.agile.sis.db.IdPolicy;
+import org.bson.BsonValue;
 import org.bson.Document;
 import org.bson.types.ObjectId;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 
 
@@ -15,7 +19,7 @@ public class SubmissionDAO {
     private final MongoCollection<Document> coll;
 
     public SubmissionDAO() {
-        this.coll = DBConnection.getInstance().getDatabase().getCollection("submissions");
+        this.coll = DaoRegistry.collection("submissions");
     }
 
     public String insertSubmission(Document doc) {
@@ -28,6 +32,11 @@ public class SubmissionDAO {
     
     public List<Document> listByAssignment(String assignmentIdHex) {
         if (assignmentIdHex == null) return new ArrayList<>();
+        if (IdPolicy.isStrict()) {
+            return coll.find(IdPolicy.eqObjectId("assignmentId", assignmentIdHex))
+                    .sort(Sorts.ascending("submittedAt"))
+                    .into(new ArrayList<>());
+        }
         List<Document> result = new ArrayList<>();
         try {
             
@@ -70,6 +79,11 @@ public class SubmissionDAO {
 
     public List<Document> listByStudent(String studentId) {
     if (studentId == null) return new ArrayList<>();
+    if (IdPolicy.isStrict()) {
+        return coll.find(Filters.eq("studentId", studentId))
+                .sort(Sorts.ascending("submittedAt"))
+                .into(new ArrayList<>());
+    }
     List<Document> result = new ArrayList<>();
 
   
@@ -105,6 +119,169 @@ public class SubmissionDAO {
 }
 
 
+    /**
+     * All submissions of several students in one query (studentId stored as string or ObjectId).
+     */
+    public List<Document> listByStudents(Collection<String> studentIds) {
+        if (studentIds == null || studentIds.isEmpty()) return new ArrayList<>();
+        List<Object> keys = new ArrayList<>();
+        for (String id : studentIds) {
+            keys.add(id);
+            if (!IdPolicy.isStrict() && ObjectId.isValid(id)) keys.add(new ObjectId(id));
+        }
+        return coll.find(Filters.in("studentId", keys)).sort(Sorts.ascending("submittedAt")).into(new ArrayList<>());
+    }
+
+    public List<String> distinctStudentIds() {
+        List<String> out = new ArrayList<>();
+        for (BsonValue id : coll.distinct("studentId", BsonValue.class)) {
+            if (id.isObjectId()) out.add(id.asObjectId().getValue().toHexString());
+            else if (id.isString()) out.add(id.asString().getValue());
+        }
+        return out;
+    }
+
+    /**
+     * Gradebook pipeline for one student: submissions plus quiz attempts ($unionWith),
+     * course/type resolved via $lookup on assignments and quizzes, summed per bucket and
+     * grouped by course. Output: { _id: courseKey, buckets: [ { bucket, raw, subjectName, credits } ] }.
+     * Mirrors the rules of ParentService: final 60 / quiz 20 / assign 20, per-item amount capped at the bucket max.
+     */
+    public List<Document> aggregateGradeBuckets(String studentId) {
+        if (studentId == null || studentId.isBlank()) return new ArrayList<>();
+
+        List<Object> studentKeys = new ArrayList<>();
+        studentKeys.add(studentId);
+        if (ObjectId.isValid(studentId)) studentKeys.add(new ObjectId(studentId));
+
+        Object isAttempt = new Document("$eq", Arrays.asList("$_kind", "attempt"));
+
+        Object submissionSubject = firstNonBlankExpr("unknown",
+                "$courseCode", "$subjectId", "$subjectCode", "$course",
+                "$_ref.courseCode", "$_ref.subjectId", "$_ref.course");
+        Object attemptSubject = firstNonBlankExpr("unknown",
+                "$courseCode", "$course", "$subjectId",
+                "$_ref.courseCode", "$_ref.subjectId");
+
+        Object typeText = new Document("$toLower", firstNonBlankExpr("",
+                "$type", "$itemType", "$category", "$title",
+                "$_ref.type", "$_ref.category", "$_ref.title"));
+        Object submissionBucket = new Document("$cond", Arrays.asList(
+                regexMatch(typeText, "final|exam|midterm|overall"), "final",
+                new Document("$cond", Arrays.asList(regexMatch(typeText, "quiz|test"), "quiz", "assign"))));
+
+        Object submissionValue = new Document("$ifNull", Arrays.asList(
+                firstNumberExpr("$score", "$points", "$grade", "$percentage", "$percent",
+                        "$grade.score", "$grade.value", "$grade.points"), 0.0));
+
+        List<Document> pipeline = Arrays.asList(
+                new Document("$match", new Document("studentId", new Document("$in", studentKeys))),
+                new Document("$addFields", new Document("_kind", "submission").append("_order", 0)),
+                new Document("$unionWith", new Document("coll", "quiz_attempts").append("pipeline", Arrays.asList(
+                        new Document("$match", new Document("studentId", studentId)),
+                        new Document("$addFields", new Document("_kind", "attempt").append("_order", 1))
+                ))),
+                new Document("$sort", new Document("_order", 1).append("submittedAt", 1)),
+                new Document("$addFields", new Document("_assignmentKeys", idKeysExpr("$assignmentId"))
+                        .append("_quizKeys", idKeysExpr("$quizId"))),
+                new Document("$lookup", new Document("from", "assignments")
+                        .append("localField", "_assignmentKeys").append("foreignField", "_id").append("as", "_assignment")),
+                new Document("$lookup", new Document("from", "quizzes")
+                        .append("localField", "_quizKeys").append("foreignField", "_id").append("as", "_quiz")),
+                new Document("$addFields", new Document("_ref", new Document("$cond", Arrays.asList(isAttempt,
+                        new Document("$arrayElemAt", Arrays.asList("$_quiz", 0)),
+                        new Document("$arrayElemAt", Arrays.asList("$_assignment", 0)))))),
+                new Document("$project", new Document("_id", 0)
+                        .append("subject", new Document("$cond", Arrays.asList(isAttempt, attemptSubject, submissionSubject)))
+                        .append("bucket", new Document("$cond", Arrays.asList(isAttempt, "quiz", submissionBucket)))
+                        .append("value", new Document("$cond", Arrays.asList(isAttempt, toNumberExpr("$score"), submissionValue)))
+                        .append("subjectName", new Document("$cond", Arrays.asList(isAttempt,
+                                firstNonBlankExpr(null, "$courseName", "$title"),
+                                firstNonBlankExpr(null, "$subjectName", "$courseName", "$title"))))
+                        .append("credits", toNumberExpr("$credits"))),
+                // attempts without a numeric score do not count
+                new Document("$match", new Document("value", new Document("$ne", null))),
+                new Document("$addFields", new Document("amount", new Document("$min", Arrays.asList("$value",
+                        new Document("$switch", new Document("branches", Arrays.asList(
+                                new Document("case", new Document("$eq", Arrays.asList("$bucket", "final"))).append("then", 60.0),
+                                new Document("case", new Document("$eq", Arrays.asList("$bucket", "quiz"))).append("then", 20.0)
+                        )).append("default", 20.0)))))),
+                new Document("$group", new Document("_id", new Document("subject", "$subject").append("bucket", "$bucket"))
+                        .append("raw", new Document("$sum", "$amount"))
+                        .append("names", new Document("$push", keepIfNotNull("$subjectName")))
+                        .append("credits", new Document("$push", keepIfNotNull("$credits")))),
+                new Document("$group", new Document("_id", "$_id.subject")
+                        .append("buckets", new Document("$push", new Document("bucket", "$_id.bucket")
+                                .append("raw", "$raw")
+                                .append("subjectName", new Document("$arrayElemAt", Arrays.asList("$names", 0)))
+                                .append("credits", new Document("$arrayElemAt", Arrays.asList("$credits", 0))))))
+        );
+
+        return coll.aggregate(pipeline).into(new ArrayList<>());
+    }
+
+    // ----- aggregation expression helpers -----
+
+    private static Document toStringExpr(Object expr, Object onFail) {
+        return new Document("$convert", new Document("input", expr).append("to", "string")
+                .append("onError", onFail).append("onNull", onFail));
+    }
+
+    private static Document nonBlankExpr(Object expr) {
+        return new Document("$gt", Arrays.asList(
+                new Document("$strLenCP", new Document("$trim", new Document("input", toStringExpr(expr, "")))), 0));
+    }
+
+    private static Object firstNonBlankExpr(Object fallback, String... fields) {
+        Object out = fallback;
+        for (int i = fields.length - 1; i >= 0; i--) {
+            out = new Document("$cond", Arrays.asList(nonBlankExpr(fields[i]), toStringExpr(fields[i], null), out));
+        }
+        return out;
+    }
+
+    private static Document toNumberExpr(Object expr) {
+        Object input = new Document("$cond", Arrays.asList(
+                new Document("$eq", Arrays.asList(new Document("$type", expr), "string")),
+                new Document("$trim", new Document("input", expr)),
+                expr));
+        return new Document("$cond", Arrays.asList(
+                new Document("$in", Arrays.asList(new Document("$type", expr),
+                        Arrays.asList("double", "int", "long", "decimal", "string"))),
+                new Document("$convert", new Document("input", input).append("to", "double")
+                        .append("onError", null).append("onNull", null)),
+                null));
+    }
+
+    private static Object firstNumberExpr(String... fields) {
+        Object out = null;
+        for (int i = fields.length - 1; i >= 0; i--) {
+            out = out == null ? toNumberExpr(fields[i]) : new Document("$ifNull", Arrays.asList(toNumberExpr(fields[i]), out));
+        }
+        return out;
+    }
+
+    private static Document regexMatch(Object input, String regex) {
+        return new Document("$regexMatch", new Document("input", input).append("regex", regex));
+    }
+
+    private static Document idKeysExpr(String field) {
+        // raw value plus its ObjectId / string forms, so $lookup matches whichever type _id was stored as
+        return new Document("$cond", Arrays.asList(
+                new Document("$eq", Arrays.asList(new Document("$type", field), "missing")),
+                new Document("$literal", new ArrayList<>()),
+                Arrays.asList(field,
+                        new Document("$convert", new Document("input", field).append("to", "objectId")
+                                .append("onError", null).append("onNull", null)),
+                        toStringExpr(field, null))));
+    }
+
+    private static Document keepIfNotNull(String field) {
+        return new Document("$cond", Arrays.asList(
+                new Document("$eq", Arrays.asList(new Document("$ifNull", Arrays.asList(field, null)), null)),
+                "$$REMOVE", field));
+    }
+
     public Document findById(String hexId) {
         try {
             return coll.find(Filters.eq("_id", new ObjectId(hexId))).first();
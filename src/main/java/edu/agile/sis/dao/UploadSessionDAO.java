@@ -0,0 +1,55 @@
+package edu.agile.sis.dao;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Updates;
+import edu.agile.sis.db.DaoRegistry;
+import org.bson.Document;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Manifests of in-progress chunked uploads, one per bucket and content hash:
+ * {
+ *   "_id": "fs:<sha256 hex>",
+ *   "bucket": "fs", "sha256": "...", "filename": "report.zip", "size": 4294967296,
+ *   "chunkSize": 1048576, "fileId": ObjectId, "metadata": { ... },
+ *   "committed": 812,                  // chunks 0..committed-1 are stored
+ *   "startedAt": Date, "updatedAt": Date
+ * }
+ * A TTL index on updatedAt (IndexManifest) removes manifests of uploads abandoned for a week.
+ */
+public class UploadSessionDAO {
+    private final MongoCollection<Document> coll;
+
+    public UploadSessionDAO() {
+        this.coll = DaoRegistry.collection("upload_sessions");
+    }
+
+    public Document findById(String key) {
+        return coll.find(Filters.eq("_id", key)).first();
+    }
+
+    public void insert(Document session) {
+        session.append("committed", 0).append("startedAt", new Date()).append("updatedAt", new Date());
+        coll.insertOne(session);
+    }
+
+    /** Records that chunks below committed are stored; never moves backwards. */
+    public void commit(String key, int committed) {
+        coll.updateOne(Filters.eq("_id", key), Updates.combine(
+                Updates.max("committed", committed),
+                Updates.set("updatedAt", new Date())));
+    }
+
+    /** File ids of the uploads still in progress in a bucket. */
+    public List<Object> findFileIds(String bucket) {
+        return coll.distinct("fileId", Filters.eq("bucket", bucket), Object.class).into(new ArrayList<>());
+    }
+
+    public void delete(String key) {
+        coll.deleteOne(Filters.eq("_id", key));
+    }
+}
@@ -2,9 +2,8 @@ package edu.agile.sis.dao;
 
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.model.Filters;
-import com.mongodb.client.model.IndexOptions;
 import com.mongodb.client.result.UpdateResult;
-import edu.agile.sis.db.DBConnection;
+import edu.agile.sis.db.DaoRegistry;
 import org.bson.Document;
 import org.bson.types.ObjectId;
 
@@ -18,14 +17,7 @@ public class UserDAO {
     private final MongoCollection<Document> users;
 
     public UserDAO() {
-        this.users = DBConnection.getInstance().getDatabase().getCollection("users");
-
-        
-        try {
-            users.createIndex(new Document("linkedEntityId", 1), new IndexOptions().unique(true));
-        } catch (Exception ignored) {
-            
-        }
+        this.users = DaoRegistry.collection("users");
     }
 
     
@@ -0,0 +1,294 @@
+package edu.agile.sis.db;
+
+import edu.agile.sis.config.ConfigManager;
+import edu.agile.sis.dao.AuditLogDAO;
+import org.bson.Document;
+import org.bson.json.JsonMode;
+import org.bson.json.JsonWriterSettings;
+import org.bson.types.ObjectId;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Asynchronous, batching writer for audit entries. Callers enqueue and return immediately. A
+ * background thread writes batches with one unordered insertMany, either once batchSize entries
+ * are waiting or every flushMs.
+ *
+ * With spilling enabled, entries that cannot be queued (queue full) or written (database
+ * unreachable) are appended to a local JSON-lines file. The file is replayed into the database
+ * after the next successful write and on startup. Pending entries are flushed on close() and at
+ * JVM shutdown.
+ *
+ * The sink must ignore duplicate-key errors: entries carry their _id, and a batch may be re-sent.
+ * Nothing is written until start() is called; getInstance() returns a started writer.
+ *
+ * Config: audit.queueCapacity (10000), audit.batchSize (500), audit.flushMs (1000),
+ * audit.spill.enabled (true), audit.spill.file (logs/audit-spill.jsonl).
+ */
+public final class AuditWriter implements AutoCloseable {
+    private static final JsonWriterSettings SPILL_JSON = JsonWriterSettings.builder().outputMode(JsonMode.EXTENDED).build();
+    private static volatile AuditWriter INSTANCE;
+
+    private final Consumer<List<Document>> sink;
+    private final BlockingQueue<Document> queue;
+    private final int batchSize;
+    private final long flushMs;
+    private final File spillFile;
+    private final Object writeLock = new Object();
+    private final Object signal = new Object();
+    private Thread flusher;
+    private volatile boolean closed;
+
+    private final AtomicLong written = new AtomicLong();
+    /** Entries ever spilled by this writer. */
+    private final AtomicLong spilled = new AtomicLong();
+    /** Entries currently in the spill files, waiting for replay. */
+    private final AtomicLong spillBacklog = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * @param sink      writes one batch; throwing means the batch was not stored
+     * @param spillPath append-only spill file, or null to drop entries instead
+     */
+    public AuditWriter(Consumer<List<Document>> sink, int capacity, int batchSize, long flushMs, String spillPath) {
+        this.sink = sink;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        this.batchSize = Math.max(1, batchSize);
+        this.flushMs = Math.max(10, flushMs);
+        this.spillFile = spillPath == null || spillPath.isBlank() ? null : new File(spillPath);
+    }
+
+    /** Starts the background writer, which first replays entries left in the spill file. */
+    public synchronized AuditWriter start() {
+        if (flusher != null || closed) return this;
+        long leftover = spillFile == null ? 0 : countLines(spillFile) + countLines(replayFile());
+        spillBacklog.addAndGet(leftover);
+        flusher = new Thread(() -> run(leftover > 0), "audit-writer");
+        flusher.setDaemon(true);
+        flusher.start();
+        return this;
+    }
+
+    public static AuditWriter getInstance() {
+        AuditWriter w = INSTANCE;
+        if (w == null) {
+            synchronized (AuditWriter.class) {
+                w = INSTANCE;
+                if (w == null) {
+                    ConfigManager cfg = ConfigManager.getInstance();
+                    boolean spill = Boolean.parseBoolean(cfg.get("audit.spill.enabled", "true"));
+                    w = new AuditWriter(batch -> DaoRegistry.get(AuditLogDAO.class).insertBatch(batch),
+                            parseInt(cfg.get("audit.queueCapacity", "10000"), 10_000),
+                            parseInt(cfg.get("audit.batchSize", "500"), 500),
+                            parseInt(cfg.get("audit.flushMs", "1000"), 1000),
+                            spill ? cfg.get("audit.spill.file", "logs/audit-spill.jsonl") : null).start();
+                    Runtime.getRuntime().addShutdownHook(new Thread(w::close, "audit-writer-shutdown"));
+                    INSTANCE = w;
+                }
+            }
+        }
+        return w;
+    }
+
+    /**
+     * Queues one entry; never blocks. The entry gets its _id here so a batch that is sent twice
+     * (after a failure mid-write) is recognised as a duplicate instead of stored twice.
+     */
+    public void submit(Document entry) {
+        if (entry.get("_id") == null) entry.put("_id", new ObjectId());
+        if (closed || !queue.offer(entry)) {
+            spill(List.of(entry));
+        } else if (queue.size() >= batchSize) {
+            synchronized (signal) {
+                signal.notifyAll();
+            }
+        }
+    }
+
+    /** Writes everything queued so far before returning (e.g. before reading the audit trail). */
+    public void flush() {
+        synchronized (writeLock) {
+            List<Document> batch = new ArrayList<>();
+            while (queue.drainTo(batch, batchSize) > 0) {
+                write(batch);
+                batch = new ArrayList<>();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        Thread t;
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            t = flusher;
+        }
+        if (t != null) {
+            t.interrupt();
+            try {
+                t.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException ignored) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush();
+    }
+
+    public long getWritten() { return written.get(); }
+    public long getSpilled() { return spilled.get(); }
+    public long getSpillBacklog() { return spillBacklog.get(); }
+    public long getDropped() { return dropped.get(); }
+    public int getQueued() { return queue.size(); }
+
+    private void run(boolean replayLeftover) {
+        if (replayLeftover) {
+            synchronized (writeLock) {
+                replaySpill();
+            }
+        }
+        while (!closed) {
+            try {
+                // entries stay in the queue until written, so flush() always sees them
+                synchronized (signal) {
+                    if (queue.size() < batchSize) signal.wait(flushMs);
+                }
+            } catch (InterruptedException ex) {
+                break;
+            }
+            flush();
+        }
+    }
+
+    /** Caller holds writeLock. */
+    private void write(List<Document> batch) {
+        if (batch.isEmpty()) return;
+        try {
+            sink.accept(batch);
+            written.addAndGet(batch.size());
+        } catch (RuntimeException ex) {
+            System.err.println("[AuditWriter] batch of " + batch.size() + " not written: " + ex.getMessage());
+            spill(batch);
+            return;
+        }
+        replaySpill();
+    }
+
+    private void spill(List<Document> entries) {
+        if (spillFile == null) {
+            dropped.addAndGet(entries.size());
+            System.err.println("[AuditWriter] dropped " + entries.size() + " audit entries (spilling disabled)");
+            return;
+        }
+        synchronized (spillFile) {
+            try {
+                File dir = spillFile.getAbsoluteFile().getParentFile();
+                if (dir != null && !dir.exists()) dir.mkdirs();
+                try (Writer w = new FileWriter(spillFile, true)) {
+                    for (Document d : entries) {
+                        w.write(d.toJson(SPILL_JSON));
+                        w.write('\n');
+                    }
+                }
+                spilled.addAndGet(entries.size());
+                spillBacklog.addAndGet(entries.size());
+            } catch (IOException ex) {
+                dropped.addAndGet(entries.size());
+                System.err.println("[AuditWriter] could not spill to " + spillFile + ": " + ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Moves spilled entries into the database; on failure they are kept for the next try. Caller
+     * holds writeLock. The spill file is first renamed aside, so submit() can keep spilling into a
+     * fresh file instead of waiting for the database.
+     */
+    private void replaySpill() {
+        if (spillFile == null) return;
+        File replay = replayFile();
+        synchronized (spillFile) {
+            // a leftover replay file (failed attempt or crash) goes first
+            if (!replay.exists()) {
+                if (!spillFile.exists() || spillFile.length() == 0) return;
+                if (!spillFile.renameTo(replay)) {
+                    System.err.println("[AuditWriter] could not move " + spillFile + " aside for replay");
+                    return;
+                }
+            }
+        }
+        List<Document> entries = new ArrayList<>();
+        try (BufferedReader r = new BufferedReader(new FileReader(replay))) {
+            String line;
+            while ((line = r.readLine()) != null) {
+                if (!line.isBlank()) entries.add(Document.parse(line));
+            }
+        } catch (Exception ex) {
+            System.err.println("[AuditWriter] could not read " + replay + ": " + ex.getMessage());
+            return;
+        }
+        try {
+            for (int i = 0; i < entries.size(); i += batchSize) {
+                sink.accept(entries.subList(i, Math.min(entries.size(), i + batchSize)));
+            }
+        } catch (RuntimeException ex) {
+            // put the entries back; batches already replayed are skipped as duplicates next time
+            restoreSpill(replay);
+            return;
+        }
+        written.addAndGet(entries.size());
+        spillBacklog.addAndGet(-entries.size());
+        if (!replay.delete()) System.err.println("[AuditWriter] could not remove " + replay);
+    }
+
+    /** Merges a failed replay file back into the spill file. */
+    private void restoreSpill(File replay) {
+        synchronized (spillFile) {
+            try {
+                if (spillFile.exists()) {
+                    Files.write(replay.toPath(), Files.readAllBytes(spillFile.toPath()), StandardOpenOption.APPEND);
+                    Files.delete(spillFile.toPath());
+                }
+                Files.move(replay.toPath(), spillFile.toPath());
+            } catch (IOException ex) {
+                // both files are replayed next time (the replay file first)
+                System.err.println("[AuditWriter] could not restore " + spillFile + ": " + ex.getMessage());
+            }
+        }
+    }
+
+    private File replayFile() {
+        return new File(spillFile.getPath() + ".replay");
+    }
+
+    private static long countLines(File f) {
+        if (!f.exists()) return 0;
+        try (BufferedReader r = new BufferedReader(new FileReader(f))) {
+            return r.lines().filter(l -> !l.isBlank()).count();
+        } catch (IOException ex) {
+            return 0;
+        }
+    }
+
+    private static int parseInt(String v, int def) {
+        try {
+            return Integer.parseInt(v.trim());
+        } catch (Exception ex) {
+            return def;
+        }
+    }
+}
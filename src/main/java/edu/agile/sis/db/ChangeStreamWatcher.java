@@ -0,0 +1,124 @@
+package edu.agile.sis.db;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.MongoException;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One change stream on a collection (or the whole database) read on a daemon thread.
+ *
+ * After a network error the stream is reopened from the last resume token with a growing delay;
+ * if the token is no longer usable the listener is told that events may have been missed.
+ * Change streams need a replica set or sharded cluster: on a standalone mongod the first open
+ * fails, the listener's onUnsupported is called and the thread ends.
+ */
+public class ChangeStreamWatcher {
+    /** "The $changeStream stage is only supported on replica sets". */
+    private static final int NOT_A_REPLICA_SET = 40573;
+    private static final int HISTORY_LOST = 286;
+    private static final int INVALID_RESUME_TOKEN = 260;
+
+    public interface Listener {
+        void onChange(ChangeStreamDocument<Document> event);
+
+        /** Events may have been missed (stream reopened without its resume token). */
+        default void onGap() {}
+
+        /** The server does not support change streams; nothing more will be delivered. */
+        default void onUnsupported(MongoException cause) {}
+    }
+
+    private final String name;
+    private final MongoDatabase db;
+    private final String collection;
+    private final List<Bson> pipeline;
+    private final Listener listener;
+    private volatile boolean running;
+    private Thread thread;
+
+    /**
+     * @param collection collection to watch, or null for every collection of db
+     * @param pipeline   $match etc. applied on the server to the change events
+     */
+    public ChangeStreamWatcher(String name, MongoDatabase db, String collection, List<Bson> pipeline, Listener listener) {
+        this.name = name;
+        this.db = db;
+        this.collection = collection;
+        this.pipeline = pipeline;
+        this.listener = listener;
+    }
+
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        thread = new Thread(this::run, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public synchronized void stop() {
+        running = false;
+        if (thread != null) thread.interrupt();
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void run() {
+        BsonDocument resumeToken = null;
+        long backoffMs = 1000;
+        boolean opened = false;
+        while (running) {
+            ChangeStreamIterable<Document> stream = collection == null
+                    ? db.watch(pipeline) : db.getCollection(collection).watch(pipeline);
+            stream = stream.maxAwaitTime(1, TimeUnit.SECONDS);
+            if (resumeToken != null) stream = stream.resumeAfter(resumeToken);
+            try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = stream.cursor()) {
+                if (opened && resumeToken == null) listener.onGap();
+                opened = true;
+                backoffMs = 1000;
+                while (running) {
+                    ChangeStreamDocument<Document> event = cursor.tryNext();
+                    if (cursor.getResumeToken() != null) resumeToken = cursor.getResumeToken();
+                    if (event != null) listener.onChange(event);
+                }
+            } catch (MongoCommandException ex) {
+                if (ex.getErrorCode() == NOT_A_REPLICA_SET) {
+                    System.err.println("[ChangeStreamWatcher] " + name + ": change streams not supported (" + ex.getErrorMessage() + ")");
+                    running = false;
+                    listener.onUnsupported(ex);
+                    return;
+                }
+                if (ex.getErrorCode() == HISTORY_LOST || ex.getErrorCode() == INVALID_RESUME_TOKEN) resumeToken = null;
+                backoffMs = pause(ex, backoffMs);
+            } catch (MongoException | IllegalStateException ex) {
+                backoffMs = pause(ex, backoffMs);
+            } catch (RuntimeException ex) {
+                // a failing listener must not end the stream
+                System.err.println("[ChangeStreamWatcher] " + name + ": listener failed: " + ex.getMessage());
+            }
+        }
+    }
+
+    private long pause(Exception ex, long backoffMs) {
+        if (!running) return backoffMs;
+        System.err.println("[ChangeStreamWatcher] " + name + ": stream interrupted, reopening in " + backoffMs + " ms: " + ex.getMessage());
+        try {
+            Thread.sleep(backoffMs);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+        return Math.min(backoffMs * 2, 30_000);
+    }
+}
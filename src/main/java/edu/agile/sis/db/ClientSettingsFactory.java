@@ -0,0 +1,131 @@
+package edu.agile.sis.db;
+
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoCompressor;
+import com.mongodb.ReadConcern;
+import com.mongodb.ReadConcernLevel;
+import com.mongodb.ReadPreference;
+import com.mongodb.event.ConnectionPoolListener;
+import edu.agile.sis.config.ConfigManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds MongoClientSettings from the connection URI plus the optional tuning keys in
+ * config.properties. A key that is absent leaves the URI / driver default in place; a key with an
+ * unparsable value is logged and ignored.
+ *
+ *   mongodb.pool.maxSize=20                mongodb.pool.minSize=2
+ *   mongodb.pool.maxWaitMs=5000            mongodb.pool.maxIdleMs=60000
+ *   mongodb.connectTimeoutMs=5000          mongodb.socketTimeoutMs=15000
+ *   mongodb.serverSelectionTimeoutMs=5000
+ *   mongodb.compressors=zstd,snappy        (zstd, snappy, zlib; first one the server supports wins)
+ *   mongodb.readPreference=primaryPreferred
+ *   mongodb.readConcern=majority           (local, available, majority, linearizable, snapshot)
+ */
+public final class ClientSettingsFactory {
+
+    private ClientSettingsFactory() {}
+
+    public static MongoClientSettings build(String uri, ConfigManager cfg, ConnectionPoolListener poolListener) {
+        MongoClientSettings.Builder b = MongoClientSettings.builder().applyConnectionString(new ConnectionString(uri));
+
+        Integer maxSize = intValue(cfg, "mongodb.pool.maxSize");
+        Integer minSize = intValue(cfg, "mongodb.pool.minSize");
+        Integer maxWaitMs = intValue(cfg, "mongodb.pool.maxWaitMs");
+        Integer maxIdleMs = intValue(cfg, "mongodb.pool.maxIdleMs");
+        b.applyToConnectionPoolSettings(pool -> {
+            if (maxSize != null) pool.maxSize(maxSize);
+            if (minSize != null) pool.minSize(minSize);
+            if (maxWaitMs != null) pool.maxWaitTime(maxWaitMs, TimeUnit.MILLISECONDS);
+            if (maxIdleMs != null) pool.maxConnectionIdleTime(maxIdleMs, TimeUnit.MILLISECONDS);
+            if (poolListener != null) pool.addConnectionPoolListener(poolListener);
+        });
+
+        Integer connectTimeoutMs = intValue(cfg, "mongodb.connectTimeoutMs");
+        Integer socketTimeoutMs = intValue(cfg, "mongodb.socketTimeoutMs");
+        b.applyToSocketSettings(socket -> {
+            if (connectTimeoutMs != null) socket.connectTimeout(connectTimeoutMs, TimeUnit.MILLISECONDS);
+            if (socketTimeoutMs != null) socket.readTimeout(socketTimeoutMs, TimeUnit.MILLISECONDS);
+        });
+
+        Integer selectionTimeoutMs = intValue(cfg, "mongodb.serverSelectionTimeoutMs");
+        if (selectionTimeoutMs != null) {
+            b.applyToClusterSettings(cluster -> cluster.serverSelectionTimeout(selectionTimeoutMs, TimeUnit.MILLISECONDS));
+        }
+
+        List<MongoCompressor> compressors = compressors(cfg.get("mongodb.compressors", null));
+        if (!compressors.isEmpty()) b.compressorList(compressors);
+
+        String readPreference = blankToNull(cfg.get("mongodb.readPreference", null));
+        if (readPreference != null) {
+            try {
+                b.readPreference(ReadPreference.valueOf(readPreference));
+            } catch (IllegalArgumentException ex) {
+                System.err.println("[ClientSettingsFactory] ignoring mongodb.readPreference=" + readPreference + ": " + ex.getMessage());
+            }
+        }
+
+        String readConcern = blankToNull(cfg.get("mongodb.readConcern", null));
+        if (readConcern != null) {
+            try {
+                b.readConcern(new ReadConcern(ReadConcernLevel.fromString(readConcern)));
+            } catch (IllegalArgumentException ex) {
+                System.err.println("[ClientSettingsFactory] ignoring mongodb.readConcern=" + readConcern + ": " + ex.getMessage());
+            }
+        }
+
+        return b.build();
+    }
+
+    static List<MongoCompressor> compressors(String value) {
+        List<MongoCompressor> out = new ArrayList<>();
+        if (value == null) return out;
+        for (String name : value.split(",")) {
+            switch (name.trim().toLowerCase()) {
+                case "":
+                    break;
+                case "zstd":
+                    if (onClasspath("com.github.luben.zstd.Zstd", name)) out.add(MongoCompressor.createZstdCompressor());
+                    break;
+                case "snappy":
+                    if (onClasspath("org.xerial.snappy.Snappy", name)) out.add(MongoCompressor.createSnappyCompressor());
+                    break;
+                case "zlib":
+                    out.add(MongoCompressor.createZlibCompressor());
+                    break;
+                default:
+                    System.err.println("[ClientSettingsFactory] unknown compressor '" + name.trim() + "' ignored");
+            }
+        }
+        return out;
+    }
+
+    private static boolean onClasspath(String className, String compressor) {
+        try {
+            Class.forName(className, false, ClientSettingsFactory.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException ex) {
+            System.err.println("[ClientSettingsFactory] " + compressor.trim() + " compression requested but " + className + " is not on the classpath");
+            return false;
+        }
+    }
+
+    private static Integer intValue(ConfigManager cfg, String key) {
+        String v = blankToNull(cfg.get(key, null));
+        if (v == null) return null;
+        try {
+            return Integer.parseInt(v);
+        } catch (NumberFormatException ex) {
+            System.err.println("[ClientSettingsFactory] ignoring " + key + "=" + v + " (not a number)");
+            return null;
+        }
+    }
+
+    private static String blankToNull(String s) {
+        return s == null || s.isBlank() ? null : s.trim();
+    }
+}
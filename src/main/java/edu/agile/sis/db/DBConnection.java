@@ -1,6 +1,6 @@
 package edu.agile.sis.db;
 
-import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
 import com.mongodb.client.MongoDatabase;
@@ -10,6 +10,7 @@ public class DBConnection {
     private static DBConnection INSTANCE;
     private MongoClient client;
     private MongoDatabase database;
+    private final PoolStats poolStats = new PoolStats();
 
     private DBConnection(){}
 
@@ -27,7 +28,11 @@ public class DBConnection {
 
     public void connect(String uri, String dbName){
         if(client != null) client.close();
-        client = MongoClients.create(new ConnectionString(uri));
+        MongoClientSettings settings = ClientSettingsFactory.build(uri, ConfigManager.getInstance(), poolStats);
+        if (QueryMetrics.isEnabled()) {
+            settings = MongoClientSettings.builder(settings).addCommandListener(QueryMetrics.getInstance()).build();
+        }
+        client = MongoClients.create(settings);
         database = client.getDatabase(dbName);
     }
 
@@ -35,6 +40,11 @@ public class DBConnection {
         return database;
     }
 
+    /** Live connection pool counters (checked out, wait queue, failures). */
+    public PoolStats getPoolStats() {
+        return poolStats;
+    }
+
     public void close() {
         if(client != null) client.close();
     }
@@ -0,0 +1,68 @@
+package edu.agile.sis.db;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import org.bson.Document;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide registry of collections and DAOs.
+ *
+ * DAOs are stateless wrappers around a thread-safe MongoCollection, so one instance per class is
+ * shared by every service. Each DAO is built lazily on first use; index creation is not done here
+ * but once at startup by IndexBootstrap. Everything cached is tied to the current database and is
+ * dropped when DBConnection connects to a different one.
+ */
+public final class DaoRegistry {
+    private static final ConcurrentHashMap<String, MongoCollection<Document>> COLLECTIONS = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<Class<?>, Object> DAOS = new ConcurrentHashMap<>();
+    private static volatile MongoDatabase boundTo;
+
+    private DaoRegistry() {}
+
+    public static MongoCollection<Document> collection(String name) {
+        checkDatabase();
+        return COLLECTIONS.computeIfAbsent(name, n -> DBConnection.getInstance().getDatabase().getCollection(n));
+    }
+
+    /**
+     * Shared instance of a DAO class (must have a public no-arg constructor).
+     */
+    public static <T> T get(Class<T> daoClass) {
+        checkDatabase();
+        Object dao = DAOS.get(daoClass);
+        if (dao == null) {
+            // built outside computeIfAbsent: a DAO constructor calls collection(), which touches this registry
+            Object created = newInstance(daoClass);
+            dao = DAOS.putIfAbsent(daoClass, created);
+            if (dao == null) dao = created;
+        }
+        return daoClass.cast(dao);
+    }
+
+    public static void clear() {
+        COLLECTIONS.clear();
+        DAOS.clear();
+    }
+
+    private static void checkDatabase() {
+        MongoDatabase current = DBConnection.getInstance().getDatabase();
+        if (current != boundTo) {
+            synchronized (DaoRegistry.class) {
+                if (current != boundTo) {
+                    clear();
+                    boundTo = current;
+                }
+            }
+        }
+    }
+
+    private static Object newInstance(Class<?> daoClass) {
+        try {
+            return daoClass.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException ex) {
+            throw new IllegalStateException("Cannot create DAO " + daoClass.getName(), ex);
+        }
+    }
+}
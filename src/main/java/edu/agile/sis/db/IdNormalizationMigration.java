@@ -0,0 +1,230 @@
+package edu.agile.sis.db;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.DeleteManyModel;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * One-time migration that rewrites ids to the canonical types described in IdPolicy.
+ *
+ * Each step selects only the documents that still need converting (hex strings for ObjectId
+ * fields, ObjectIds for studentId) and rewrites them in batches with one unordered bulkWrite per
+ * batch, so an interrupted run simply picks up the remaining documents when restarted. Per-step
+ * counters and completion flags are kept in the "migrations" collection.
+ *
+ * _id cannot be updated in place: the original documents of the current batch are journaled
+ * first, one journal document each in "migration_journal" (so a batch of large documents cannot
+ * outgrow the 16 MB document limit), then the old rows are deleted, the ObjectId copies are
+ * upserted, and the batch's journal entries are removed. A run that died halfway replays the
+ * journal before continuing.
+ */
+public class IdNormalizationMigration {
+    public static final String MIGRATION_ID = "id-normalization";
+
+    private static final Pattern HEX24 = Pattern.compile("^[0-9a-fA-F]{24}$");
+
+    /** Collections whose _id should be an ObjectId. */
+    static final List<String> ID_COLLECTIONS = List.of(
+            "announcements", "assignments", "courses", "entities", "events", "inventory",
+            "inventory_requests", "leaves", "messages", "parents", "payslips", "publications",
+            "quiz_attempts", "quizzes", "reservations", "rsvps", "staff", "students", "submissions");
+
+    /** ObjectId-typed reference fields: collection -> field. */
+    static final List<String[]> OBJECT_ID_FIELDS = List.of(
+            new String[]{"submissions", "assignmentId"},
+            new String[]{"quiz_attempts", "quizId"},
+            new String[]{"rsvps", "eventId"});
+
+    /** Collections whose studentId must be a string. */
+    static final List<String> STUDENT_ID_COLLECTIONS = List.of(
+            "submissions", "quiz_attempts", "enrollments", "messages", "rsvps", "gradebook");
+
+    private final MongoDatabase db;
+    private final MongoCollection<Document> progress;
+    private final MongoCollection<Document> journal;
+    private final int batchSize;
+
+    public IdNormalizationMigration(MongoDatabase db, int batchSize) {
+        this.db = db;
+        this.progress = db.getCollection("migrations");
+        this.journal = db.getCollection("migration_journal");
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Run every step that is not yet marked done.
+     * @return number of documents rewritten by this run
+     */
+    public long run() {
+        long total = 0;
+        for (String coll : ID_COLLECTIONS) {
+            total += step(coll + "._id", () -> normalizeIds(coll));
+        }
+        for (String[] f : OBJECT_ID_FIELDS) {
+            total += step(f[0] + "." + f[1], () -> hexFieldToObjectId(f[0], f[1]));
+        }
+        for (String coll : STUDENT_ID_COLLECTIONS) {
+            total += step(coll + ".studentId", () -> objectIdFieldToString(coll, "studentId"));
+        }
+        progress.updateOne(Filters.eq("_id", MIGRATION_ID),
+                Updates.combine(Updates.set("completed", true), Updates.set("completedAt", new Date())),
+                new UpdateOptions().upsert(true));
+        return total;
+    }
+
+    public boolean isCompleted() {
+        Document p = progress.find(Filters.eq("_id", MIGRATION_ID)).first();
+        return p != null && Boolean.TRUE.equals(p.getBoolean("completed"));
+    }
+
+    private interface Step {
+        long run();
+    }
+
+    private long step(String name, Step step) {
+        String key = "steps." + name.replace('.', ':');
+        Document p = progress.find(Filters.eq("_id", MIGRATION_ID)).first();
+        Document steps = p == null ? null : p.get("steps", Document.class);
+        Document state = steps == null ? null : steps.get(name.replace('.', ':'), Document.class);
+        if (state != null && Boolean.TRUE.equals(state.getBoolean("done"))) {
+            System.out.println("[IdNormalizationMigration] " + name + " already done, skipping");
+            return 0;
+        }
+        long start = System.currentTimeMillis();
+        long converted;
+        try {
+            converted = step.run();
+        } catch (Exception ex) {
+            System.err.println("[IdNormalizationMigration] " + name + " failed: " + ex.getMessage());
+            throw ex;
+        }
+        progress.updateOne(Filters.eq("_id", MIGRATION_ID),
+                Updates.combine(Updates.set(key + ".done", true), Updates.set(key + ".finishedAt", new Date())),
+                new UpdateOptions().upsert(true));
+        System.out.println("[IdNormalizationMigration] " + name + ": " + converted + " documents in "
+                + (System.currentTimeMillis() - start) + " ms");
+        return converted;
+    }
+
+    private void recordBatch(String name, int count) {
+        progress.updateOne(Filters.eq("_id", MIGRATION_ID),
+                Updates.combine(Updates.inc("steps." + name.replace('.', ':') + ".converted", count),
+                        Updates.set("updatedAt", new Date())),
+                new UpdateOptions().upsert(true));
+    }
+
+    /** Hex-string reference field -> ObjectId. */
+    long hexFieldToObjectId(String collection, String field) {
+        MongoCollection<Document> coll = db.getCollection(collection);
+        Bson pending = Filters.regex(field, HEX24);
+        long total = 0;
+        while (true) {
+            List<Document> batch = coll.find(pending).projection(new Document(field, 1))
+                    .limit(batchSize).into(new ArrayList<>());
+            if (batch.isEmpty()) return total;
+            List<WriteModel<Document>> writes = new ArrayList<>(batch.size());
+            for (Document d : batch) {
+                writes.add(new UpdateOneModel<>(Filters.eq("_id", d.get("_id")),
+                        Updates.set(field, new ObjectId(d.getString(field)))));
+            }
+            coll.bulkWrite(writes, new BulkWriteOptions().ordered(false));
+            total += batch.size();
+            recordBatch(collection + "." + field, batch.size());
+        }
+    }
+
+    /** ObjectId field -> hex string. */
+    long objectIdFieldToString(String collection, String field) {
+        MongoCollection<Document> coll = db.getCollection(collection);
+        Bson pending = Filters.type(field, "objectId");
+        long total = 0;
+        while (true) {
+            List<Document> batch = coll.find(pending).projection(new Document(field, 1))
+                    .limit(batchSize).into(new ArrayList<>());
+            if (batch.isEmpty()) return total;
+            List<WriteModel<Document>> writes = new ArrayList<>(batch.size());
+            for (Document d : batch) {
+                writes.add(new UpdateOneModel<>(Filters.eq("_id", d.get("_id")),
+                        Updates.set(field, d.getObjectId(field).toHexString())));
+            }
+            coll.bulkWrite(writes, new BulkWriteOptions().ordered(false));
+            total += batch.size();
+            recordBatch(collection + "." + field, batch.size());
+        }
+    }
+
+    /** Hex-string _id -> ObjectId, journaled so a crash between delete and insert loses nothing. */
+    long normalizeIds(String collection) {
+        MongoCollection<Document> coll = db.getCollection(collection);
+        long total = replayJournal(collection);
+        Bson pending = Filters.regex("_id", HEX24);
+        while (true) {
+            List<Document> batch = coll.find(pending).sort(Sorts.ascending("_id"))
+                    .limit(batchSize).into(new ArrayList<>());
+            if (batch.isEmpty()) return total;
+            List<WriteModel<Document>> entries = new ArrayList<>(batch.size());
+            for (Document d : batch) {
+                String key = collection + ":" + d.get("_id");
+                entries.add(new ReplaceOneModel<>(Filters.eq("_id", key),
+                        new Document("_id", key).append("collection", collection).append("doc", d),
+                        new ReplaceOptions().upsert(true)));
+            }
+            journal.bulkWrite(entries, new BulkWriteOptions().ordered(false));
+            total += rewriteIds(coll, batch);
+            journal.deleteMany(Filters.eq("collection", collection));
+            recordBatch(collection + "._id", batch.size());
+        }
+    }
+
+    private long replayJournal(String collection) {
+        long total = 0;
+        while (true) {
+            List<Document> entries = journal.find(Filters.eq("collection", collection))
+                    .limit(batchSize).into(new ArrayList<>());
+            if (entries.isEmpty()) return total;
+            System.out.println("[IdNormalizationMigration] replaying " + entries.size() + " journaled documents of " + collection);
+            List<Document> docs = new ArrayList<>(entries.size());
+            List<Object> keys = new ArrayList<>(entries.size());
+            for (Document e : entries) {
+                docs.add(e.get("doc", Document.class));
+                keys.add(e.get("_id"));
+            }
+            total += rewriteIds(db.getCollection(collection), docs);
+            journal.deleteMany(Filters.in("_id", keys));
+        }
+    }
+
+    private long rewriteIds(MongoCollection<Document> coll, List<Document> originals) {
+        List<Object> oldIds = new ArrayList<>(originals.size());
+        List<WriteModel<Document>> inserts = new ArrayList<>(originals.size());
+        for (Document d : originals) {
+            String hex = d.get("_id").toString();
+            ObjectId oid = new ObjectId(hex);
+            oldIds.add(hex);
+            Document copy = new Document(d);
+            copy.put("_id", oid);
+            inserts.add(new ReplaceOneModel<>(Filters.eq("_id", oid), copy, new ReplaceOptions().upsert(true)));
+        }
+        // delete first: unique secondary indexes would reject the copies while the originals exist
+        coll.bulkWrite(List.of(new DeleteManyModel<>(Filters.in("_id", oldIds))), new BulkWriteOptions().ordered(false));
+        coll.bulkWrite(inserts, new BulkWriteOptions().ordered(false));
+        return originals.size();
+    }
+}
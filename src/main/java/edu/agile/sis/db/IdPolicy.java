@@ -0,0 +1,52 @@
+package edu.agile.sis.db;
+
+import com.mongodb.client.model.Filters;
+import edu.agile.sis.config.ConfigManager;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+
+/**
+ * Canonical storage types for ids, and the switch between lenient and strict lookups.
+ *
+ * Canonical: _id, assignmentId, quizId and eventId are ObjectIds (when the value is a 24-char hex
+ * string); studentId is always a string. Legacy data mixes both forms, so by default DAOs keep
+ * their ObjectId / string fallbacks. Once NormalizeIds has run, set db.ids.strict=true in
+ * config.properties and every lookup issues exactly one query on the canonical form.
+ */
+public final class IdPolicy {
+    public static final String STRICT_KEY = "db.ids.strict";
+
+    private static volatile Boolean strict;
+
+    private IdPolicy() {}
+
+    public static boolean isStrict() {
+        Boolean s = strict;
+        if (s == null) {
+            s = Boolean.parseBoolean(ConfigManager.getInstance().get(STRICT_KEY, "false"));
+            strict = s;
+        }
+        return s;
+    }
+
+    public static void setStrict(boolean value) {
+        strict = value;
+    }
+
+    /** The canonical form of an ObjectId-typed reference: an ObjectId if the value is valid hex, else the value itself. */
+    public static Object objectId(String id) {
+        if (id != null && ObjectId.isValid(id)) return new ObjectId(id);
+        return id;
+    }
+
+    /** The canonical form of a studentId: always a string (legacy rows stored some as ObjectId). */
+    public static String studentId(Object id) {
+        if (id instanceof ObjectId) return ((ObjectId) id).toHexString();
+        return id == null ? null : id.toString();
+    }
+
+    /** Single equality filter on the canonical ObjectId form of the value. */
+    public static Bson eqObjectId(String field, String id) {
+        return Filters.eq(field, objectId(id));
+    }
+}
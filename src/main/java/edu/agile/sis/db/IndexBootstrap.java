@@ -0,0 +1,76 @@
+package edu.agile.sis.db;
+
+import com.mongodb.client.MongoDatabase;
+import edu.agile.sis.dao.InventoryDAO;
+import edu.agile.sis.dao.LeaveDAO;
+import edu.agile.sis.dao.ReservationDAO;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+
+/**
+ * One-time index creation from IndexManifest. createIndex is idempotent, so re-running against
+ * an existing database only confirms what is already there. Also backfills the search words
+ * (SearchTerms) of documents written before they were maintained.
+ */
+public final class IndexBootstrap {
+    private static final AtomicBoolean DONE = new AtomicBoolean(false);
+
+    private IndexBootstrap() {}
+
+    /**
+     * Create all indexes once per process; later calls return immediately.
+     */
+    public static void ensureIndexes() {
+        if (!DONE.compareAndSet(false, true)) return;
+        MongoDatabase db = DBConnection.getInstance().getDatabase();
+        if (db == null) {
+            DONE.set(false);
+            return;
+        }
+        long start = System.currentTimeMillis();
+
+        for (IndexManifest.IndexSpec spec : IndexManifest.INDEXES) {
+            create(spec.toString(), () -> db.getCollection(spec.collection)
+                    .createIndex(spec.keys, spec.options()));
+        }
+
+        System.out.println("[IndexBootstrap] indexes ensured in " + (System.currentTimeMillis() - start) + " ms");
+
+        // after the indexes, so the backfill does not hold up the ones queries need first
+        backfill("inventory", () -> DaoRegistry.get(InventoryDAO.class).backfillSearchTerms());
+        backfill("leaves", () -> DaoRegistry.get(LeaveDAO.class).backfillSearchTerms());
+        backfill("reservations", () -> DaoRegistry.get(ReservationDAO.class).backfillSearchTerms());
+    }
+
+    /**
+     * Run ensureIndexes on a daemon thread so the first screen does not wait for it.
+     */
+    public static void ensureIndexesAsync() {
+        Thread t = new Thread(IndexBootstrap::ensureIndexes, "index-bootstrap");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    /** Forget that indexes were ensured (used by the startup benchmark to replay the old behaviour). */
+    static void reset() {
+        DONE.set(false);
+    }
+
+    private static void backfill(String collection, LongSupplier backfill) {
+        try {
+            long updated = backfill.getAsLong();
+            if (updated > 0) System.out.println("[IndexBootstrap] searchTerms set on " + updated + " " + collection);
+        } catch (Exception ex) {
+            System.err.println("[IndexBootstrap] searchTerms backfill of " + collection + " failed: " + ex.getMessage());
+        }
+    }
+
+    private static void create(String description, Runnable createCall) {
+        try {
+            createCall.run();
+        } catch (Exception ex) {
+            System.err.println("[IndexBootstrap] index " + description + " failed: " + ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package edu.agile.sis.db;
+
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Sorts;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Declarative list of every index the application needs, plus the query shapes the DAOs send.
+ *
+ * IndexBootstrap creates INDEXES; IndexUsageVerifier explains every entry of QUERIES and reports
+ * the ones that still fall back to a collection scan. When a DAO gains a new filtered query,
+ * add its shape here (and an index if the verifier complains).
+ *
+ * Deliberately absent: findAll / listAll style reads and the unfiltered admin listings, which
+ * read the whole collection by design.
+ */
+public final class IndexManifest {
+
+    private IndexManifest() {}
+
+    /** Upload manifests untouched for this long belong to abandoned uploads. */
+    public static final long UPLOAD_SESSION_TTL_SEC = TimeUnit.DAYS.toSeconds(7);
+
+    public static final class IndexSpec {
+        public final String collection;
+        public final Document keys;
+        public final boolean unique;
+        /** TTL of the indexed date field, or null. */
+        public final Long expireAfterSeconds;
+
+        IndexSpec(String collection, Document keys, boolean unique) {
+            this(collection, keys, unique, null);
+        }
+
+        IndexSpec(String collection, Document keys, boolean unique, Long expireAfterSeconds) {
+            this.collection = collection;
+            this.keys = keys;
+            this.unique = unique;
+            this.expireAfterSeconds = expireAfterSeconds;
+        }
+
+        public IndexOptions options() {
+            IndexOptions options = new IndexOptions().unique(unique);
+            if (expireAfterSeconds != null) options.expireAfter(expireAfterSeconds, TimeUnit.SECONDS);
+            return options;
+        }
+
+        @Override
+        public String toString() {
+            return collection + " " + keys.toJson() + (unique ? " unique" : "")
+                    + (expireAfterSeconds != null ? " ttl " + expireAfterSeconds + "s" : "");
+        }
+    }
+
+    public static final class QueryShape {
+        public final String source;
+        public final String collection;
+        public final Bson filter;
+        public final Bson sort;
+
+        QueryShape(String source, String collection, Bson filter, Bson sort) {
+            this.source = source;
+            this.collection = collection;
+            this.filter = filter;
+            this.sort = sort;
+        }
+    }
+
+    private static IndexSpec index(String collection, Document keys) {
+        return new IndexSpec(collection, keys, false);
+    }
+
+    private static IndexSpec unique(String collection, Document keys) {
+        return new IndexSpec(collection, keys, true);
+    }
+
+    private static IndexSpec ttl(String collection, String dateField, long seconds) {
+        return new IndexSpec(collection, new Document(dateField, 1), false, seconds);
+    }
+
+    private static QueryShape query(String source, String collection, Bson filter) {
+        return new QueryShape(source, collection, filter, null);
+    }
+
+    private static QueryShape query(String source, String collection, Bson filter, Bson sort) {
+        return new QueryShape(source, collection, filter, sort);
+    }
+
+    public static final List<IndexSpec> INDEXES = List.of(
+            index("announcements", new Document("isPinned", -1).append("pinnedAt", -1).append("createdAt", -1).append("_id", -1)),
+            index("announcements", new Document("deleted", 1).append("createdAt", -1).append("_id", -1)),
+            index("announcements", new Document("category", 1)),
+            index("events", new Document("startAt", 1).append("_id", 1)),
+            index("events", new Document("category", 1)),
+            index("rsvps", new Document("eventId", 1)),
+
+            index("users", new Document("username", 1)),
+            unique("users", new Document("linkedEntityId", 1)),
+            index("users", new Document("parentLinkedEntityId", 1)),
+            index("users", new Document("parentId", 1)),
+
+            index("entities", new Document("core.entityId", 1)),
+            index("entities", new Document("entityId", 1)),
+            index("entities", new Document("type", 1)),
+            index("students", new Document("core.entityId", 1)),
+            index("students", new Document("entityId", 1)),
+            index("students", new Document("type", 1)),
+            index("parents", new Document("core.entityId", 1)),
+            index("parents", new Document("entityId", 1)),
+            index("attributes", new Document("entityType", 1).append("key", 1)),
+            index("attribute_meta", new Document("key", 1)),
+
+            index("courses", new Document("code", 1)),
+            index("courses", new Document("assignedStaff", 1)),
+            // one enrollment per student and course; run RepairEnrollments first on legacy data
+            unique("enrollments", new Document("studentId", 1).append("courseCode", 1)),
+            index("enrollments", new Document("courseCode", 1)),
+            index("assignments", new Document("courseCode", 1)),
+            index("submissions", new Document("studentId", 1).append("submittedAt", 1)),
+            index("submissions", new Document("assignmentId", 1).append("submittedAt", 1)),
+            index("quizzes", new Document("courseCode", 1).append("createdAt", 1)),
+            index("quiz_attempts", new Document("quizId", 1).append("studentId", 1)),
+            index("quiz_attempts", new Document("studentId", 1).append("submittedAt", -1)),
+            unique("gradebook", new Document("studentId", 1).append("courseCode", 1)),
+
+            index("messages", new Document("threadId", 1).append("createdAt", 1).append("_id", 1)),
+            index("messages", new Document("studentId", 1).append("staffId", 1).append("createdAt", 1).append("_id", 1)),
+            index("messages", new Document("staffId", 1).append("createdAt", -1)),
+            index("messages", new Document("studentId", 1).append("createdAt", 1)),
+
+            index("staff", new Document("staffId", 1)),
+            index("leaves", new Document("staffId", 1).append("createdAt", -1).append("_id", -1)),
+            index("leaves", new Document("createdAt", -1).append("_id", -1)),
+            // search boxes of the paged lists: anchored prefix matches on the word arrays (SearchTerms)
+            index("leaves", new Document("searchTerms", 1)),
+            index("reservations", new Document("searchTerms", 1)),
+            index("inventory", new Document("searchTerms", 1)),
+            index("payslips", new Document("staffId", 1)),
+            index("benefits", new Document("staffId", 1)),
+            index("publications", new Document("published", 1).append("publicationDate", -1)),
+            index("publications", new Document("authorId", 1).append("published", 1)),
+            index("publications", new Document("publicationType", 1).append("published", 1)),
+
+            index("reservations", new Document("roomId", 1).append("start", 1).append("end", 1)),
+            index("reservations", new Document("start", -1).append("_id", -1)),
+            index("reservations", new Document("createdBy", 1).append("start", -1).append("_id", -1)),
+            index("inventory", new Document("name", 1).append("_id", 1)),
+            index("inventory", new Document("status", 1)),
+            // findRequestableItems ($or branches on itemType + status, sorted by name); also serves findByItemType
+            index("inventory", new Document("itemType", 1).append("status", 1).append("name", 1)),
+            index("inventory", new Document("assignedToUserId", 1)),
+            index("inventory", new Document("assignedUsers.userId", 1)),
+            index("inventory_requests", new Document("requesterId", 1).append("itemId", 1).append("status", 1)),
+            index("inventory_requests", new Document("status", 1).append("requestDate", -1)),
+            index("inventory_requests", new Document("itemId", 1)),
+            index("audit_logs", new Document("entityId", 1).append("timestamp", -1)),
+            index("audit_logs", new Document("entityType", 1).append("timestamp", -1)),
+            index("audit_logs", new Document("performedBy", 1).append("timestamp", -1)),
+            index("blob_refs", new Document("fileId", 1)),
+            // what GridFSBucket creates on first use; chunked uploads write the collections directly
+            unique("fs.chunks", new Document("files_id", 1).append("n", 1)),
+            index("fs.files", new Document("filename", 1).append("uploadDate", 1)),
+            // abandoned upload manifests expire; ChunkedUploader.sweepOrphanChunks then drops their chunks
+            ttl("upload_sessions", "updatedAt", UPLOAD_SESSION_TTL_SEC)
+    );
+
+    private static final String S = "x";
+    private static final ObjectId OID = new ObjectId();
+    private static final Date NOW = new Date();
+
+    public static final List<QueryShape> QUERIES = List.of(
+            query("AnnouncementDAO.list(pinnedFirst)", "announcements", Filters.eq("deleted", false),
+                    Sorts.descending("isPinned", "pinnedAt", "createdAt", "_id")),
+            query("AnnouncementDAO.list", "announcements", Filters.eq("deleted", false), Sorts.descending("createdAt", "_id")),
+            query("AnnouncementDAO.list(category)", "announcements",
+                    Filters.and(Filters.eq("deleted", false), Filters.eq("category", S)), Sorts.descending("createdAt", "_id")),
+            query("EventDAO.listUpcoming", "events",
+                    Filters.and(Filters.eq("deleted", false), Filters.gte("startAt", NOW)), Sorts.ascending("startAt", "_id")),
+            query("RSVPDAO.listByEvent", "rsvps", Filters.eq("eventId", OID)),
+
+            query("UserDAO.findByUsername", "users", Filters.eq("username", S)),
+            query("UserDAO.findByLinkedEntityId", "users", Filters.eq("linkedEntityId", S)),
+            query("UserDAO.insertUser(existing)", "users", Filters.or(Filters.eq("username", S), Filters.eq("linkedEntityId", S))),
+            query("UserDAO.getStudentsForParent", "users", Filters.or(Filters.eq("parentId", S), Filters.eq("parentLinkedEntityId", S))),
+
+            query("EntityDAO.findByEntityId", "entities", Filters.eq("core.entityId", S)),
+            query("EntityDAO.findByType", "entities", Filters.eq("type", S)),
+            query("EntityService.getEntityById(students)", "students",
+                    Filters.or(Filters.eq("core.entityId", S), Filters.eq("entityId", S))),
+            query("EntityService.getEntityById(parents)", "parents",
+                    Filters.or(Filters.eq("core.entityId", S), Filters.eq("entityId", S))),
+            query("AttributeDAO.findByKeyAndType", "attributes", Filters.and(Filters.eq("key", S), Filters.eq("entityType", S))),
+            query("AttributeMetaDAO.findByKey", "attribute_meta", Filters.eq("key", S)),
+
+            query("CourseDAO.findByCode", "courses", Filters.eq("code", S)),
+            query("CourseDAO.findByStaff", "courses", Filters.in("assignedStaff", S)),
+            query("EnrollmentDAO.find", "enrollments", Filters.and(Filters.eq("studentId", S), Filters.eq("courseCode", S))),
+            query("EnrollmentDAO.reserveCourseSlot", "students", Filters.and(Filters.or(
+                    Filters.eq("_id", new ObjectId()), Filters.eq("_id", S), Filters.eq("core.entityId", S), Filters.eq("entityId", S)),
+                    Filters.lt("enrolledCount", 7))),
+            query("EnrollmentDAO.findByStudentId", "enrollments", Filters.eq("studentId", S)),
+            query("EnrollmentDAO.findByCourseCode", "enrollments", Filters.eq("courseCode", S)),
+            query("AssignmentDAO.listByCourse", "assignments", Filters.eq("courseCode", S)),
+            query("SubmissionDAO.listByStudent", "submissions", Filters.eq("studentId", S), Sorts.ascending("submittedAt")),
+            query("SubmissionDAO.listByAssignment", "submissions", Filters.eq("assignmentId", OID), Sorts.ascending("submittedAt")),
+            query("QuizDAO.listByCourse", "quizzes", Filters.eq("courseCode", S), Sorts.ascending("createdAt")),
+            query("QuizAttemptDAO.listByQuiz", "quiz_attempts", Filters.eq("quizId", OID), Sorts.ascending("submittedAt")),
+            query("QuizAttemptDAO.listByQuizAndStudent", "quiz_attempts",
+                    Filters.and(Filters.eq("quizId", OID), Filters.eq("studentId", S))),
+            query("QuizAttemptDAO.listByStudent", "quiz_attempts", Filters.eq("studentId", S), Sorts.descending("submittedAt")),
+            query("GradebookDAO.findByStudent", "gradebook", Filters.eq("studentId", S)),
+
+            query("MessageDAO.findByThreadId", "messages", Filters.eq("threadId", S), Sorts.ascending("createdAt")),
+            query("MessageDAO.findThreadPage", "messages", Filters.eq("threadId", S), Sorts.descending("createdAt", "_id")),
+            query("MessageDAO.findThreadPage(legacy)", "messages",
+                    Filters.or(Filters.eq("threadId", S), Filters.and(Filters.eq("studentId", S), Filters.eq("staffId", S))),
+                    Sorts.descending("createdAt", "_id")),
+            query("MessageDAO.findThreadBetween", "messages",
+                    Filters.and(Filters.eq("studentId", S), Filters.eq("staffId", S)), Sorts.ascending("createdAt")),
+            query("MessageDAO.findByStaff", "messages", Filters.eq("staffId", S), Sorts.descending("createdAt")),
+            query("MessageDAO.findByStudent", "messages", Filters.eq("studentId", S), Sorts.descending("createdAt")),
+            query("MessageDAO.findNewerThan(studentId)", "messages",
+                    Filters.and(Filters.eq("studentId", S), Filters.gt("createdAt", NOW)), Sorts.ascending("createdAt")),
+            query("MessageDAO.findNewerThan(staffId)", "messages",
+                    Filters.and(Filters.eq("staffId", S), Filters.gt("createdAt", NOW)), Sorts.ascending("createdAt")),
+            query("ConversationDAO.listThreadPreviewsForParent", "messages", Filters.in("studentId", S, "y")),
+
+            query("StaffDAO.findByStaffId", "staff", Filters.eq("staffId", S)),
+            query("LeaveDAO.findByStaffId", "leaves", Filters.eq("staffId", S), Sorts.descending("createdAt")),
+            query("LeaveDAO.findSummaryPage", "leaves", new Document(), Sorts.descending("createdAt", "_id")),
+            query("LeaveDAO.findSummaryPage(staff)", "leaves", Filters.eq("staffId", S), Sorts.descending("createdAt", "_id")),
+            query("LeaveDAO.findSummaryPage(search)", "leaves", Filters.regex("searchTerms", "^x"), Sorts.descending("createdAt", "_id")),
+            query("PayrollDAO.findByStaffId", "payslips", Filters.eq("staffId", S)),
+            query("BenefitsDAO.findByStaff", "benefits", Filters.eq("staffId", S)),
+            query("PublicationDAO.findPublished", "publications", Filters.eq("published", true), Sorts.descending("publicationDate")),
+            query("PublicationDAO.findByAuthor", "publications", Filters.eq("authorId", S), Sorts.descending("publicationDate")),
+            query("PublicationDAO.findByType", "publications",
+                    Filters.and(Filters.eq("publicationType", S), Filters.eq("published", true)), Sorts.descending("publicationDate")),
+
+            query("ReservationDAO.findByRoomId", "reservations", Filters.eq("roomId", S)),
+            query("ReservationDAO.findScheduleByRoom", "reservations", Filters.and(Filters.eq("roomId", S), Filters.gt("end", NOW))),
+            query("ReservationDAO.findBusy", "reservations",
+                    Filters.and(Filters.in("roomId", S, S), Filters.lt("start", NOW), Filters.gt("end", NOW)),
+                    Sorts.ascending("roomId", "start")),
+            query("ReservationDAO.findPage", "reservations", new Document(), Sorts.descending("start", "_id")),
+            query("ReservationDAO.findPage(createdBy)", "reservations", Filters.eq("createdBy", S), Sorts.descending("start", "_id")),
+            query("ReservationDAO.findPage(search)", "reservations", Filters.regex("searchTerms", "^x"), Sorts.descending("start", "_id")),
+            query("InventoryDAO.findItemSummaryPage", "inventory", new Document(), Sorts.ascending("name", "_id")),
+            query("InventoryDAO.findItemSummaryPage(search)", "inventory", Filters.regex("searchTerms", "^x"), Sorts.ascending("name", "_id")),
+            query("ReservationDAO.findOverlapping", "reservations",
+                    Filters.and(Filters.eq("roomId", S), Filters.lt("start", NOW), Filters.gt("end", NOW))),
+            query("InventoryDAO.findByStatus", "inventory", Filters.eq("status", S)),
+            query("InventoryDAO.findByItemType", "inventory", Filters.eq("itemType", S)),
+            query("InventoryDAO.findByAssignedUser", "inventory", Filters.eq("assignedToUserId", S)),
+            query("InventoryDAO.findByUserInAssignedUsers", "inventory", Filters.eq("assignedUsers.userId", S)),
+            query("InventoryDAO.findRequestableItems", "inventory", Filters.or(
+                    Filters.and(Filters.in("itemType", "Laptop", "Equipment"), Filters.eq("status", "Available")),
+                    Filters.and(Filters.eq("itemType", "License"), Filters.in("status", "Available", "Assigned"),
+                            Filters.nor(Filters.eq("assignedUsers.userId", S)))), Sorts.ascending("name")),
+            query("InventoryRequestDAO.findByStatus", "inventory_requests", Filters.eq("status", S), Sorts.descending("requestDate")),
+            query("InventoryRequestDAO.findByRequester", "inventory_requests", Filters.eq("requesterId", S), Sorts.descending("requestDate")),
+            query("InventoryRequestDAO.findByItem", "inventory_requests", Filters.eq("itemId", S), Sorts.descending("requestDate")),
+            query("InventoryRequestDAO.findPendingByRequesterAndItem", "inventory_requests",
+                    Filters.and(Filters.eq("requesterId", S), Filters.eq("itemId", S), Filters.eq("status", "Pending"))),
+            query("AuditLogDAO.findByEntityId", "audit_logs", Filters.eq("entityId", S), Sorts.descending("timestamp")),
+            query("AuditLogDAO.findByEntityType", "audit_logs", Filters.eq("entityType", S), Sorts.descending("timestamp")),
+            query("AuditLogDAO.findByPerformedBy", "audit_logs", Filters.eq("performedBy", S), Sorts.descending("timestamp")),
+            query("BlobRefDAO.release", "blob_refs", Filters.and(Filters.eq("fileId", S), Filters.gt("refs", 0)))
+    );
+}
@@ -0,0 +1,62 @@
+package edu.agile.sis.db;
+
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoDatabase;
+import org.bson.Document;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Explains every query shape in IndexManifest.QUERIES and reports the ones whose winning plan
+ * contains a COLLSCAN stage. An empty result means every DAO query is index-backed.
+ */
+public final class IndexUsageVerifier {
+
+    private IndexUsageVerifier() {}
+
+    /**
+     * @return one line per query shape that scans its whole collection (or could not be explained)
+     */
+    public static List<String> verify(MongoDatabase db) {
+        List<String> violations = new ArrayList<>();
+        for (IndexManifest.QueryShape q : IndexManifest.QUERIES) {
+            try {
+                FindIterable<Document> find = db.getCollection(q.collection).find(q.filter);
+                if (q.sort != null) find = find.sort(q.sort);
+                if (usesCollscan(find.explain())) {
+                    violations.add(q.source + " -> COLLSCAN on " + q.collection);
+                }
+            } catch (Exception ex) {
+                violations.add(q.source + " -> explain failed: " + ex.getMessage());
+            }
+        }
+        return violations;
+    }
+
+    /**
+     * True if the winning plan of an explain() result contains a COLLSCAN stage. Handles both the
+     * classic plan shape and the slot-based engine shape (winningPlan.queryPlan).
+     */
+    public static boolean usesCollscan(Document explain) {
+        if (explain == null) return false;
+        Object planner = explain.get("queryPlanner");
+        if (!(planner instanceof Document)) return false;
+        return containsStage(((Document) planner).get("winningPlan"), "COLLSCAN");
+    }
+
+    private static boolean containsStage(Object node, String stage) {
+        if (node instanceof Document) {
+            Document d = (Document) node;
+            if (stage.equals(d.get("stage"))) return true;
+            for (Object v : d.values()) {
+                if (containsStage(v, stage)) return true;
+            }
+        } else if (node instanceof List) {
+            for (Object v : (List<?>) node) {
+                if (containsStage(v, stage)) return true;
+            }
+        }
+        return false;
+    }
+}
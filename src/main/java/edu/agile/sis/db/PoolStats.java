@@ -0,0 +1,95 @@
+package edu.agile.sis.db;
+
+import com.mongodb.event.ConnectionCheckOutFailedEvent;
+import com.mongodb.event.ConnectionCheckOutStartedEvent;
+import com.mongodb.event.ConnectionCheckedInEvent;
+import com.mongodb.event.ConnectionCheckedOutEvent;
+import com.mongodb.event.ConnectionClosedEvent;
+import com.mongodb.event.ConnectionCreatedEvent;
+import com.mongodb.event.ConnectionPoolClearedEvent;
+import com.mongodb.event.ConnectionPoolListener;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Connection pool listener that keeps live counters: connections currently checked out, threads
+ * waiting for a connection, and check-out failures. Counters are plain atomics, so reading them
+ * from the UI thread is cheap.
+ */
+public class PoolStats implements ConnectionPoolListener {
+    private final AtomicInteger checkedOut = new AtomicInteger();
+    private final AtomicInteger waitQueue = new AtomicInteger();
+    private final AtomicInteger open = new AtomicInteger();
+    private final AtomicLong checkOutFailures = new AtomicLong();
+    private final AtomicLong poolClears = new AtomicLong();
+
+    @Override
+    public void connectionCheckOutStarted(ConnectionCheckOutStartedEvent event) {
+        waitQueue.incrementAndGet();
+    }
+
+    @Override
+    public void connectionCheckedOut(ConnectionCheckedOutEvent event) {
+        waitQueue.decrementAndGet();
+        checkedOut.incrementAndGet();
+    }
+
+    @Override
+    public void connectionCheckOutFailed(ConnectionCheckOutFailedEvent event) {
+        waitQueue.decrementAndGet();
+        checkOutFailures.incrementAndGet();
+    }
+
+    @Override
+    public void connectionCheckedIn(ConnectionCheckedInEvent event) {
+        checkedOut.decrementAndGet();
+    }
+
+    @Override
+    public void connectionCreated(ConnectionCreatedEvent event) {
+        open.incrementAndGet();
+    }
+
+    @Override
+    public void connectionClosed(ConnectionClosedEvent event) {
+        open.decrementAndGet();
+    }
+
+    @Override
+    public void connectionPoolCleared(ConnectionPoolClearedEvent event) {
+        poolClears.incrementAndGet();
+    }
+
+    public int getCheckedOut() {
+        return checkedOut.get();
+    }
+
+    public int getWaitQueueSize() {
+        return waitQueue.get();
+    }
+
+    public int getOpenConnections() {
+        return open.get();
+    }
+
+    public long getCheckOutFailures() {
+        return checkOutFailures.get();
+    }
+
+    public long getPoolClears() {
+        return poolClears.get();
+    }
+
+    public Map<String, Number> snapshot() {
+        Map<String, Number> m = new LinkedHashMap<>();
+        m.put("checkedOut", getCheckedOut());
+        m.put("waitQueue", getWaitQueueSize());
+        m.put("open", getOpenConnections());
+        m.put("checkOutFailures", getCheckOutFailures());
+        m.put("poolClears", getPoolClears());
+        return m;
+    }
+}
@@ -0,0 +1,386 @@
+package edu.agile.sis.db;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import edu.agile.sis.config.ConfigManager;
+import org.bson.BsonArray;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonDocument;
+import org.bson.BsonReader;
+import org.bson.BsonValue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Driver-level query metrics, registered as a CommandListener by DBConnection.
+ *
+ * Every collection command is recorded twice: under "collection.operation" and under the DAO (or
+ * service) method that issued it, found by walking the calling thread's stack once per command.
+ * Each key keeps a call count, failures, a fixed-bucket latency histogram, documents returned or
+ * written and reply bytes. Commands slower than metrics.slowQueryMs go to the SlowQueryLog with
+ * their filter shape (values replaced by "?").
+ *
+ * All counters are LongAdders / atomics and nothing is retained per command after it finishes,
+ * so the listener is cheap enough to leave on. Set metrics.enabled=false to skip registration.
+ */
+public class QueryMetrics implements CommandListener {
+
+    /** Histogram bucket upper bounds in milliseconds; the last bucket is open-ended. */
+    static final long[] BUCKETS_MS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000};
+
+    private static volatile QueryMetrics INSTANCE;
+
+    private final Map<String, Stats> byOperation = new ConcurrentHashMap<>();
+    private final Map<String, Stats> byMethod = new ConcurrentHashMap<>();
+    private final Map<Integer, Pending> pending = new ConcurrentHashMap<>();
+    private final SlowQueryLog slowLog;
+    private final long slowNanos;
+    private final boolean attributeCallers;
+
+    public QueryMetrics(long slowQueryMs, SlowQueryLog slowLog, boolean attributeCallers) {
+        this.slowNanos = TimeUnit.MILLISECONDS.toNanos(slowQueryMs);
+        this.slowLog = slowLog;
+        this.attributeCallers = attributeCallers;
+    }
+
+    public static QueryMetrics getInstance() {
+        QueryMetrics m = INSTANCE;
+        if (m == null) {
+            synchronized (QueryMetrics.class) {
+                m = INSTANCE;
+                if (m == null) {
+                    ConfigManager cfg = ConfigManager.getInstance();
+                    SlowQueryLog log = new SlowQueryLog(200,
+                            cfg.get("metrics.slowLog.file", "logs/slow-queries.log"),
+                            parseLong(cfg.get("metrics.slowLog.maxBytes", "5242880"), 5_242_880L));
+                    m = new QueryMetrics(parseLong(cfg.get("metrics.slowQueryMs", "250"), 250L), log,
+                            Boolean.parseBoolean(cfg.get("metrics.attributeCallers", "true")));
+                    INSTANCE = m;
+                }
+            }
+        }
+        return m;
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.parseBoolean(ConfigManager.getInstance().get("metrics.enabled", "true"));
+    }
+
+    // ---------------------------------------------------------------- listener
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        BsonDocument cmd = event.getCommand();
+        String op = event.getCommandName();
+        String collection = collectionOf(op, cmd);
+        if (collection == null) return; // handshakes, auth, ping, endSessions...
+
+        if (pending.size() > 10_000) pending.clear(); // never expected; guards against a leak
+        pending.put(event.getRequestId(), new Pending(collection, op,
+                attributeCallers ? callerOf() : null, filterShape(op, cmd)));
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        Pending p = pending.remove(event.getRequestId());
+        if (p == null) return;
+        long nanos = event.getElapsedTime(TimeUnit.NANOSECONDS);
+        BsonDocument reply = event.getResponse();
+        long docs = docCount(p.operation, reply);
+        long bytes = replyBytes(reply);
+        record(p, nanos, docs, bytes, false);
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        Pending p = pending.remove(event.getRequestId());
+        if (p == null) return;
+        record(p, event.getElapsedTime(TimeUnit.NANOSECONDS), 0, 0, true);
+    }
+
+    private void record(Pending p, long nanos, long docs, long bytes, boolean failed) {
+        byOperation.computeIfAbsent(p.collection + "." + p.operation, k -> new Stats()).add(nanos, docs, bytes, failed);
+        if (p.caller != null) byMethod.computeIfAbsent(p.caller, k -> new Stats()).add(nanos, docs, bytes, failed);
+        if (nanos >= slowNanos && slowLog != null) {
+            slowLog.add(new SlowQueryLog.Entry(new Date(), p.collection, p.operation, p.caller, p.shape, nanos / 1_000_000.0, docs));
+        }
+    }
+
+    // ---------------------------------------------------------------- snapshot API
+
+    /** Immutable view of one key's counters. */
+    public static final class Snapshot {
+        public final String key;
+        public final long count;
+        public final long failures;
+        public final double avgMs;
+        public final double p50Ms;
+        public final double p95Ms;
+        public final double p99Ms;
+        public final double maxMs;
+        public final long docs;
+        public final long bytes;
+
+        Snapshot(String key, long count, long failures, double avgMs, double p50Ms, double p95Ms, double p99Ms,
+                 double maxMs, long docs, long bytes) {
+            this.key = key;
+            this.count = count;
+            this.failures = failures;
+            this.avgMs = avgMs;
+            this.p50Ms = p50Ms;
+            this.p95Ms = p95Ms;
+            this.p99Ms = p99Ms;
+            this.maxMs = maxMs;
+            this.docs = docs;
+            this.bytes = bytes;
+        }
+
+        public double totalMs() {
+            return avgMs * count;
+        }
+    }
+
+    /** Per "collection.operation", most total time first. */
+    public List<Snapshot> snapshotByOperation() {
+        return snapshot(byOperation);
+    }
+
+    /** Per calling DAO / service method, most total time first. */
+    public List<Snapshot> snapshotByMethod() {
+        return snapshot(byMethod);
+    }
+
+    public List<SlowQueryLog.Entry> recentSlowQueries() {
+        return slowLog == null ? List.of() : slowLog.recent();
+    }
+
+    public void reset() {
+        byOperation.clear();
+        byMethod.clear();
+        if (slowLog != null) slowLog.clear();
+    }
+
+    private static List<Snapshot> snapshot(Map<String, Stats> source) {
+        List<Snapshot> out = new ArrayList<>(source.size());
+        for (Map.Entry<String, Stats> e : source.entrySet()) out.add(e.getValue().snapshot(e.getKey()));
+        out.sort(Comparator.comparingDouble(Snapshot::totalMs).reversed());
+        return out;
+    }
+
+    // ---------------------------------------------------------------- internals
+
+    private static final class Pending {
+        final String collection;
+        final String operation;
+        final String caller;
+        final String shape;
+
+        Pending(String collection, String operation, String caller, String shape) {
+            this.collection = collection;
+            this.operation = operation;
+            this.caller = caller;
+            this.shape = shape;
+        }
+    }
+
+    static final class Stats {
+        final LongAdder count = new LongAdder();
+        final LongAdder failures = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+        final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        final LongAdder docs = new LongAdder();
+        final LongAdder bytes = new LongAdder();
+        final AtomicLongArray histogram = new AtomicLongArray(BUCKETS_MS.length + 1);
+
+        void add(long nanos, long docCount, long byteCount, boolean failed) {
+            count.increment();
+            if (failed) failures.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+            docs.add(docCount);
+            bytes.add(byteCount);
+            histogram.incrementAndGet(bucketOf(nanos));
+        }
+
+        Snapshot snapshot(String key) {
+            long n = count.sum();
+            long[] h = new long[histogram.length()];
+            for (int i = 0; i < h.length; i++) h[i] = histogram.get(i);
+            double max = maxNanos.get() / 1_000_000.0;
+            return new Snapshot(key, n, failures.sum(), n == 0 ? 0 : totalNanos.sum() / 1_000_000.0 / n,
+                    percentile(h, 0.50, max), percentile(h, 0.95, max), percentile(h, 0.99, max),
+                    max, docs.sum(), bytes.sum());
+        }
+    }
+
+    static int bucketOf(long nanos) {
+        long ms = nanos / 1_000_000L;
+        for (int i = 0; i < BUCKETS_MS.length; i++) {
+            if (ms < BUCKETS_MS[i]) return i;
+        }
+        return BUCKETS_MS.length;
+    }
+
+    /** Upper bound of the bucket holding the requested percentile (capped at the observed max). */
+    static double percentile(long[] histogram, double p, double maxMs) {
+        long total = 0;
+        for (long c : histogram) total += c;
+        if (total == 0) return 0;
+        long target = (long) Math.ceil(total * p);
+        long seen = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            seen += histogram[i];
+            if (seen >= target) return i < BUCKETS_MS.length ? Math.min(BUCKETS_MS[i], maxMs) : maxMs;
+        }
+        return maxMs;
+    }
+
+    static String collectionOf(String op, BsonDocument cmd) {
+        if (cmd == null) return null;
+        BsonValue v = "getMore".equals(op) ? cmd.get("collection") : cmd.get(op);
+        return v != null && v.isString() ? v.asString().getValue() : null;
+    }
+
+    private static final StackWalker WALKER = StackWalker.getInstance();
+
+    /** First DAO frame on the stack ("SubmissionDAO.listByStudent"), else the first service frame. */
+    static String callerOf() {
+        return WALKER.walk(frames -> {
+            String service = null;
+            for (StackWalker.StackFrame f : (Iterable<StackWalker.StackFrame>) frames::iterator) {
+                String cls = f.getClassName();
+                if (cls.startsWith("edu.agile.sis.dao.")) return simpleName(cls) + "." + f.getMethodName();
+                if (service == null && cls.startsWith("edu.agile.sis.service.")) service = simpleName(cls) + "." + f.getMethodName();
+            }
+            return service;
+        });
+    }
+
+    private static String simpleName(String cls) {
+        int dollar = cls.indexOf('$');
+        if (dollar > 0) cls = cls.substring(0, dollar);
+        return cls.substring(cls.lastIndexOf('.') + 1);
+    }
+
+    /** Filter shape with literal values replaced by "?", plus the sort for find. */
+    static String filterShape(String op, BsonDocument cmd) {
+        BsonValue filter = null;
+        switch (op) {
+            case "find":
+                filter = cmd.get("filter");
+                break;
+            case "count":
+            case "distinct":
+                filter = cmd.get("query");
+                break;
+            case "findAndModify":
+                filter = cmd.get("query");
+                break;
+            case "aggregate": {
+                BsonValue pipeline = cmd.get("pipeline");
+                if (pipeline != null && pipeline.isArray() && !pipeline.asArray().isEmpty()) {
+                    BsonValue first = pipeline.asArray().get(0);
+                    if (first.isDocument() && first.asDocument().containsKey("$match")) filter = first.asDocument().get("$match");
+                }
+                break;
+            }
+            case "update":
+            case "delete": {
+                BsonValue stmts = cmd.get(op.equals("update") ? "updates" : "deletes");
+                if (stmts != null && stmts.isArray() && !stmts.asArray().isEmpty() && stmts.asArray().get(0).isDocument()) {
+                    filter = stmts.asArray().get(0).asDocument().get("q");
+                }
+                break;
+            }
+            default:
+                return null;
+        }
+        if (filter == null) return "{}";
+        StringBuilder sb = new StringBuilder();
+        appendShape(sb, filter, false);
+        BsonValue sort = "find".equals(op) ? cmd.get("sort") : null;
+        if (sort != null && sort.isDocument() && !sort.asDocument().isEmpty()) sb.append(" sort ").append(sort.asDocument().toJson());
+        return sb.toString();
+    }
+
+    private static void appendShape(StringBuilder sb, BsonValue v, boolean inOperatorList) {
+        if (v.isDocument()) {
+            sb.append('{');
+            boolean first = true;
+            for (Map.Entry<String, BsonValue> e : v.asDocument().entrySet()) {
+                if (!first) sb.append(", ");
+                first = false;
+                sb.append(e.getKey()).append(": ");
+                String k = e.getKey();
+                if (k.equals("$and") || k.equals("$or") || k.equals("$nor")) appendShape(sb, e.getValue(), true);
+                else if (e.getValue().isDocument()) appendShape(sb, e.getValue(), false);
+                else if (e.getValue().isArray()) sb.append("[?]");
+                else sb.append('?');
+            }
+            sb.append('}');
+        } else if (v.isArray() && inOperatorList) {
+            BsonArray arr = v.asArray();
+            sb.append('[');
+            for (int i = 0; i < arr.size(); i++) {
+                if (i > 0) sb.append(", ");
+                appendShape(sb, arr.get(i), false);
+            }
+            sb.append(']');
+        } else {
+            sb.append('?');
+        }
+    }
+
+    static long docCount(String op, BsonDocument reply) {
+        if (reply == null) return 0;
+        try {
+            BsonValue cursor = reply.get("cursor");
+            if (cursor != null && cursor.isDocument()) {
+                BsonValue batch = cursor.asDocument().get("getMore".equals(op) ? "nextBatch" : "firstBatch");
+                return batch != null && batch.isArray() ? batch.asArray().size() : 0;
+            }
+            if ("distinct".equals(op)) {
+                BsonValue values = reply.get("values");
+                return values != null && values.isArray() ? values.asArray().size() : 0;
+            }
+            if ("findAndModify".equals(op)) {
+                BsonValue value = reply.get("value");
+                return value != null && value.isDocument() ? 1 : 0;
+            }
+            BsonValue n = reply.get("n");
+            return n != null && n.isNumber() ? n.asNumber().longValue() : 0;
+        } catch (RuntimeException ex) {
+            return 0;
+        }
+    }
+
+    /** Size of the raw reply when the driver hands us a buffer-backed document; 0 otherwise. */
+    static long replyBytes(BsonDocument reply) {
+        if (reply == null) return 0;
+        try (BsonReader reader = reply.asBsonReader()) {
+            if (reader instanceof BsonBinaryReader) return ((BsonBinaryReader) reader).getBsonInput().readInt32();
+        } catch (RuntimeException ignored) {
+            // not buffer-backed
+        }
+        return 0;
+    }
+
+    private static long parseLong(String s, long fallback) {
+        try {
+            return Long.parseLong(s.trim());
+        } catch (Exception ex) {
+            return fallback;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package edu.agile.sis.db;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Rolling slow-query log: the most recent entries are kept in memory for the admin screen, and
+ * every entry is appended to a file that is rotated to "&lt;file&gt;.1" once it exceeds maxBytes.
+ */
+public class SlowQueryLog {
+
+    public static final class Entry {
+        public final Date at;
+        public final String collection;
+        public final String operation;
+        public final String caller;
+        public final String shape;
+        public final double millis;
+        public final long docs;
+
+        Entry(Date at, String collection, String operation, String caller, String shape, double millis, long docs) {
+            this.at = at;
+            this.collection = collection;
+            this.operation = operation;
+            this.caller = caller;
+            this.shape = shape;
+            this.millis = millis;
+            this.docs = docs;
+        }
+
+        @Override
+        public String toString() {
+            return new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS").format(at)
+                    + String.format(" %8.1f ms  %s.%s  docs=%d  caller=%s  shape=%s",
+                    millis, collection, operation, docs, caller == null ? "-" : caller, shape == null ? "-" : shape);
+        }
+    }
+
+    private final Deque<Entry> recent = new ArrayDeque<>();
+    private final int capacity;
+    private final File file;
+    private final long maxBytes;
+
+    public SlowQueryLog(int capacity, String path, long maxBytes) {
+        this.capacity = Math.max(1, capacity);
+        this.file = path == null || path.isBlank() ? null : new File(path);
+        this.maxBytes = maxBytes;
+    }
+
+    public synchronized void add(Entry e) {
+        recent.addFirst(e);
+        while (recent.size() > capacity) recent.removeLast();
+        if (file != null) append(e);
+    }
+
+    /** Most recent first. */
+    public synchronized List<Entry> recent() {
+        return new ArrayList<>(recent);
+    }
+
+    public synchronized void clear() {
+        recent.clear();
+    }
+
+    private void append(Entry e) {
+        try {
+            File dir = file.getAbsoluteFile().getParentFile();
+            if (dir != null && !dir.exists()) dir.mkdirs();
+            if (maxBytes > 0 && file.length() > maxBytes) {
+                File rolled = new File(file.getPath() + ".1");
+                if (rolled.exists()) rolled.delete();
+                file.renameTo(rolled);
+            }
+            try (Writer w = new FileWriter(file, true)) {
+                w.write(e.toString());
+                w.write(System.lineSeparator());
+            }
+        } catch (IOException ex) {
+            System.err.println("[SlowQueryLog] could not write " + file + ": " + ex.getMessage());
+        }
+    }
+}
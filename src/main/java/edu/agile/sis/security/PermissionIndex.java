@@ -0,0 +1,170 @@
+package edu.agile.sis.security;
+
+import edu.agile.sis.config.ConfigManager;
+import org.bson.Document;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * In-memory lookups behind PermissionService: staffId -> codes of the courses they are assigned
+ * to, and studentId -> codes of the courses they are enrolled in.
+ *
+ * The staff map is built from one read of the course assignments; a student's courses are read on
+ * first use. Both are re-read once older than permissions.indexMaxAgeSec (default 60), so changes
+ * made on other desktops show up, and are dropped at once when this process changes an
+ * assignment or an enrollment (CourseService, EnrollmentService). A load that overlaps such an
+ * invalidation is used for the call that made it but not kept (as in ReadThroughCache).
+ */
+public class PermissionIndex {
+    private static final PermissionIndex INSTANCE = new PermissionIndex(maxAgeFromConfig());
+    /** Students whose courses are kept; the oldest entry is dropped beyond this. */
+    private static final int MAX_STUDENTS = 10_000;
+
+    private final long maxAgeMs;
+    private volatile StaffSnapshot staff;
+    private final Map<String, StudentEntry> students = new ConcurrentHashMap<>();
+    private final Object staffLock = new Object();
+    private final AtomicLong staffGeneration = new AtomicLong();
+    private final AtomicLong studentGeneration = new AtomicLong();
+
+    private static final class StaffSnapshot {
+        final Map<String, Set<String>> coursesByStaff;
+        final long loadedAt = System.currentTimeMillis();
+
+        StaffSnapshot(Map<String, Set<String>> coursesByStaff) {
+            this.coursesByStaff = coursesByStaff;
+        }
+    }
+
+    private static final class StudentEntry {
+        final Set<String> courses;
+        final long loadedAt = System.currentTimeMillis();
+
+        StudentEntry(Set<String> courses) {
+            this.courses = courses;
+        }
+    }
+
+    PermissionIndex(long maxAgeMs) {
+        this.maxAgeMs = maxAgeMs;
+    }
+
+    public static PermissionIndex getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Codes of the courses staffId is assigned to (empty if none).
+     *
+     * @param loader reads code and assignedStaff of the courses (used on first use and when stale)
+     */
+    public Set<String> coursesOfStaff(String staffId, Supplier<List<Document>> loader) {
+        StaffSnapshot snap = staff;
+        if (snap == null || System.currentTimeMillis() - snap.loadedAt >= maxAgeMs) {
+            snap = reloadStaff(snap, loader);
+        }
+        return snap.coursesByStaff.getOrDefault(staffId, Collections.emptySet());
+    }
+
+    /**
+     * Codes of the courses studentId is enrolled in (empty if none).
+     *
+     * @param loader reads one student's course codes (used on first use and when stale)
+     */
+    public Set<String> coursesOfStudent(String studentId, Function<String, Set<String>> loader) {
+        StudentEntry e = students.get(studentId);
+        if (e == null || System.currentTimeMillis() - e.loadedAt >= maxAgeMs) {
+            long gen = studentGeneration.get();
+            Set<String> loaded = loader.apply(studentId);
+            e = new StudentEntry(loaded == null ? Collections.emptySet() : Collections.unmodifiableSet(new HashSet<>(loaded)));
+            synchronized (students) {
+                if (gen == studentGeneration.get()) {
+                    if (students.size() >= MAX_STUDENTS) evictOldest();
+                    students.put(studentId, e);
+                }
+            }
+        }
+        return e.courses;
+    }
+
+    /** Drops the staff map, e.g. after staff were assigned to a course. */
+    public void invalidateCourses() {
+        synchronized (staffLock) {
+            staffGeneration.incrementAndGet();
+            staff = null;
+        }
+    }
+
+    /** Drops one student's courses, e.g. after they registered or withdrew. */
+    public void invalidateStudent(String studentId) {
+        if (studentId == null) return;
+        synchronized (students) {
+            studentGeneration.incrementAndGet();
+            students.remove(studentId);
+        }
+    }
+
+    public void invalidateAll() {
+        invalidateCourses();
+        synchronized (students) {
+            studentGeneration.incrementAndGet();
+            students.clear();
+        }
+    }
+
+    private synchronized StaffSnapshot reloadStaff(StaffSnapshot seen, Supplier<List<Document>> loader) {
+        StaffSnapshot current = staff;
+        // another thread reloaded while this one waited
+        if (current != null && current != seen && System.currentTimeMillis() - current.loadedAt < maxAgeMs) {
+            return current;
+        }
+        long gen = staffGeneration.get();
+        Map<String, Set<String>> byStaff = new HashMap<>();
+        List<Document> courses = loader.get();
+        if (courses != null) {
+            for (Document c : courses) {
+                Object assignedObj = c.get("assignedStaff");
+                if (!(assignedObj instanceof List)) continue;
+                String code = c.getString("code");
+                for (Object o : (List<?>) assignedObj) {
+                    if (o == null) continue;
+                    byStaff.computeIfAbsent(o.toString(), k -> new HashSet<>()).add(code == null ? "" : code);
+                }
+            }
+        }
+        StaffSnapshot fresh = new StaffSnapshot(byStaff);
+        synchronized (staffLock) {
+            if (gen == staffGeneration.get()) staff = fresh;
+        }
+        return fresh;
+    }
+
+    private void evictOldest() {
+        String oldest = null;
+        long oldestAt = Long.MAX_VALUE;
+        for (Map.Entry<String, StudentEntry> e : students.entrySet()) {
+            if (e.getValue().loadedAt < oldestAt) {
+                oldestAt = e.getValue().loadedAt;
+                oldest = e.getKey();
+            }
+        }
+        if (oldest != null) students.remove(oldest);
+    }
+
+    private static long maxAgeFromConfig() {
+        try {
+            return Long.parseLong(ConfigManager.getInstance().get("permissions.indexMaxAgeSec", "60").trim()) * 1000;
+        } catch (NumberFormatException ex) {
+            return 60_000;
+        }
+    }
+}
@@ -1,35 +1,57 @@
 package edu.agile.sis.security;
 
+import edu.agile.sis.config.ConfigManager;
 import edu.agile.sis.dao.CourseDAO;
-import org.bson.Document;
+import edu.agile.sis.dao.EnrollmentDAO;
+import edu.agile.sis.db.DaoRegistry;
+import edu.agile.sis.db.IdPolicy;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 public class PermissionService {
-    private final CourseDAO courseDAO = new CourseDAO();
+    private final CourseDAO courseDAO;
+    private final EnrollmentDAO enrollmentDAO;
+    private final PermissionIndex index;
+    private final boolean strict;
+
+    public PermissionService() {
+        this(DaoRegistry.get(CourseDAO.class), DaoRegistry.get(EnrollmentDAO.class), PermissionIndex.getInstance(),
+                Boolean.parseBoolean(ConfigManager.getInstance().get("permissions.strictMessaging", "false").trim()));
+    }
+
+    PermissionService(CourseDAO courseDAO, EnrollmentDAO enrollmentDAO, PermissionIndex index, boolean strict) {
+        this.courseDAO = courseDAO;
+        this.enrollmentDAO = enrollmentDAO;
+        this.index = index;
+        this.strict = strict;
+    }
 
     /**
      * Student may message a staff member if there exists at least one course
      * where staffId appears in course.assignedStaff.
      *
-     * Note: for a stricter check, also verify student enrollment in that course.
+     * With permissions.strictMessaging=true the student must also be enrolled in such a course.
+     * Answered from PermissionIndex, so repeated checks do not read the course catalog.
      */
     public boolean studentCanMessageStaff(String studentEntityId, String staffId){
-        List<Document> courses = courseDAO.findAll();
-        if (courses == null) return false;
-        for (Document c : courses) {
-            Object assignedObj = c.get("assignedStaff");
-            if (assignedObj instanceof List) {
-                @SuppressWarnings("unchecked")
-                List<Object> assigned = (List<Object>) assignedObj;
-                for (Object o : assigned) {
-                    if (o != null && o.toString().equals(staffId)) {
-                        // permissive: allow messaging if staff assigned to any course
-                        return true;
-                    }
-                }
-            }
+        if (staffId == null) return false;
+        Set<String> taught = index.coursesOfStaff(staffId, courseDAO::findStaffAssignments);
+        if (taught.isEmpty()) return false;
+        if (!strict) return true;
+        if (studentEntityId == null) return false;
+        Set<String> enrolled = index.coursesOfStudent(studentEntityId, this::loadEnrolledCourses);
+        Set<String> small = taught.size() <= enrolled.size() ? taught : enrolled;
+        Set<String> large = small == taught ? enrolled : taught;
+        for (String code : small) {
+            if (large.contains(code)) return true;
         }
         return false;
     }
+
+    private Set<String> loadEnrolledCourses(String studentEntityId) {
+        String key = IdPolicy.studentId(studentEntityId);
+        return enrollmentDAO.findCourseCodesByStudents(List.of(key)).getOrDefault(key, Collections.emptySet());
+    }
 }
@@ -1,14 +1,16 @@
 package edu.agile.sis.service;
 
 import edu.agile.sis.dao.AnnouncementDAO;
+import edu.agile.sis.dao.KeysetPage;
+import edu.agile.sis.db.DaoRegistry;
 import org.bson.Document;
 
 import java.io.InputStream;
-import java.util.List;
 
 public class AnnouncementService {
-    private final AnnouncementDAO dao = new AnnouncementDAO();
+    private final AnnouncementDAO dao = DaoRegistry.get(AnnouncementDAO.class);
     private final FileService fileService = new FileService();
+    private final ThumbnailService thumbnailService = new ThumbnailService(fileService);
 
     public String createAnnouncement(String title, String body, String category, boolean pinned, InputStream imageStream, String imageName, String contentType, String createdBy) {
         Document doc = new Document("title", title)
@@ -29,12 +31,14 @@ public class AnnouncementService {
         if (imageStream != null) {
             String fileId = fileService.upload(imageStream, imageName, contentType, new Document("uploadedBy", createdBy));
             doc.append("thumbnailFileId", fileId);
+            doc.append("thumbnails", thumbnailService.createVariants(fileId));
         }
         return dao.insert(doc);
     }
 
-    public List<Document> listFeed(int skip, int limit, String category) {
-        return dao.list(skip, limit, category, true);
+    /** Pinned first, then newest; pass the previous page's nextToken (null for the first page). */
+    public KeysetPage listFeed(String category, int limit, String pageToken) {
+        return dao.list(category, true, limit, pageToken);
     }
 
     public Document getAnnouncement(String id) { return dao.findById(id); }
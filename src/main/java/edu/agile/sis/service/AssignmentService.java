@@ -1,20 +1,27 @@
 package edu.agile.sis.service;
 
 import edu.agile.sis.dao.AssignmentDAO;
+import edu.agile.sis.util.ChunkedUploader;
 import edu.agile.sis.util.FileStorageUtil;
+import edu.agile.sis.util.UploadProgressListener;
+import edu.agile.sis.db.DaoRegistry;
 import org.bson.Document;
 
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.nio.file.Paths;
 import java.util.Date;
 import java.util.List;
+import java.util.Set;
 
 
 public class AssignmentService {
 
-    private final AssignmentDAO dao = new AssignmentDAO();
+    private final AssignmentDAO dao = DaoRegistry.get(AssignmentDAO.class);
     private final EnrollmentService enrollmentService = new EnrollmentService();
+    private final GradebookService gradebookService = new GradebookService();
+
+    /** Fields the gradebook derives a submission's course or bucket from. */
+    private static final Set<String> GRADEBOOK_FIELDS = Set.of("courseCode", "subjectId", "course", "type", "category", "title");
 
     public AssignmentService() {}
 
@@ -77,31 +84,46 @@ public class AssignmentService {
    
     public boolean update(String id, Document updates) {
         if (id == null || updates == null) return false;
-        return dao.update(id, updates);
+        boolean ok = dao.update(id, updates);
+        if (ok && updates.keySet().stream().anyMatch(GRADEBOOK_FIELDS::contains)) {
+            gradebookService.rebuildForAssignment(id);
+        }
+        return ok;
     }
 
    
     public boolean delete(String id) {
         if (id == null) return false;
-        return dao.delete(id);
+        boolean ok = dao.delete(id);
+        if (ok) gradebookService.rebuildForAssignment(id);
+        return ok;
     }
 
    
     public Document uploadAttachmentFromPath(String filePath, String filename, String contentType)
             throws IOException {
+        return uploadAttachmentFromPath(filePath, filename, contentType, FileStorageUtil.newUploader(), null);
+    }
+
+    /**
+     * Chunked, resumable upload with progress callbacks (listener may be null).
+     */
+    public Document uploadAttachmentFromPath(String filePath, String filename, String contentType,
+                                             ChunkedUploader uploader, UploadProgressListener listener)
+            throws IOException {
 
-        try (InputStream is = new FileInputStream(filePath)) {
-            String fileId = FileStorageUtil.uploadFile(
-                    FileStorageUtil.safeFilename(filename),
-                    is,
-                    contentType
-            );
-
-            return new Document()
-                    .append("filename", filename)
-                    .append("storageRef", fileId)
-                    .append("contentType", contentType);
-        }
+        String fileId = FileStorageUtil.uploadFile(
+                FileStorageUtil.safeFilename(filename),
+                Paths.get(filePath),
+                contentType,
+                uploader,
+                listener
+        );
+
+        return new Document()
+                .append("filename", filename)
+                .append("storageRef", fileId)
+                .append("contentType", contentType);
     }
 
     
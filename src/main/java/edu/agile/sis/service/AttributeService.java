@@ -1,20 +1,32 @@
 package edu.agile.sis.service;
 
 import edu.agile.sis.dao.AttributeMetaDAO;
+import edu.agile.sis.db.DaoRegistry;
 import org.bson.Document;
 
 import java.util.List;
 
 public class AttributeService {
-    private final AttributeMetaDAO dao = new AttributeMetaDAO();
+    private final AttributeMetaDAO dao = DaoRegistry.get(AttributeMetaDAO.class);
 
-    public void createAttributeMeta(Document meta){ dao.insert(meta); }
+    private final CatalogCache cache = CatalogCache.getInstance();
 
-    public List<Document> listAll(){ return dao.findAll(); }
+    public void createAttributeMeta(Document meta){
+        dao.insert(meta);
+        cache.invalidate("attribute_meta");
+    }
 
-    public void update(String key, Document updated){ dao.update(key, updated); }
+    public List<Document> listAll(){ return cache.attributes(dao::findAll); }
 
-    public void delete(String key){ dao.delete(key); }
+    public void update(String key, Document updated){
+        dao.update(key, updated);
+        cache.invalidate("attribute_meta");
+    }
+
+    public void delete(String key){
+        dao.delete(key);
+        cache.invalidate("attribute_meta");
+    }
 
     public Document findByKey(String key){ return dao.findByKey(key); }
 }
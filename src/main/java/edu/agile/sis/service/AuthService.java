@@ -1,13 +1,14 @@
 package edu.agile.sis.service;
 
 import edu.agile.sis.dao.UserDAO;
+import edu.agile.sis.db.DaoRegistry;
 import org.bson.Document;
 import org.mindrot.jbcrypt.BCrypt;
 
 import java.util.List;
 
 public class AuthService {
-    private final UserDAO userDAO = new UserDAO();
+    private final UserDAO userDAO = DaoRegistry.get(UserDAO.class);
 
     public boolean register(String username, String password, List<String> roles, String linkedEntityId) {
         if (userDAO.findByUsername(username) != null) {
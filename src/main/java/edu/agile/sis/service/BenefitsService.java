@@ -1,6 +1,7 @@
 package edu.agile.sis.service;
 
 import edu.agile.sis.dao.BenefitsDAO;
+import edu.agile.sis.db.DaoRegistry;
 import org.bson.Document;
 
 import java.util.List;
@@ -10,7 +11,7 @@ import java.util.UUID;
 
 
 public class BenefitsService {
-    private final BenefitsDAO dao = new BenefitsDAO();
+    private final BenefitsDAO dao = DaoRegistry.get(BenefitsDAO.class);
 
     public Document getBenefitsForStaff(String staffId) {
         var list = dao.findByStaff(staffId);
@@ -0,0 +1,75 @@
+package edu.agile.sis.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-row outcome of EnrollmentService.bulkRegister, in input order.
+ */
+public class BulkEnrollmentReport {
+
+    public enum Status {
+        REGISTERED,
+        ALREADY_REGISTERED,
+        DUPLICATE_ROW,
+        LIMIT_EXCEEDED,
+        UNKNOWN_STUDENT,
+        UNKNOWN_COURSE,
+        INVALID,
+        /** The student's registrations changed while the import ran; re-import these rows. */
+        CONFLICT,
+        FAILED
+    }
+
+    public static class Row {
+        private final int line;
+        private final String studentId;
+        private final String courseCode;
+        private Status status;
+        private String message;
+
+        Row(int line, String studentId, String courseCode) {
+            this.line = line;
+            this.studentId = studentId;
+            this.courseCode = courseCode;
+        }
+
+        /** 1-based line in the CSV (or position in the list). */
+        public int getLine() { return line; }
+        public String getStudentId() { return studentId; }
+        public String getCourseCode() { return courseCode; }
+        public Status getStatus() { return status; }
+        public String getMessage() { return message; }
+
+        void set(Status status, String message) {
+            this.status = status;
+            this.message = message;
+        }
+    }
+
+    private final List<Row> rows = new ArrayList<>();
+
+    Row add(int line, String studentId, String courseCode) {
+        Row r = new Row(line, studentId, courseCode);
+        rows.add(r);
+        return r;
+    }
+
+    public List<Row> getRows() { return Collections.unmodifiableList(rows); }
+
+    public int count(Status status) {
+        int n = 0;
+        for (Row r : rows) if (r.status == status) n++;
+        return n;
+    }
+
+    /** Rows per status, for a one-line summary. */
+    public Map<Status, Integer> summary() {
+        Map<Status, Integer> out = new EnumMap<>(Status.class);
+        for (Row r : rows) out.merge(r.status, 1, Integer::sum);
+        return out;
+    }
+}
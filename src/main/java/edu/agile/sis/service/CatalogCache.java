@@ -0,0 +1,189 @@
+package edu.agile.sis.service;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import edu.agile.sis.config.ConfigManager;
+import edu.agile.sis.db.ChangeStreamWatcher;
+import edu.agile.sis.db.DBConnection;
+import edu.agile.sis.util.ReadThroughCache;
+import org.bson.Document;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Read-through caches for the rarely changing lookups the screens repeat: the course catalog
+ * (whole list and by code), the staff directory and the attribute definitions.
+ *
+ * Entries live for cache.catalogTtlSec (default 300) and each cache holds at most
+ * cache.maxEntries (default 2000) keys. The services drop the affected cache on every write they
+ * make. With cache.changeStreams=true (default) writes from other desktops are picked up through
+ * a change stream as well; on a standalone mongod that is unavailable and the TTL is the bound.
+ */
+public class CatalogCache {
+    private static final String ALL = "*";
+
+    private static final CatalogCache INSTANCE = new CatalogCache(
+            intConfig("cache.catalogTtlSec", 300) * 1000L, intConfig("cache.maxEntries", 2000));
+
+    private final ReadThroughCache<String, List<Document>> courseLists;
+    private final ReadThroughCache<String, Document> coursesByCode;
+    private final ReadThroughCache<String, List<Document>> staffLists;
+    private final ReadThroughCache<String, List<Document>> attributeLists;
+    private ChangeStreamWatcher watcher;
+    private volatile MongoDatabase boundTo;
+
+    CatalogCache(long ttlMs, int maxEntries) {
+        courseLists = new ReadThroughCache<>("courses", ttlMs, 4, CatalogCache::copyList);
+        coursesByCode = new ReadThroughCache<>("courses.byCode", ttlMs, maxEntries, CatalogCache::copy);
+        staffLists = new ReadThroughCache<>("staff", ttlMs, 4, CatalogCache::copyList);
+        attributeLists = new ReadThroughCache<>("attribute_meta", ttlMs, 4, CatalogCache::copyList);
+    }
+
+    public static CatalogCache getInstance() {
+        return INSTANCE;
+    }
+
+    public List<Document> courses(Supplier<List<Document>> loader) {
+        checkDatabase();
+        return courseLists.get(ALL, k -> loader.get());
+    }
+
+    public Document courseByCode(String code, Function<String, Document> loader) {
+        checkDatabase();
+        return coursesByCode.get(code, loader);
+    }
+
+    public List<Document> staff(Supplier<List<Document>> loader) {
+        checkDatabase();
+        return staffLists.get(ALL, k -> loader.get());
+    }
+
+    public List<Document> attributes(Supplier<List<Document>> loader) {
+        checkDatabase();
+        return attributeLists.get(ALL, k -> loader.get());
+    }
+
+    /** Drops everything cached from one collection ("courses", "staff" or "attribute_meta"). */
+    public void invalidate(String collection) {
+        if (collection == null) {
+            invalidateAll();
+            return;
+        }
+        switch (collection) {
+            case "courses":
+                courseLists.invalidateAll();
+                coursesByCode.invalidateAll();
+                break;
+            case "staff":
+                staffLists.invalidateAll();
+                break;
+            case "attribute_meta":
+                attributeLists.invalidateAll();
+                break;
+            default:
+                break;
+        }
+    }
+
+    public void invalidateAll() {
+        courseLists.invalidateAll();
+        coursesByCode.invalidateAll();
+        staffLists.invalidateAll();
+        attributeLists.invalidateAll();
+    }
+
+    /** Hit/miss counters per cache, for the Query Metrics screen. */
+    public List<ReadThroughCache<?, ?>> caches() {
+        return List.of(courseLists, coursesByCode, staffLists, attributeLists);
+    }
+
+    public void resetCounters() {
+        for (ReadThroughCache<?, ?> c : caches()) c.resetCounters();
+    }
+
+    /**
+     * Starts the change-stream listener (once) if cache.changeStreams is enabled, so writes made
+     * by other clients invalidate this process's caches too.
+     */
+    public synchronized void watchChanges(MongoDatabase db) {
+        if (watcher != null || db == null) return;
+        if (!Boolean.parseBoolean(ConfigManager.getInstance().get("cache.changeStreams", "true").trim())) return;
+        watcher = new ChangeStreamWatcher("catalog-cache-invalidator", db, null,
+                List.of(Aggregates.match(Filters.in("ns.coll", "courses", "staff", "attribute_meta"))),
+                new ChangeStreamWatcher.Listener() {
+                    @Override
+                    public void onChange(ChangeStreamDocument<Document> event) {
+                        invalidate(event.getNamespace() == null ? null : event.getNamespace().getCollectionName());
+                    }
+
+                    @Override
+                    public void onGap() {
+                        invalidateAll();
+                    }
+
+                    @Override
+                    public void onUnsupported(MongoException cause) {
+                        System.err.println("[CatalogCache] no change streams; other clients' edits show up within the TTL");
+                    }
+                });
+        watcher.start();
+    }
+
+    public synchronized void stopWatching() {
+        if (watcher != null) watcher.stop();
+        watcher = null;
+    }
+
+    /** Cached values belong to one database; start over when DBConnection switches. */
+    private void checkDatabase() {
+        MongoDatabase current = DBConnection.getInstance().getDatabase();
+        if (current != boundTo) {
+            synchronized (this) {
+                if (current != boundTo) {
+                    invalidateAll();
+                    boundTo = current;
+                }
+            }
+        }
+    }
+
+    static List<Document> copyList(List<Document> docs) {
+        List<Document> out = new ArrayList<>(docs.size());
+        for (Document d : docs) out.add(copy(d));
+        return out;
+    }
+
+    /** Deep copy of nested documents and lists; strings and ids are shared. */
+    static Document copy(Document doc) {
+        Document out = new Document();
+        for (Map.Entry<String, Object> e : doc.entrySet()) out.put(e.getKey(), copyValue(e.getValue()));
+        return out;
+    }
+
+    private static Object copyValue(Object v) {
+        if (v instanceof Document) return copy((Document) v);
+        if (v instanceof List) {
+            List<?> in = (List<?>) v;
+            List<Object> out = new ArrayList<>(in.size());
+            for (Object o : in) out.add(copyValue(o));
+            return out;
+        }
+        if (v instanceof java.util.Date) return new java.util.Date(((java.util.Date) v).getTime());
+        return v;
+    }
+
+    private static int intConfig(String key, int def) {
+        try {
+            return Integer.parseInt(ConfigManager.getInstance().get(key, String.valueOf(def)).trim());
+        } catch (NumberFormatException ex) {
+            return def;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package edu.agile.sis.service;
 
 import edu.agile.sis.dao.ConversationDAO;
+import edu.agile.sis.db.DaoRegistry;
 import org.bson.Document;
 
 import java.util.List;
@@ -8,7 +9,7 @@ import java.util.List;
 
 public class ConversationService {
 
-    private final ConversationDAO dao = new ConversationDAO();
+    private final ConversationDAO dao = DaoRegistry.get(ConversationDAO.class);
 
     public List<Document> listThreadsForStaff(String staffId) {
         if (staffId == null || staffId.isBlank()) return List.of();
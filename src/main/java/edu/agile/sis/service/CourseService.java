@@ -2,12 +2,15 @@ package edu.agile.sis.service;
 
 import edu.agile.sis.dao.CourseDAO;
 import edu.agile.sis.security.AuthSession;
+import edu.agile.sis.security.PermissionIndex;
+import edu.agile.sis.db.DaoRegistry;
 import org.bson.Document;
 
 import java.util.List;
 
 public class CourseService {
-    private final CourseDAO dao = new CourseDAO();
+    private final CourseDAO dao = DaoRegistry.get(CourseDAO.class);
+    private final CatalogCache cache = CatalogCache.getInstance();
 
     public void createCourse(Document course){
         // allow Admin and Professor to create courses
@@ -15,9 +18,10 @@ public class CourseService {
             throw new SecurityException("Insufficient privileges to create course");
         }
         dao.insertCourse(course);
+        coursesChanged();
     }
 
-    public List<Document> listAll(){ return dao.findAll(); }
+    public List<Document> listAll(){ return cache.courses(dao::findAll); }
     
     public List<Document> listByStaff(String staffId) {
         return dao.findByStaff(staffId);
@@ -28,7 +32,7 @@ public class CourseService {
     
     
 
-    public Document findByCode(String code){ return dao.findByCode(code); }
+    public Document findByCode(String code){ return cache.courseByCode(code, dao::findByCode); }
 
     public Document findById(String id){ return dao.findById(id); }
 
@@ -38,6 +42,7 @@ public class CourseService {
             throw new SecurityException("Insufficient privileges to update course");
         }
         dao.update(id, update);
+        coursesChanged();
     }
 
     public void delete(String id){
@@ -45,6 +50,7 @@ public class CourseService {
             throw new SecurityException("Insufficient privileges to delete course");
         }
         dao.delete(id);
+        coursesChanged();
     }
 
     /**
@@ -61,6 +67,12 @@ public class CourseService {
         if (assigned == null) assigned = new java.util.ArrayList<>();
         if (!assigned.contains(staffId)) assigned.add(staffId);
         dao.update(course.getObjectId("_id").toHexString(), new Document("assignedStaff", assigned));
+        coursesChanged();
         return true;
     }
+
+    private void coursesChanged() {
+        cache.invalidate("courses");
+        PermissionIndex.getInstance().invalidateCourses();
+    }
 }
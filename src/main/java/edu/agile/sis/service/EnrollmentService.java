@@ -1,10 +1,26 @@
 package edu.agile.sis.service;
 
+import com.mongodb.ErrorCategory;
+import com.mongodb.bulk.BulkWriteError;
+import edu.agile.sis.dao.CourseDAO;
 import edu.agile.sis.dao.EnrollmentDAO;
+import edu.agile.sis.db.DaoRegistry;
+import edu.agile.sis.db.IdPolicy;
+import edu.agile.sis.security.AuthSession;
+import edu.agile.sis.security.PermissionIndex;
+import edu.agile.sis.service.BulkEnrollmentReport.Status;
 import org.bson.Document;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
 import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * EnrollmentService - handles student-course registrations.
@@ -16,10 +32,13 @@ import java.util.List;
  *
  * GPA is expected as an attribute on the student entity stored in students collection.
  * The attribute key is searched case-insensitively for "gpa".
+ *
+ * The student's current course count is kept in enrolledCount on the same entity (see EnrollmentDAO).
  */
 public class EnrollmentService {
-    private final EnrollmentDAO enrollmentDAO = new EnrollmentDAO();
+    private final EnrollmentDAO enrollmentDAO = DaoRegistry.get(EnrollmentDAO.class);
     private final EntityService entityService = new EntityService("students");
+    private final CourseDAO courseDAO = DaoRegistry.get(CourseDAO.class);
 
     public EnrollmentService() {}
 
@@ -38,7 +57,9 @@ public class EnrollmentService {
     /**
      * Registers a student to a course enforcing GPA-based limits.
      *
-     * Uses a distinct-course count from EnrollmentDAO to avoid off-by-one or duplicate issues.
+     * The limit is enforced by EnrollmentDAO.reserveCourseSlot (a conditional $inc of the student's
+     * enrolledCount) and duplicates by the unique (studentId, courseCode) index, so parallel
+     * registrations in the first minute of the registration window cannot overshoot either.
      *
      * @throws IllegalStateException when business rule prevents registration (GPA limit exceeded, already registered, etc.)
      */
@@ -50,44 +71,202 @@ public class EnrollmentService {
             throw new IllegalArgumentException("Invalid course code");
         }
 
-        // Already registered? Use DAO find(...)
-        if (enrollmentDAO.find(studentId, courseCode) != null) {
-            throw new IllegalStateException("Student is already registered for course " + courseCode);
+        Document student = entityService.getEntityById(studentId);
+        if (student == null) {
+            throw new IllegalStateException("Student record not found: " + studentId);
         }
-
-        // Compute distinct course count for this student
-        int distinctCount = enrollmentDAO.countDistinctCoursesByStudent(studentId);
-
-        // get student's GPA from their attributes
-        double gpa = readGpaFromStudent(studentId);
-
+        double gpa = readGpa(student);
         int maxAllowed = computeMaxAllowedByGpa(gpa);
 
-        // debug log (helps diagnose issues)
-        System.out.println("[EnrollmentService] registerStudentToCourse -> studentId=" + studentId
-                + ", courseCode=" + courseCode
-                + ", gpa=" + gpa
-                + ", maxAllowed=" + maxAllowed
-                + ", distinctRegisteredCount=" + distinctCount);
+        Integer counted = student.getInteger(EnrollmentDAO.ENROLLED_COUNT);
+        if (counted == null) counted = enrollmentDAO.initEnrolledCount(studentId);
 
-        if (distinctCount >= maxAllowed) {
+        if (!enrollmentDAO.reserveCourseSlot(studentId, maxAllowed)) {
             throw new IllegalStateException(String.format(
                     "Registration denied: student GPA = %.2f allows max %d courses (currently registered: %d).",
-                    gpa, maxAllowed, distinctCount));
+                    gpa, maxAllowed, Math.max(counted, maxAllowed)));
         }
 
-        // prepare enrollment doc
         Document enroll = new Document("studentId", studentId)
                 .append("courseCode", courseCode)
                 .append("registeredAt", new java.util.Date());
-
-        // insert
-        enrollmentDAO.insertEnrollment(enroll);
+        boolean inserted;
+        try {
+            inserted = enrollmentDAO.tryInsertEnrollment(enroll);
+        } catch (RuntimeException ex) {
+            enrollmentDAO.releaseCourseSlot(studentId);
+            throw ex;
+        }
+        if (!inserted) {
+            enrollmentDAO.releaseCourseSlot(studentId);
+            throw new IllegalStateException("Student is already registered for course " + courseCode);
+        }
+        PermissionIndex.getInstance().invalidateStudent(studentId);
         return true;
     }
 
+    /**
+     * Registers many (studentId, courseCode) pairs at once, e.g. a whole cohort at the start of
+     * term. Admin only. The affected students (GPA and enrolledCount), their current enrollments
+     * and the referenced courses are each loaded with one query, the GPA limits are checked in
+     * memory in row order, and the result is written with unordered bulk writes: one to take the
+     * course slots, one to insert the enrollments. Every input row gets a status in the report.
+     */
+    public BulkEnrollmentReport bulkRegister(List<String[]> pairs) {
+        BulkEnrollmentReport report = new BulkEnrollmentReport();
+        int line = 0;
+        for (String[] p : pairs) {
+            line++;
+            report.add(line, cell(p, 0), cell(p, 1));
+        }
+        return bulkRegister(report);
+    }
+
+    /**
+     * bulkRegister for CSV input: one "studentId,courseCode" pair per line; an optional header
+     * line starting with "studentId" and blank lines are skipped. Row numbers are file lines.
+     */
+    public BulkEnrollmentReport bulkRegisterCsv(Reader csv) throws IOException {
+        BulkEnrollmentReport report = new BulkEnrollmentReport();
+        BufferedReader in = new BufferedReader(csv);
+        String text;
+        int line = 0;
+        while ((text = in.readLine()) != null) {
+            line++;
+            if (text.isBlank()) continue;
+            String[] cells = text.split(",", -1);
+            if (line == 1 && "studentId".equalsIgnoreCase(cell(cells, 0))) continue;
+            report.add(line, cell(cells, 0), cell(cells, 1));
+        }
+        return bulkRegister(report);
+    }
+
+    private BulkEnrollmentReport bulkRegister(BulkEnrollmentReport report) {
+        if (!AuthSession.getInstance().hasRole("Admin")) {
+            throw new SecurityException("Only Admin may import enrollments");
+        }
+        Set<String> studentIds = new HashSet<>();
+        Set<String> courseCodes = new HashSet<>();
+        for (BulkEnrollmentReport.Row r : report.getRows()) {
+            if (r.getStudentId() == null || r.getCourseCode() == null) {
+                r.set(Status.INVALID, "Expected studentId,courseCode");
+            } else {
+                studentIds.add(r.getStudentId());
+                courseCodes.add(r.getCourseCode());
+            }
+        }
+        if (studentIds.isEmpty()) return report;
+
+        // ---- load everything the checks need ----
+        Set<String> knownCourses = courseDAO.findExistingCodes(courseCodes);
+        Map<String, Document> studentByKey = new HashMap<>();
+        Set<String> allKeys = new HashSet<>();
+        for (Document st : enrollmentDAO.findStudentsForEnrollment(studentIds)) {
+            for (String key : EnrollmentDAO.studentKeys(st)) {
+                studentByKey.putIfAbsent(key, st);
+                allKeys.add(key);
+            }
+        }
+        Map<String, Set<String>> enrolled = allKeys.isEmpty() ? Map.of() : enrollmentDAO.findCourseCodesByStudents(allKeys);
+
+        // ---- validate in memory, in row order ----
+        Map<Object, Integer> base = new HashMap<>();
+        Map<Object, Integer> slots = new HashMap<>();
+        Set<Object> legacy = new HashSet<>();
+        Set<String> seen = new HashSet<>();
+        List<BulkEnrollmentReport.Row> accepted = new ArrayList<>();
+        for (BulkEnrollmentReport.Row r : report.getRows()) {
+            if (r.getStatus() != null) continue;
+            Document st = studentByKey.get(r.getStudentId());
+            if (!knownCourses.contains(r.getCourseCode())) {
+                r.set(Status.UNKNOWN_COURSE, "No course with code " + r.getCourseCode());
+                continue;
+            }
+            if (st == null) {
+                r.set(Status.UNKNOWN_STUDENT, "Student record not found: " + r.getStudentId());
+                continue;
+            }
+            // compare the resolved student, so _id and entityId rows of one student are one pair
+            Object id = st.get("_id");
+            if (!seen.add(IdPolicy.studentId(id) + "|" + r.getCourseCode())) {
+                r.set(Status.DUPLICATE_ROW, "Same pair appears earlier in the import");
+                continue;
+            }
+            if (isEnrolled(enrolled, st, r.getCourseCode())) {
+                r.set(Status.ALREADY_REGISTERED, "Student is already registered for course " + r.getCourseCode());
+                continue;
+            }
+            int current = base.computeIfAbsent(id, k -> {
+                Integer counted = st.getInteger(EnrollmentDAO.ENROLLED_COUNT);
+                if (counted != null) return counted;
+                legacy.add(id);
+                int n = 0;
+                for (String key : EnrollmentDAO.studentKeys(st)) n += enrolled.getOrDefault(key, Set.of()).size();
+                return n;
+            });
+            double gpa = readGpa(st);
+            int maxAllowed = computeMaxAllowedByGpa(gpa);
+            int taken = current + slots.getOrDefault(id, 0);
+            if (taken >= maxAllowed) {
+                r.set(Status.LIMIT_EXCEEDED, String.format(
+                        "Registration denied: student GPA = %.2f allows max %d courses (currently registered: %d).",
+                        gpa, maxAllowed, taken));
+                continue;
+            }
+            slots.merge(id, 1, Integer::sum);
+            accepted.add(r);
+        }
+
+        // ---- write: take the slots, then insert ----
+        Set<Object> reserved = enrollmentDAO.reserveCourseSlots(slots, base, legacy);
+        List<BulkEnrollmentReport.Row> inserting = new ArrayList<>();
+        List<Document> docs = new ArrayList<>();
+        Date now = new Date();
+        for (BulkEnrollmentReport.Row r : accepted) {
+            if (!reserved.contains(studentByKey.get(r.getStudentId()).get("_id"))) {
+                r.set(Status.CONFLICT, "Registrations of this student changed during the import; import the row again");
+                continue;
+            }
+            inserting.add(r);
+            docs.add(new Document("studentId", r.getStudentId())
+                    .append("courseCode", r.getCourseCode())
+                    .append("registeredAt", now));
+        }
+        for (BulkEnrollmentReport.Row r : inserting) r.set(Status.REGISTERED, null);
+
+        Map<Object, Integer> unused = new HashMap<>();
+        for (BulkWriteError e : enrollmentDAO.insertEnrollments(docs)) {
+            BulkEnrollmentReport.Row r = inserting.get(e.getIndex());
+            if (ErrorCategory.fromErrorCode(e.getCode()) == ErrorCategory.DUPLICATE_KEY) {
+                r.set(Status.ALREADY_REGISTERED, "Student is already registered for course " + r.getCourseCode());
+            } else {
+                r.set(Status.FAILED, e.getMessage());
+            }
+            unused.merge(studentByKey.get(r.getStudentId()).get("_id"), 1, Integer::sum);
+        }
+        enrollmentDAO.releaseCourseSlots(unused);
+        for (BulkEnrollmentReport.Row r : inserting) PermissionIndex.getInstance().invalidateStudent(r.getStudentId());
+        return report;
+    }
+
+    private static boolean isEnrolled(Map<String, Set<String>> enrolled, Document student, String courseCode) {
+        for (String key : EnrollmentDAO.studentKeys(student)) {
+            if (enrolled.getOrDefault(key, Set.of()).contains(courseCode)) return true;
+        }
+        return false;
+    }
+
+    private static String cell(String[] cells, int i) {
+        if (cells == null || cells.length <= i || cells[i] == null) return null;
+        String v = cells[i].trim();
+        if (v.length() >= 2 && v.startsWith("\"") && v.endsWith("\"")) v = v.substring(1, v.length() - 1).trim();
+        return v.isEmpty() ? null : v;
+    }
+
     public boolean unregisterStudentFromCourse(String studentId, String courseCode) {
-        return enrollmentDAO.deleteByStudentAndCourse(studentId, courseCode);
+        boolean removed = enrollmentDAO.deleteByStudentAndCourse(studentId, courseCode);
+        if (removed) PermissionIndex.getInstance().invalidateStudent(studentId);
+        return removed;
     }
 
     // ---------- helpers ----------
@@ -104,11 +283,8 @@ public class EnrollmentService {
      * - supports numeric values and string numeric representations
      * - if not found or invalid, returns 0.0
      */
-    private double readGpaFromStudent(String studentId) {
+    private double readGpa(Document student) {
         try {
-            Document student = entityService.getEntityById(studentId);
-            if (student == null) return 0.0;
-
             // 1) check core.gpa if present
             Document core = student.get("core", Document.class);
             if (core != null) {
@@ -2,9 +2,11 @@ package edu.agile.sis.service;
 
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
 import com.mongodb.client.model.Updates;
 import com.mongodb.client.result.UpdateResult;
-import edu.agile.sis.db.DBConnection;
+import edu.agile.sis.db.DaoRegistry;
+import edu.agile.sis.db.IdPolicy;
 import org.bson.Document;
 
 import java.util.ArrayList;
@@ -18,12 +20,20 @@ public class EntityService {
     private final MongoCollection<Document> coll;
 
     public EntityService(String collectionName) {
-        this.coll = DBConnection.getInstance().getDatabase().getCollection(collectionName);
+        this.coll = DaoRegistry.collection(collectionName);
     }
 
     public Document getEntityById(String entityId) {
     if (entityId == null || entityId.isBlank()) return null;
 
+    if (IdPolicy.isStrict()) {
+        return coll.find(Filters.or(
+                IdPolicy.eqObjectId("_id", entityId),
+                Filters.eq("core.entityId", entityId),
+                Filters.eq("entityId", entityId)
+        )).first();
+    }
+
     
     try {
         ObjectId oid = new ObjectId(entityId);
@@ -49,6 +59,17 @@ public class EntityService {
         return coll.find(Filters.eq("type", typeName)).into(new ArrayList<>());
     }
 
+    /**
+     * Same entities as getEntitiesByType with only the identity and core fields list screens show
+     * (no attribute arrays); load the full record with getEntityById when a detail dialog opens.
+     */
+    public List<Document> getEntitySummariesByType(String typeName) {
+        return coll.find(Filters.eq("type", typeName))
+                .projection(Projections.include("type", "entityId", "linkedEntityId", "core.entityId",
+                        "core.firstName", "core.lastName", "core.email", "core.enrolledSince"))
+                .into(new ArrayList<>());
+    }
+
     public boolean createEntity(Document doc) {
         if (doc == null) return false;
         coll.insertOne(doc);
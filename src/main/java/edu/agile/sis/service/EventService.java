@@ -1,6 +1,8 @@
 package edu.agile.sis.service;
 
 import edu.agile.sis.dao.EventDAO;
+import edu.agile.sis.dao.KeysetPage;
+import edu.agile.sis.db.DaoRegistry;
 import org.bson.Document;
 
 import java.util.Date;
@@ -11,7 +13,7 @@ import java.util.List;
  */
 public class EventService {
 
-    private final EventDAO eventDAO = new EventDAO();
+    private final EventDAO eventDAO = DaoRegistry.get(EventDAO.class);
 
     /**
      * Create a new event
@@ -30,10 +32,10 @@ public class EventService {
     }
 
     /**
-     * List upcoming events (optionally filtered by category)
+     * List upcoming events (optionally filtered by category), one page at a time
      */
-    public List<Document> listUpcoming(Date from, int skip, int limit, String category) {
-        return eventDAO.listUpcoming(from, skip, limit, category);
+    public KeysetPage listUpcoming(Date from, String category, int limit, String pageToken) {
+        return eventDAO.listUpcoming(from, category, limit, pageToken);
     }
 
     /**
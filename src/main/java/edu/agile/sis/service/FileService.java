@@ -1,34 +1,50 @@
 package edu.agile.sis.service;
 
-import com.mongodb.client.gridfs.GridFSBucket;
-import com.mongodb.client.gridfs.GridFSBuckets;
-import com.mongodb.client.gridfs.model.GridFSUploadOptions;
-import edu.agile.sis.db.DBConnection;
+import edu.agile.sis.util.ContentStore;
 import org.bson.Document;
-import org.bson.types.ObjectId;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.file.Path;
 
+/**
+ * The "attachments" bucket. Uploads are deduplicated by content, so the returned id may be
+ * shared with earlier uploads of the same bytes; delete only drops this reference.
+ */
 public class FileService {
-    private final GridFSBucket bucket;
+    private final ContentStore store;
 
     public FileService() {
-        this.bucket = GridFSBuckets.create(DBConnection.getInstance().getDatabase(), "attachments");
+        this.store = ContentStore.forBucket("attachments");
     }
 
     public String upload(InputStream in, String filename, String contentType, Document metadata) {
-        GridFSUploadOptions opts = new GridFSUploadOptions().metadata(metadata == null ? new Document() : metadata.append("contentType", contentType));
-        ObjectId id = bucket.uploadFromStream(filename, in, opts);
-        return id.toHexString();
+        return store.store(filename, in, metadata == null ? new Document() : metadata.append("contentType", contentType));
+    }
+
+    /** Uploads a local file; content that is already stored is not sent again. */
+    public String upload(Path file, String filename, String contentType, Document metadata) throws IOException {
+        return store.store(file, filename, metadata == null ? new Document() : metadata.append("contentType", contentType));
     }
 
     public void download(String fileIdHex, OutputStream out) throws Exception {
-        ObjectId id = new ObjectId(fileIdHex);
-        bucket.downloadToStream(id, out);
+        try (InputStream in = store.open(fileIdHex)) {
+            in.transferTo(out);
+        }
+    }
+
+    /** Streams the file without buffering it; close the returned stream. */
+    public InputStream openDownloadStream(String fileIdHex) {
+        return store.open(fileIdHex);
+    }
+
+    /** Streams length bytes starting at offset (length < 0 reads to the end). */
+    public InputStream openRange(String fileIdHex, long offset, long length) throws IOException {
+        return store.openRange(fileIdHex, offset, length);
     }
 
     public void delete(String fileIdHex) {
-        try { bucket.delete(new ObjectId(fileIdHex)); } catch (Exception ignored) {}
+        try { store.release(fileIdHex); } catch (Exception ignored) {}
     }
 }
@@ -0,0 +1,527 @@
+package edu.agile.sis.service;
+
+import edu.agile.sis.dao.AssignmentDAO;
+import edu.agile.sis.dao.GradebookDAO;
+import edu.agile.sis.dao.QuizAttemptDAO;
+import edu.agile.sis.dao.QuizDAO;
+import edu.agile.sis.dao.SubmissionDAO;
+import edu.agile.sis.model.Grade;
+import edu.agile.sis.db.DaoRegistry;
+import org.bson.Document;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * GradebookService - computes the per-course grade (final 60 / quiz 20 / assign 20) for a student.
+ *
+ * Primary path: one aggregation on submissions (SubmissionDAO.aggregateGradeBuckets) that pulls in
+ * quiz_attempts and resolves course/type with $lookup, grouped by course.
+ * Fallback path (e.g. server without $unionWith): plain finds plus one batched $in lookup each for
+ * the referenced assignments and quizzes, never one query per item.
+ *
+ * Reads normally come from the materialized "gradebook" collection (GradebookDAO), which
+ * SubmissionService and QuizService keep current through recordSubmission / recordAttempt.
+ * A student without rows is built in full by whichever comes first, a read or a record call.
+ * rebuild() reconstructs it from submissions and quiz_attempts.
+ */
+public class GradebookService {
+    static final double BUCKET_FINAL_MAX  = 60.0;
+    static final double BUCKET_QUIZ_MAX   = 20.0;
+    static final double BUCKET_ASSIGN_MAX = 20.0;
+
+    private final SubmissionDAO submissionDAO = DaoRegistry.get(SubmissionDAO.class);
+    private final QuizAttemptDAO attemptDAO = DaoRegistry.get(QuizAttemptDAO.class);
+    private final AssignmentDAO assignmentDAO = DaoRegistry.get(AssignmentDAO.class);
+    private final QuizDAO quizDAO = DaoRegistry.get(QuizDAO.class);
+    private final GradebookDAO gradebookDAO = DaoRegistry.get(GradebookDAO.class);
+
+    public GradebookService() {}
+
+    /** Running sum for one (course, bucket) pair. */
+    static final class Bucket {
+        double raw = 0.0;
+        String subjectName;
+        Double credits;
+    }
+
+    public List<Grade> computeGrades(String studentId) {
+        if (studentId == null || studentId.isBlank()) return Collections.emptyList();
+
+        Map<String, Map<String, Bucket>> data;
+        try {
+            data = fromAggregation(submissionDAO.aggregateGradeBuckets(studentId));
+        } catch (Exception ex) {
+            System.err.println("[GradebookService] aggregation failed, using batched fallback: " + ex.getMessage());
+            data = computeBucketsInJava(studentId);
+        }
+        return toGrades(data);
+    }
+
+    /**
+     * Grades for a student from the materialized gradebook (one indexed lookup).
+     * A student without gradebook rows yet is built on the spot; one with nothing to grade keeps
+     * an empty marker row, so that happens once rather than on every read.
+     */
+    public List<Grade> getGrades(String studentId) {
+        if (studentId == null || studentId.isBlank()) return Collections.emptyList();
+        try {
+            List<Document> rows = gradebookDAO.findByStudent(studentId);
+            if (rows == null || rows.isEmpty()) rows = rebuildBatch(List.of(studentId));
+            return toGrades(fromGradebookRows(rows));
+        } catch (Exception ex) {
+            System.err.println("[GradebookService] gradebook read failed, computing: " + ex.getMessage());
+            return computeGrades(studentId);
+        }
+    }
+
+    /**
+     * Grade for a single course, or null when the student has nothing recorded for it.
+     */
+    public Grade getGradeForCourse(String studentId, String courseCode) {
+        if (studentId == null || courseCode == null || courseCode.isBlank()) return null;
+        Document row = gradebookDAO.findOne(studentId, courseCode);
+        if (row == null) {
+            for (Grade g : getGrades(studentId)) {
+                if (courseCode.equalsIgnoreCase(g.getSubjectId())) return g;
+            }
+            return null;
+        }
+        List<Grade> grades = toGrades(fromGradebookRows(List.of(row)));
+        return grades.isEmpty() ? null : grades.get(0);
+    }
+
+    // ----- incremental updates -----
+
+    /**
+     * Record (or re-record) a submission's contribution. The assignment may be null when the
+     * submission itself carries course and type.
+     */
+    public void recordSubmission(Document submission, Document assignment) {
+        if (submission == null || submission.get("studentId") == null || submission.get("_id") == null) return;
+        try {
+            if (assignment == null && needsAssignment(submission)) {
+                assignment = assignmentDAO.findById(asString(submission.get("assignmentId")));
+            }
+            String studentId = asString(submission.get("studentId"));
+            if (buildIfMissing(studentId)) return;
+            Document item = submissionItem(submission, assignment);
+            gradebookDAO.upsertItem(studentId, item.getString("course"),
+                    itemKey("sub_", submission.get("_id")), storedItem(item));
+        } catch (Exception ex) {
+            System.err.println("[GradebookService] recordSubmission failed: " + ex.getMessage());
+        }
+    }
+
+    public void recordSubmission(String submissionId) {
+        try {
+            recordSubmission(submissionDAO.findById(submissionId), null);
+        } catch (Exception ex) {
+            System.err.println("[GradebookService] recordSubmission failed: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Record (or re-record) a quiz attempt's contribution. Attempts without a numeric score are skipped.
+     */
+    public void recordAttempt(Document attempt, Document quiz) {
+        if (attempt == null || attempt.get("studentId") == null || attempt.get("_id") == null) return;
+        try {
+            if (quiz == null && attemptSubject(attempt, null) == null && attempt.get("quizId") != null) {
+                quiz = quizDAO.findById(asString(attempt.get("quizId")));
+            }
+            Document item = attemptItem(attempt, quiz);
+            if (item == null) return;
+            String studentId = asString(attempt.get("studentId"));
+            if (buildIfMissing(studentId)) return;
+            gradebookDAO.upsertItem(studentId, item.getString("course"),
+                    itemKey("att_", attempt.get("_id")), storedItem(item));
+        } catch (Exception ex) {
+            System.err.println("[GradebookService] recordAttempt failed: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Builds all rows of a student whose gradebook was never materialized. An upsert alone would
+     * leave one partial row that reads then take for the whole history. The item being recorded
+     * is already stored, so the rebuild includes it. Returns true if it ran.
+     */
+    private boolean buildIfMissing(String studentId) {
+        if (gradebookDAO.hasRows(studentId)) return false;
+        rebuildBatch(List.of(studentId));
+        return true;
+    }
+
+    /**
+     * Rebuild the rows of every student who submitted to an assignment, e.g. after its type or
+     * course changed and the submissions now count towards another bucket or course.
+     */
+    public void rebuildForAssignment(String assignmentId) {
+        if (assignmentId == null || assignmentId.isBlank()) return;
+        try {
+            Set<String> studentIds = new LinkedHashSet<>();
+            for (Document s : submissionDAO.listByAssignment(assignmentId)) {
+                if (s.get("studentId") != null) studentIds.add(s.get("studentId").toString());
+            }
+            if (!studentIds.isEmpty()) rebuildBatch(new ArrayList<>(studentIds));
+        } catch (Exception ex) {
+            System.err.println("[GradebookService] rebuildForAssignment failed: " + ex.getMessage());
+        }
+    }
+
+    // ----- rebuild -----
+
+    /**
+     * Rebuild the whole gradebook collection from submissions and quiz_attempts.
+     * Students are processed in batches of batchSize on a pool of threads; each batch costs
+     * one query per source collection plus one $in per referenced collection.
+     *
+     * @return number of students rebuilt
+     */
+    public int rebuild(int batchSize, int threads) throws Exception {
+        if (batchSize <= 0) batchSize = 200;
+        if (threads <= 0) threads = 1;
+
+        Set<String> studentIds = new LinkedHashSet<>(submissionDAO.distinctStudentIds());
+        studentIds.addAll(attemptDAO.distinctStudentIds());
+        List<String> all = new ArrayList<>(studentIds);
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < all.size(); i += batchSize) {
+                List<String> batch = all.subList(i, Math.min(all.size(), i + batchSize));
+                futures.add(pool.submit(() -> rebuildBatch(batch)));
+            }
+            for (Future<?> f : futures) f.get();
+        } finally {
+            pool.shutdown();
+        }
+        return all.size();
+    }
+
+    /**
+     * Recompute and store the gradebook rows of a batch of students. Returns the stored rows.
+     */
+    List<Document> rebuildBatch(List<String> studentIds) {
+        List<Document> subs = submissionDAO.listByStudents(studentIds);
+        List<Document> attempts = attemptDAO.listByStudents(studentIds);
+        Map<String, Document> assignments = fetchAssignments(subs);
+        Map<String, Document> quizzes = fetchQuizzes(attempts);
+
+        // studentId -> courseCode -> row
+        Map<String, Map<String, Document>> rows = new LinkedHashMap<>();
+        for (Document s : subs) {
+            Document item = submissionItem(s, assignments.get(asString(s.get("assignmentId"))));
+            putItem(rows, asString(s.get("studentId")), item, itemKey("sub_", s.get("_id")));
+        }
+        for (Document at : attempts) {
+            Document item = attemptItem(at, quizzes.get(asString(at.get("quizId"))));
+            if (item != null) putItem(rows, asString(at.get("studentId")), item, itemKey("att_", at.get("_id")));
+        }
+
+        List<Document> out = new ArrayList<>();
+        Date now = new Date();
+        for (Map<String, Document> byCourse : rows.values()) {
+            for (Document row : byCourse.values()) {
+                Map<String, Double> sums = new HashMap<>();
+                for (Object o : row.get("items", Document.class).values()) {
+                    Document it = (Document) o;
+                    sums.merge(it.getString("bucket"), it.getDouble("amount"), Double::sum);
+                }
+                row.append("final", sums.getOrDefault("final", 0.0))
+                        .append("quiz", sums.getOrDefault("quiz", 0.0))
+                        .append("assign", sums.getOrDefault("assign", 0.0))
+                        .append("updatedAt", now);
+                out.add(row);
+            }
+        }
+        gradebookDAO.replaceForStudents(studentIds, out);
+        return out;
+    }
+
+    private static void putItem(Map<String, Map<String, Document>> rows, String studentId, Document item, String key) {
+        if (studentId == null) return;
+        String course = item.getString("course");
+        Document row = rows.computeIfAbsent(studentId, k -> new LinkedHashMap<>())
+                .computeIfAbsent(course, k -> new Document("studentId", studentId)
+                        .append("courseCode", course)
+                        .append("items", new Document()));
+        row.get("items", Document.class).append(key, storedItem(item));
+    }
+
+    private Map<String, Map<String, Bucket>> fromGradebookRows(List<Document> rows) {
+        Map<String, Map<String, Bucket>> data = new LinkedHashMap<>();
+        for (Document row : rows) {
+            String course = row.getString("courseCode");
+            if (course == null) continue; // empty marker
+            Map<String, Bucket> buckets = data.computeIfAbsent(course, k -> new HashMap<>());
+            Document items = row.get("items", Document.class);
+            if (items != null) {
+                for (Object o : items.values()) {
+                    if (!(o instanceof Document)) continue;
+                    Document it = (Document) o;
+                    Bucket bs = buckets.computeIfAbsent(it.getString("bucket"), k -> new Bucket());
+                    if (bs.subjectName == null) bs.subjectName = it.getString("subjectName");
+                    if (bs.credits == null) {
+                        Number c = asNumber(it.get("credits"));
+                        if (c != null) bs.credits = c.doubleValue();
+                    }
+                }
+            }
+            for (String b : Arrays.asList("final", "quiz", "assign")) {
+                Number raw = asNumber(row.get(b));
+                if (raw != null) buckets.computeIfAbsent(b, k -> new Bucket()).raw = raw.doubleValue();
+            }
+        }
+        return data;
+    }
+
+    // ----- aggregation result -> buckets -----
+
+    private Map<String, Map<String, Bucket>> fromAggregation(List<Document> rows) {
+        Map<String, Map<String, Bucket>> data = new LinkedHashMap<>();
+        if (rows == null) return data;
+        for (Document row : rows) {
+            String subjectKey = asString(row.get("_id"));
+            if (subjectKey == null || subjectKey.isBlank()) subjectKey = "unknown";
+            Map<String, Bucket> buckets = data.computeIfAbsent(subjectKey, k -> new HashMap<>());
+            for (Document b : row.getList("buckets", Document.class, List.of())) {
+                Bucket bs = buckets.computeIfAbsent(asString(b.get("bucket")), k -> new Bucket());
+                Number raw = asNumber(b.get("raw"));
+                if (raw != null) bs.raw += raw.doubleValue();
+                if (bs.subjectName == null) bs.subjectName = asString(b.get("subjectName"));
+                if (bs.credits == null) {
+                    Number c = asNumber(b.get("credits"));
+                    if (c != null) bs.credits = c.doubleValue();
+                }
+            }
+        }
+        return data;
+    }
+
+    // ----- fallback: batched Java path -----
+
+    Map<String, Map<String, Bucket>> computeBucketsInJava(String studentId) {
+        List<Document> subs = submissionDAO.listByStudent(studentId);
+        if (subs == null) subs = Collections.emptyList();
+        List<Document> attempts = attemptDAO.listByStudent(studentId);
+        if (attempts == null) attempts = Collections.emptyList();
+
+        // collect every reference that actually needs resolving, then fetch them in one query each
+        Map<String, Document> assignments = fetchAssignments(subs);
+        Map<String, Document> quizzes = fetchQuizzes(attempts);
+
+        Map<String, Map<String, Bucket>> data = new LinkedHashMap<>();
+        for (Document s : subs) {
+            add(data, submissionItem(s, assignments.get(asString(s.get("assignmentId")))));
+        }
+        for (Document at : attempts) {
+            Document item = attemptItem(at, quizzes.get(asString(at.get("quizId"))));
+            if (item != null) add(data, item);
+        }
+        return data;
+    }
+
+    private Map<String, Document> fetchAssignments(List<Document> subs) {
+        Set<String> ids = new LinkedHashSet<>();
+        for (Document s : subs) {
+            if (needsAssignment(s)) ids.add(asString(s.get("assignmentId")));
+        }
+        return indexById(ids.isEmpty() ? null : assignmentDAO.findByIds(ids));
+    }
+
+    private Map<String, Document> fetchQuizzes(List<Document> attempts) {
+        Set<String> ids = new LinkedHashSet<>();
+        for (Document at : attempts) {
+            String qid = asString(at.get("quizId"));
+            if (qid != null && asNumber(at.get("score")) != null && attemptSubject(at, null) == null) ids.add(qid);
+        }
+        return indexById(ids.isEmpty() ? null : quizDAO.findByIds(ids));
+    }
+
+    private static boolean needsAssignment(Document s) {
+        return s.get("assignmentId") != null && (submissionSubject(s, null) == null || submissionType(s, null) == null);
+    }
+
+    /** One submission's contribution: { course, bucket, amount, subjectName, credits }. */
+    static Document submissionItem(Document s, Document assignment) {
+        String bucket = bucketFor(submissionType(s, assignment));
+        double value = firstNumber(s.get("score"), s.get("points"), s.get("grade"),
+                s.get("percentage"), s.get("percent"), nested(s, "grade", "score"),
+                nested(s, "grade", "value"), nested(s, "grade", "points"));
+        return item(submissionSubject(s, assignment), bucket, Math.min(value, bucketMax(bucket)),
+                firstNonBlank(asString(s.get("subjectName")), asString(s.get("courseName")), asString(s.get("title"))),
+                extractCredits(s));
+    }
+
+    /** One attempt's contribution, or null when the attempt has no numeric score. */
+    static Document attemptItem(Document at, Document quiz) {
+        Number score = asNumber(at.get("score"));
+        if (score == null) return null;
+        return item(attemptSubject(at, quiz), "quiz", Math.min(score.doubleValue(), BUCKET_QUIZ_MAX),
+                firstNonBlank(asString(at.get("courseName")), asString(at.get("title"))),
+                extractCredits(at));
+    }
+
+    private static Document item(String course, String bucket, double amount, String subjectName, Double credits) {
+        if (course == null || course.isBlank()) course = "unknown";
+        return new Document("course", course)
+                .append("bucket", bucket)
+                .append("amount", amount)
+                .append("subjectName", subjectName)
+                .append("credits", credits);
+    }
+
+    private static Document storedItem(Document item) {
+        return new Document("bucket", item.get("bucket"))
+                .append("amount", item.get("amount"))
+                .append("subjectName", item.get("subjectName"))
+                .append("credits", item.get("credits"));
+    }
+
+    private static String itemKey(String prefix, Object id) {
+        // field names may not contain '.' or start with '$'
+        return prefix + String.valueOf(id).replace('.', '_').replace('$', '_');
+    }
+
+    private static void add(Map<String, Map<String, Bucket>> data, Document item) {
+        Bucket bs = data.computeIfAbsent(item.getString("course"), k -> new HashMap<>())
+                .computeIfAbsent(item.getString("bucket"), k -> new Bucket());
+        if (bs.subjectName == null) bs.subjectName = item.getString("subjectName");
+        if (bs.credits == null) bs.credits = (Double) item.get("credits");
+        bs.raw += item.getDouble("amount");
+    }
+
+    private static String submissionSubject(Document s, Document assignment) {
+        String key = firstNonBlank(asString(s.get("courseCode")), asString(s.get("subjectId")),
+                asString(s.get("subjectCode")), asString(s.get("course")));
+        if (key == null && assignment != null) {
+            key = firstNonBlank(asString(assignment.get("courseCode")), asString(assignment.get("subjectId")),
+                    asString(assignment.get("course")));
+        }
+        return key;
+    }
+
+    private static String submissionType(Document s, Document assignment) {
+        String type = firstNonBlank(asString(s.get("type")), asString(s.get("itemType")),
+                asString(s.get("category")), asString(s.get("title")));
+        if (type == null && assignment != null) {
+            type = firstNonBlank(asString(assignment.get("type")), asString(assignment.get("category")),
+                    asString(assignment.get("title")));
+        }
+        return type;
+    }
+
+    private static String attemptSubject(Document at, Document quiz) {
+        String key = firstNonBlank(asString(at.get("courseCode")), asString(at.get("course")), asString(at.get("subjectId")));
+        if (key == null && quiz != null) {
+            key = firstNonBlank(asString(quiz.get("courseCode")), asString(quiz.get("subjectId")));
+        }
+        return key;
+    }
+
+    static String bucketFor(String type) {
+        String lower = type == null ? "" : type.toLowerCase(Locale.ROOT);
+        if (lower.contains("final") || lower.contains("exam") || lower.contains("midterm") || lower.contains("overall")) return "final";
+        if (lower.contains("quiz") || lower.contains("test")) return "quiz";
+        return "assign";
+    }
+
+    private static double bucketMax(String bucket) {
+        if ("final".equals(bucket)) return BUCKET_FINAL_MAX;
+        if ("quiz".equals(bucket)) return BUCKET_QUIZ_MAX;
+        return BUCKET_ASSIGN_MAX;
+    }
+
+    // ----- buckets -> grades -----
+
+    static List<Grade> toGrades(Map<String, Map<String, Bucket>> data) {
+        List<Grade> out = new ArrayList<>();
+        for (Map.Entry<String, Map<String, Bucket>> ent : data.entrySet()) {
+            String subjectKey = ent.getKey();
+            Map<String, Bucket> buckets = ent.getValue();
+
+            Bucket bFinal  = buckets.get("final");
+            Bucket bQuiz   = buckets.get("quiz");
+            Bucket bAssign = buckets.get("assign");
+
+            double total = 0.0;
+            if (bFinal != null)  total += Math.min(bFinal.raw,  BUCKET_FINAL_MAX);
+            if (bQuiz != null)   total += Math.min(bQuiz.raw,   BUCKET_QUIZ_MAX);
+            if (bAssign != null) total += Math.min(bAssign.raw, BUCKET_ASSIGN_MAX);
+
+            String subjectName = null;
+            Double credits = 1.0;
+            for (Bucket b : Arrays.asList(bFinal, bAssign, bQuiz)) {
+                if (b != null && b.subjectName != null) {
+                    subjectName = b.subjectName;
+                    if (b.credits != null) credits = b.credits;
+                    break;
+                }
+            }
+            if (subjectName == null) subjectName = subjectKey;
+
+            out.add(new Grade(subjectKey, subjectName, String.format(Locale.ROOT, "%.2f", total), credits));
+        }
+        out.sort(Comparator.comparing(Grade::getSubjectName, Comparator.nullsLast(String::compareToIgnoreCase)));
+        return out;
+    }
+
+    // ----- helpers -----
+
+    private static Map<String, Document> indexById(List<Document> docs) {
+        Map<String, Document> byId = new HashMap<>();
+        if (docs == null) return byId;
+        for (Document d : docs) {
+            Object id = d.get("_id");
+            if (id != null) byId.put(id.toString(), d);
+        }
+        return byId;
+    }
+
+    private static Object nested(Document d, String field, String key) {
+        Object o = d.get(field);
+        return o instanceof Document ? ((Document) o).get(key) : null;
+    }
+
+    private static double firstNumber(Object... values) {
+        for (Object v : values) {
+            Number n = asNumber(v);
+            if (n != null) return n.doubleValue();
+        }
+        return 0.0;
+    }
+
+    private static String firstNonBlank(String... v) {
+        if (v == null) return null;
+        for (String s : v) if (s != null && !s.isBlank()) return s;
+        return null;
+    }
+
+    private static Number asNumber(Object o) {
+        if (o == null) return null;
+        if (o instanceof Number) return (Number) o;
+        if (!(o instanceof CharSequence)) return null;
+        try {
+            String s = o.toString().trim();
+            if (s.isEmpty()) return null;
+            if (s.contains(".")) return Double.parseDouble(s);
+            return Long.parseLong(s);
+        } catch (Throwable ex) {
+            return null;
+        }
+    }
+
+    private static Double extractCredits(Document d) {
+        if (d == null) return null;
+        Number n = asNumber(d.get("credits"));
+        return n == null ? null : n.doubleValue();
+    }
+
+    private static String asString(Object o) {
+        return o == null ? null : o.toString();
+    }
+}
@@ -3,7 +3,9 @@ package edu.agile.sis.service;
 import com.mongodb.client.result.UpdateResult;
 import edu.agile.sis.dao.AuditLogDAO;
 import edu.agile.sis.dao.InventoryDAO;
+import edu.agile.sis.dao.KeysetPage;
 import edu.agile.sis.security.AuthSession;
+import edu.agile.sis.db.DaoRegistry;
 import org.bson.Document;
 import org.bson.types.ObjectId;
 
@@ -19,8 +21,8 @@ import java.util.List;
  * - Licenses: Multi-user assignment support
  */
 public class InventoryService {
-    private final InventoryDAO inventoryDAO = new InventoryDAO();
-    private final AuditLogDAO auditLogDAO = new AuditLogDAO();
+    private final InventoryDAO inventoryDAO = DaoRegistry.get(InventoryDAO.class);
+    private final AuditLogDAO auditLogDAO = DaoRegistry.get(AuditLogDAO.class);
     private final EntityService entityService = new EntityService("entities");
 
     /**
@@ -32,7 +34,18 @@ public class InventoryService {
      * @return The created item ID or null on failure
      */
     public String createItem(String name, String itemType, String notes) {
+        return createItem(name, itemType, notes, null);
+    }
+
+    /**
+     * Create a new inventory item; for licenses, seatLimit caps the number of assigned users
+     * (null means unlimited).
+     */
+    public String createItem(String name, String itemType, String notes, Integer seatLimit) {
         checkAdminOrStaffAccess("create inventory items");
+        if (seatLimit != null && seatLimit < 1) {
+            throw new IllegalArgumentException("Seat limit must be at least 1.");
+        }
 
         Document doc = new Document()
                 .append("name", name)
@@ -43,9 +56,12 @@ public class InventoryService {
                 .append("createdAt", new Date())
                 .append("createdBy", getCurrentUserId());
 
-        // For licenses, initialize empty assignedUsers array
+        // For licenses, initialize empty assignedUsers array and seat counter
         if ("License".equals(itemType)) {
-            doc.append("assignedUsers", new ArrayList<Document>());
+            doc.append("assignedUsers", new ArrayList<Document>()).append("seatCount", 0);
+            if (seatLimit != null) {
+                doc.append("seatLimit", seatLimit);
+            }
         }
 
         ObjectId id = inventoryDAO.insertItem(doc);
@@ -154,39 +170,31 @@ public class InventoryService {
         // Validate user exists and name matches
         validateUser(userId, userName);
 
+        // One conditional update: only an Available laptop/equipment item is assigned
+        if (inventoryDAO.assignItem(itemId, userId, userName) != null) {
+            logAuditEntry(itemId, "ALLOCATE",
+                    "Assigned item to: " + userName + " (ID: " + userId + ")");
+            return true;
+        }
+
         Document item = inventoryDAO.findById(itemId);
         if (item == null) {
             throw new IllegalArgumentException("Item not found: " + itemId);
         }
 
-        String itemType = item.getString("itemType");
-
         // For licenses, redirect to addUserToLicense
-        if ("License".equals(itemType)) {
+        if ("License".equals(item.getString("itemType"))) {
             return addUserToLicense(itemId, userId, userName);
         }
 
-        // For Laptop/Equipment: single user assignment
         String currentStatus = item.getString("status");
         if ("Assigned".equals(currentStatus)) {
             throw new IllegalStateException("Item is already assigned to: " + item.getString("assignedToName"));
         }
-
-        Document update = new Document()
-                .append("status", "Assigned")
-                .append("assignedToUserId", userId)
-                .append("assignedToName", userName)
-                .append("assignedDate", new Date())
-                .append("updatedAt", new Date());
-
-        UpdateResult result = inventoryDAO.updateItem(itemId, update);
-
-        if (result.getModifiedCount() > 0) {
-            logAuditEntry(itemId, "ALLOCATE",
-                    "Assigned item to: " + userName + " (ID: " + userId + ")");
-            return true;
+        if ("Available".equals(currentStatus)) {
+            throw new IllegalStateException("Item changed while assigning; please try again.");
         }
-        return false;
+        throw new IllegalStateException("Item cannot be assigned while it is " + currentStatus + ".");
     }
 
     /**
@@ -203,51 +211,34 @@ public class InventoryService {
         // Validate user exists and name matches
         validateUser(userId, userName);
 
-        Document item = inventoryDAO.findById(itemId);
-        if (item == null) {
-            throw new IllegalArgumentException("Item not found: " + itemId);
-        }
-
-        if (!"License".equals(item.getString("itemType"))) {
-            throw new IllegalArgumentException(
-                    "This method is only for License items. Use allocateItem for Laptop/Equipment.");
+        Document updated = inventoryDAO.addLicenseSeat(itemId, newSeat(userId, userName));
+        if (updated == null) {
+            explainRejectedSeat(itemId, userId, userName);
+            return false;
         }
 
-        // Get current assigned users
-        @SuppressWarnings("unchecked")
-        List<Document> assignedUsers = item.get("assignedUsers", List.class);
-        if (assignedUsers == null) {
-            assignedUsers = new ArrayList<>();
-        }
+        logAuditEntry(itemId, "ALLOCATE_LICENSE",
+                "Added user to license: " + userName + " (ID: " + userId + "). Total users: "
+                        + seatCount(updated));
+        return true;
+    }
 
-        // Check if user is already assigned
-        for (Document user : assignedUsers) {
-            if (userId.equals(user.getString("userId"))) {
-                throw new IllegalStateException("User " + userName + " is already assigned to this license.");
-            }
+    /**
+     * Change the seat limit of a license; null removes the limit. Lowering it below the current
+     * number of users keeps those users but blocks new ones until seats are freed.
+     */
+    public boolean setLicenseSeatLimit(String itemId, Integer seatLimit) {
+        checkAdminOrStaffAccess("change license seat limits");
+        if (seatLimit != null && seatLimit < 1) {
+            throw new IllegalArgumentException("Seat limit must be at least 1.");
         }
 
-        // Add new user
-        Document newUser = new Document()
-                .append("userId", userId)
-                .append("userName", userName)
-                .append("assignedDate", new Date());
-        assignedUsers.add(newUser);
-
-        Document update = new Document()
-                .append("status", "Assigned")
-                .append("assignedUsers", assignedUsers)
-                .append("updatedAt", new Date());
-
-        UpdateResult result = inventoryDAO.updateItem(itemId, update);
-
-        if (result.getModifiedCount() > 0) {
-            logAuditEntry(itemId, "ALLOCATE_LICENSE",
-                    "Added user to license: " + userName + " (ID: " + userId + "). Total users: "
-                            + assignedUsers.size());
-            return true;
+        UpdateResult result = inventoryDAO.setSeatLimit(itemId, seatLimit);
+        if (result.getMatchedCount() == 0) {
+            throw new IllegalArgumentException("License not found: " + itemId);
         }
-        return false;
+        logAuditEntry(itemId, "UPDATE", "Seat limit set to " + (seatLimit == null ? "unlimited" : seatLimit));
+        return true;
     }
 
     /**
@@ -260,51 +251,34 @@ public class InventoryService {
     public boolean removeUserFromLicense(String itemId, String userId) {
         checkAdminOrStaffAccess("deallocate license from users");
 
-        Document item = inventoryDAO.findById(itemId);
-        if (item == null) {
-            throw new IllegalArgumentException("Item not found: " + itemId);
-        }
-
-        if (!"License".equals(item.getString("itemType"))) {
-            throw new IllegalArgumentException("This method is only for License items.");
+        Document before = inventoryDAO.removeLicenseSeat(itemId, userId);
+        if (before == null) {
+            Document item = inventoryDAO.findById(itemId);
+            if (item == null) {
+                throw new IllegalArgumentException("Item not found: " + itemId);
+            }
+            if (!"License".equals(item.getString("itemType"))) {
+                throw new IllegalArgumentException("This method is only for License items.");
+            }
+            throw new IllegalArgumentException("User with ID " + userId + " is not assigned to this license.");
         }
 
+        String removedUserName = userId;
         @SuppressWarnings("unchecked")
-        List<Document> assignedUsers = item.get("assignedUsers", List.class);
-        if (assignedUsers == null || assignedUsers.isEmpty()) {
-            throw new IllegalStateException("No users are assigned to this license.");
-        }
-
-        String removedUserName = null;
-        List<Document> updatedUsers = new ArrayList<>();
-        for (Document user : assignedUsers) {
-            if (userId.equals(user.getString("userId"))) {
-                removedUserName = user.getString("userName");
-            } else {
-                updatedUsers.add(user);
+        List<Document> assignedUsers = before.get("assignedUsers", List.class);
+        if (assignedUsers != null) {
+            for (Document user : assignedUsers) {
+                if (userId.equals(user.getString("userId"))) {
+                    removedUserName = user.getString("userName");
+                    break;
+                }
             }
         }
 
-        if (removedUserName == null) {
-            throw new IllegalArgumentException("User with ID " + userId + " is not assigned to this license.");
-        }
-
-        String newStatus = updatedUsers.isEmpty() ? "Available" : "Assigned";
-
-        Document update = new Document()
-                .append("status", newStatus)
-                .append("assignedUsers", updatedUsers)
-                .append("updatedAt", new Date());
-
-        UpdateResult result = inventoryDAO.updateItem(itemId, update);
-
-        if (result.getModifiedCount() > 0) {
-            logAuditEntry(itemId, "DEALLOCATE_LICENSE",
-                    "Removed user from license: " + removedUserName + " (ID: " + userId + "). Remaining users: "
-                            + updatedUsers.size());
-            return true;
-        }
-        return false;
+        logAuditEntry(itemId, "DEALLOCATE_LICENSE",
+                "Removed user from license: " + removedUserName + " (ID: " + userId + "). Remaining users: "
+                        + Math.max(0, seatCount(before) - 1));
+        return true;
     }
 
     /**
@@ -317,25 +291,28 @@ public class InventoryService {
     public boolean deallocateItem(String itemId) {
         checkAdminOrStaffAccess("deallocate inventory items");
 
+        // Laptop/Equipment: only an Assigned item is released, in one conditional update
+        Document before = inventoryDAO.releaseItem(itemId, null);
+        if (before != null) {
+            String previousUser = before.getString("assignedToName");
+            if (previousUser == null || previousUser.isEmpty()) {
+                previousUser = "Unknown";
+            }
+            logAuditEntry(itemId, "DEALLOCATE",
+                    "Unassigned item from: " + previousUser);
+            return true;
+        }
+
         Document item = inventoryDAO.findById(itemId);
         if (item == null) {
             throw new IllegalArgumentException("Item not found: " + itemId);
         }
 
-        String itemType = item.getString("itemType");
-
         // For licenses, clear all users
-        if ("License".equals(itemType)) {
-            @SuppressWarnings("unchecked")
-            List<Document> assignedUsers = item.get("assignedUsers", List.class);
-            int userCount = assignedUsers != null ? assignedUsers.size() : 0;
-
-            Document update = new Document()
-                    .append("status", "Available")
-                    .append("assignedUsers", new ArrayList<Document>())
-                    .append("updatedAt", new Date());
+        if ("License".equals(item.getString("itemType"))) {
+            int userCount = seatCount(item);
 
-            UpdateResult result = inventoryDAO.updateItem(itemId, update);
+            UpdateResult result = inventoryDAO.clearLicenseSeats(itemId);
             if (result.getModifiedCount() > 0) {
                 logAuditEntry(itemId, "DEALLOCATE", "Removed all " + userCount + " users from license");
                 return true;
@@ -343,27 +320,7 @@ public class InventoryService {
             return false;
         }
 
-        // For Laptop/Equipment
-        String previousUser = item.getString("assignedToName");
-        if (previousUser == null || previousUser.isEmpty()) {
-            previousUser = "Unknown";
-        }
-
-        Document update = new Document()
-                .append("status", "Available")
-                .append("assignedToUserId", null)
-                .append("assignedToName", null)
-                .append("assignedDate", null)
-                .append("updatedAt", new Date());
-
-        UpdateResult result = inventoryDAO.updateItem(itemId, update);
-
-        if (result.getModifiedCount() > 0) {
-            logAuditEntry(itemId, "DEALLOCATE",
-                    "Unassigned item from: " + previousUser);
-            return true;
-        }
-        return false;
+        throw new IllegalStateException("Item is not currently assigned.");
     }
 
     /**
@@ -372,17 +329,12 @@ public class InventoryService {
     public boolean markUnderRepair(String itemId) {
         checkAdminOrStaffAccess("update inventory status");
 
-        Document update = new Document()
-                .append("status", "Under Repair")
-                .append("updatedAt", new Date());
-
-        UpdateResult result = inventoryDAO.updateItem(itemId, update);
-
-        if (result.getModifiedCount() > 0) {
-            logAuditEntry(itemId, "STATUS_CHANGE", "Marked item as Under Repair");
-            return true;
+        Document updated = inventoryDAO.changeStatus(itemId, List.of("Available", "Assigned"), "Under Repair", false);
+        if (updated == null) {
+            throw statusConflict(itemId, "Under Repair");
         }
-        return false;
+        logAuditEntry(itemId, "STATUS_CHANGE", "Marked item as Under Repair");
+        return true;
     }
 
     /**
@@ -391,19 +343,22 @@ public class InventoryService {
     public boolean markAvailable(String itemId) {
         checkAdminOrStaffAccess("update inventory status");
 
-        Document update = new Document()
-                .append("status", "Available")
-                .append("assignedToUserId", null)
-                .append("assignedToName", null)
-                .append("updatedAt", new Date());
-
-        UpdateResult result = inventoryDAO.updateItem(itemId, update);
+        Document updated = inventoryDAO.changeStatus(itemId, List.of("Under Repair"), "Available", true);
+        if (updated == null) {
+            throw statusConflict(itemId, "Available");
+        }
+        logAuditEntry(itemId, "STATUS_CHANGE", "Marked item as Available");
+        return true;
+    }
 
-        if (result.getModifiedCount() > 0) {
-            logAuditEntry(itemId, "STATUS_CHANGE", "Marked item as Available");
-            return true;
+    /** Exception for a status change whose expected current status did not match. */
+    private RuntimeException statusConflict(String itemId, String target) {
+        Document item = inventoryDAO.findById(itemId);
+        if (item == null) {
+            return new IllegalArgumentException("Item not found: " + itemId);
         }
-        return false;
+        return new IllegalStateException("Item cannot be marked " + target + " while it is "
+                + item.getString("status") + ".");
     }
 
     // === Query Methods ===
@@ -412,6 +367,16 @@ public class InventoryService {
         return inventoryDAO.findAllItems();
     }
 
+    /** Table rows only; use getItemById for the full item. */
+    public List<Document> listItemSummaries() {
+        return inventoryDAO.findAllItemSummaries();
+    }
+
+    /** One page of table rows by name; null filters are ignored. */
+    public KeysetPage listItemSummaryPage(String status, String itemType, String nameQuery, int limit, String pageToken) {
+        return inventoryDAO.findItemSummaryPage(status, itemType, nameQuery, limit, pageToken);
+    }
+
     public Document getItemById(String itemId) {
         return inventoryDAO.findById(itemId);
     }
@@ -488,66 +453,16 @@ public class InventoryService {
      * Get available items that the current user can request.
      * Students: Laptops and Licenses only
      * Staff/Professors: All types
-     * Note: Licenses are always shown (even if assigned) since they support
-     * multiple users.
+     * Note: Licenses are shown even if assigned, since they support multiple
+     * users, unless the user already holds a seat or every seat is taken.
+     * The filtering runs in the database (InventoryDAO.findRequestableItems).
      */
     public List<Document> getAvailableItemsForRequest() {
-        // Get all items, not just "Available" ones
-        List<Document> allItems = inventoryDAO.findAllItems();
-        List<String> currentUserRoles = AuthSession.getInstance().getRoles();
-        String currentUserId = getCurrentUserId();
-
-        boolean isStudent = currentUserRoles.contains("Student");
-
-        List<Document> result = new ArrayList<>();
-        for (Document item : allItems) {
-            String type = item.getString("itemType");
-            String status = item.getString("status");
-
-            // Skip items under repair
-            if ("Under Repair".equals(status)) {
-                continue;
-            }
-
-            // For Laptop/Equipment: only show if Available
-            if ("Laptop".equals(type) || "Equipment".equals(type)) {
-                if (!"Available".equals(status)) {
-                    continue;
-                }
-                // Students can't request Equipment
-                if (isStudent && "Equipment".equals(type)) {
-                    continue;
-                }
-            }
-
-            // For License: show even if Assigned (supports multiple users)
-            // But check if this user is already assigned
-            if ("License".equals(type)) {
-                @SuppressWarnings("unchecked")
-                List<Document> assignedUsers = item.get("assignedUsers", List.class);
-                if (assignedUsers != null) {
-                    boolean alreadyAssigned = false;
-                    for (Document user : assignedUsers) {
-                        if (currentUserId.equals(user.getString("userId"))) {
-                            alreadyAssigned = true;
-                            break;
-                        }
-                    }
-                    if (alreadyAssigned) {
-                        continue; // User already has this license
-                    }
-                }
-            }
-
-            // Students can only see Laptops and Licenses
-            if (isStudent && !"Laptop".equals(type) && !"License".equals(type)) {
-                continue;
-            }
+        boolean isStudent = AuthSession.getInstance().getRoles().contains("Student");
 
-            result.add(item);
-        }
-
-        return result;
+        // Students: Laptops and Licenses only; everyone else may also request Equipment
+        List<String> singleUserTypes = isStudent ? List.of("Laptop") : List.of("Laptop", "Equipment");
+        return inventoryDAO.findRequestableItems(getCurrentUserId(), singleUserTypes);
     }
 
     /**
@@ -657,21 +572,7 @@ public class InventoryService {
             throw new SecurityException("Only Admin can approve requests");
         }
 
-        Document request = requestDAO.findById(requestId);
-        if (request == null) {
-            throw new IllegalArgumentException("Request not found: " + requestId);
-        }
-
-        if (!"Pending".equals(request.getString("status"))) {
-            throw new IllegalStateException("This request has already been processed.");
-        }
-
-        String itemId = request.getString("itemId");
-        String requesterId = request.getString("requesterId");
-        String requesterName = request.getString("requesterName");
-        String itemType = request.getString("itemType");
-
-        // Update request status
+        // Claim the request: only one admin can move it out of Pending
         Document requestUpdate = new Document()
                 .append("status", "Approved")
                 .append("reviewedBy", getCurrentUserId())
@@ -679,21 +580,33 @@ public class InventoryService {
                 .append("reviewDate", new Date())
                 .append("reviewNotes", reviewNotes);
 
-        requestDAO.updateRequest(requestId, requestUpdate);
+        Document request = requestDAO.updateRequestIfStatus(requestId, "Pending", requestUpdate);
+        if (request == null) {
+            if (requestDAO.findById(requestId) == null) {
+                throw new IllegalArgumentException("Request not found: " + requestId);
+            }
+            throw new IllegalStateException("This request has already been processed.");
+        }
 
-        // Assign the item to the requester
-        if ("License".equals(itemType)) {
-            // For licenses, add user to the list
-            addUserToLicenseInternal(itemId, requesterId, requesterName);
-        } else {
-            // For Laptop/Equipment, single assignment
-            Document itemUpdate = new Document()
-                    .append("status", "Assigned")
-                    .append("assignedToUserId", requesterId)
-                    .append("assignedToName", requesterName)
-                    .append("assignedDate", new Date())
-                    .append("updatedAt", new Date());
-            inventoryDAO.updateItem(itemId, itemUpdate);
+        String itemId = request.getString("itemId");
+        String requesterId = request.getString("requesterId");
+        String requesterName = request.getString("requesterName");
+
+        // Assign the item to the requester; if that fails the request goes back to Pending
+        try {
+            if ("License".equals(request.getString("itemType"))) {
+                addUserToLicenseInternal(itemId, requesterId, requesterName);
+            } else if (inventoryDAO.assignItem(itemId, requesterId, requesterName) == null) {
+                throw new IllegalStateException("The item is no longer available.");
+            }
+        } catch (RuntimeException ex) {
+            requestDAO.updateRequestIfStatus(requestId, "Approved", new Document()
+                    .append("status", "Pending")
+                    .append("reviewedBy", null)
+                    .append("reviewerName", null)
+                    .append("reviewDate", null)
+                    .append("reviewNotes", null));
+            throw ex;
         }
 
         logAuditEntry(itemId, "REQUEST_APPROVED",
@@ -703,38 +616,71 @@ public class InventoryService {
     }
 
     /**
-     * Internal method to add user to license without re-validation.
+     * Internal method to add user to license without re-validation. A user who already holds a
+     * seat is left as is; a full license throws.
      */
     private void addUserToLicenseInternal(String itemId, String userId, String userName) {
+        if (inventoryDAO.addLicenseSeat(itemId, newSeat(userId, userName)) != null) {
+            return;
+        }
         Document item = inventoryDAO.findById(itemId);
-        if (item == null)
+        if (item == null || holdsSeat(item, userId)) {
             return;
+        }
+        explainRejectedSeat(itemId, userId, userName);
+    }
+
+    private static Document newSeat(String userId, String userName) {
+        return new Document()
+                .append("userId", userId)
+                .append("userName", userName)
+                .append("assignedDate", new Date());
+    }
 
+    /**
+     * Turns a seat update that matched nothing into the exception the caller expects.
+     */
+    private void explainRejectedSeat(String itemId, String userId, String userName) {
+        Document item = inventoryDAO.findById(itemId);
+        if (item == null) {
+            throw new IllegalArgumentException("Item not found: " + itemId);
+        }
+        if (!"License".equals(item.getString("itemType"))) {
+            throw new IllegalArgumentException(
+                    "This method is only for License items. Use allocateItem for Laptop/Equipment.");
+        }
+        if (holdsSeat(item, userId)) {
+            throw new IllegalStateException("User " + userName + " is already assigned to this license.");
+        }
+        Integer limit = item.getInteger("seatLimit");
+        if (limit != null && seatCount(item) >= limit) {
+            throw new IllegalStateException("All " + limit + " seats of this license are taken.");
+        }
+        throw new IllegalStateException("License changed while assigning; please try again.");
+    }
+
+    private static boolean holdsSeat(Document item, String userId) {
         @SuppressWarnings("unchecked")
         List<Document> assignedUsers = item.get("assignedUsers", List.class);
         if (assignedUsers == null) {
-            assignedUsers = new ArrayList<>();
+            return false;
         }
-
-        // Check if already assigned
         for (Document user : assignedUsers) {
             if (userId.equals(user.getString("userId"))) {
-                return; // Already assigned
+                return true;
             }
         }
+        return false;
+    }
 
-        Document newUser = new Document()
-                .append("userId", userId)
-                .append("userName", userName)
-                .append("assignedDate", new Date());
-        assignedUsers.add(newUser);
-
-        Document update = new Document()
-                .append("status", "Assigned")
-                .append("assignedUsers", assignedUsers)
-                .append("updatedAt", new Date());
-
-        inventoryDAO.updateItem(itemId, update);
+    /** seatCount of a license, or the size of assignedUsers for licenses not yet backfilled. */
+    private static int seatCount(Document item) {
+        Object count = item.get("seatCount");
+        if (count instanceof Number) {
+            return ((Number) count).intValue();
+        }
+        List<?> assignedUsers = item.get("assignedUsers", List.class);
+        return assignedUsers != null ? assignedUsers.size() : 0;
     }
 
     /**
@@ -749,15 +695,6 @@ public class InventoryService {
             throw new SecurityException("Only Admin can reject requests");
         }
 
-        Document request = requestDAO.findById(requestId);
-        if (request == null) {
-            throw new IllegalArgumentException("Request not found: " + requestId);
-        }
-
-        if (!"Pending".equals(request.getString("status"))) {
-            throw new IllegalStateException("This request has already been processed.");
-        }
-
         Document requestUpdate = new Document()
                 .append("status", "Rejected")
                 .append("reviewedBy", getCurrentUserId())
@@ -765,7 +702,13 @@ public class InventoryService {
                 .append("reviewDate", new Date())
                 .append("reviewNotes", reviewNotes);
 
-        requestDAO.updateRequest(requestId, requestUpdate);
+        Document request = requestDAO.updateRequestIfStatus(requestId, "Pending", requestUpdate);
+        if (request == null) {
+            if (requestDAO.findById(requestId) == null) {
+                throw new IllegalArgumentException("Request not found: " + requestId);
+            }
+            throw new IllegalStateException("This request has already been processed.");
+        }
 
         String itemId = request.getString("itemId");
         String requesterName = request.getString("requesterName");
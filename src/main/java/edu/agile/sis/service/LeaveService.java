@@ -1,12 +1,14 @@
 package edu.agile.sis.service;
 
+import edu.agile.sis.dao.KeysetPage;
 import edu.agile.sis.dao.LeaveDAO;
+import edu.agile.sis.db.DaoRegistry;
 import org.bson.Document;
 
 import java.util.List;
 
 public class LeaveService {
-    private final LeaveDAO dao = new LeaveDAO();
+    private final LeaveDAO dao = DaoRegistry.get(LeaveDAO.class);
 
    
     public Document createLeave(Document d) {
@@ -21,6 +23,16 @@ public class LeaveService {
         return dao.findAll();
     }
 
+    /** Table rows only; use getLeaveById for the full request. */
+    public List<Document> listAllLeaveSummaries() {
+        return dao.findAllSummaries();
+    }
+
+    /** One page of table rows, newest first; staffId null lists every staff member's requests. */
+    public KeysetPage listLeaveSummaryPage(String staffId, String status, String search, int limit, String pageToken) {
+        return dao.findSummaryPage(staffId, status, search, limit, pageToken);
+    }
+
 
     public List<Document> listLeavesForStaff(String staffId) {
         return dao.findByStaffId(staffId);
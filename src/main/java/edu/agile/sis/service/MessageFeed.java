@@ -0,0 +1,180 @@
+package edu.agile.sis.service;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import edu.agile.sis.config.ConfigManager;
+import edu.agile.sis.dao.MessageDAO;
+import edu.agile.sis.db.ChangeStreamWatcher;
+import edu.agile.sis.db.DBConnection;
+import edu.agile.sis.db.DaoRegistry;
+import org.bson.Document;
+
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * New messages of one participant as they arrive, so the messaging screens can append to the open
+ * thread and update their previews instead of reloading everything.
+ *
+ * Uses one change stream on messages, filtered on the server to inserts of this participant's
+ * threads. Where change streams are unavailable (a standalone mongod) or messages.changeStreams
+ * is false, it polls for createdAt > last seen every messages.pollIntervalSec (default 3).
+ * Each message is delivered once, on a background thread, in arrival order.
+ */
+public class MessageFeed {
+    /** Polls look this far behind the last message seen, for senders whose clocks lag. */
+    private static final long CLOCK_SLACK_MS = 5_000;
+    private static final int POLL_LIMIT = 200;
+    private static final int REMEMBERED_IDS = 1024;
+
+    private final String field;
+    private final String participantId;
+    private final Consumer<Document> listener;
+    private final MessageDAO dao;
+    private final MongoDatabase db;
+    private final long pollIntervalMs;
+    private final Set<String> recentIds = new LinkedHashSet<>();
+    private Date lastSeen;
+    private ChangeStreamWatcher watcher;
+    private ScheduledExecutorService poller;
+    private volatile boolean closed;
+
+    /** Messages of a student's threads (parents' threads are stored under their id as studentId too). */
+    public static MessageFeed forStudent(String studentId, Consumer<Document> listener) {
+        return create("studentId", studentId, listener);
+    }
+
+    /** Messages of a staff member's threads. */
+    public static MessageFeed forStaff(String staffId, Consumer<Document> listener) {
+        return create("staffId", staffId, listener);
+    }
+
+    private static MessageFeed create(String field, String id, Consumer<Document> listener) {
+        ConfigManager cfg = ConfigManager.getInstance();
+        boolean streams = Boolean.parseBoolean(cfg.get("messages.changeStreams", "true").trim());
+        long interval;
+        try {
+            interval = Long.parseLong(cfg.get("messages.pollIntervalSec", "3").trim()) * 1000;
+        } catch (NumberFormatException ex) {
+            interval = 3000;
+        }
+        return new MessageFeed(field, id, listener, DaoRegistry.get(MessageDAO.class),
+                streams ? DBConnection.getInstance().getDatabase() : null, interval);
+    }
+
+    /**
+     * @param db database to open the change stream on, or null to poll only
+     */
+    MessageFeed(String field, String participantId, Consumer<Document> listener, MessageDAO dao,
+                MongoDatabase db, long pollIntervalMs) {
+        this.field = field;
+        this.participantId = participantId;
+        this.listener = listener;
+        this.dao = dao;
+        this.db = db;
+        this.pollIntervalMs = pollIntervalMs;
+    }
+
+    /** Starts delivering messages created from now on. */
+    public synchronized void start() {
+        if (closed || lastSeen != null || participantId == null || participantId.isBlank()) return;
+        lastSeen = new Date();
+        if (db == null) {
+            startPolling();
+            return;
+        }
+        watcher = new ChangeStreamWatcher("message-feed", db, "messages", List.of(Aggregates.match(Filters.and(
+                Filters.eq("operationType", "insert"),
+                Filters.eq("fullDocument." + field, participantId)))),
+                new ChangeStreamWatcher.Listener() {
+                    @Override
+                    public void onChange(ChangeStreamDocument<Document> event) {
+                        if (event.getFullDocument() != null) deliver(event.getFullDocument());
+                    }
+
+                    @Override
+                    public void onGap() {
+                        pollOnce();
+                    }
+
+                    @Override
+                    public void onUnsupported(MongoException cause) {
+                        startPolling();
+                    }
+                });
+        watcher.start();
+    }
+
+    public synchronized void close() {
+        closed = true;
+        if (watcher != null) watcher.stop();
+        if (poller != null) poller.shutdownNow();
+    }
+
+    /** True once the feed fell back to (or was configured for) polling. */
+    public synchronized boolean isPolling() {
+        return poller != null;
+    }
+
+    private synchronized void startPolling() {
+        if (closed || poller != null) return;
+        poller = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "message-feed-poll");
+            t.setDaemon(true);
+            return t;
+        });
+        poller.scheduleWithFixedDelay(this::pollOnce, pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /** Reads and delivers the messages newer than the last one seen (minus the clock slack). */
+    void pollOnce() {
+        Date after;
+        synchronized (this) {
+            if (closed || lastSeen == null) return;
+            after = new Date(lastSeen.getTime() - CLOCK_SLACK_MS);
+        }
+        try {
+            List<Document> batch;
+            Date before;
+            do {
+                before = after;
+                batch = dao.findNewerThan(field, participantId, after, POLL_LIMIT);
+                for (Document m : batch) {
+                    deliver(m);
+                    Date created = m.getDate("createdAt");
+                    if (created != null && created.after(after)) after = created;
+                }
+            } while (batch.size() == POLL_LIMIT && after.after(before) && !closed);
+        } catch (RuntimeException ex) {
+            System.err.println("[MessageFeed] poll failed: " + ex.getMessage());
+        }
+    }
+
+    synchronized void deliver(Document message) {
+        if (closed) return;
+        Object id = message.get("_id");
+        if (id != null && !recentIds.add(id.toString())) return;
+        if (recentIds.size() > REMEMBERED_IDS) {
+            Iterator<String> it = recentIds.iterator();
+            it.next();
+            it.remove();
+        }
+        Date created = message.getDate("createdAt");
+        if (created != null && (lastSeen == null || created.after(lastSeen))) lastSeen = created;
+        try {
+            listener.accept(message);
+        } catch (RuntimeException ex) {
+            System.err.println("[MessageFeed] listener failed: " + ex.getMessage());
+        }
+    }
+}
@@ -1,6 +1,9 @@
 package edu.agile.sis.service;
 
+import edu.agile.sis.dao.KeysetPage;
 import edu.agile.sis.dao.MessageDAO;
+import edu.agile.sis.db.DaoRegistry;
+import edu.agile.sis.db.IdPolicy;
 import org.bson.Document;
 
 import java.util.*;
@@ -9,11 +12,11 @@ import java.util.stream.Collectors;
 
 public class MessageService {
 
-    private final MessageDAO dao = new MessageDAO();
+    private final MessageDAO dao = DaoRegistry.get(MessageDAO.class);
     private final ConversationService convService = new ConversationService();
 
-    
-    public void sendMessage(String studentId, String staffId, String senderId, String body) {
+    /** Stores a message and returns it as inserted (with its _id). */
+    public Document sendMessage(String studentId, String staffId, String senderId, String body) {
         if (studentId == null || studentId.isBlank() ||
                 staffId == null || staffId.isBlank() ||
                 senderId == null || senderId.isBlank() ||
@@ -35,6 +38,7 @@ public class MessageService {
                 .append("read", false);
 
         dao.insertMessage(doc);
+        return doc;
     }
 
    
@@ -50,6 +54,10 @@ public class MessageService {
 
         
         String threadId = convService.buildThreadId(studentId, staffId);
+        if (IdPolicy.isStrict()) {
+            // ids are canonical: one query on threadId, already unique and in order
+            return convService.getMessagesForThread(threadId, studentId, staffId);
+        }
         List<Document> raw;
         try {
             raw = convService.getMessagesForThread(threadId, studentId, staffId);
@@ -80,6 +88,21 @@ public class MessageService {
         return out;
     }
 
+    /**
+     * One page of a thread for display: the latest limit messages (token null), then with the
+     * returned token the ones before them, for "load older" on scroll. Messages are oldest first
+     * within the page.
+     */
+    public KeysetPage getThreadPage(String studentId, String staffId, int limit, String token) {
+        if (studentId == null || studentId.isBlank() || staffId == null || staffId.isBlank()) {
+            return new KeysetPage(Collections.emptyList(), null);
+        }
+        KeysetPage page = dao.findThreadPage(convService.buildThreadId(studentId, staffId), studentId, staffId, limit, token);
+        List<Document> items = new ArrayList<>(page.getItems());
+        Collections.reverse(items);
+        return new KeysetPage(items, page.getNextToken());
+    }
+
     
     public List<Document> getByStudent(String studentId) {
         if (studentId == null || studentId.isBlank()) return Collections.emptyList();
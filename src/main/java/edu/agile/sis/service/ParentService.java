@@ -1,8 +1,10 @@
 package edu.agile.sis.service;
 
+import edu.agile.sis.dao.AssignmentDAO;
 import edu.agile.sis.dao.SubmissionDAO;
 import edu.agile.sis.dao.UserDAO;
 import edu.agile.sis.model.Grade;
+import edu.agile.sis.db.DaoRegistry;
 
 import org.bson.Document;
 
@@ -11,15 +13,15 @@ import java.time.*;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.*;
-import org.bson.types.ObjectId;
 
 
 public class ParentService {
 
-    private final UserDAO userDAO = new UserDAO();
-    private final SubmissionDAO submissionDAO = new SubmissionDAO();
+    private final UserDAO userDAO = DaoRegistry.get(UserDAO.class);
+    private final SubmissionDAO submissionDAO = DaoRegistry.get(SubmissionDAO.class);
     private final CourseService courseService = new CourseService();
-    private final AssignmentService assignmentService = new AssignmentService();
+    private final AssignmentDAO assignmentDAO = DaoRegistry.get(AssignmentDAO.class);
+    private final GradebookService gradebookService = new GradebookService();
 
     public List<Document> getLinkedStudents(String parentId) {
         return userDAO.getStudentsForParent(parentId);
@@ -30,6 +32,18 @@ public List<Grade> getGradesForStudentFromSubmissions(String studentId) {
     List<Document> subs = submissionDAO.listByStudent(studentId);
     if (subs == null) subs = new ArrayList<>();
 
+    // resolve every referenced assignment with one $in query instead of one lookup per submission
+    Set<String> assignmentIds = new LinkedHashSet<>();
+    for (Document s : subs) addIfNotBlank(assignmentIds, asString(s.get("assignmentId")));
+    Map<String, Document> assignmentsById = new HashMap<>();
+    if (!assignmentIds.isEmpty()) {
+        try {
+            for (Document a : assignmentDAO.findByIds(assignmentIds)) {
+                if (a.get("_id") != null) assignmentsById.put(a.get("_id").toString(), a);
+            }
+        } catch (Throwable ignored) {}
+    }
+
    
     Map<String, List<Document>> groups = new LinkedHashMap<>();
 
@@ -53,7 +67,7 @@ public List<Grade> getGradesForStudentFromSubmissions(String studentId) {
 
         
         if ((subjectId == null || subjectId.isBlank()) && assignmentId != null && !assignmentId.isBlank()) {
-            String resolved = tryResolveAssignmentToCourseCode(assignmentId);
+            String resolved = courseCodeOf(assignmentsById.get(assignmentId));
             if (resolved != null && !resolved.isBlank()) subjectId = resolved;
         }
 
@@ -128,7 +142,7 @@ public List<Grade> getGradesForStudentFromSubmissions(String studentId) {
                 Object aid = d.get("assignmentId");
                 if (aid != null) {
                     try {
-                        Document a = assignmentService.getById(asString(aid));
+                        Document a = assignmentsById.get(asString(aid));
                         if (a != null) atype = firstNonBlank(asString(a.get("type")), asString(a.get("category")), asString(a.get("title")));
                     } catch (Throwable ignored) {}
                 }
@@ -228,237 +242,19 @@ public List<Grade> getGradesForStudentFromSubmissions(String studentId) {
    
 public List<Grade> getAggregatedGradesForStudent(String studentId) {
     if (studentId == null || studentId.isBlank()) return Collections.emptyList();
-
-    SubmissionService submissionServiceLocal = new SubmissionService();
-    AssignmentService assignmentServiceLocal = new AssignmentService();
-    QuizService quizServiceLocal = new QuizService(); 
-    List<Document> subs = submissionServiceLocal.listByStudent(studentId);
-    if (subs == null) subs = Collections.emptyList();
-
-   
-    final double BUCKET_FINAL_MAX  = 60.0;
-    final double BUCKET_QUIZ_MAX   = 20.0;
-    final double BUCKET_ASSIGN_MAX = 20.0;
-
-    class BucketSums {
-        double rawSum = 0.0;      
-        String subjectName = null;
-        Double credits = null;
-    }
-
-
-    Map<String, Map<String, BucketSums>> data = new LinkedHashMap<>();
-    
-    
-    
-    
-    
-    
-    
-    
-    
-    
-    
-    
-
-class Contrib {
-    String subjectKey;
-    String subjectName;
-    Double credits;
-    String bucket; 
-    double amount;
-
-    Contrib(String subjectKey, String subjectName, Double credits, String bucket, double amount) {
-        this.subjectKey = subjectKey;
-        this.subjectName = subjectName;
-        this.credits = credits;
-        this.bucket = bucket;
-        this.amount = amount;
-    }
+    return gradebookService.getGrades(studentId);
 }
 
-
-java.util.function.BiConsumer<Contrib, String> addContrib = (contrib, fallbackSubjectKey) -> {
-    String subjectKey = contrib.subjectKey;
-    if (subjectKey == null || subjectKey.isBlank())
-        subjectKey = (fallbackSubjectKey == null ? "unknown" : fallbackSubjectKey);
-
-    Map<String, BucketSums> subjMap =
-            data.computeIfAbsent(subjectKey, k -> new HashMap<>());
-
-    BucketSums bs = subjMap.computeIfAbsent(contrib.bucket, k -> new BucketSums());
-
-    if (bs.subjectName == null && contrib.subjectName != null)
-        bs.subjectName = contrib.subjectName;
-
-    if (bs.credits == null && contrib.credits != null)
-        bs.credits = contrib.credits;
-
-    bs.rawSum += contrib.amount;
-};
-
-
-    
-    for (Document s : subs) {
-
-        String subjectKey = firstNonBlank(asString(s.get("courseCode")),
-                                          asString(s.get("subjectId")),
-                                          asString(s.get("subjectCode")),
-                                          asString(s.get("course")));
-        String subjectName = firstNonBlank(asString(s.get("subjectName")), asString(s.get("courseName")), asString(s.get("title")));
-        Double credits = extractCredits(s);
-
-        
-        String atype = firstNonBlank(asString(s.get("type")),
-                                     asString(s.get("itemType")),
-                                     asString(s.get("category")),
-                                     asString(s.get("title")));
-        if ((atype == null || atype.isBlank()) && s.containsKey("assignmentId")) {
-            try {
-                Document a = assignmentServiceLocal.getById(asString(s.get("assignmentId")));
-                if (a != null) atype = firstNonBlank(asString(a.get("type")), asString(a.get("category")), asString(a.get("title")));
-                if ((subjectKey == null || subjectKey.isBlank()) && a != null) {
-                    String resolved = firstNonBlank(asString(a.get("courseCode")), asString(a.get("subjectId")));
-                    if (resolved != null && !resolved.isBlank()) subjectKey = resolved;
-                }
-            } catch (Throwable ignored) {}
-        }
-
-        String lower = atype == null ? "" : atype.toLowerCase(Locale.ROOT);
-        String bucket;
-        if (lower.contains("final") || lower.contains("exam") || lower.contains("midterm") || lower.contains("overall")) bucket = "final";
-        else if (lower.contains("quiz") || lower.contains("test")) bucket = "quiz";
-        else if (lower.contains("assign") || lower.contains("homework") || lower.contains("project")) bucket = "assign";
-        else bucket = s.containsKey("assignmentId") ? "assign" : "assign";
-
-       
-        Double numericValue = null;
-        Number sc = asNumber(s.get("score"));
-        if (sc == null) sc = asNumber(s.get("points"));
-        if (sc != null) numericValue = sc.doubleValue();
-
-        if (numericValue == null) {
-            Number gnum = asNumber(s.get("grade"));
-            if (gnum != null) numericValue = gnum.doubleValue();
-        }
-        if (numericValue == null) {
-            Number perc = asNumber(s.get("percentage"));
-            if (perc == null) perc = asNumber(s.get("percent"));
-            if (perc != null) numericValue = perc.doubleValue();
-        }
-      
-        if (numericValue == null) {
-            Object gv = s.get("grade");
-            if (gv instanceof Document) {
-                Number maybe = asNumber(((Document) gv).get("score"));
-                if (maybe == null) maybe = asNumber(((Document) gv).get("value"));
-                if (maybe == null) maybe = asNumber(((Document) gv).get("points"));
-                if (maybe != null) numericValue = maybe.doubleValue();
-            }
-        }
-        if (numericValue == null) numericValue = 0.0;
-
-        
-        double bucketMax = "final".equals(bucket) ? BUCKET_FINAL_MAX : ("quiz".equals(bucket) ? BUCKET_QUIZ_MAX : BUCKET_ASSIGN_MAX);
-
-        double contribAmount = Math.min(numericValue, bucketMax);
-
-      
-        if ((subjectKey == null || subjectKey.isBlank()) && s.containsKey("assignmentId")) {
-            String resolved = tryResolveAssignmentToCourseCode(asString(s.get("assignmentId")));
-            if (resolved != null) subjectKey = resolved;
-        }
-
-        Contrib c = new Contrib(subjectKey, subjectName, credits, bucket, contribAmount);
-        addContrib.accept(c, "unknown");
-    }
-
-
-    try {
-        List<Document> attempts = quizServiceLocal.listAttemptsForStudent(studentId);
-        if (attempts != null) {
-            for (Document at : attempts) {
-                
-                Number nScore = asNumber(at.get("score"));
-                if (nScore == null) {
-            
-                    continue;
-                }
-
-                double attemptValue = nScore.doubleValue();
-                
-                double amount = Math.min(attemptValue, BUCKET_QUIZ_MAX);
-
-               
-                String subjectKey = firstNonBlank(asString(at.get("courseCode")), asString(at.get("course")), asString(at.get("subjectId")));
-                if ((subjectKey == null || subjectKey.isBlank())) {
-                    
-                    Object qidObj = at.get("quizId");
-                    String qidStr = null;
-                    if (qidObj instanceof ObjectId) qidStr = ((ObjectId) qidObj).toHexString();
-                    else if (qidObj != null) qidStr = qidObj.toString();
-                    if (qidStr != null) {
-                        try {
-                            Document quizDoc = quizServiceLocal.getQuizById(qidStr);
-                            if (quizDoc != null) {
-                                String resolved = firstNonBlank(asString(quizDoc.get("courseCode")), asString(quizDoc.get("subjectId")));
-                                if (resolved != null && !resolved.isBlank()) subjectKey = resolved;
-                            }
-                        } catch (Throwable ignored) {}
-                    }
-                }
-
-                String subjectName = firstNonBlank(asString(at.get("courseName")), asString(at.get("title")));
-                Double credits = extractCredits(at);
-
-                Contrib c = new Contrib(subjectKey, subjectName, credits, "quiz", amount);
-                addContrib.accept(c, "unknown");
-            }
-        }
-    } catch (Throwable t) {
-       
-        System.err.println("[ParentService] quiz attempts inclusion failed: " + t.getMessage());
-    }
-
-
-    List<Grade> out = new ArrayList<>();
-    for (Map.Entry<String, Map<String, BucketSums>> ent : data.entrySet()) {
-        String subjectKey = ent.getKey();
-        Map<String, BucketSums> buckets = ent.getValue();
-
-        double finalBucket = 0.0;
-        double assignBucket = 0.0;
-        double quizBucket = 0.0;
-
-        BucketSums bFinal = buckets.get("final");
-        BucketSums bQuiz  = buckets.get("quiz");
-        BucketSums bAssign= buckets.get("assign");
-
-        if (bFinal != null)  finalBucket  = Math.min(bFinal.rawSum,  BUCKET_FINAL_MAX);
-        if (bQuiz != null)   quizBucket   = Math.min(bQuiz.rawSum,   BUCKET_QUIZ_MAX);
-        if (bAssign != null) assignBucket = Math.min(bAssign.rawSum, BUCKET_ASSIGN_MAX);
-
-        double finalNumeric = finalBucket + quizBucket + assignBucket; // 0..100
-
-       
-        String subjectName = null;
-        Double credits = 1.0;
-        if (bFinal != null && bFinal.subjectName != null) { subjectName = bFinal.subjectName; credits = bFinal.credits == null ? credits : bFinal.credits; }
-        if (subjectName == null && bAssign != null && bAssign.subjectName != null) { subjectName = bAssign.subjectName; credits = bAssign.credits == null ? credits : bAssign.credits; }
-        if (subjectName == null && bQuiz != null && bQuiz.subjectName != null) { subjectName = bQuiz.subjectName; credits = bQuiz.credits == null ? credits : bQuiz.credits; }
-        if (subjectName == null) subjectName = subjectKey;
-
-        String gradeValStr = String.format(Locale.ROOT, "%.2f", finalNumeric);
-        out.add(new Grade(subjectKey, subjectName, gradeValStr, credits));
-    }
-
-    out.sort(Comparator.comparing(Grade::getSubjectName, Comparator.nullsLast(String::compareToIgnoreCase)));
-    return out;
+/**
+ * Grade of one course from the materialized gradebook, or null when nothing is recorded.
+ */
+public Grade getGradeForCourse(String studentId, String courseCode) {
+    return gradebookService.getGradeForCourse(studentId, courseCode);
 }
 
 
 
-private static void addIfNotBlank(List<String> list, String s) {
+private static void addIfNotBlank(Collection<String> list, String s) {
     if (s != null && !s.isBlank()) list.add(s);
 }
 
@@ -467,18 +263,10 @@ private static void addIfNotBlank(List<String> list, String s) {
   
 
 
-    private String tryResolveAssignmentToCourseCode(String assignmentId) {
-        if (assignmentId == null) return null;
-        try {
-            Document a = assignmentService.getById(assignmentId);
-            if (a != null) {
-                String courseCode = firstNonBlank(asString(a.get("courseCode")), asString(a.get("subjectId")), asString(a.get("course")));
-                if (courseCode != null && !courseCode.isBlank()) return courseCode;
-            }
-        } catch (Throwable t) {
-         
-        }
-        return null;
+    private static String courseCodeOf(Document a) {
+        if (a == null) return null;
+        String courseCode = firstNonBlank(asString(a.get("courseCode")), asString(a.get("subjectId")), asString(a.get("course")));
+        return courseCode == null || courseCode.isBlank() ? null : courseCode;
     }
 
     private static String firstNonBlank(String... v) {
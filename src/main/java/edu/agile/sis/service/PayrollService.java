@@ -1,6 +1,7 @@
 package edu.agile.sis.service;
 
 import edu.agile.sis.dao.PayrollDAO;
+import edu.agile.sis.db.DaoRegistry;
 import org.bson.Document;
 
 import java.io.File;
@@ -9,7 +10,7 @@ import java.util.List;
 import java.util.UUID;
 
 public class PayrollService {
-    private final PayrollDAO dao = new PayrollDAO();
+    private final PayrollDAO dao = DaoRegistry.get(PayrollDAO.class);
 
 
     public boolean createPayroll(String staffId, Document doc) {
@@ -78,4 +79,9 @@ public List<Document> listAllPayroll() {
     return dao.findAll(); 
 }
 
+    /** Table rows only; use getPayslipById for the full payslip. */
+    public List<Document> listAllPayrollSummaries() {
+        return dao.findAllSummaries();
+    }
+
 }
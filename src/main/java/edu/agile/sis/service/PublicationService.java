@@ -2,6 +2,7 @@ package edu.agile.sis.service;
 
 import edu.agile.sis.dao.PublicationDAO;
 import edu.agile.sis.security.AuthSession;
+import edu.agile.sis.db.DaoRegistry;
 import org.bson.Document;
 import org.bson.types.ObjectId;
 
@@ -15,7 +16,7 @@ import java.util.List;
  * Professors can add, edit, delete, and publish their research papers.
  */
 public class PublicationService {
-    private final PublicationDAO publicationDAO = new PublicationDAO();
+    private final PublicationDAO publicationDAO = DaoRegistry.get(PublicationDAO.class);
 
     /**
      * Create a new publication. Only professors/lecturers can create.
@@ -2,6 +2,7 @@ package edu.agile.sis.service;
 
 import edu.agile.sis.dao.QuizAttemptDAO;
 import edu.agile.sis.dao.QuizDAO;
+import edu.agile.sis.db.DaoRegistry;
 import org.bson.Document;
 import org.bson.types.ObjectId;
 
@@ -16,9 +17,10 @@ import java.util.*;
  * - gradeAttempt recalculates percent using maxScore
  */
 public class QuizService {
-    private final QuizDAO quizDAO = new QuizDAO();
-    private final QuizAttemptDAO attemptDAO = new QuizAttemptDAO();
+    private final QuizDAO quizDAO = DaoRegistry.get(QuizDAO.class);
+    private final QuizAttemptDAO attemptDAO = DaoRegistry.get(QuizAttemptDAO.class);
     private final EntityService entityService = new EntityService("students");
+    private final GradebookService gradebookService = new GradebookService();
 
     public QuizService() {}
 
@@ -123,7 +125,9 @@ public boolean hasAttempt(String quizId, String studentId) {
                 .append("grader", null)
                 .append("feedback", null);
 
-        return attemptDAO.insert(attempt);
+        String id = attemptDAO.insert(attempt);
+        gradebookService.recordAttempt(attempt, quiz);
+        return id;
     }
 
     public List<Document> listAttemptsForQuiz(String quizId) {
@@ -168,6 +172,11 @@ public boolean hasAttempt(String quizId, String studentId) {
                 .append("graded", true)
                 .append("gradedAt", new Date());
 
-        return attemptDAO.update(attemptId, upd);
+        boolean ok = attemptDAO.update(attemptId, upd);
+        if (ok) {
+            existing.putAll(upd);
+            gradebookService.recordAttempt(existing, null);
+        }
+        return ok;
     }
 }
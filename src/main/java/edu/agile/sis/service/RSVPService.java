@@ -2,6 +2,7 @@ package edu.agile.sis.service;
 
 import edu.agile.sis.dao.EventDAO;
 import edu.agile.sis.dao.RSVPDAO;
+import edu.agile.sis.db.DaoRegistry;
 import org.bson.Document;
 
 import java.util.List;
@@ -11,8 +12,8 @@ import java.util.List;
  */
 public class RSVPService {
 
-    private final RSVPDAO rsvpDAO = new RSVPDAO();
-    private final EventDAO eventDAO = new EventDAO();
+    private final RSVPDAO rsvpDAO = DaoRegistry.get(RSVPDAO.class);
+    private final EventDAO eventDAO = DaoRegistry.get(EventDAO.class);
 
     /**
      * RSVP a student to an event
@@ -0,0 +1,67 @@
+package edu.agile.sis.service;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Weekly recurrence for room reservations: the first booking repeated every week for a number of
+ * occurrences, minus excluded dates (holidays, exam weeks). As in iCalendar, excluded dates count
+ * towards the number of occurrences, so "15 weeks except reading week" ends in the 15th week.
+ *
+ * Occurrences keep their local wall-clock time across daylight-saving changes.
+ */
+public class RecurrenceRule {
+    /** A semester of weekly bookings is ~15; this keeps a typo from booking a room for decades. */
+    public static final int MAX_OCCURRENCES = 104;
+
+    private final int occurrences;
+    private final Set<LocalDate> excludedDates;
+    private final ZoneId zone;
+
+    public RecurrenceRule(int occurrences, Collection<LocalDate> excludedDates) {
+        this(occurrences, excludedDates, ZoneId.systemDefault());
+    }
+
+    public RecurrenceRule(int occurrences, Collection<LocalDate> excludedDates, ZoneId zone) {
+        if (occurrences < 1 || occurrences > MAX_OCCURRENCES) {
+            throw new IllegalArgumentException("occurrences must be between 1 and " + MAX_OCCURRENCES);
+        }
+        this.occurrences = occurrences;
+        this.excludedDates = excludedDates == null ? Set.of() : new HashSet<>(excludedDates);
+        this.zone = zone;
+    }
+
+    public int getOccurrences() { return occurrences; }
+
+    public Set<LocalDate> getExcludedDates() { return excludedDates; }
+
+    /**
+     * Start/end pairs of every occurrence, in order, starting with [start, end) itself unless its
+     * date is excluded. The booking must be shorter than a week so occurrences cannot overlap.
+     */
+    public List<Date[]> expand(Date start, Date end) {
+        if (start == null || end == null || !end.after(start)) {
+            throw new IllegalArgumentException("end must be after start");
+        }
+        long duration = end.getTime() - start.getTime();
+        if (duration >= 7L * 24 * 3600 * 1000) {
+            throw new IllegalArgumentException("a weekly booking must be shorter than a week");
+        }
+        ZonedDateTime first = ZonedDateTime.ofInstant(start.toInstant(), zone);
+        ZonedDateTime firstEnd = ZonedDateTime.ofInstant(end.toInstant(), zone);
+        List<Date[]> out = new ArrayList<>();
+        for (int week = 0; week < occurrences; week++) {
+            ZonedDateTime s = first.plusWeeks(week);
+            if (excludedDates.contains(s.toLocalDate())) continue;
+            out.add(new Date[] { Date.from(s.toInstant()), Date.from(firstEnd.plusWeeks(week).toInstant()) });
+        }
+        return out;
+    }
+}
@@ -0,0 +1,31 @@
+package edu.agile.sis.service;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Outcome of ReservationService.createRecurringReservation. A series is booked as a whole: either
+ * every occurrence was created (ids in occurrence order) or none was, and conflicts lists the
+ * starts of the occurrences that clashed with existing bookings (empty if the claim was lost to a
+ * concurrent booking that could not be pinned to one occurrence).
+ */
+public class RecurringBooking {
+    private final String seriesId;
+    private final List<String> createdIds;
+    private final List<Date> conflicts;
+
+    RecurringBooking(String seriesId, List<String> createdIds, List<Date> conflicts) {
+        this.seriesId = seriesId;
+        this.createdIds = createdIds;
+        this.conflicts = conflicts;
+    }
+
+    public boolean isBooked() { return !createdIds.isEmpty(); }
+
+    /** Shared "seriesId" of the created reservations; null if nothing was booked. */
+    public String getSeriesId() { return seriesId; }
+
+    public List<String> getCreatedIds() { return createdIds; }
+
+    public List<Date> getConflicts() { return conflicts; }
+}
@@ -1,15 +1,34 @@
 package edu.agile.sis.service;
 
 import com.mongodb.client.result.UpdateResult;
+import edu.agile.sis.dao.KeysetPage;
 import edu.agile.sis.dao.ReservationDAO;
+import edu.agile.sis.dao.RoomSlotDAO;
 import edu.agile.sis.security.AuthSession;
+import edu.agile.sis.db.DaoRegistry;
 import org.bson.Document;
+import org.bson.types.ObjectId;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+/**
+ * Room reservations. Conflicts are checked against the in-memory RoomSchedules first; a booking is
+ * only stored after RoomSlotDAO has claimed its time slot, so two overlapping bookings can never
+ * both be saved, even when made from different clients at the same moment. Reservations stored
+ * before slot claims existed get theirs from ClaimLegacyReservations.
+ */
 public class ReservationService {
-    private final ReservationDAO reservationDAO = new ReservationDAO();
+    private final ReservationDAO reservationDAO = DaoRegistry.get(ReservationDAO.class);
+    private final RoomSlotDAO slotDAO = DaoRegistry.get(RoomSlotDAO.class);
+    private final RoomSchedules schedules = RoomSchedules.getInstance();
+    /** Bookings that ended longer ago than this are not loaded into RoomSchedules. */
+    private static final long SCHEDULE_MARGIN_MS = 60 * 60 * 1000;
 
     /**
      * Create a reservation.
@@ -19,38 +38,144 @@ public class ReservationService {
      */
     public String createReservation(String roomId, Date start, Date end, String createdBy, String purpose){
         // allow Admin/Professor/TA/Staff to create bookings
-        boolean allowed = AuthSession.getInstance().hasRole("Admin")
-                || AuthSession.getInstance().hasRole("Professor")
-                || AuthSession.getInstance().hasRole("TA")
-                || AuthSession.getInstance().hasRole("Staff")
-                || AuthSession.getInstance().hasRole("Lecturer");
-        if (!allowed) {
+        if (!canBook()) {
             throw new SecurityException("Insufficient privileges to create reservation");
         }
 
         // Conflict check: admins can create even if overlap? (we keep conflict check for all)
-        List<Document> conflicts = reservationDAO.findOverlapping(roomId, start, end);
-        if (!conflicts.isEmpty()) return null; // conflict exists
+        if (schedules.hasConflict(roomId, start, end, null, this::loadRoom)) return null;
+
+        // Claim the slot before storing; losing the claim means someone else just booked it
+        ObjectId id = new ObjectId();
+        ObjectId claim = new ObjectId();
+        if (!slotDAO.claim(roomId, start, end, id.toHexString(), claim)) {
+            schedules.invalidate(roomId);
+            return null;
+        }
 
         String status = AuthSession.getInstance().hasRole("Admin") ? "confirmed" : "pending";
 
-        Document doc = new Document("roomId", roomId)
+        Document doc = new Document("_id", id)
+                .append("roomId", roomId)
                 .append("start", start)
                 .append("end", end)
                 .append("createdBy", createdBy)
                 .append("purpose", purpose)
                 .append("status", status)
+                .append("slotClaim", claim)
                 .append("createdAt", new Date())
                 .append("updatedAt", new Date());
-        reservationDAO.insertReservation(doc);
-        Object idObj = doc.get("_id");
-        if (idObj instanceof org.bson.types.ObjectId) {
-            return ((org.bson.types.ObjectId) idObj).toHexString();
-        } else if (idObj != null) {
-            return idObj.toString();
-        } else {
-            return null;
+        try {
+            reservationDAO.insertReservation(doc);
+        } catch (RuntimeException ex) {
+            slotDAO.release(roomId, start, end, claim);
+            throw ex;
+        }
+        schedules.put(roomId, id.toHexString(), start, end);
+        return id.toHexString();
+    }
+
+    /**
+     * Books a weekly series (e.g. a lab slot for the whole semester) as a whole: every occurrence
+     * of rule, starting with [firstStart, firstEnd), is checked against the room schedule, the
+     * slots are claimed in one bulk write and the reservations stored with one insertMany. If any
+     * occurrence conflicts nothing is booked and the result lists the clashing occurrences.
+     */
+    public RecurringBooking createRecurringReservation(String roomId, Date firstStart, Date firstEnd,
+                                                       RecurrenceRule rule, String createdBy, String purpose) {
+        if (!canBook()) {
+            throw new SecurityException("Insufficient privileges to create reservation");
+        }
+
+        List<Date[]> occurrences = rule.expand(firstStart, firstEnd);
+        List<Date> conflicts = new ArrayList<>();
+        for (Date[] o : occurrences) {
+            if (schedules.hasConflict(roomId, o[0], o[1], null, this::loadRoom)) conflicts.add(o[0]);
+        }
+        if (!conflicts.isEmpty() || occurrences.isEmpty()) {
+            return new RecurringBooking(null, List.of(), conflicts);
+        }
+
+        List<String> ids = new ArrayList<>();
+        List<ObjectId> claims = new ArrayList<>();
+        for (int i = 0; i < occurrences.size(); i++) {
+            ids.add(new ObjectId().toHexString());
+            claims.add(new ObjectId());
+        }
+        if (!slotDAO.claimAll(roomId, occurrences, ids, claims)) {
+            schedules.invalidate(roomId);
+            return new RecurringBooking(null, List.of(), List.of());
+        }
+
+        String status = AuthSession.getInstance().hasRole("Admin") ? "confirmed" : "pending";
+        String seriesId = new ObjectId().toHexString();
+        Date now = new Date();
+        List<Document> docs = new ArrayList<>();
+        for (int i = 0; i < occurrences.size(); i++) {
+            docs.add(new Document("_id", new ObjectId(ids.get(i)))
+                    .append("roomId", roomId)
+                    .append("start", occurrences.get(i)[0])
+                    .append("end", occurrences.get(i)[1])
+                    .append("createdBy", createdBy)
+                    .append("purpose", purpose)
+                    .append("status", status)
+                    .append("seriesId", seriesId)
+                    .append("slotClaim", claims.get(i))
+                    .append("createdAt", now)
+                    .append("updatedAt", now));
+        }
+        try {
+            reservationDAO.insertReservations(docs);
+        } catch (RuntimeException ex) {
+            for (Document d : docs) releaseClaim(d);
+            throw ex;
+        }
+        for (int i = 0; i < occurrences.size(); i++) {
+            schedules.put(roomId, ids.get(i), occurrences.get(i)[0], occurrences.get(i)[1]);
+        }
+        return new RecurringBooking(seriesId, ids, List.of());
+    }
+
+    /**
+     * The first limit free windows of the given length in any of roomIds within [from, to), earliest
+     * first. Each gap between bookings yields one window, starting where the gap starts; results are
+     * documents with roomId, start and end.
+     */
+    public List<Document> findFreeSlots(List<String> roomIds, Date from, Date to, long durationMs, int limit) {
+        List<Document> free = new ArrayList<>();
+        if (roomIds == null || roomIds.isEmpty() || limit <= 0 || durationMs <= 0 || !to.after(from)) return free;
+
+        Map<String, List<Document>> busy = new HashMap<>();
+        for (Document r : reservationDAO.findBusy(roomIds, from, to)) {
+            busy.computeIfAbsent(r.getString("roomId"), k -> new ArrayList<>()).add(r);
+        }
+        for (String roomId : roomIds) {
+            long cursor = from.getTime();
+            int found = 0;
+            for (Document r : busy.getOrDefault(roomId, List.of())) {
+                if (found == limit) break;
+                long s = r.getDate("start").getTime();
+                if (s - cursor >= durationMs) {
+                    free.add(window(roomId, cursor, durationMs));
+                    found++;
+                }
+                cursor = Math.max(cursor, r.getDate("end").getTime());
+            }
+            if (found < limit && to.getTime() - cursor >= durationMs) free.add(window(roomId, cursor, durationMs));
         }
+        free.sort(Comparator.comparing((Document d) -> d.getDate("start"))
+                .thenComparing(d -> roomIds.indexOf(d.getString("roomId"))));
+        return free.size() > limit ? new ArrayList<>(free.subList(0, limit)) : free;
+    }
+
+    private static boolean canBook() {
+        AuthSession session = AuthSession.getInstance();
+        return session.hasRole("Admin") || session.hasRole("Professor") || session.hasRole("TA")
+                || session.hasRole("Staff") || session.hasRole("Lecturer");
+    }
+
+    private static Document window(String roomId, long start, long durationMs) {
+        return new Document("roomId", roomId).append("start", new Date(start)).append("end", new Date(start + durationMs));
     }
 
     /**
@@ -61,27 +186,62 @@ public class ReservationService {
         if (!AuthSession.getInstance().hasRole("Admin")) {
             throw new SecurityException("Only Admin may update reservations");
         }
-        // conflict check (excluding current)
         String roomId = updatedData.getString("roomId");
         Date start = updatedData.getDate("start");
         Date end = updatedData.getDate("end");
-        if (roomId != null && start != null && end != null) {
-            List<Document> conflicts = reservationDAO.findOverlappingExcluding(roomId, start, end, reservationId);
-            if (!conflicts.isEmpty()) return false; // conflict exists
+        if (roomId == null || start == null || end == null) {
+            UpdateResult res = reservationDAO.updateReservation(reservationId, updatedData);
+            return res.getModifiedCount() > 0;
         }
-        UpdateResult res = reservationDAO.updateReservation(reservationId, updatedData);
-        return res.getModifiedCount() > 0;
+
+        Document old = reservationDAO.findById(reservationId);
+        if (old == null) return false;
+
+        // conflict check (excluding current), then claim the new slot before moving
+        if (schedules.hasConflict(roomId, start, end, reservationId, this::loadRoom)) return false;
+        ObjectId claim = new ObjectId();
+        if (!slotDAO.claim(roomId, start, end, reservationId, claim)) {
+            schedules.invalidate(roomId);
+            return false;
+        }
+
+        UpdateResult res;
+        try {
+            res = reservationDAO.updateReservation(reservationId, new Document(updatedData).append("slotClaim", claim));
+        } catch (RuntimeException ex) {
+            slotDAO.release(roomId, start, end, claim);
+            throw ex;
+        }
+        if (res.getModifiedCount() == 0) {
+            slotDAO.release(roomId, start, end, claim);
+            return false;
+        }
+
+        releaseClaim(old);
+        schedules.remove(old.getString("roomId"), reservationId);
+        schedules.put(roomId, reservationId, start, end);
+        return true;
     }
 
     public List<Document> listAllReservations(){ return reservationDAO.findAllReservations(); }
 
+    /** Latest first; createdBy null lists everyone's reservations. */
+    public KeysetPage listReservationPage(String createdBy, String search, int limit, String pageToken){
+        return reservationDAO.findPage(createdBy, search, limit, pageToken);
+    }
+
     public List<Document> getReservationsByRoom(String roomId){ return reservationDAO.findByRoomId(roomId); }
 
     public void deleteReservation(String reservationId){
         if (!AuthSession.getInstance().hasRole("Admin")) {
             throw new SecurityException("Only Admin may delete reservations");
         }
+        Document old = reservationDAO.findById(reservationId);
         reservationDAO.deleteReservation(reservationId);
+        if (old != null) {
+            releaseClaim(old);
+            schedules.remove(old.getString("roomId"), reservationId);
+        }
     }
 
     public Document getReservationById(String id) { return reservationDAO.findById(id); }
@@ -102,6 +262,51 @@ public class ReservationService {
     return res.getModifiedCount() > 0;
 }
 
+    /** Frees the time slot a stored reservation holds (no-op for reservations without a claim). */
+    private void releaseClaim(Document reservation) {
+        ObjectId claim = reservation.getObjectId("slotClaim");
+        Date start = reservation.getDate("start");
+        Date end = reservation.getDate("end");
+        if (claim != null && start != null && end != null) {
+            slotDAO.release(reservation.getString("roomId"), start, end, claim);
+        }
+    }
+
+    /** RoomSchedules loader: the room's current and upcoming bookings. */
+    private List<Document> loadRoom(String roomId) {
+        return reservationDAO.findScheduleByRoom(roomId, new Date(System.currentTimeMillis() - SCHEDULE_MARGIN_MS));
+    }
+
+    /**
+     * Claims the slots of reservations made before slot claims existed, so the claim check also
+     * sees them. One-time repair (ClaimLegacyReservations); safe to re-run.
+     *
+     * @return number of reservations claimed
+     */
+    public long claimLegacyReservations(int batchSize) {
+        long claimed = 0;
+        while (true) {
+            List<Document> batch = reservationDAO.findWithoutSlotClaim(batchSize);
+            if (batch.isEmpty()) return claimed;
+            List<ObjectId> claims = new ArrayList<>(batch.size());
+            Map<Object, ObjectId> byId = new HashMap<>();
+            for (Document r : batch) {
+                ObjectId claim = new ObjectId();
+                claims.add(claim);
+                byId.put(r.get("_id"), claim);
+            }
+            slotDAO.claimUnchecked(batch, claims);
+            Set<Object> set = reservationDAO.setSlotClaimsIfAbsent(byId);
+            for (int i = 0; i < batch.size(); i++) {
+                Document r = batch.get(i);
+                if (set.contains(r.get("_id"))) continue;
+                // another client got there first
+                slotDAO.release(r.getString("roomId"), r.getDate("start"), r.getDate("end"), claims.get(i));
+            }
+            claimed += set.size();
+        }
+    }
+
 public boolean rejectReservation(String reservationId) {
     if (!AuthSession.getInstance().hasRole("Admin")) {
         throw new SecurityException("Only Admin may reject reservations");
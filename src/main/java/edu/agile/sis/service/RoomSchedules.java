@@ -0,0 +1,113 @@
+package edu.agile.sis.service;
+
+import edu.agile.sis.config.ConfigManager;
+import edu.agile.sis.util.IntervalTree;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Per-room interval trees of reservations, for conflict checks that do not hit the database.
+ *
+ * A room is loaded from the reservations collection on first use and again once it is older than
+ * reservations.scheduleMaxAgeSec (default 30), so bookings made by other clients show up. This
+ * process's own bookings are applied immediately. The trees are only a fast pre-check: a stale
+ * tree can miss a booking made elsewhere, and the slot claim in RoomSlotDAO still rejects it.
+ * A stale "conflict" is re-checked against a fresh load before it is reported.
+ */
+public class RoomSchedules {
+    private static final RoomSchedules INSTANCE = new RoomSchedules(maxAgeFromConfig());
+
+    private final long maxAgeMs;
+    private final Map<String, Room> rooms = new ConcurrentHashMap<>();
+
+    private static final class Room {
+        final IntervalTree<String> tree = new IntervalTree<>();
+        final long loadedAt = System.currentTimeMillis();
+    }
+
+    RoomSchedules(long maxAgeMs) {
+        this.maxAgeMs = maxAgeMs;
+    }
+
+    public static RoomSchedules getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * True if a reservation other than excludeId overlaps [start, end) in roomId.
+     *
+     * @param loader reads the room's current and upcoming reservations (used on first use and when
+     *               stale); bookings that are already over are left to the slot claim
+     */
+    public boolean hasConflict(String roomId, Date start, Date end, String excludeId,
+                               Function<String, List<Document>> loader) {
+        Room room = room(roomId, loader, false);
+        boolean conflict;
+        synchronized (room) {
+            conflict = room.tree.overlaps(start.getTime(), end.getTime(), excludeId);
+        }
+        if (!conflict || System.currentTimeMillis() - room.loadedAt < 1000) return conflict;
+        // the blocking booking may have been deleted elsewhere; confirm with a fresh load
+        room = room(roomId, loader, true);
+        synchronized (room) {
+            return room.tree.overlaps(start.getTime(), end.getTime(), excludeId);
+        }
+    }
+
+    /** Records a booking this process made (or moved). No-op if the room is not loaded. */
+    public void put(String roomId, String reservationId, Date start, Date end) {
+        Room room = rooms.get(roomId);
+        if (room == null) return;
+        synchronized (room) {
+            room.tree.put(reservationId, start.getTime(), end.getTime());
+        }
+    }
+
+    /** Forgets a booking this process deleted. */
+    public void remove(String roomId, String reservationId) {
+        Room room = rooms.get(roomId);
+        if (room == null) return;
+        synchronized (room) {
+            room.tree.remove(reservationId);
+        }
+    }
+
+    /** Drops a room so the next check reloads it (e.g. after a lost slot claim). */
+    public void invalidate(String roomId) {
+        rooms.remove(roomId);
+    }
+
+    private Room room(String roomId, Function<String, List<Document>> loader, boolean forceReload) {
+        Room room = rooms.get(roomId);
+        if (room != null && !forceReload && System.currentTimeMillis() - room.loadedAt < maxAgeMs) {
+            return room;
+        }
+        Room fresh = new Room();
+        for (Document r : loader.apply(roomId)) {
+            Date s = r.getDate("start");
+            Date e = r.getDate("end");
+            if (s == null || e == null || !e.after(s)) continue;
+            fresh.tree.put(idString(r.get("_id")), s.getTime(), e.getTime());
+        }
+        rooms.put(roomId, fresh);
+        return fresh;
+    }
+
+    static String idString(Object id) {
+        return id instanceof ObjectId ? ((ObjectId) id).toHexString() : String.valueOf(id);
+    }
+
+    private static long maxAgeFromConfig() {
+        try {
+            return Long.parseLong(ConfigManager.getInstance().get("reservations.scheduleMaxAgeSec", "30").trim()) * 1000;
+        } catch (NumberFormatException ex) {
+            return 30_000;
+        }
+    }
+}
@@ -2,20 +2,23 @@ package edu.agile.sis.service;
 
 
 import edu.agile.sis.dao.StaffDAO;
+import edu.agile.sis.db.DaoRegistry;
 import org.bson.Document;
 
 import java.util.List;
 
 public class StaffService {
-    private final StaffDAO dao = new StaffDAO();
+    private final StaffDAO dao = DaoRegistry.get(StaffDAO.class);
+    private final CatalogCache cache = CatalogCache.getInstance();
 
 
     public void createStaff(Document staff) {
         dao.insertStaff(staff);
+        cache.invalidate("staff");
     }
 
     public List<Document> listAll() {
-        return dao.findAll();
+        return cache.staff(dao::findAll);
     }
 
     public Document getById(String id) {
@@ -28,16 +31,20 @@ public class StaffService {
 
     public void update(String id, Document data) {
         dao.update(id, data);
+        cache.invalidate("staff");
     }
 
     public void delete(String id) {
         dao.delete(id);
+        cache.invalidate("staff");
     }
     
     
     public boolean deleteByStaffId(String staffId) {
     if (staffId == null || staffId.isBlank()) return false;
-    return dao.deleteByStaffId(staffId);
+    boolean deleted = dao.deleteByStaffId(staffId);
+    cache.invalidate("staff");
+    return deleted;
     }
 
 
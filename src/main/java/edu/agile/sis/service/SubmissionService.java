@@ -1,19 +1,24 @@
 package edu.agile.sis.service;
 
 import edu.agile.sis.dao.SubmissionDAO;
+import edu.agile.sis.util.ChunkedUploader;
 import edu.agile.sis.util.FileStorageUtil;
+import edu.agile.sis.util.UploadProgressListener;
+import edu.agile.sis.db.DaoRegistry;
+import edu.agile.sis.db.IdPolicy;
 import org.bson.Document;
 
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.nio.file.Paths;
 import java.util.Date;
 import java.util.List;
 
 
 public class SubmissionService {
 
+    private final SubmissionDAO dao = DaoRegistry.get(SubmissionDAO.class);
     private final AssignmentService assignmentService = new AssignmentService();
+    private final GradebookService gradebookService = new GradebookService();
 
     public SubmissionService() {}
 
@@ -29,7 +34,7 @@ public class SubmissionService {
         if (subjectId == null && assignment.containsKey("courseCode")) subjectId = assignment.getString("courseCode");
 
         Date now = new Date();
-        Document sub = new Document("assignmentId", assignmentIdHex)
+        Document sub = new Document("assignmentId", IdPolicy.objectId(assignmentIdHex))
                 .append("studentId", studentId)
                 .append("subjectId", subjectId)           
                 .append("submittedAt", now)
@@ -41,12 +46,12 @@ public class SubmissionService {
                 .append("createdAt", now);
 
         
-        SubmissionDAO dao = new SubmissionDAO();
-        return dao.insertSubmission(sub);
+        String id = dao.insertSubmission(sub);
+        gradebookService.recordSubmission(sub, assignment);
+        return id;
     }
 
     public List<Document> listByAssignment(String assignmentIdHex) {
-        SubmissionDAO dao = new SubmissionDAO();
         List<Document> res = dao.listByAssignment(assignmentIdHex);
         
         if (res != null) {
@@ -59,7 +64,6 @@ public class SubmissionService {
 
    
     public List<Document> listByStudent(String studentId) {
-        SubmissionDAO dao = new SubmissionDAO();
         List<Document> res = dao.listByStudent(studentId);
         
         if (res != null) {
@@ -80,14 +84,12 @@ public class SubmissionService {
                 .append("gradedAt", new Date())
                 .append("grader", grader)
                 .append("status", "graded");
-        SubmissionDAO dao = new SubmissionDAO();
         boolean ok = dao.update(submissionIdHex, updates);
-        
+        if (ok) gradebookService.recordSubmission(submissionIdHex);
         return ok;
     }
 
     public Document getById(String submissionId) {
-        SubmissionDAO dao = new SubmissionDAO();
         Document d = dao.findById(submissionId);
         if (d != null) {
             try {  } catch (Throwable ignored) {}
@@ -99,10 +101,17 @@ public class SubmissionService {
 
   
     public Document uploadAttachmentFromPath(String filePath, String filename, String contentType) throws IOException {
-        try (InputStream is = new FileInputStream(filePath)) {
-            String fileId = FileStorageUtil.uploadFile(FileStorageUtil.safeFilename(filename), is, contentType);
-            return new Document("filename", filename).append("storageRef", fileId);
-        }
+        return uploadAttachmentFromPath(filePath, filename, contentType, FileStorageUtil.newUploader(), null);
+    }
+
+    /**
+     * Chunked, resumable upload; the uploader can be cancelled from another thread and the same
+     * file uploaded again later continues where it stopped.
+     */
+    public Document uploadAttachmentFromPath(String filePath, String filename, String contentType,
+                                             ChunkedUploader uploader, UploadProgressListener listener) throws IOException {
+        String fileId = FileStorageUtil.uploadFile(FileStorageUtil.safeFilename(filename), Paths.get(filePath), contentType, uploader, listener);
+        return new Document("filename", filename).append("storageRef", fileId);
     }
 
 
@@ -0,0 +1,164 @@
+package edu.agile.sis.service;
+
+import edu.agile.sis.config.ConfigManager;
+import org.bson.Document;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Downscaled JPEG variants of uploaded images. Variants are created once at upload and stored in
+ * the attachments bucket (ids in the announcement's "thumbnails" sub-document, keyed "h" + height).
+ * Reads go through a disk cache keyed by original file id and height; images uploaded before
+ * variants existed are downscaled on first read.
+ */
+public class ThumbnailService {
+    public static final int[] HEIGHTS = {150, 300};
+
+    private final FileService fileService;
+    private final Path cacheDir;
+
+    public ThumbnailService() {
+        this(new FileService());
+    }
+
+    public ThumbnailService(FileService fileService) {
+        this(fileService, Paths.get(ConfigManager.getInstance().get("thumbnails.cacheDir",
+                Paths.get(System.getProperty("user.home"), ".agile-sis", "thumbnails").toString())));
+    }
+
+    public ThumbnailService(FileService fileService, Path cacheDir) {
+        this.fileService = fileService;
+        this.cacheDir = cacheDir;
+    }
+
+    public static String variantKey(int height) {
+        return "h" + height;
+    }
+
+    /**
+     * Creates every variant of an uploaded image. Returns the variant ids, or an empty document if
+     * the file is not a readable image.
+     */
+    public Document createVariants(String originalFileId) {
+        Document ids = new Document();
+        try {
+            BufferedImage src;
+            try (InputStream in = fileService.openDownloadStream(originalFileId)) {
+                src = ImageIO.read(in);
+            }
+            if (src == null) return ids;
+            for (int h : HEIGHTS) {
+                byte[] jpeg = encode(scaleToHeight(src, h));
+                String id = fileService.upload(new ByteArrayInputStream(jpeg), originalFileId + "_" + variantKey(h) + ".jpg",
+                        "image/jpeg", new Document("variantOf", originalFileId).append("height", h));
+                ids.append(variantKey(h), id);
+                writeCache(originalFileId, h, jpeg);
+            }
+        } catch (Exception ex) {
+            System.err.println("[ThumbnailService] variant creation failed for " + originalFileId + ": " + ex.getMessage());
+        }
+        return ids;
+    }
+
+    /**
+     * JPEG bytes of the variant nearest above height: disk cache first, then the stored variant,
+     * then a downscale of the original. Null if none can be produced.
+     */
+    public byte[] load(String originalFileId, Document variants, int height) {
+        int h = pickHeight(height);
+        try {
+            Path cached = cachePath(originalFileId, h);
+            if (Files.exists(cached)) return Files.readAllBytes(cached);
+
+            byte[] jpeg = null;
+            String variantId = variants == null ? null : variants.getString(variantKey(h));
+            if (variantId != null) {
+                try (InputStream in = fileService.openDownloadStream(variantId)) {
+                    jpeg = in.readAllBytes();
+                }
+            } else {
+                BufferedImage src;
+                try (InputStream in = fileService.openDownloadStream(originalFileId)) {
+                    src = ImageIO.read(in);
+                }
+                if (src != null) jpeg = encode(scaleToHeight(src, h));
+            }
+            if (jpeg != null) writeCache(originalFileId, h, jpeg);
+            return jpeg;
+        } catch (Exception ex) {
+            System.err.println("[ThumbnailService] load failed for " + originalFileId + ": " + ex.getMessage());
+            return null;
+        }
+    }
+
+    public static int pickHeight(int requested) {
+        for (int h : HEIGHTS) if (h >= requested) return h;
+        return HEIGHTS[HEIGHTS.length - 1];
+    }
+
+    /** Downscales in halving steps so large reductions stay smooth; never upscales. */
+    static BufferedImage scaleToHeight(BufferedImage src, int height) {
+        int targetH = Math.min(height, src.getHeight());
+        int targetW = Math.max(1, (int) Math.round(src.getWidth() * (targetH / (double) src.getHeight())));
+        BufferedImage cur = toRgb(src);
+        while (cur.getHeight() / 2 >= targetH) {
+            cur = draw(cur, Math.max(targetW, cur.getWidth() / 2), cur.getHeight() / 2);
+        }
+        if (cur.getHeight() != targetH || cur.getWidth() != targetW) cur = draw(cur, targetW, targetH);
+        return cur;
+    }
+
+    private static BufferedImage toRgb(BufferedImage src) {
+        if (src.getType() == BufferedImage.TYPE_INT_RGB) return src;
+        return draw(src, src.getWidth(), src.getHeight());
+    }
+
+    private static BufferedImage draw(BufferedImage src, int w, int h) {
+        BufferedImage out = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = out.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            // JPEG has no alpha: transparent areas become white
+            g.setColor(java.awt.Color.WHITE);
+            g.fillRect(0, 0, w, h);
+            g.drawImage(src, 0, 0, w, h, null);
+        } finally {
+            g.dispose();
+        }
+        return out;
+    }
+
+    private static byte[] encode(BufferedImage img) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(img, "jpg", out);
+        return out.toByteArray();
+    }
+
+    private Path cachePath(String originalFileId, int height) {
+        return cacheDir.resolve(originalFileId.replaceAll("[^a-zA-Z0-9]", "_") + "_" + height + ".jpg");
+    }
+
+    private void writeCache(String originalFileId, int height, byte[] jpeg) {
+        try {
+            Files.createDirectories(cacheDir);
+            Path target = cachePath(originalFileId, height);
+            Path tmp = Files.createTempFile(cacheDir, "thumb", ".tmp");
+            Files.write(tmp, jpeg);
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (Exception ex) {
+            System.err.println("[ThumbnailService] disk cache write failed: " + ex.getMessage());
+        }
+    }
+}
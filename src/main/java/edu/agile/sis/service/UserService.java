@@ -1,6 +1,7 @@
 package edu.agile.sis.service;
 
 import edu.agile.sis.dao.UserDAO;
+import edu.agile.sis.db.DaoRegistry;
 import org.mindrot.jbcrypt.BCrypt;
 
 import java.util.List;
@@ -9,7 +10,7 @@ public class UserService {
     private final UserDAO userDAO;
 
     public UserService() {
-        this.userDAO = new UserDAO();
+        this.userDAO = DaoRegistry.get(UserDAO.class);
     }
 
 
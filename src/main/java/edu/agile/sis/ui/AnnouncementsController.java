@@ -1,21 +1,18 @@
 package edu.agile.sis.ui;
 
+import edu.agile.sis.dao.KeysetPage;
 import edu.agile.sis.security.AuthSession;
 import edu.agile.sis.service.AnnouncementService;
 import edu.agile.sis.service.EventService;
-import edu.agile.sis.service.FileService; // Import FileService
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
 import javafx.scene.control.*;
-import javafx.scene.image.Image;
-import javafx.scene.image.ImageView;
 import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
 import org.bson.Document;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
@@ -24,13 +21,18 @@ public class AnnouncementsController {
     private final BorderPane view = new BorderPane();
     private final AnnouncementService announcementService = new AnnouncementService();
     private final EventService eventService = new EventService();
-    private final FileService fileService = new FileService(); // 1. Add FileService
 
     private final ObservableList<Document> items = FXCollections.observableArrayList();
     private final ListView<Document> listView = new ListView<>();
 
     private String currentCategory = "All";
 
+    private static final int PAGE_SIZE = 50;
+    private final List<Document> loaded = new ArrayList<>();
+    private String announcementToken;
+    private String eventToken;
+    private final Button loadMoreBtn = new Button("Load more");
+
     public AnnouncementsController() {
         VBox left = new VBox(8);
         left.setPadding(new Insets(10));
@@ -102,23 +104,8 @@ public class AnnouncementsController {
                 // --- IMAGE DISPLAY LOGIC ---
                 String fileId = item.getString("thumbnailFileId");
                 if (fileId != null) {
-                    try {
-                        // Download bytes from GridFS
-                        ByteArrayOutputStream os = new ByteArrayOutputStream();
-                        fileService.download(fileId, os);
-                        
-                        // Convert to JavaFX Image
-                        Image img = new Image(new ByteArrayInputStream(os.toByteArray()));
-                        ImageView iv = new ImageView(img);
-                        
-                        // Style the image
-                        iv.setFitHeight(150); // Limit height
-                        iv.setPreserveRatio(true);
-                        
-                        box.getChildren().add(iv);
-                    } catch (Exception e) {
-                        System.err.println("Failed to load image: " + e.getMessage());
-                    }
+                    box.getChildren().add(ThumbnailLoader.getInstance()
+                            .thumbnail(fileId, item.get("thumbnails", Document.class), 150));
                 }
 
                 box.getChildren().add(lblBody);
@@ -156,8 +143,9 @@ public class AnnouncementsController {
         feedPane.setFitToWidth(true);
         Button refreshBtn = new Button("Refresh Feed");
         refreshBtn.setOnAction(e -> refreshFeed());
+        loadMoreBtn.setOnAction(e -> loadMore());
 
-        VBox center = new VBox(8, feedPane, refreshBtn);
+        VBox center = new VBox(8, feedPane, new HBox(8, refreshBtn, loadMoreBtn));
         center.setPadding(new Insets(10));
         view.setLeft(left);
         view.setCenter(center);
@@ -165,20 +153,39 @@ public class AnnouncementsController {
     }
 
     private void refreshFeed() {
-        items.clear();
+        loaded.clear();
+        announcementToken = null;
+        eventToken = null;
         String catFilter = currentCategory.equals("All") ? null : currentCategory;
 
-        List<Document> announcements = announcementService.listFeed(0, 50, catFilter);
-        for(Document d : announcements) d.append("isEvent", false);
-
-        List<Document> events = eventService.listUpcoming(null, 0, 50, catFilter);
-        for(Document d : events) d.append("isEvent", true);
+        KeysetPage announcements = announcementService.listFeed(catFilter, PAGE_SIZE, null);
+        KeysetPage events = eventService.listUpcoming(null, catFilter, PAGE_SIZE, null);
+        append(announcements, events);
+    }
 
-        List<Document> merged = new ArrayList<>();
-        merged.addAll(announcements);
-        merged.addAll(events);
+    /** Fetches the next page of whichever source still has more and merges it into the feed. */
+    private void loadMore() {
+        String catFilter = currentCategory.equals("All") ? null : currentCategory;
+        KeysetPage announcements = announcementToken == null ? null
+                : announcementService.listFeed(catFilter, PAGE_SIZE, announcementToken);
+        KeysetPage events = eventToken == null ? null
+                : eventService.listUpcoming(null, catFilter, PAGE_SIZE, eventToken);
+        append(announcements, events);
+    }
 
-        merged.sort((d1, d2) -> {
+    private void append(KeysetPage announcements, KeysetPage events) {
+        if (announcements != null) {
+            for (Document d : announcements.getItems()) d.append("isEvent", false);
+            loaded.addAll(announcements.getItems());
+            announcementToken = announcements.getNextToken();
+        }
+        if (events != null) {
+            for (Document d : events.getItems()) d.append("isEvent", true);
+            loaded.addAll(events.getItems());
+            eventToken = events.getNextToken();
+        }
+
+        loaded.sort((d1, d2) -> {
             boolean p1 = d1.getBoolean("isPinned", false);
             boolean p2 = d2.getBoolean("isPinned", false);
             if (p1 != p2) return p1 ? -1 : 1;
@@ -189,8 +196,9 @@ public class AnnouncementsController {
             return date2.compareTo(date1);
         });
 
-        items.addAll(merged);
+        items.setAll(loaded);
         listView.getItems().setAll(items);
+        loadMoreBtn.setDisable(announcementToken == null && eventToken == null);
     }
 
     public BorderPane getView() { return view; }
@@ -143,9 +143,7 @@ public class AssignmentsController {
                         if (dest == null) continue;
                         try (InputStream is = FileStorageUtil.getFileStream(storageRef);
                              FileOutputStream fos = new FileOutputStream(dest)) {
-                            byte[] buf = new byte[8192];
-                            int r;
-                            while ((r = is.read(buf)) > 0) fos.write(buf, 0, r);
+                            is.transferTo(fos);
                             new Alert(Alert.AlertType.INFORMATION, "Saved file: " + dest.getAbsolutePath()).showAndWait();
                         } catch (Exception ex) {
                             new Alert(Alert.AlertType.ERROR, "Download failed: " + ex.getMessage()).showAndWait();
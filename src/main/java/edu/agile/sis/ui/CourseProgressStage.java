@@ -726,30 +726,15 @@ public class CourseProgressStage extends Stage {
 
         if (courseCode == null || courseCode.isBlank()) return null;
         try {
-            List<Grade> grades = parentService.getGradesForStudentFromSubmissions(studentId);
-            if (grades == null || grades.isEmpty()) return null;
-
-            List<Grade> courseGrades = new ArrayList<>();
-            for (Grade g : grades) {
-                if (g == null) continue;
-                String code = safeGetSubjectId(g);
-                if (code != null && code.equalsIgnoreCase(courseCode)) courseGrades.add(g);
-            }
-            if (courseGrades.isEmpty()) return null;
-            return parentService.computeGPA(courseGrades);
+            Grade courseGrade = parentService.getGradeForCourse(studentId, courseCode);
+            if (courseGrade == null) return null;
+            return parentService.computeGPA(List.of(courseGrade));
         } catch (Throwable ex) {
             ex.printStackTrace();
             return null;
         }
     }
 
-    private String safeGetSubjectId(Grade g) {
-        try { Method m = g.getClass().getMethod("getSubjectId"); Object o = m.invoke(g); if (o != null) return o.toString(); } catch (Throwable ignored) {}
-        try { Method m = g.getClass().getMethod("getCourseCode"); Object o = m.invoke(g); if (o != null) return o.toString(); } catch (Throwable ignored) {}
-        try { Method m = g.getClass().getMethod("getCourseId"); Object o = m.invoke(g); if (o != null) return o.toString(); } catch (Throwable ignored) {}
-        return null;
-    }
-
     private static String safeString(String val, String fallback) {
         if (val != null && !val.isBlank()) return val;
         return fallback != null ? fallback : "-";
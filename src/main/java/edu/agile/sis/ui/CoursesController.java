@@ -106,11 +106,13 @@ public class CoursesController {
             Button assign     = styledButton("\uD83D\uDC69\u200D\uD83C\uDFEB Assign Staff", "#ffc107");     // 👩‍🏫 (woman teacher)
             Button refresh    = styledButton("\uD83D\uDD0D Refresh", "#17a2b8");                             // 🔍
             Button studentsBtn= styledButton("\uD83D\uDC65 Students", "#6f42c1");                            // 👥
+            Button importBtn  = styledButton("\uD83D\uDCE5 Import Enrollments", "#20c997");                  // 📥
 
             add.setDisable(!isAdmin);
             del.setDisable(!isAdmin);
             edit.setDisable(!(isAdmin || isProf));
             assign.setDisable(!isAdmin);
+            importBtn.setDisable(!isAdmin);
             studentsBtn.setDisable(!isStaff); 
 
             add.setOnAction(e -> addCourse());
@@ -125,8 +127,9 @@ public class CoursesController {
 
             
             studentsBtn.setOnAction(e -> handleStudents(table));
+            importBtn.setOnAction(e -> handleImportEnrollments());
 
-            HBox controls = new HBox(10, add, edit, del, assign, studentsBtn, refresh);
+            HBox controls = new HBox(10, add, edit, del, assign, studentsBtn, importBtn, refresh);
             controls.setAlignment(Pos.CENTER_LEFT);
             controls.setPadding(new Insets(5, 0, 0, 0));
 
@@ -190,6 +193,50 @@ public class CoursesController {
     }
 
 
+    /** Admin: register a cohort from a CSV of studentId,courseCode lines and show the per-row report. */
+    private void handleImportEnrollments() {
+        javafx.stage.FileChooser fc = new javafx.stage.FileChooser();
+        fc.setTitle("Import Enrollments (studentId,courseCode)");
+        fc.getExtensionFilters().add(new javafx.stage.FileChooser.ExtensionFilter("CSV", "*.csv", "*.txt"));
+        java.io.File file = fc.showOpenDialog(view.getScene() == null ? null : view.getScene().getWindow());
+        if (file == null) return;
+
+        javafx.concurrent.Task<BulkEnrollmentReport> task = new javafx.concurrent.Task<>() {
+            @Override
+            protected BulkEnrollmentReport call() throws Exception {
+                try (java.io.Reader r = java.nio.file.Files.newBufferedReader(file.toPath())) {
+                    return enrollmentService.bulkRegisterCsv(r);
+                }
+            }
+        };
+        task.setOnSucceeded(ev -> showImportReport(task.getValue()));
+        task.setOnFailed(ev -> alert(Alert.AlertType.ERROR, "Import failed: " + task.getException().getMessage()));
+        Thread t = new Thread(task, "enrollment-import");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    private void showImportReport(BulkEnrollmentReport report) {
+        StringBuilder sb = new StringBuilder();
+        for (BulkEnrollmentReport.Row r : report.getRows()) {
+            if (r.getStatus() == BulkEnrollmentReport.Status.REGISTERED) continue;
+            sb.append("line ").append(r.getLine()).append(": ")
+              .append(safeString(r.getStudentId(), "?")).append(" / ").append(safeString(r.getCourseCode(), "?"))
+              .append(" - ").append(r.getStatus())
+              .append(r.getMessage() == null ? "" : " (" + r.getMessage() + ")").append('\n');
+        }
+        TextArea details = new TextArea(sb.length() == 0 ? "All rows registered." : sb.toString());
+        details.setEditable(false);
+        details.setPrefSize(640, 320);
+
+        Alert a = new Alert(Alert.AlertType.INFORMATION);
+        a.setTitle("Enrollment Import");
+        a.setHeaderText(report.count(BulkEnrollmentReport.Status.REGISTERED) + " of " + report.getRows().size()
+                + " rows registered " + report.summary());
+        a.getDialogPane().setContent(details);
+        a.showAndWait();
+    }
+
     private void handleUnregister(TableView<Document> table) {
         Document sel = table.getSelectionModel().getSelectedItem();
         if (sel == null) { alert(Alert.AlertType.INFORMATION, "Select a course to unregister."); return; }
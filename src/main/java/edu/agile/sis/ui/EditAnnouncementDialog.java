@@ -4,6 +4,7 @@ import edu.agile.sis.security.AuthSession;
 import edu.agile.sis.service.AnnouncementService;
 import edu.agile.sis.service.EventService;
 import edu.agile.sis.service.FileService;
+import edu.agile.sis.service.ThumbnailService;
 import javafx.geometry.Insets;
 import javafx.scene.control.*;
 import javafx.scene.layout.GridPane;
@@ -14,8 +15,6 @@ import javafx.stage.FileChooser;
 import org.bson.Document;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.InputStream;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
@@ -26,6 +25,7 @@ public class EditAnnouncementDialog extends Dialog<Boolean> {
     private final AnnouncementService announcementService = new AnnouncementService();
     private final EventService eventService = new EventService();
     private final FileService fileService = new FileService();
+    private final ThumbnailService thumbnailService = new ThumbnailService(fileService);
     private File chosenImage = null;
     private final Document existingDoc;
     private final boolean isEvent;
@@ -137,10 +137,9 @@ public class EditAnnouncementDialog extends Dialog<Boolean> {
 
                     // Handle image update (if new image chosen)
                     if (chosenImage != null) {
-                        try (InputStream is = new FileInputStream(chosenImage)) {
-                            String fileId = fileService.upload(is, chosenImage.getName(), "image/jpeg", new Document("uploadedBy", AuthSession.getInstance().getUsername()));
-                            updates.append("thumbnailFileId", fileId);
-                        }
+                        String fileId = fileService.upload(chosenImage.toPath(), chosenImage.getName(), "image/jpeg", new Document("uploadedBy", AuthSession.getInstance().getUsername()));
+                        updates.append("thumbnailFileId", fileId);
+                        updates.append("thumbnails", thumbnailService.createVariants(fileId));
                     }
 
                     // Update in DB
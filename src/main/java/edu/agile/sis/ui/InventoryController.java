@@ -1,5 +1,6 @@
 package edu.agile.sis.ui;
 
+import edu.agile.sis.dao.KeysetPage;
 import edu.agile.sis.service.InventoryService;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -28,7 +29,6 @@ public class InventoryController {
 
     private TableView<Document> table;
     private TableView<Document> requestsTable;
-    private ObservableList<Document> allItems = FXCollections.observableArrayList();
     private ObservableList<Document> displayedItems = FXCollections.observableArrayList();
 
     private TextField searchField;
@@ -38,6 +38,10 @@ public class InventoryController {
     private int currentPage = 0;
     private final int pageSize = 15;
     private Label pageLabel;
+    private Button nextPageBtn;
+    // pageTokens.get(i) loads page i (null for the first page); nextToken continues after the current one
+    private final List<String> pageTokens = new ArrayList<>();
+    private String nextToken;
 
     private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm");
 
@@ -290,13 +294,13 @@ public class InventoryController {
 
             if ("License".equals(itemType)) {
                 // For licenses, show count of assigned users
-                @SuppressWarnings("unchecked")
-                List<Document> users = doc.get("assignedUsers", List.class);
-                if (users != null && !users.isEmpty()) {
-                    if (users.size() == 1) {
-                        return new javafx.beans.property.SimpleStringProperty(users.get(0).getString("userName"));
-                    }
-                    return new javafx.beans.property.SimpleStringProperty(users.size() + " users");
+                Object count = doc.get("assignedUserCount");
+                int users = count instanceof Number ? ((Number) count).intValue() : 0;
+                if (users == 1) {
+                    return new javafx.beans.property.SimpleStringProperty(safeGetString(doc, "firstAssignedUserName"));
+                }
+                if (users > 1) {
+                    return new javafx.beans.property.SimpleStringProperty(users + " users");
                 }
                 return new javafx.beans.property.SimpleStringProperty("—");
             } else {
@@ -320,7 +324,7 @@ public class InventoryController {
             TableRow<Document> row = new TableRow<>();
             row.setOnMouseClicked(event -> {
                 if (event.getClickCount() == 2 && !row.isEmpty()) {
-                    showDetailDialog(row.getItem());
+                    showDetailDialog(fullItem(row.getItem()));
                 }
             });
             return row;
@@ -333,16 +337,20 @@ public class InventoryController {
         pageLabel = new Label("Page 1");
         pageLabel.setStyle("-fx-font-size: 14px;");
 
+        nextPageBtn = nextBtn;
+
         prevBtn.setOnAction(e -> {
             if (currentPage > 0) {
                 currentPage--;
-                updatePagination();
+                loadPage();
             }
         });
         nextBtn.setOnAction(e -> {
-            if ((currentPage + 1) * pageSize < allItems.size()) {
+            if (nextToken != null) {
                 currentPage++;
-                updatePagination();
+                if (pageTokens.size() <= currentPage) pageTokens.add(nextToken);
+                else pageTokens.set(currentPage, nextToken);
+                loadPage();
             }
         });
 
@@ -384,49 +392,37 @@ public class InventoryController {
     }
 
     private void loadItems() {
-        allItems.clear();
-        allItems.addAll(inventoryService.listAllItems());
-        currentPage = 0;
-        applyFilters();
+        loadPage();
     }
 
+    /** Filters changed: restart from the first page. */
     private void applyFilters() {
-        String query = searchField.getText().toLowerCase().trim();
+        pageTokens.clear();
+        pageTokens.add(null);
+        currentPage = 0;
+        loadPage();
+    }
+
+    private void loadPage() {
+        if (pageTokens.isEmpty()) pageTokens.add(null);
         String statusVal = statusFilter.getValue();
         String typeVal = typeFilter.getValue();
-
-        List<Document> filtered = new ArrayList<>();
-        for (Document doc : allItems) {
-            String name = safeGetString(doc, "name").toLowerCase();
-            String status = safeGetString(doc, "status");
-            String type = safeGetString(doc, "itemType");
-
-            boolean matchQuery = query.isEmpty() || name.contains(query);
-            boolean matchStatus = "All Status".equals(statusVal) || status.equals(statusVal);
-            boolean matchType = "All Types".equals(typeVal) || type.equals(typeVal);
-
-            if (matchQuery && matchStatus && matchType) {
-                filtered.add(doc);
-            }
-        }
-
-        displayedItems.setAll(filtered);
-        currentPage = 0;
+        KeysetPage page = inventoryService.listItemSummaryPage(
+                "All Status".equals(statusVal) ? null : statusVal,
+                "All Types".equals(typeVal) ? null : typeVal,
+                searchField.getText(),
+                pageSize,
+                pageTokens.get(currentPage));
+
+        nextToken = page.getNextToken();
+        displayedItems.setAll(page.getItems());
         updatePagination();
     }
 
     private void updatePagination() {
-        int totalPages = Math.max(1, (int) Math.ceil(displayedItems.size() / (double) pageSize));
-        pageLabel.setText("Page " + (currentPage + 1) + " of " + totalPages);
-
-        int fromIndex = currentPage * pageSize;
-        int toIndex = Math.min(fromIndex + pageSize, displayedItems.size());
-
-        if (fromIndex < displayedItems.size()) {
-            table.setItems(FXCollections.observableArrayList(displayedItems.subList(fromIndex, toIndex)));
-        } else {
-            table.setItems(FXCollections.observableArrayList());
-        }
+        pageLabel.setText("Page " + (currentPage + 1));
+        if (nextPageBtn != null) nextPageBtn.setDisable(nextToken == null);
+        table.setItems(displayedItems);
     }
 
     // === Dialog Methods ===
@@ -455,12 +451,20 @@ public class InventoryController {
         notesArea.setPromptText("Optional notes...");
         notesArea.setPrefRowCount(3);
 
+        TextField seatLimitField = new TextField();
+        seatLimitField.setPromptText("Blank = unlimited");
+        Label seatLimitLabel = new Label("Seat Limit:");
+        seatLimitField.disableProperty().bind(typeCombo.valueProperty().isNotEqualTo("License"));
+        seatLimitLabel.disableProperty().bind(seatLimitField.disableProperty());
+
         grid.add(new Label("Item Name:"), 0, 0);
         grid.add(nameField, 1, 0);
         grid.add(new Label("Type:"), 0, 1);
         grid.add(typeCombo, 1, 1);
-        grid.add(new Label("Notes:"), 0, 2);
-        grid.add(notesArea, 1, 2);
+        grid.add(seatLimitLabel, 0, 2);
+        grid.add(seatLimitField, 1, 2);
+        grid.add(new Label("Notes:"), 0, 3);
+        grid.add(notesArea, 1, 3);
 
         dialog.getDialogPane().setContent(grid);
 
@@ -471,8 +475,18 @@ public class InventoryController {
                     showAlert(Alert.AlertType.WARNING, "Item name is required!");
                     return null;
                 }
+                Integer seatLimit = null;
+                String seats = seatLimitField.getText().trim();
+                if ("License".equals(typeCombo.getValue()) && !seats.isEmpty()) {
+                    try {
+                        seatLimit = Integer.parseInt(seats);
+                    } catch (NumberFormatException e) {
+                        showAlert(Alert.AlertType.WARNING, "Seat limit must be a whole number.");
+                        return null;
+                    }
+                }
                 try {
-                    inventoryService.createItem(name, typeCombo.getValue(), notesArea.getText().trim());
+                    inventoryService.createItem(name, typeCombo.getValue(), notesArea.getText().trim(), seatLimit);
                     showAlert(Alert.AlertType.INFORMATION, "Item created successfully!");
                     loadItems();
                 } catch (Exception e) {
@@ -496,7 +510,7 @@ public class InventoryController {
 
         if ("License".equals(itemType)) {
             // For licenses, show multi-user management dialog
-            showLicenseUsersDialog(selected);
+            showLicenseUsersDialog(fullItem(selected));
         } else {
             // For Laptop/Equipment, use single-user assignment
             if ("Assigned".equals(safeGetString(selected, "status"))) {
@@ -574,16 +588,18 @@ public class InventoryController {
         VBox content = new VBox(15);
         content.setPadding(new Insets(15));
 
-        // Current users list
-        Label usersLabel = new Label("Assigned Users:");
-        usersLabel.setStyle("-fx-font-weight: bold;");
-
         VBox usersList = new VBox(5);
         List<Document> assignedUsers = license.get("assignedUsers", List.class);
         if (assignedUsers == null) {
             assignedUsers = new ArrayList<>();
         }
 
+        // Current users list
+        Integer seatLimit = license.getInteger("seatLimit");
+        Label usersLabel = new Label("Assigned Users (" + assignedUsers.size()
+                + (seatLimit != null ? " of " + seatLimit + " seats" : "") + "):");
+        usersLabel.setStyle("-fx-font-weight: bold;");
+
         if (assignedUsers.isEmpty()) {
             usersList.getChildren().add(new Label("No users assigned yet."));
         } else {
@@ -694,7 +710,7 @@ public class InventoryController {
 
         if ("License".equals(itemType)) {
             // For licenses, show the management dialog instead
-            showLicenseUsersDialog(selected);
+            showLicenseUsersDialog(fullItem(selected));
             return;
         }
 
@@ -859,6 +875,12 @@ public class InventoryController {
 
     // === Utilities ===
 
+    /** Rows hold summaries (see InventoryDAO.findAllItemSummaries); dialogs need the whole item. */
+    private Document fullItem(Document summary) {
+        Document full = inventoryService.getItemById(getIdString(summary));
+        return full != null ? full : summary;
+    }
+
     private String getIdString(Document doc) {
         Object id = doc.get("_id");
         if (id instanceof org.bson.types.ObjectId) {
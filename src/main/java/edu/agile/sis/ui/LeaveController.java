@@ -1,5 +1,6 @@
 package edu.agile.sis.ui;
 
+import edu.agile.sis.dao.KeysetPage;
 import edu.agile.sis.security.AuthSession;
 import edu.agile.sis.service.LeaveService;
 import javafx.collections.FXCollections;
@@ -17,8 +18,8 @@ import org.bson.Document;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 public class LeaveController {
     private final VBox view = new VBox(14);
@@ -32,6 +33,14 @@ public class LeaveController {
     private final Label lastRefLabel = new Label();
     private final Label countLabel = new Label();
 
+    private static final int PAGE_SIZE = 25;
+    private final Button btnPrev = new Button("◀ Prev");
+    private final Button btnNext = new Button("Next ▶");
+    // pageTokens.get(i) loads page i (null for the first page)
+    private final List<String> pageTokens = new ArrayList<>();
+    private String nextToken;
+    private int currentPage = 0;
+
 
     private final Label lblStaff = new Label();
     private final Label lblPeriod = new Label();
@@ -94,7 +103,9 @@ public class LeaveController {
                 btnApprove,
                 btnReject,
                 spacer,
+                btnPrev,
                 countLabel,
+                btnNext,
                 lastRefLabel
         );
         toolbar.setAlignment(Pos.CENTER_LEFT);
@@ -266,35 +277,26 @@ public class LeaveController {
 
     private void hookActions() {
         
-        searchField.textProperty().addListener((obs, oldV, newV) -> applyLocalFilter());
+        searchField.textProperty().addListener((obs, oldV, newV) -> refresh());
 
         
         statusFilter.valueProperty().addListener((obs, oldV, newV) -> refresh());
-    }
 
-    private void applyLocalFilter() {
-        String q = searchField.getText() == null ? "" : searchField.getText().trim().toLowerCase();
-        String status = statusFilter.getValue() == null ? "All" : statusFilter.getValue();
-
-        // Use the currently loaded master list 'data' as source
-        List<Document> all = data.stream().collect(Collectors.toList());
-
-        List<Document> filtered = all.stream().filter(d -> {
-            boolean matchQ = q.isEmpty()
-                    || safeString(d, "staffId").toLowerCase().contains(q)
-                    || safeString(d, "type").toLowerCase().contains(q)
-                    || safeString(d, "reason").toLowerCase().contains(q)
-                    || safeString(d, "period").toLowerCase().contains(q);
-            boolean matchStatus = "All".equalsIgnoreCase(status) || safeString(d, "status").equalsIgnoreCase(status);
-            return matchQ && matchStatus;
-        }).collect(Collectors.toList());
-
-        table.getItems().setAll(filtered);
-        countLabel.setText("Showing: " + filtered.size() + " / " + data.size());
+        btnPrev.setOnAction(e -> {
+            if (currentPage > 0) {
+                currentPage--;
+                loadPage();
+            }
+        });
+        btnNext.setOnAction(e -> {
+            if (nextToken == null) return;
+            currentPage++;
+            if (pageTokens.size() <= currentPage) pageTokens.add(nextToken);
+            else pageTokens.set(currentPage, nextToken);
+            loadPage();
+        });
     }
 
-
-
     private void createLeave() {
         String staffId = AuthSession.getInstance().getLinkedEntityId();
         if (staffId == null || staffId.isBlank()) staffId = AuthSession.getInstance().getUsername();
@@ -312,7 +314,9 @@ public class LeaveController {
         editDocument(sel);
     }
 
-    private void editDocument(Document existing) {
+    private void editDocument(Document summary) {
+        Document full = service.getLeaveById(summary.getObjectId("_id").toHexString());
+        Document existing = full != null ? full : summary;
         String staffId = safeString(existing, "staffId");
         AddLeaveDialog dlg = new AddLeaveDialog(staffId, existing);
         dlg.showAndWait().ifPresent(updated -> {
@@ -348,23 +352,32 @@ public class LeaveController {
 
 
 
+    /** Reloads from the first page with the current search and status filter. */
     private void refresh() {
-        data.clear();
+        pageTokens.clear();
+        pageTokens.add(null);
+        currentPage = 0;
+        loadPage();
 
-        if (AuthSession.getInstance().hasRole("Admin")) {
-            List<Document> all = service.listAllLeaves();
-            if (all != null) data.addAll(all);
-        } else {
-            String staffId = AuthSession.getInstance().getLinkedEntityId();
+        lastRefLabel.setText("Last refreshed: " + java.time.LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm")));
+    }
+
+    private void loadPage() {
+        String staffId = null;
+        if (!AuthSession.getInstance().hasRole("Admin")) {
+            staffId = AuthSession.getInstance().getLinkedEntityId();
             if (staffId == null || staffId.isBlank()) staffId = AuthSession.getInstance().getUsername();
-            List<Document> list = service.listLeavesForStaff(staffId);
-            if (list != null) data.addAll(list);
         }
+        String status = statusFilter.getValue() == null || "All".equalsIgnoreCase(statusFilter.getValue()) ? null : statusFilter.getValue();
+        String q = searchField.getText() == null ? "" : searchField.getText().trim();
 
-      
-        applyLocalFilter();
+        KeysetPage page = service.listLeaveSummaryPage(staffId, status, q.isEmpty() ? null : q, PAGE_SIZE, pageTokens.get(currentPage));
+        nextToken = page.getNextToken();
+        data.setAll(page.getItems());
 
-        lastRefLabel.setText("Last refreshed: " + java.time.LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm")));
+        countLabel.setText("Page " + (currentPage + 1) + " · " + data.size() + " shown");
+        btnPrev.setDisable(currentPage == 0);
+        btnNext.setDisable(nextToken == null);
     }
 
 
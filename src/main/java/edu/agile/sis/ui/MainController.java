@@ -41,6 +41,7 @@ public class MainController {
                 Button requestResourcesBtn = createMenuButton("📦", "Request Resources");
                 Button publicationsBtn = createMenuButton("📄", "My Publications");
                 Button facultyResearchBtn = createMenuButton("📚", "Faculty Research");
+                Button queryMetricsBtn = createMenuButton("📈", "Query Metrics");
                 Button logoutBtn = createMenuButton("🚪", "Logout");
 
                 myProfileBtn.setOnAction(e -> view.setCenter(new StudentsController().getView()));
@@ -66,6 +67,7 @@ public class MainController {
                 requestResourcesBtn.setOnAction(e -> view.setCenter(new InventoryBrowserController().getView()));
                 publicationsBtn.setOnAction(e -> view.setCenter(new PublicationsController().getView()));
                 facultyResearchBtn.setOnAction(e -> view.setCenter(new PublicationsBrowserController().getView()));
+                queryMetricsBtn.setOnAction(e -> view.setCenter(new QueryMetricsController().getView()));
 
                 logoutBtn.setOnAction(e -> {
                         AuthSession.getInstance().clear();
@@ -98,7 +100,8 @@ public class MainController {
                                         benefitsBtn,
                                         messagesBtn,
                                         announcementsBtn,
-                                        eavBtn);
+                                        eavBtn,
+                                        queryMetricsBtn);
                 } else if (isProf) {
                         // Professors get My Publications AND Faculty Research
                         sidebar.getChildren().addAll(
@@ -3,9 +3,12 @@ package edu.agile.sis.ui;
 import edu.agile.sis.security.AuthSession;
 import edu.agile.sis.security.PermissionService;
 import edu.agile.sis.service.ConversationService;
+import edu.agile.sis.service.MessageFeed;
 import edu.agile.sis.service.MessageService;
 import edu.agile.sis.service.StaffService;
+import edu.agile.sis.dao.KeysetPage;
 import edu.agile.sis.dao.UserDAO;
+import edu.agile.sis.db.DaoRegistry;
 import javafx.collections.FXCollections;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
@@ -27,7 +30,7 @@ public class MessagesController {
     private final ConversationService conversationService = new ConversationService();
     private final StaffService staffService = new StaffService();
     private final PermissionService permissionService = new PermissionService();
-    private final UserDAO userDao = new UserDAO();
+    private final UserDAO userDao = DaoRegistry.get(UserDAO.class);
 
     private final ListView<String> leftList = new ListView<>();
     private final VBox chatBox = new VBox(10);
@@ -43,6 +46,13 @@ public class MessagesController {
     private final LinkedHashMap<String, String> displayToStorage = new LinkedHashMap<>();
     private final ExecutorService bgExecutor = Executors.newSingleThreadExecutor();
     private static final int MAX_PREVIEWS = 50;
+    private static final int THREAD_PAGE = 50;
+    private final Set<String> shownMessageIds = new HashSet<>();
+    private MessageFeed feed;
+    // open thread and the token for its older messages (null when all are shown)
+    private String openStudentId;
+    private String openStaffId;
+    private String olderToken;
 
     public MessagesController() {
         Label title = new Label("💬 Messaging");
@@ -76,8 +86,14 @@ public class MessagesController {
         view.setTop(title);
         view.setCenter(mainSplit);
 
+        // scrolled to the top: fetch the previous page of the open thread
+        chatScroll.vvalueProperty().addListener((obs, oldV, newV) -> {
+            if (newV.doubleValue() <= 0.0 && oldV.doubleValue() > 0.0 && olderToken != null) loadOlderMessages();
+        });
+
         leftList.getSelectionModel().selectedItemProperty().addListener((obs, oldV, newV) -> {
             chatBox.getChildren().clear();
+            olderToken = null;
             if (newV == null) return;
             String storage = displayToStorage.getOrDefault(newV, newV);
             String[] parts = storage.split("\\|", 2);
@@ -133,8 +149,7 @@ public class MessagesController {
                         new Alert(Alert.AlertType.WARNING, "You are not allowed to message this staff member.").showAndWait();
                         return;
                     }
-                    messageService.sendMessage(linkedEntityId, targetStaffId, AuthSession.getInstance().getUsername(), body);
-                    loadThreadForStudent(targetStaffId);
+                    onLiveMessage(messageService.sendMessage(linkedEntityId, targetStaffId, AuthSession.getInstance().getUsername(), body));
                 } else if (isStaff) {
                     String studentIdForStorage = storageStudentId;
                     String staffIdForSender = (linkedEntityId != null && !linkedEntityId.isBlank()) ? linkedEntityId : currentUsername;
@@ -142,8 +157,7 @@ public class MessagesController {
                         new Alert(Alert.AlertType.WARNING, "Cannot determine the participant to send to.").showAndWait();
                         return;
                     }
-                    messageService.sendMessage(studentIdForStorage, staffIdForSender, currentUsername, body);
-                    loadThreadForStaff(studentIdForStorage);
+                    onLiveMessage(messageService.sendMessage(studentIdForStorage, staffIdForSender, currentUsername, body));
                 } else {
                     String targetStaffId = (storageStudentId != null && !storageStudentId.isBlank()) ? storageStudentId : staffId;
                     if (targetStaffId == null || targetStaffId.isBlank()) {
@@ -181,9 +195,71 @@ public class MessagesController {
             }
         });
 
+        // live updates only while the screen is shown
+        view.sceneProperty().addListener((obs, oldScene, scene) -> {
+            if (scene == null) stopFeed();
+            else startFeed();
+        });
+
         loadConversationsAsync();
     }
 
+    private void startFeed() {
+        if (feed != null) return;
+        if (isStudent && linkedEntityId != null && !linkedEntityId.isBlank()) {
+            feed = MessageFeed.forStudent(linkedEntityId, m -> Platform.runLater(() -> onLiveMessage(m)));
+        } else if (isStaff) {
+            feed = MessageFeed.forStaff(selfStaffId(), m -> Platform.runLater(() -> onLiveMessage(m)));
+        } else {
+            return;
+        }
+        feed.start();
+    }
+
+    private void stopFeed() {
+        if (feed != null) feed.close();
+        feed = null;
+    }
+
+    private String selfStaffId() {
+        return (linkedEntityId != null && !linkedEntityId.isBlank()) ? linkedEntityId : currentUsername;
+    }
+
+    /**
+     * A message that arrived (or was just sent): appended if its thread is open, otherwise the
+     * staff view moves that conversation to the top of the list. Runs on the FX thread.
+     */
+    private void onLiveMessage(Document m) {
+        if (m == null) return;
+        String studentId = safeStr(m.getString("studentId"));
+        String staffId = safeStr(m.getString("staffId"));
+        String sel = leftList.getSelectionModel().getSelectedItem();
+        String open = sel == null ? null : displayToStorage.getOrDefault(sel, sel);
+
+        if (isStudent) {
+            if (open != null && open.equals(staffId) && studentId.equals(linkedEntityId)) appendMessage(m);
+            return;
+        }
+        if (!isStaff || studentId.isBlank()) return;
+        String key = studentId + "|" + selfStaffId();
+        if (key.equals(open)) {
+            appendMessage(m);
+            return;
+        }
+        if (displayToStorage.containsKey(key)) {
+            leftList.getItems().remove(key);
+        } else {
+            displayToStorage.put(key, key);
+            bgExecutor.submit(() -> {
+                Document u = userDao.findByLinkedEntityId(studentId);
+                String display = u == null ? null : u.getString("username");
+                nameCache.put(studentId, display == null || display.isBlank() ? studentId : display);
+                Platform.runLater(leftList::refresh);
+            });
+        }
+        leftList.getItems().add(0, key);
+    }
+
     private void loadConversationsAsync() {
         Platform.runLater(() -> leftList.setPlaceholder(new ProgressIndicator()));
         bgExecutor.submit(() -> {
@@ -208,6 +284,8 @@ public class MessagesController {
                 String name = Optional.ofNullable(s.getString("name"))
                         .orElse(Optional.ofNullable(s.getString("fullName")).orElse(id));
                 if (id == null || id.isBlank()) continue;
+                // only list staff the student may write to (answered from the permission index)
+                if (!permissionService.studentCanMessageStaff(linkedEntityId, id)) continue;
                 String storageKey = id;
                 keys.add(storageKey);
                 displayToStorage.put(storageKey, storageKey);
@@ -279,8 +357,7 @@ public class MessagesController {
             chatBox.getChildren().clear();
             return;
         }
-        List<Document> list = messageService.getThread(linkedEntityId, staffId);
-        displayMessages(list);
+        loadThread(linkedEntityId, staffId);
     }
 
     private void loadThreadForStaff(String studentId) {
@@ -288,13 +365,37 @@ public class MessagesController {
             chatBox.getChildren().clear();
             return;
         }
-        String staffId = (linkedEntityId != null && !linkedEntityId.isBlank()) ? linkedEntityId : currentUsername;
-        List<Document> list = messageService.getThread(studentId, staffId);
-        displayMessages(list);
+        loadThread(studentId, selfStaffId());
+    }
+
+    /** Shows the latest page of a thread; older pages follow when scrolled to the top. */
+    private void loadThread(String studentId, String staffId) {
+        KeysetPage page = messageService.getThreadPage(studentId, staffId, THREAD_PAGE, null);
+        openStudentId = studentId;
+        openStaffId = staffId;
+        olderToken = page.getNextToken();
+        displayMessages(page.getItems());
+    }
+
+    private void loadOlderMessages() {
+        String token = olderToken;
+        olderToken = null;   // no second request while this one is shown
+        KeysetPage page = messageService.getThreadPage(openStudentId, openStaffId, THREAD_PAGE, token);
+        List<HBox> rows = new ArrayList<>();
+        for (Document m : page.getItems()) {
+            HBox row = messageRow(m);
+            if (row != null) rows.add(row);
+        }
+        chatBox.getChildren().addAll(0, rows);
+        int total = chatBox.getChildren().size();
+        // keep the message that was at the top in view
+        Platform.runLater(() -> chatScroll.setVvalue(total == 0 ? 0 : (double) rows.size() / total));
+        olderToken = page.getNextToken();
     }
 
     private void displayMessages(List<Document> list) {
         chatBox.getChildren().clear();
+        shownMessageIds.clear();
         if (list == null) return;
 
         String conversationStudentId = null;
@@ -311,20 +412,7 @@ public class MessagesController {
             if (sel != null) conversationStudentId = displayToStorage.get(sel);
         }
 
-        Set<String> seen = new HashSet<>();
         for (Document m : list) {
-            Object rawIdObj = m.get("_id");
-            String msgId;
-            if (rawIdObj != null) msgId = rawIdObj.toString();
-            else {
-                Date dt = m.getDate("createdAt");
-                long ts = dt == null ? 0L : dt.getTime();
-                msgId = safeStr(m.getString("senderId")) + "|" + safeStr(m.getString("receiverId")) + "|" + ts + "|" + safeStr(m.getString("body"));
-            }
-            if (seen.contains(msgId)) continue;
-            seen.add(msgId);
-
-            String senderId = safeStr(m.getString("senderId"));
             String studentIdField = safeStr(m.getString("studentId"));
 
             if (conversationStudentId != null && !conversationStudentId.isBlank()) {
@@ -335,40 +423,15 @@ public class MessagesController {
                 if (studentIdField != null && !studentIdField.isBlank() && !studentIdField.equals(linkedEntityId)) continue;
             }
 
-            String body = safeStr(m.getString("body"));
-            Date created = m.getDate("createdAt");
-            String time = (created != null) ? timeFmt.format(created) : "";
-
-            Label msg = new Label(body);
-            msg.setWrapText(true);
-            msg.setMaxWidth(400);
-            msg.setPadding(new Insets(8, 12, 8, 12));
-
-            Label timestamp = new Label(time);
-            timestamp.setStyle("-fx-font-size: 10px; -fx-text-fill: gray;");
-            VBox bubble = new VBox(msg, timestamp);
-            bubble.setSpacing(2);
-
-            HBox row = new HBox();
-            row.setPadding(new Insets(4, 10, 4, 10));
-            row.setMaxWidth(Double.MAX_VALUE);
-
-            boolean myMsg = false;
-            if (linkedEntityId != null && !linkedEntityId.isBlank() && Objects.equals(senderId, linkedEntityId)) myMsg = true;
-            if (!myMsg && currentUsername != null && Objects.equals(senderId, currentUsername)) myMsg = true;
-
-            if (myMsg) {
-                msg.setStyle("-fx-background-color: #3498db; -fx-text-fill: white; -fx-background-radius: 15;");
-                row.setAlignment(Pos.CENTER_RIGHT);
-                row.getChildren().add(bubble);
-            } else {
-                msg.setStyle("-fx-background-color: #ecf0f1; -fx-text-fill: black; -fx-background-radius: 15;");
-                row.setAlignment(Pos.CENTER_LEFT);
-                row.getChildren().add(bubble);
-            }
-
-            chatBox.getChildren().add(row);
+            appendMessage(m);
         }
+    }
+
+    /** Adds one message bubble to the open thread (once per message) and scrolls to it. */
+    private void appendMessage(Document m) {
+        HBox row = messageRow(m);
+        if (row == null) return;
+        chatBox.getChildren().add(row);
 
         Platform.runLater(() -> {
             try {
@@ -377,6 +440,52 @@ public class MessagesController {
         });
     }
 
+    /** The bubble for a message, or null if it is already shown. */
+    private HBox messageRow(Document m) {
+        Object rawIdObj = m.get("_id");
+        String msgId;
+        if (rawIdObj != null) msgId = rawIdObj.toString();
+        else {
+            Date dt = m.getDate("createdAt");
+            long ts = dt == null ? 0L : dt.getTime();
+            msgId = safeStr(m.getString("senderId")) + "|" + safeStr(m.getString("receiverId")) + "|" + ts + "|" + safeStr(m.getString("body"));
+        }
+        if (!shownMessageIds.add(msgId)) return null;
+        String senderId = safeStr(m.getString("senderId"));
+        String body = safeStr(m.getString("body"));
+        Date created = m.getDate("createdAt");
+        String time = (created != null) ? timeFmt.format(created) : "";
+
+        Label msg = new Label(body);
+        msg.setWrapText(true);
+        msg.setMaxWidth(400);
+        msg.setPadding(new Insets(8, 12, 8, 12));
+
+        Label timestamp = new Label(time);
+        timestamp.setStyle("-fx-font-size: 10px; -fx-text-fill: gray;");
+        VBox bubble = new VBox(msg, timestamp);
+        bubble.setSpacing(2);
+
+        HBox row = new HBox();
+        row.setPadding(new Insets(4, 10, 4, 10));
+        row.setMaxWidth(Double.MAX_VALUE);
+
+        boolean myMsg = false;
+        if (linkedEntityId != null && !linkedEntityId.isBlank() && Objects.equals(senderId, linkedEntityId)) myMsg = true;
+        if (!myMsg && currentUsername != null && Objects.equals(senderId, currentUsername)) myMsg = true;
+
+        if (myMsg) {
+            msg.setStyle("-fx-background-color: #3498db; -fx-text-fill: white; -fx-background-radius: 15;");
+            row.setAlignment(Pos.CENTER_RIGHT);
+            row.getChildren().add(bubble);
+        } else {
+            msg.setStyle("-fx-background-color: #ecf0f1; -fx-text-fill: black; -fx-background-radius: 15;");
+            row.setAlignment(Pos.CENTER_LEFT);
+            row.getChildren().add(bubble);
+        }
+        return row;
+    }
+
     private static String safeStr(Object o) {
         return (o == null) ? "" : o.toString();
     }
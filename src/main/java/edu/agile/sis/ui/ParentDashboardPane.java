@@ -5,6 +5,7 @@ import edu.agile.sis.service.*;
 import edu.agile.sis.dao.SubmissionDAO;
 import edu.agile.sis.dao.UserDAO;
 import edu.agile.sis.model.Grade;
+import edu.agile.sis.db.DaoRegistry;
 import javafx.beans.property.ReadOnlyStringWrapper;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -28,7 +29,7 @@ public class ParentDashboardPane extends BorderPane {
     // services
     private final ParentService parentService = new ParentService();
     private final EntityService parentEntityService = new EntityService("parents");
-    private final UserDAO userDAO = new UserDAO();
+    private final UserDAO userDAO = DaoRegistry.get(UserDAO.class);
 
     // new: assignment service + cache for assignmentId -> subject/course key
     private final AssignmentService assignmentService = tryCreateAssignmentService();
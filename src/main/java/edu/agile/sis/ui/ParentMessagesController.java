@@ -1,7 +1,9 @@
 package edu.agile.sis.ui;
 
+import edu.agile.sis.dao.KeysetPage;
 import edu.agile.sis.security.AuthSession;
 import edu.agile.sis.security.PermissionService;
+import edu.agile.sis.service.MessageFeed;
 import edu.agile.sis.service.MessageService;
 import edu.agile.sis.service.ParentService;
 import edu.agile.sis.service.StaffService;
@@ -36,6 +38,12 @@ public class ParentMessagesController {
     // mapping: displayKey -> staffId (displayKey is what is shown in leftList items)
     private final LinkedHashMap<String, String> displayToStaff = new LinkedHashMap<>();
     private final ConcurrentMap<String, String> staffNameCache = new ConcurrentHashMap<>();
+    private static final int THREAD_PAGE = 50;
+    private final Set<String> shownMessageIds = new HashSet<>();
+    private MessageFeed feed;
+    // staff of the open thread and the token for its older messages (null when all are shown)
+    private String openStaffId;
+    private String olderToken;
 
     private final ExecutorService bg = Executors.newSingleThreadExecutor(r -> {
         Thread t = new Thread(r, "parent-msg-loader");
@@ -76,7 +84,13 @@ public class ParentMessagesController {
         mainSplit.setDividerPositions(0.33);
         view.setCenter(mainSplit);
 
+        // scrolled to the top: fetch the previous page of the open thread
+        chatScroll.vvalueProperty().addListener((obs, oldV, newV) -> {
+            if (newV.doubleValue() <= 0.0 && oldV.doubleValue() > 0.0 && olderToken != null) loadOlderMessages();
+        });
+
         leftList.getSelectionModel().selectedItemProperty().addListener((obs, oldV, newV) -> {
+            olderToken = null;
             if (newV == null) {
                 chatBox.getChildren().clear();
                 return;
@@ -118,9 +132,7 @@ public class ParentMessagesController {
                 String senderId = (parentId != null && !parentId.isBlank()) ? parentId : currentUsername;
                 String messageStudentId = senderId;
 
-                messageService.sendMessage(messageStudentId, staffId, senderId, body);
-
-                loadParentThreadWithStaff(staffId);
+                onLiveMessage(messageService.sendMessage(messageStudentId, staffId, senderId, body));
                 composer.clear();
             } catch (Exception ex) {
                 new Alert(Alert.AlertType.ERROR, "Failed to send: " + ex.getMessage()).showAndWait();
@@ -150,9 +162,55 @@ public class ParentMessagesController {
             }
         });
 
+        // live updates only while the screen is shown
+        view.sceneProperty().addListener((obs, oldScene, scene) -> {
+            if (scene == null) stopFeed();
+            else startFeed();
+        });
+
         bg.submit(this::populateLeftList);
     }
 
+    private void startFeed() {
+        if (feed != null || parentId == null || parentId.isBlank()) return;
+        feed = MessageFeed.forStudent(parentId, m -> Platform.runLater(() -> onLiveMessage(m)));
+        feed.start();
+    }
+
+    private void stopFeed() {
+        if (feed != null) feed.close();
+        feed = null;
+    }
+
+    /**
+     * A message that arrived (or was just sent): appended if its thread is open, otherwise that
+     * staff member moves to the top of the list. Runs on the FX thread.
+     */
+    private void onLiveMessage(Document m) {
+        if (m == null || !Objects.equals(safeStr(m.getString("studentId")), parentId)) return;
+        String staffId = safeStr(m.getString("staffId"));
+        if (staffId.isBlank()) return;
+        String sel = leftList.getSelectionModel().getSelectedItem();
+        if (sel != null && staffId.equals(displayToStaff.get(sel))) {
+            appendMessage(m);
+            return;
+        }
+        String key = null;
+        for (Map.Entry<String, String> e : displayToStaff.entrySet()) {
+            if (staffId.equals(e.getValue())) {
+                key = e.getKey();
+                break;
+            }
+        }
+        if (key == null) {
+            key = staffId;
+            displayToStaff.put(key, staffId);
+        } else {
+            leftList.getItems().remove(key);
+        }
+        leftList.getItems().add(0, key);
+    }
+
     private void populateLeftList() {
         displayToStaff.clear();
 
@@ -239,66 +297,59 @@ public class ParentMessagesController {
             chatBox.getChildren().clear();
             return;
         }
-        List<Document> list;
+        KeysetPage page;
         try {
-            list = messageService.getThread(parentId, staffId);
+            page = messageService.getThreadPage(parentId, staffId, THREAD_PAGE, null);
         } catch (Throwable t) {
-            list = Collections.emptyList();
+            page = new KeysetPage(Collections.emptyList(), null);
         }
-        displayParentThread(list, staffId);
+        openStaffId = staffId;
+        olderToken = page.getNextToken();
+        displayParentThread(page.getItems(), staffId);
+    }
+
+    private void loadOlderMessages() {
+        String token = olderToken;
+        olderToken = null;   // no second request while this one is shown
+        KeysetPage page;
+        try {
+            page = messageService.getThreadPage(parentId, openStaffId, THREAD_PAGE, token);
+        } catch (Throwable t) {
+            return;
+        }
+        List<HBox> rows = new ArrayList<>();
+        for (Document m : page.getItems()) {
+            HBox row = messageRow(m);
+            if (row != null) rows.add(row);
+        }
+        chatBox.getChildren().addAll(0, rows);
+        int total = chatBox.getChildren().size();
+        // keep the message that was at the top in view
+        Platform.runLater(() -> chatScroll.setVvalue(total == 0 ? 0 : (double) rows.size() / total));
+        olderToken = page.getNextToken();
     }
 
     private void displayParentThread(List<Document> list, String staffId) {
         chatBox.getChildren().clear();
+        shownMessageIds.clear();
         if (list == null || list.isEmpty()) return;
 
-        Set<String> seen = new HashSet<>();
         for (Document m : list) {
-            Object idObj = m.get("_id");
-            String dedupeKey = idObj != null ? idObj.toString() :
-                    (safeStr(m.getString("senderId")) + "|" + safeStr(m.getString("receiverId")) + "|" + safeStr(m.getString("createdAt")));
-            if (seen.contains(dedupeKey)) continue;
-            seen.add(dedupeKey);
-
-            String senderId = safeStr(m.getString("senderId"));
             String msgStudentId = safeStr(m.getString("studentId"));
             String msgStaffId = safeStr(m.getString("staffId"));
 
             if (!Objects.equals(msgStudentId, parentId)) continue;
             if (!Objects.equals(msgStaffId, staffId)) continue;
 
-            String body = safeStr(m.getString("body"));
-            Date created = m.getDate("createdAt");
-            String time = (created != null) ? timeFmt.format(created) : "";
-
-            Label msg = new Label(body);
-            msg.setWrapText(true);
-            msg.setMaxWidth(420);
-            msg.setPadding(new Insets(8, 12, 8, 12));
-
-            Label timestamp = new Label(time);
-            timestamp.setStyle("-fx-font-size: 10px; -fx-text-fill: gray;");
-            VBox bubble = new VBox(msg, timestamp);
-            bubble.setSpacing(2);
-
-            HBox row = new HBox();
-            row.setPadding(new Insets(4, 10, 4, 10));
-            row.setMaxWidth(Double.MAX_VALUE);
-
-            boolean myMsg = Objects.equals(senderId, parentId);
-
-            if (myMsg) {
-                msg.setStyle("-fx-background-color: #2ecc71; -fx-text-fill: white; -fx-background-radius: 15;");
-                row.setAlignment(Pos.CENTER_RIGHT);
-                row.getChildren().add(bubble);
-            } else {
-                msg.setStyle("-fx-background-color: #ffffff; -fx-text-fill: black; -fx-background-radius: 15;");
-                row.setAlignment(Pos.CENTER_LEFT);
-                row.getChildren().add(bubble);
-            }
-
-            chatBox.getChildren().add(row);
+            appendMessage(m);
         }
+    }
+
+    /** Adds one message bubble to the open thread (once per message) and scrolls to it. */
+    private void appendMessage(Document m) {
+        HBox row = messageRow(m);
+        if (row == null) return;
+        chatBox.getChildren().add(row);
 
         Platform.runLater(() -> {
             try {
@@ -307,6 +358,45 @@ public class ParentMessagesController {
         });
     }
 
+    /** The bubble for a message, or null if it is already shown. */
+    private HBox messageRow(Document m) {
+        Object idObj = m.get("_id");
+        String dedupeKey = idObj != null ? idObj.toString() :
+                (safeStr(m.getString("senderId")) + "|" + safeStr(m.getString("receiverId")) + "|" + safeStr(m.getString("createdAt")));
+        if (!shownMessageIds.add(dedupeKey)) return null;
+        String senderId = safeStr(m.getString("senderId"));
+        String body = safeStr(m.getString("body"));
+        Date created = m.getDate("createdAt");
+        String time = (created != null) ? timeFmt.format(created) : "";
+
+        Label msg = new Label(body);
+        msg.setWrapText(true);
+        msg.setMaxWidth(420);
+        msg.setPadding(new Insets(8, 12, 8, 12));
+
+        Label timestamp = new Label(time);
+        timestamp.setStyle("-fx-font-size: 10px; -fx-text-fill: gray;");
+        VBox bubble = new VBox(msg, timestamp);
+        bubble.setSpacing(2);
+
+        HBox row = new HBox();
+        row.setPadding(new Insets(4, 10, 4, 10));
+        row.setMaxWidth(Double.MAX_VALUE);
+
+        boolean myMsg = Objects.equals(senderId, parentId);
+
+        if (myMsg) {
+            msg.setStyle("-fx-background-color: #2ecc71; -fx-text-fill: white; -fx-background-radius: 15;");
+            row.setAlignment(Pos.CENTER_RIGHT);
+            row.getChildren().add(bubble);
+        } else {
+            msg.setStyle("-fx-background-color: #ffffff; -fx-text-fill: black; -fx-background-radius: 15;");
+            row.setAlignment(Pos.CENTER_LEFT);
+            row.getChildren().add(bubble);
+        }
+        return row;
+    }
+
     private static String safeStr(Object o) {
         return o == null ? "" : o.toString();
     }
@@ -316,6 +406,7 @@ public class ParentMessagesController {
     }
 
     public void shutdown() {
+        stopFeed();
         bg.shutdownNow();
     }
 }
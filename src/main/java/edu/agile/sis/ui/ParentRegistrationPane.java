@@ -3,6 +3,7 @@ package edu.agile.sis.ui;
 import edu.agile.sis.dao.UserDAO;
 import edu.agile.sis.service.EntityService;
 import edu.agile.sis.service.UserService;
+import edu.agile.sis.db.DaoRegistry;
 import javafx.application.Platform;
 import javafx.beans.binding.BooleanBinding;
 import javafx.beans.property.BooleanProperty;
@@ -29,7 +30,7 @@ public class ParentRegistrationPane extends StackPane {
 
     private final EntityService entityService = new EntityService("parents");
     private final UserService userService = new UserService();
-    private final UserDAO userDAO = new UserDAO();
+    private final UserDAO userDAO = DaoRegistry.get(UserDAO.class);
 
     private final TextField fullNameField = new TextField();
     private final Label fullNameError = new Label();
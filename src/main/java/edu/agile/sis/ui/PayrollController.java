@@ -142,7 +142,8 @@ public class PayrollController {
         }
 
         String staffId = safe(sel, "staffId");
-        PayrollDialog dlg = new PayrollDialog(staffId, sel);
+        Document full = service.getPayslipById(sel.getObjectId("_id").toHexString());
+        PayrollDialog dlg = new PayrollDialog(staffId, full != null ? full : sel);
 
         dlg.showAndWait().ifPresent(updated -> {
 
@@ -211,7 +212,7 @@ public class PayrollController {
             String q = adminStaffSearch.getText();
 
             if (q == null || q.isBlank()) {
-                List<Document> all = service.listAllPayroll();
+                List<Document> all = service.listAllPayrollSummaries();
                 if (all != null) data.addAll(all);
 
             } else {
@@ -11,7 +11,6 @@ import javafx.stage.FileChooser;
 import org.bson.Document;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 
@@ -140,9 +139,9 @@ public class PayrollDialog extends Dialog<Document> {
 
           
                 if (chosenFile != null) {
-                    try (FileInputStream fis = new FileInputStream(chosenFile)) {
+                    try {
                         String fileId = FileStorageUtil.uploadFile(
-                                chosenFile.getName(), fis, "application/pdf"
+                                chosenFile.getName(), chosenFile.toPath(), "application/pdf"
                         );
                         doc.append("fileId", fileId);
                         doc.append("fileName", chosenFile.getName());
@@ -0,0 +1,134 @@
+package edu.agile.sis.ui;
+
+import edu.agile.sis.db.DBConnection;
+import edu.agile.sis.db.QueryMetrics;
+import edu.agile.sis.db.SlowQueryLog;
+import edu.agile.sis.service.CatalogCache;
+import edu.agile.sis.util.ReadThroughCache;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.collections.FXCollections;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Node;
+import javafx.scene.control.*;
+import javafx.scene.layout.*;
+
+import java.text.SimpleDateFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Admin screen: query latency per collection/operation and per DAO method, the recent slow-query
+ * log, the connection pool counters and the catalog cache hit/miss counts. Reads QueryMetrics
+ * snapshots; refreshes on demand.
+ */
+public class QueryMetricsController {
+    private final VBox view = new VBox(12);
+    private final TableView<QueryMetrics.Snapshot> operationsTable = snapshotTable();
+    private final TableView<QueryMetrics.Snapshot> methodsTable = snapshotTable();
+    private final TableView<SlowQueryLog.Entry> slowTable = new TableView<>();
+    private final Label poolLabel = new Label();
+    private final Label cacheLabel = new Label();
+
+    public QueryMetricsController() {
+        view.setPadding(new Insets(18));
+        view.setStyle("-fx-background-color: #f4f6f8;");
+
+        Label title = new Label("Query Metrics");
+        title.setStyle("-fx-font-size: 20px; -fx-font-weight: 800; -fx-text-fill: #2c3e50;");
+        poolLabel.setStyle("-fx-font-size: 12px; -fx-text-fill: #7b8a93;");
+        cacheLabel.setStyle("-fx-font-size: 12px; -fx-text-fill: #7b8a93;");
+        VBox left = new VBox(2, title, poolLabel, cacheLabel);
+
+        Region spacer = new Region();
+        HBox.setHgrow(spacer, Priority.ALWAYS);
+        Button refreshBtn = new Button("↻ Refresh");
+        refreshBtn.setOnAction(e -> refresh());
+        Button resetBtn = new Button("Reset");
+        resetBtn.setOnAction(e -> {
+            QueryMetrics.getInstance().reset();
+            CatalogCache.getInstance().resetCounters();
+            refresh();
+        });
+        HBox topBar = new HBox(10, left, spacer, refreshBtn, resetBtn);
+        topBar.setAlignment(Pos.CENTER_LEFT);
+
+        buildSlowTable();
+        TabPane tabs = new TabPane(
+                tab("By collection", operationsTable),
+                tab("By DAO method", methodsTable),
+                tab("Slow queries", slowTable));
+        VBox.setVgrow(tabs, Priority.ALWAYS);
+
+        view.getChildren().addAll(topBar, tabs);
+        refresh();
+    }
+
+    public Node getView() {
+        return view;
+    }
+
+    private void refresh() {
+        QueryMetrics metrics = QueryMetrics.getInstance();
+        operationsTable.setItems(FXCollections.observableArrayList(metrics.snapshotByOperation()));
+        methodsTable.setItems(FXCollections.observableArrayList(metrics.snapshotByMethod()));
+        slowTable.setItems(FXCollections.observableArrayList(metrics.recentSlowQueries()));
+
+        Map<String, Number> pool = DBConnection.getInstance().getPoolStats().snapshot();
+        poolLabel.setText("Pool: " + pool.get("checkedOut") + " checked out, " + pool.get("waitQueue") + " waiting, "
+                + pool.get("open") + " open, " + pool.get("checkOutFailures") + " check-out failures");
+
+        StringBuilder caches = new StringBuilder("Cache hits/misses:");
+        for (ReadThroughCache<?, ?> c : CatalogCache.getInstance().caches()) {
+            caches.append("  ").append(c.getName()).append(' ').append(c.getHits()).append('/').append(c.getMisses());
+        }
+        cacheLabel.setText(caches.toString());
+    }
+
+    private static Tab tab(String name, Node content) {
+        Tab t = new Tab(name, content);
+        t.setClosable(false);
+        return t;
+    }
+
+    private static TableView<QueryMetrics.Snapshot> snapshotTable() {
+        TableView<QueryMetrics.Snapshot> table = new TableView<>();
+        table.getColumns().addAll(List.of(
+                column("Key", 260, s -> s.key),
+                column("Calls", 70, s -> String.valueOf(s.count)),
+                column("Failed", 60, s -> String.valueOf(s.failures)),
+                column("Avg ms", 70, s -> ms(s.avgMs)),
+                column("p50 ms", 70, s -> ms(s.p50Ms)),
+                column("p95 ms", 70, s -> ms(s.p95Ms)),
+                column("p99 ms", 70, s -> ms(s.p99Ms)),
+                column("Max ms", 70, s -> ms(s.maxMs)),
+                column("Docs", 80, s -> String.valueOf(s.docs)),
+                column("KB", 80, s -> String.format("%.1f", s.bytes / 1024.0))));
+        table.setPlaceholder(new Label("No queries recorded yet"));
+        return table;
+    }
+
+    private void buildSlowTable() {
+        SimpleDateFormat fmt = new SimpleDateFormat("HH:mm:ss.SSS");
+        slowTable.getColumns().addAll(List.of(
+                column("Time", 100, (SlowQueryLog.Entry e) -> fmt.format(e.at)),
+                column("ms", 70, (SlowQueryLog.Entry e) -> ms(e.millis)),
+                column("Operation", 180, (SlowQueryLog.Entry e) -> e.collection + "." + e.operation),
+                column("Caller", 220, (SlowQueryLog.Entry e) -> e.caller == null ? "-" : e.caller),
+                column("Docs", 60, (SlowQueryLog.Entry e) -> String.valueOf(e.docs)),
+                column("Filter shape", 380, (SlowQueryLog.Entry e) -> e.shape == null ? "-" : e.shape)));
+        slowTable.setPlaceholder(new Label("No slow queries"));
+    }
+
+    private static <T> TableColumn<T, String> column(String name, double width, Function<T, String> value) {
+        TableColumn<T, String> col = new TableColumn<>(name);
+        col.setPrefWidth(width);
+        col.setCellValueFactory(c -> new SimpleStringProperty(value.apply(c.getValue())));
+        return col;
+    }
+
+    private static String ms(double v) {
+        return String.format("%.1f", v);
+    }
+}
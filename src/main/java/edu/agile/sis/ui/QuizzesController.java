@@ -320,7 +320,8 @@ public class QuizzesController {
                 boolean ok = quizService.gradeAttempt(attemptId, newScore, feedback, grader);
                 if (ok) {
                     // reload attempts and refresh the visible list
-                    String quizId = attempt.getString("quizId");
+                    Object quizIdRaw = attempt.get("quizId");
+                    String quizId = quizIdRaw instanceof org.bson.types.ObjectId ? ((org.bson.types.ObjectId) quizIdRaw).toHexString() : String.valueOf(quizIdRaw);
                     List<Document> refreshed = quizService.listAttemptsForQuiz(quizId);
                     listToUpdate.clear();
                     if (refreshed != null) listToUpdate.addAll(refreshed);
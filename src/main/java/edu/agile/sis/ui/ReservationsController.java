@@ -1,6 +1,9 @@
 package edu.agile.sis.ui;
 
+import edu.agile.sis.dao.KeysetPage;
 import edu.agile.sis.security.AuthSession;
+import edu.agile.sis.service.RecurrenceRule;
+import edu.agile.sis.service.RecurringBooking;
 import edu.agile.sis.service.ReservationService;
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
@@ -27,14 +30,16 @@ public class ReservationsController {
     private final VBox view = new VBox(20);
     private final ReservationService reservationService = new ReservationService();
 
-    private final ObservableList<Document> allReservations = FXCollections.observableArrayList();
     private final ObservableList<Document> paged = FXCollections.observableArrayList();
     private final TableView<Document> table = new TableView<>();
     private final SimpleDateFormat dateTimeFmt = new SimpleDateFormat("yyyy-MM-dd HH:mm");
 
     private int pageSize = 10;
     private int currentPage = 1;
-    private int totalPages = 1;
+    // pageTokens.get(i) loads page i + 1 (null for the first page)
+    private final List<String> pageTokens = new ArrayList<>();
+    private String nextToken;
+    private String searchQuery;
 
     private final boolean isAdmin;
     private final boolean isProfessor;
@@ -79,13 +84,9 @@ public class ReservationsController {
         searchField.setPrefWidth(300);
         searchField.setStyle("-fx-background-radius: 6; -fx-padding: 6 10;");
         searchField.textProperty().addListener((obs, oldV, newV) -> {
-            String q = (newV == null) ? "" : newV.trim().toLowerCase();
-            if (q.isEmpty()) {
-                currentPage = 1;
-                updatePagination();
-            } else {
-                loadReservationsFiltered(q);
-            }
+            String q = (newV == null) ? "" : newV.trim();
+            searchQuery = q.isEmpty() ? null : q;
+            loadReservations();
         });
 
    
@@ -93,11 +94,16 @@ public class ReservationsController {
         pageSizeBox.setValue(pageSize);
         pageSizeBox.setOnAction(e -> {
             pageSize = pageSizeBox.getValue();
-            currentPage = 1;
-            updatePagination();
+            loadReservations();
+        });
+        prevBtn.setOnAction(e -> { if (currentPage > 1) { currentPage--; loadPage(); } });
+        nextBtn.setOnAction(e -> {
+            if (nextToken == null) return;
+            if (pageTokens.size() <= currentPage) pageTokens.add(nextToken);
+            else pageTokens.set(currentPage, nextToken);
+            currentPage++;
+            loadPage();
         });
-        prevBtn.setOnAction(e -> { if (currentPage > 1) { currentPage--; updatePagination(); } });
-        nextBtn.setOnAction(e -> { if (currentPage < totalPages) { currentPage++; updatePagination(); } });
 
         HBox pagingControls = new HBox(10, new Label("Page size:"), pageSizeBox, prevBtn, pageLabel, nextBtn);
         pagingControls.setAlignment(Pos.CENTER_LEFT);
@@ -111,8 +117,10 @@ public class ReservationsController {
         Button rejectBtn = styledButton("❌ Reject", "#ffc107");
         Button deleteBtn = styledButton("🗑 Delete", "#dc3545");
         Button refreshBtn = styledButton("🔄 Refresh", "#6c757d");
+        Button freeBtn = styledButton("🕑 Find Free Slot", "#6f42c1");
 
         addBtn.setDisable(!canCreate);
+        freeBtn.setDisable(!canCreate);
         deleteBtn.setDisable(!canModify);
         approveBtn.setDisable(!canModify);
         rejectBtn.setDisable(!canModify);
@@ -134,8 +142,9 @@ public class ReservationsController {
 
         deleteBtn.setOnAction(e -> handleDelete());
         refreshBtn.setOnAction(e -> loadReservations());
+        freeBtn.setOnAction(e -> findFreeSlots());
 
-        HBox actionButtons = new HBox(10, addBtn, viewBtn, approveBtn, rejectBtn, deleteBtn, refreshBtn);
+        HBox actionButtons = new HBox(10, addBtn, freeBtn, viewBtn, approveBtn, rejectBtn, deleteBtn, refreshBtn);
         actionButtons.setAlignment(Pos.CENTER_LEFT);
         actionButtons.setPadding(new Insets(10, 0, 0, 0));
 
@@ -254,52 +263,28 @@ public class ReservationsController {
         });
     }
 
+    /** Back to the first page with the current search and page size. */
     private void loadReservations() {
-        allReservations.clear();
-        List<Document> reservations = reservationService.listAllReservations();
-        if (reservations == null) reservations = new ArrayList<>();
-
-        if (isAdmin) allReservations.addAll(reservations);
-        else {
-            String me = AuthSession.getInstance().getUsername();
-            for (Document r : reservations)
-                if (me.equalsIgnoreCase(safeGetString(r, "createdBy"))) allReservations.add(r);
-        }
+        pageTokens.clear();
+        pageTokens.add(null);
         currentPage = 1;
-        updatePagination();
+        loadPage();
     }
 
-    private void loadReservationsFiltered(String q) {
-        allReservations.clear();
-        List<Document> reservations = reservationService.listAllReservations();
-        if (reservations == null) return;
-
-        String me = AuthSession.getInstance().getUsername();
-        boolean showAll = isAdmin;
-
-        for (Document d : reservations) {
-            String room = safeGetString(d, "roomId").toLowerCase();
-            String cb = safeGetString(d, "createdBy").toLowerCase();
-            String purpose = safeGetString(d, "purpose").toLowerCase();
-            if ((room + cb + purpose).contains(q)) {
-                if (showAll || cb.equalsIgnoreCase(me)) allReservations.add(d);
-            }
-        }
-        currentPage = 1;
-        updatePagination();
+    private void loadPage() {
+        if (pageTokens.isEmpty()) pageTokens.add(null);
+        // non-admins only see their own bookings
+        String owner = isAdmin ? null : AuthSession.getInstance().getUsername();
+        KeysetPage page = reservationService.listReservationPage(owner, searchQuery, pageSize, pageTokens.get(currentPage - 1));
+        nextToken = page.getNextToken();
+        updatePagination(page.getItems());
     }
 
-    private void updatePagination() {
-        int totalItems = allReservations.size();
-        totalPages = Math.max(1, (int) Math.ceil((double) totalItems / pageSize));
-        if (currentPage > totalPages) currentPage = totalPages;
-        int from = (currentPage - 1) * pageSize;
-        int to = Math.min(from + pageSize, totalItems);
-
-        paged.setAll(allReservations.subList(from, to));
-        pageLabel.setText("Page " + currentPage + " / " + totalPages + " (Total: " + totalItems + ")");
+    private void updatePagination(List<Document> rows) {
+        paged.setAll(rows);
+        pageLabel.setText("Page " + currentPage);
         prevBtn.setDisable(currentPage <= 1);
-        nextBtn.setDisable(currentPage >= totalPages);
+        nextBtn.setDisable(nextToken == null);
     }
 
     // === Utilities ===
@@ -347,6 +332,12 @@ public class ReservationsController {
         String username = AuthSession.getInstance().getUsername();
         createdBy.setText(username == null ? "" : username);
         TextField purpose = new TextField(); purpose.setPromptText("purpose");
+        CheckBox repeatWeekly = new CheckBox("Repeat weekly");
+        Spinner<Integer> occurrences = new Spinner<>(2, RecurrenceRule.MAX_OCCURRENCES, 15);
+        occurrences.setEditable(true);
+        TextField excluded = new TextField(); excluded.setPromptText("yyyy-MM-dd, yyyy-MM-dd");
+        occurrences.disableProperty().bind(repeatWeekly.selectedProperty().not());
+        excluded.disableProperty().bind(repeatWeekly.selectedProperty().not());
 
         grid.add(new Label("Room ID:"), 0, 0); grid.add(roomField, 1, 0);
         grid.add(new Label("Start Date:"), 0, 1); grid.add(startDate, 1, 1);
@@ -355,6 +346,9 @@ public class ReservationsController {
         grid.add(new Label("End Time (HH:mm):"), 0, 4); grid.add(endTime, 1, 4);
         grid.add(new Label("Created By:"), 0, 5); grid.add(createdBy, 1, 5);
         grid.add(new Label("Purpose:"), 0, 6); grid.add(purpose, 1, 6);
+        grid.add(repeatWeekly, 1, 7);
+        grid.add(new Label("Occurrences:"), 0, 8); grid.add(occurrences, 1, 8);
+        grid.add(new Label("Skip Dates:"), 0, 9); grid.add(excluded, 1, 9);
 
         dlg.getDialogPane().setContent(grid);
 
@@ -372,6 +366,11 @@ public class ReservationsController {
             if (s == null || e == null || !e.after(s)) {
                 ev.consume();
                 new Alert(Alert.AlertType.WARNING, "Invalid start/end date-time.").showAndWait();
+                return;
+            }
+            if (repeatWeekly.isSelected() && parseDates(excluded.getText()) == null) {
+                ev.consume();
+                new Alert(Alert.AlertType.WARNING, "Skip dates must be yyyy-MM-dd, separated by commas.").showAndWait();
             }
         });
 
@@ -393,7 +392,9 @@ public class ReservationsController {
         });
 
         dlg.showAndWait().ifPresent(doc -> {
-            if (doc != null) {
+            if (doc != null && repeatWeekly.isSelected()) {
+                createSeries(doc, new RecurrenceRule(occurrences.getValue(), parseDates(excluded.getText())));
+            } else if (doc != null) {
                 String createdHexId = reservationService.createReservation(
                         doc.getString("roomId"),
                         doc.getDate("start"),
@@ -411,6 +412,97 @@ public class ReservationsController {
         });
     }
 
+    private void createSeries(Document doc, RecurrenceRule rule) {
+        RecurringBooking booking;
+        try {
+            booking = reservationService.createRecurringReservation(doc.getString("roomId"),
+                    doc.getDate("start"), doc.getDate("end"), rule, doc.getString("createdBy"), doc.getString("purpose"));
+        } catch (IllegalArgumentException ex) {
+            new Alert(Alert.AlertType.WARNING, ex.getMessage()).showAndWait();
+            return;
+        }
+        if (booking.isBooked()) {
+            loadReservations();
+            new Alert(Alert.AlertType.INFORMATION, booking.getCreatedIds().size() + " weekly reservations created.").showAndWait();
+        } else if (!booking.getConflicts().isEmpty()) {
+            StringBuilder sb = new StringBuilder("Nothing was booked. These weeks clash with existing reservations:\n");
+            for (Date d : booking.getConflicts()) sb.append(dateTimeFmt.format(d)).append('\n');
+            new Alert(Alert.AlertType.ERROR, sb.toString()).showAndWait();
+        } else {
+            new Alert(Alert.AlertType.ERROR, "Reservation conflict or failed to create").showAndWait();
+        }
+    }
+
+    /** Comma-separated yyyy-MM-dd dates; null if any is malformed. */
+    private List<LocalDate> parseDates(String text) {
+        List<LocalDate> dates = new ArrayList<>();
+        if (text == null) return dates;
+        for (String part : text.split(",")) {
+            if (part.isBlank()) continue;
+            try {
+                dates.add(LocalDate.parse(part.trim()));
+            } catch (java.time.format.DateTimeParseException ex) {
+                return null;
+            }
+        }
+        return dates;
+    }
+
+    private void findFreeSlots() {
+        Dialog<ButtonType> dlg = new Dialog<>();
+        dlg.setTitle("Find Free Slot");
+        dlg.getDialogPane().getButtonTypes().addAll(ButtonType.OK, ButtonType.CANCEL);
+
+        GridPane grid = new GridPane();
+        grid.setHgap(8);
+        grid.setVgap(8);
+        grid.setPadding(new Insets(10));
+
+        TextField roomsField = new TextField(); roomsField.setPromptText("room_101, room_102");
+        DatePicker fromDate = new DatePicker(LocalDate.now());
+        TextField fromTime = new TextField("08:00");
+        DatePicker toDate = new DatePicker(LocalDate.now().plusDays(7));
+        TextField toTime = new TextField("18:00");
+        Spinner<Integer> minutes = new Spinner<>(15, 24 * 60, 60, 15);
+        minutes.setEditable(true);
+        Spinner<Integer> count = new Spinner<>(1, 50, 5);
+        count.setEditable(true);
+
+        grid.add(new Label("Rooms:"), 0, 0); grid.add(roomsField, 1, 0);
+        grid.add(new Label("From Date:"), 0, 1); grid.add(fromDate, 1, 1);
+        grid.add(new Label("From Time (HH:mm):"), 0, 2); grid.add(fromTime, 1, 2);
+        grid.add(new Label("To Date:"), 0, 3); grid.add(toDate, 1, 3);
+        grid.add(new Label("To Time (HH:mm):"), 0, 4); grid.add(toTime, 1, 4);
+        grid.add(new Label("Duration (min):"), 0, 5); grid.add(minutes, 1, 5);
+        grid.add(new Label("Show first:"), 0, 6); grid.add(count, 1, 6);
+        dlg.getDialogPane().setContent(grid);
+
+        if (dlg.showAndWait().orElse(ButtonType.CANCEL) != ButtonType.OK) return;
+        List<String> rooms = new ArrayList<>();
+        for (String r : roomsField.getText().split(",")) if (!r.isBlank()) rooms.add(r.trim());
+        Date from = parseDateTime(fromDate.getValue(), fromTime.getText());
+        Date to = parseDateTime(toDate.getValue(), toTime.getText());
+        if (rooms.isEmpty() || from == null || to == null || !to.after(from)) {
+            showAlert(Alert.AlertType.WARNING, "Enter at least one room and a valid time range.");
+            return;
+        }
+
+        List<Document> free = reservationService.findFreeSlots(rooms, from, to, minutes.getValue() * 60_000L, count.getValue());
+        if (free.isEmpty()) {
+            showAlert(Alert.AlertType.INFORMATION, "No free slot of that length in the selected rooms and range.");
+            return;
+        }
+        StringBuilder sb = new StringBuilder();
+        for (Document f : free) {
+            sb.append(f.getString("roomId")).append("  ")
+                    .append(dateTimeFmt.format(f.getDate("start"))).append(" - ")
+                    .append(dateTimeFmt.format(f.getDate("end"))).append('\n');
+        }
+        Alert alert = new Alert(Alert.AlertType.INFORMATION, sb.toString());
+        alert.setHeaderText("Free slots");
+        alert.showAndWait();
+    }
+
     private void showDetailDialogReadOnly(Document doc) {
         if (doc == null) return;
         String id = getIdString(doc);
@@ -202,6 +202,11 @@ private void onViewOrEdit(boolean canManage) {
         sel = entityService.getEntityById(linkedEntityId);
     } else {
         sel = table.getSelectionModel().getSelectedItem();
+        if (sel != null) {
+            // table rows are summaries; the dialog edits the whole record
+            Document full = entityService.getEntityById(resolveEntityId(sel));
+            if (full != null) sel = full;
+        }
     }
 
     if (sel == null) {
@@ -302,7 +307,7 @@ private void onViewOrEdit(boolean canManage) {
             Document d = entityService.getEntityById(linkedEntityId);
             if (d != null) data.add(d);
         } else {
-            List<Document> list = entityService.getEntitiesByType("student");
+            List<Document> list = entityService.getEntitySummariesByType("student");
             if (list != null) data.addAll(list);
         }
     }
@@ -2,9 +2,15 @@ package edu.agile.sis.ui;
 
 import edu.agile.sis.security.AuthSession;
 import edu.agile.sis.service.SubmissionService;
+import edu.agile.sis.util.ChunkedUploader;
+import edu.agile.sis.util.FileStorageUtil;
+import edu.agile.sis.util.UploadProgressListener;
+import javafx.concurrent.Task;
 import javafx.geometry.Insets;
+import javafx.scene.Node;
 import javafx.scene.control.*;
 import javafx.scene.layout.GridPane;
+import javafx.scene.layout.HBox;
 import javafx.stage.FileChooser;
 import org.bson.Document;
 
@@ -12,6 +18,7 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CancellationException;
 
 /**
  * Dialog to allow a student to submit to an assignment — and to view grade & feedback if already graded.
@@ -20,10 +27,13 @@ public class SubmissionDialog extends Dialog<String> {
     private final SubmissionService service = new SubmissionService();
     private final List<Document> attachments = new ArrayList<>();
     private final TextArea answersArea = new TextArea();
+    private final Node okButton;
+    private ChunkedUploader activeUpload;
 
     public SubmissionDialog(String assignmentId) {
         setTitle("Submit Assignment");
         getDialogPane().getButtonTypes().addAll(ButtonType.CANCEL, ButtonType.OK);
+        okButton = getDialogPane().lookupButton(ButtonType.OK);
 
         GridPane g = new GridPane();
         g.setHgap(8); g.setVgap(8); g.setPadding(new Insets(10));
@@ -57,25 +67,78 @@ public class SubmissionDialog extends Dialog<String> {
         }
 
         Button attachBtn = new Button("Attach File");
+        ProgressBar uploadBar = new ProgressBar(0);
+        uploadBar.setPrefWidth(220);
+        Label uploadStatus = new Label();
+        Button cancelUploadBtn = new Button("Cancel Upload");
+        HBox uploadRow = new HBox(8, uploadBar, uploadStatus, cancelUploadBtn);
+        uploadRow.setVisible(false);
+        uploadRow.setManaged(false);
+
         attachBtn.setOnAction(e -> {
             FileChooser fc = new FileChooser();
             File f = fc.showOpenDialog(getOwner());
             if (f == null) return;
-            try {
-                Document ref = service.uploadAttachmentFromPath(f.getAbsolutePath(), f.getName(), null);
-                attachments.add(ref);
+
+            ChunkedUploader uploader = FileStorageUtil.newUploader();
+            activeUpload = uploader;
+            Task<Document> upload = new Task<>() {
+                @Override
+                protected Document call() throws Exception {
+                    return service.uploadAttachmentFromPath(f.getAbsolutePath(), f.getName(), null, uploader,
+                            new UploadProgressListener() {
+                                @Override
+                                public void progress(long sent, long total, double bytesPerSecond) {
+                                    updateProgress(sent, Math.max(1, total));
+                                    updateMessage(mb(sent) + " / " + mb(total) + " MB · " + mb((long) bytesPerSecond) + " MB/s");
+                                }
+
+                                @Override
+                                public void hashing(long hashed, long total) {
+                                    updateProgress(hashed, Math.max(1, total));
+                                    updateMessage("Checking file… " + mb(hashed) + " / " + mb(total) + " MB");
+                                }
+                            });
+                }
+            };
+            uploadBar.progressProperty().bind(upload.progressProperty());
+            uploadStatus.textProperty().bind(upload.messageProperty());
+            cancelUploadBtn.setOnAction(ev -> uploader.cancel());
+            attachBtn.setDisable(true);
+            okButton.setDisable(true);
+            uploadRow.setVisible(true);
+            uploadRow.setManaged(true);
+
+            upload.setOnSucceeded(ev -> {
+                attachments.add(upload.getValue());
                 attachBtn.setText("Attachments: " + attachments.size());
-            } catch (Exception ex) {
-                new Alert(Alert.AlertType.ERROR, "Upload failed: " + ex.getMessage()).showAndWait();
-            }
+                finishUpload(attachBtn, uploadRow, uploadStatus);
+            });
+            upload.setOnFailed(ev -> {
+                finishUpload(attachBtn, uploadRow, uploadStatus);
+                Throwable ex = upload.getException();
+                if (ex instanceof CancellationException) {
+                    new Alert(Alert.AlertType.INFORMATION, "Upload cancelled. Attach the same file again to resume.").showAndWait();
+                } else {
+                    new Alert(Alert.AlertType.ERROR, "Upload failed: " + ex.getMessage()
+                            + "\nAttach the same file again to resume.").showAndWait();
+                }
+            });
+
+            Thread t = new Thread(upload, "submission-upload");
+            t.setDaemon(true);
+            t.start();
         });
 
         answersArea.setPrefRowCount(8);
 
         g.add(new Label("Answers / Notes:"), 0, 6); g.add(answersArea, 1, 6);
         g.add(new Label("Attachments:"), 0, 7); g.add(attachBtn, 1, 7);
+        g.add(uploadRow, 1, 8);
 
         getDialogPane().setContent(g);
+        // closing the dialog stops a running upload; the manifest lets it resume next time
+        setOnHidden(e -> { if (activeUpload != null) activeUpload.cancel(); });
 
         setResultConverter(btn -> {
             if (btn == ButtonType.OK) {
@@ -96,4 +159,17 @@ public class SubmissionDialog extends Dialog<String> {
             return null;
         });
     }
+
+    private void finishUpload(Button attachBtn, HBox uploadRow, Label uploadStatus) {
+        activeUpload = null;
+        uploadStatus.textProperty().unbind();
+        attachBtn.setDisable(false);
+        okButton.setDisable(false);
+        uploadRow.setVisible(false);
+        uploadRow.setManaged(false);
+    }
+
+    private static String mb(long bytes) {
+        return String.format("%.1f", bytes / (1024.0 * 1024.0));
+    }
 }
@@ -0,0 +1,99 @@
+package edu.agile.sis.ui;
+
+import edu.agile.sis.config.ConfigManager;
+import edu.agile.sis.service.ThumbnailService;
+import edu.agile.sis.util.LruCache;
+import javafx.application.Platform;
+import javafx.geometry.Pos;
+import javafx.scene.Node;
+import javafx.scene.control.Label;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.layout.StackPane;
+import javafx.stage.Screen;
+import org.bson.Document;
+
+import java.io.ByteArrayInputStream;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Loads announcement thumbnails off the FX thread. Returns a placeholder node right away and swaps
+ * in the image when it arrives. Decoded images are kept in a size-bounded LRU so re-created list
+ * cells do not fetch again. Concurrent requests for the same image share one load.
+ */
+public class ThumbnailLoader {
+    private static final ThumbnailLoader INSTANCE = new ThumbnailLoader();
+
+    private final ThumbnailService thumbnails = new ThumbnailService();
+    private final LruCache<String, Image> memory;
+    private final Map<String, CompletableFuture<Image>> inFlight = new ConcurrentHashMap<>();
+    private final ExecutorService pool = Executors.newFixedThreadPool(2, r -> {
+        Thread t = new Thread(r, "thumbnail-loader"); t.setDaemon(true); return t;
+    });
+
+    private ThumbnailLoader() {
+        long mb = 32;
+        try {
+            mb = Long.parseLong(ConfigManager.getInstance().get("thumbnails.memoryCacheMb", "32").trim());
+        } catch (NumberFormatException ignored) {}
+        memory = new LruCache<>(mb * 1024 * 1024, img -> (long) (img.getWidth() * img.getHeight() * 4));
+    }
+
+    public static ThumbnailLoader getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @param fileId   original image id (announcement "thumbnailFileId")
+     * @param variants the announcement's "thumbnails" sub-document, may be null
+     * @param height   display height in points
+     */
+    public Node thumbnail(String fileId, Document variants, double height) {
+        int pixels = (int) Math.ceil(height * Screen.getPrimary().getOutputScaleY());
+        String key = fileId + ":" + ThumbnailService.pickHeight(pixels);
+
+        ImageView iv = new ImageView();
+        iv.setFitHeight(height);
+        iv.setPreserveRatio(true);
+        iv.setSmooth(true);
+
+        Image cached = memory.get(key);
+        if (cached != null) {
+            iv.setImage(cached);
+            return iv;
+        }
+
+        Label placeholder = new Label("Loading image…");
+        placeholder.setStyle("-fx-background-color: #eef1f4; -fx-text-fill: #8a97a3; -fx-font-size: 11px;");
+        placeholder.setMinSize(height * 4 / 3, height);
+        placeholder.setAlignment(Pos.CENTER);
+        StackPane pane = new StackPane(placeholder, iv);
+        pane.setAlignment(Pos.CENTER_LEFT);
+
+        inFlight.computeIfAbsent(key, k -> CompletableFuture.supplyAsync(() -> decode(fileId, variants, pixels), pool)
+                        .whenComplete((img, ex) -> {
+                            inFlight.remove(k);
+                            if (img != null) memory.put(k, img);
+                        }))
+                .whenComplete((img, ex) -> Platform.runLater(() -> {
+                    if (img != null) {
+                        iv.setImage(img);
+                        pane.getChildren().remove(placeholder);
+                    } else {
+                        placeholder.setText("Image unavailable");
+                    }
+                }));
+        return pane;
+    }
+
+    private Image decode(String fileId, Document variants, int pixels) {
+        byte[] jpeg = thumbnails.load(fileId, variants, pixels);
+        if (jpeg == null) return null;
+        Image img = new Image(new ByteArrayInputStream(jpeg));
+        return img.isError() ? null : img;
+    }
+}
@@ -0,0 +1,217 @@
+package edu.agile.sis.util;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.ReplaceOptions;
+import edu.agile.sis.config.ConfigManager;
+import edu.agile.sis.dao.UploadSessionDAO;
+import edu.agile.sis.db.DBConnection;
+import edu.agile.sis.db.DaoRegistry;
+import org.bson.Document;
+import org.bson.types.Binary;
+import org.bson.types.ObjectId;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Resumable uploads of local files into a GridFS bucket, written chunk by chunk.
+ *
+ * The file is hashed first. Content that is already stored is not sent again (see ContentStore),
+ * and the hash keys the upload manifest in upload_sessions. Each chunk is written idempotently
+ * before the manifest's committed counter moves on. An interrupted or cancelled upload of the same
+ * content therefore resumes at the first chunk not yet stored. The files document is written last,
+ * so readers never see a partial file. Memory use is one chunk, whatever the file size.
+ * Manifests left alone for a week expire, and sweepOrphanChunks (run at startup) drops their chunks.
+ *
+ * Chunk size comes from uploads.chunkSizeKb (default 1024). A resumed upload keeps the chunk size
+ * it started with.
+ */
+public class ChunkedUploader {
+    static final int MIN_CHUNK = 64 * 1024;
+    static final int MAX_CHUNK = 8 * 1024 * 1024;
+    /** Plain GridFS uploads write their files document last; their chunks are younger than this. */
+    static final long ORPHAN_GRACE_MS = 24L * 60 * 60 * 1000;
+
+    private final String bucketName;
+    private final MongoCollection<Document> files;
+    private final MongoCollection<Document> chunks;
+    private final UploadSessionDAO sessions;
+    private final ContentStore store;
+    private final int chunkSize;
+    private volatile boolean cancelled;
+
+    public ChunkedUploader(String bucketName, MongoCollection<Document> files, MongoCollection<Document> chunks,
+                           UploadSessionDAO sessions, ContentStore store, int chunkSize) {
+        this.bucketName = bucketName;
+        this.files = files;
+        this.chunks = chunks;
+        this.sessions = sessions;
+        this.store = store;
+        this.chunkSize = Math.max(MIN_CHUNK, Math.min(MAX_CHUNK, chunkSize));
+    }
+
+    public static ChunkedUploader forBucket(String bucketName) {
+        MongoDatabase db = DBConnection.getInstance().getDatabase();
+        int kb = 1024;
+        try {
+            kb = Integer.parseInt(ConfigManager.getInstance().get("uploads.chunkSizeKb", "1024").trim());
+        } catch (NumberFormatException ignored) {}
+        return new ChunkedUploader(bucketName, db.getCollection(bucketName + ".files"), db.getCollection(bucketName + ".chunks"),
+                DaoRegistry.get(UploadSessionDAO.class), ContentStore.forBucket(bucketName), kb * 1024);
+    }
+
+    /** Stops the running upload after the current chunk; its manifest is kept for a later resume. */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Uploads file and returns its file id (possibly an existing blob with the same content).
+     *
+     * @throws CancellationException if cancel() was called; calling upload again resumes
+     */
+    public String upload(Path file, String filename, Document metadata, UploadProgressListener listener) throws IOException {
+        cancelled = false;
+        UploadProgressListener progress = listener != null ? listener : (sent, total, bps) -> {};
+        long size = Files.size(file);
+
+        String sha = hash(file, size, progress);
+        String existing = store.acquireExisting(sha);
+        if (existing != null) {
+            progress.progress(size, size, 0);
+            return existing;
+        }
+
+        String key = bucketName + ":" + sha;
+        Document session = sessions.findById(key);
+        if (session == null) {
+            session = new Document("_id", key)
+                    .append("bucket", bucketName)
+                    .append("sha256", sha)
+                    .append("filename", filename)
+                    .append("size", size)
+                    .append("chunkSize", chunkSize)
+                    .append("fileId", new ObjectId())
+                    .append("metadata", metadata == null ? new Document() : metadata);
+            try {
+                sessions.insert(session);
+            } catch (com.mongodb.MongoWriteException ex) {
+                // another client started the same content a moment ago; share its manifest
+                session = sessions.findById(key);
+                if (session == null) throw ex;
+            }
+        }
+
+        ObjectId fileId = session.getObjectId("fileId");
+        int sessionChunk = session.getInteger("chunkSize", chunkSize);
+        int committed = session.getInteger("committed", 0);
+        int total = (int) ((size + sessionChunk - 1) / sessionChunk);
+
+        long attemptStart = System.nanoTime();
+        long attemptBytes = 0;
+        ReplaceOptions upsert = new ReplaceOptions().upsert(true);
+        ByteBuffer buf = ByteBuffer.allocate(sessionChunk);
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            progress.progress(Math.min(size, (long) committed * sessionChunk), size, 0);
+            for (int n = committed; n < total; n++) {
+                if (cancelled) throw new CancellationException("upload of " + filename + " cancelled");
+                long offset = (long) n * sessionChunk;
+                int len = (int) Math.min(sessionChunk, size - offset);
+                readFully(ch, buf, offset, len);
+
+                byte[] data = new byte[len];
+                buf.flip();
+                buf.get(data);
+                chunks.replaceOne(Filters.and(Filters.eq("files_id", fileId), Filters.eq("n", n)),
+                        new Document("files_id", fileId).append("n", n).append("data", new Binary(data)), upsert);
+                sessions.commit(key, n + 1);
+
+                attemptBytes += len;
+                double seconds = Math.max(1e-9, (System.nanoTime() - attemptStart) / 1e9);
+                progress.progress(offset + len, size, attemptBytes / seconds);
+            }
+        }
+
+        files.replaceOne(Filters.eq("_id", fileId), new Document("_id", fileId)
+                .append("length", size)
+                .append("chunkSize", sessionChunk)
+                .append("uploadDate", new Date())
+                .append("filename", session.getString("filename"))
+                .append("metadata", session.get("metadata", Document.class)), upsert);
+        String stored = store.register(sha, size, fileId);
+        sessions.delete(key);
+        return stored;
+    }
+
+    /**
+     * Deletes chunks that no upload will ever finish: their files_id has neither a files document
+     * nor an upload manifest (manifests of abandoned uploads expire through their TTL index).
+     * Only file ids created more than ORPHAN_GRACE_MS ago are considered.
+     *
+     * @return number of chunks deleted
+     */
+    public long sweepOrphanChunks() {
+        // read order matters: a finishing upload writes its files document before dropping its manifest
+        List<Object> candidates = chunks.distinct("files_id",
+                Filters.lt("files_id", new ObjectId(new Date(System.currentTimeMillis() - ORPHAN_GRACE_MS))), Object.class)
+                .into(new ArrayList<>());
+        if (candidates.isEmpty()) return 0;
+        Set<Object> live = new HashSet<>(sessions.findFileIds(bucketName));
+        for (Document f : files.find(Filters.in("_id", candidates)).projection(Projections.include("_id")).into(new ArrayList<>())) {
+            live.add(f.get("_id"));
+        }
+        candidates.removeAll(live);
+        if (candidates.isEmpty()) return 0;
+        long deleted = chunks.deleteMany(Filters.in("files_id", candidates)).getDeletedCount();
+        System.err.println("[ChunkedUploader] removed " + deleted + " chunks of " + candidates.size() + " abandoned uploads from " + bucketName);
+        return deleted;
+    }
+
+    private static void readFully(FileChannel ch, ByteBuffer buf, long offset, int len) throws IOException {
+        buf.clear();
+        buf.limit(len);
+        while (buf.hasRemaining()) {
+            int r = ch.read(buf, offset + buf.position());
+            if (r < 0) throw new EOFException("file shrank during upload");
+        }
+    }
+
+    private String hash(Path file, long size, UploadProgressListener progress) throws IOException {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+        byte[] buf = new byte[256 * 1024];
+        long done = 0;
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file), md)) {
+            int r;
+            while ((r = in.read(buf)) > 0) {
+                if (cancelled) throw new CancellationException("upload cancelled while hashing");
+                done += r;
+                progress.hashing(done, size);
+            }
+        }
+        return HexFormat.of().formatHex(md.digest());
+    }
+}
@@ -0,0 +1,159 @@
+package edu.agile.sis.util;
+
+import com.mongodb.client.gridfs.GridFSBucket;
+import com.mongodb.client.gridfs.GridFSBuckets;
+import com.mongodb.client.gridfs.model.GridFSFile;
+import com.mongodb.client.gridfs.model.GridFSUploadOptions;
+import edu.agile.sis.dao.BlobRefDAO;
+import edu.agile.sis.db.DBConnection;
+import edu.agile.sis.db.DaoRegistry;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Content-addressed, reference-counted storage over a GridFS bucket. Uploads are hashed with
+ * SHA-256 while they stream. Identical content resolves to one stored blob, and every store()
+ * adds a reference to it. release() removes the blob only when the last reference goes.
+ *
+ * Files stored before reference counting existed have no counter at all; release() deletes
+ * those directly, as before. A deduplicated blob keeps the filename and metadata of its first upload,
+ * so callers keep their own filename next to the file id.
+ */
+public class ContentStore {
+    private final GridFSBucket bucket;
+    private final String bucketName;
+    private final BlobRefDAO refs;
+
+    public ContentStore(GridFSBucket bucket, String bucketName, BlobRefDAO refs) {
+        this.bucket = bucket;
+        this.bucketName = bucketName;
+        this.refs = refs;
+    }
+
+    /** Store over a bucket of the current database ("fs" is the GridFS default bucket). */
+    public static ContentStore forBucket(String bucketName) {
+        return new ContentStore(GridFSBuckets.create(DBConnection.getInstance().getDatabase(), bucketName),
+                bucketName, DaoRegistry.get(BlobRefDAO.class));
+    }
+
+    /**
+     * Streams the upload while hashing it. When the content turns out to be stored already, the
+     * fresh copy is removed and the existing blob's id is returned.
+     */
+    public String store(String filename, InputStream in, Document metadata) {
+        MessageDigest md = sha256();
+        CountingInputStream counted = new CountingInputStream(new DigestInputStream(in, md));
+        ObjectId uploaded = bucket.uploadFromStream(filename, counted, new GridFSUploadOptions().metadata(metadata));
+        return register(HexFormat.of().formatHex(md.digest()), counted.count, uploaded);
+    }
+
+    /**
+     * Hashes the local file first, so content that is already stored is not uploaded at all.
+     */
+    public String store(Path file, String filename, Document metadata) throws IOException {
+        MessageDigest md = sha256();
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file), md)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        String sha = HexFormat.of().formatHex(md.digest());
+        String existing = acquireExisting(sha);
+        if (existing != null) return existing;
+
+        try (InputStream in = Files.newInputStream(file)) {
+            ObjectId uploaded = bucket.uploadFromStream(filename, in, new GridFSUploadOptions().metadata(metadata));
+            return register(sha, Files.size(file), uploaded);
+        }
+    }
+
+    /** Adds a reference to already-stored content with this hash; null if there is none. */
+    public String acquireExisting(String sha256) {
+        Document existing = refs.acquireExisting(bucketName, sha256);
+        return existing == null ? null : existing.getString("fileId");
+    }
+
+    /**
+     * Registers a file written to the bucket by other means (e.g. a chunked upload) as the blob for
+     * sha256. If that content was stored meanwhile, the new file is removed and the existing id is
+     * returned.
+     */
+    public String register(String sha, long size, ObjectId uploaded) {
+        String uploadedHex = uploaded.toHexString();
+        Document ref = refs.acquire(bucketName, sha, size, uploadedHex);
+        String fileId = ref == null ? uploadedHex : ref.getString("fileId");
+        if (!uploadedHex.equals(fileId)) {
+            try {
+                bucket.delete(uploaded);
+            } catch (Exception ex) {
+                System.err.println("[ContentStore] could not remove duplicate upload " + uploadedHex + ": " + ex.getMessage());
+            }
+        }
+        return fileId;
+    }
+
+    /** Drops one reference; the blob itself goes once nothing refers to it. */
+    public void release(String fileIdHex) {
+        Document ref = refs.release(fileIdHex);
+        if (ref == null) {
+            // also null for a counted blob at 0 refs that a concurrent release is removing or a
+            // store is re-acquiring; only files without any counter are deleted directly
+            if (!refs.isCounted(fileIdHex)) bucket.delete(new ObjectId(fileIdHex));
+            return;
+        }
+        if (ref.getInteger("refs", 0) <= 0 && refs.deleteIfUnreferenced(ref.getString("_id"))) {
+            bucket.delete(new ObjectId(fileIdHex));
+        }
+    }
+
+    public InputStream open(String fileIdHex) {
+        return GridFSStreams.open(bucket, new ObjectId(fileIdHex));
+    }
+
+    public InputStream openRange(String fileIdHex, long offset, long length) throws IOException {
+        return GridFSStreams.openRange(bucket, new ObjectId(fileIdHex), offset, length);
+    }
+
+    public GridFSFile find(String fileIdHex) {
+        return bucket.find(new Document("_id", new ObjectId(fileIdHex))).first();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b >= 0) count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            if (n > 0) count += n;
+            return n;
+        }
+    }
+}
@@ -1,56 +1,104 @@
 package edu.agile.sis.util;
 
-import com.mongodb.client.MongoDatabase;
-import com.mongodb.client.gridfs.GridFSBucket;
-import com.mongodb.client.gridfs.GridFSBuckets;
-import com.mongodb.client.gridfs.model.GridFSUploadOptions;
 import com.mongodb.client.gridfs.model.GridFSFile;
-import edu.agile.sis.db.DBConnection;
 import org.bson.Document;
-import org.bson.types.ObjectId;
 
 import java.io.*;
+import java.nio.file.Path;
 
+/**
+ * Static access to the default "fs" bucket. Uploads are deduplicated by content (see
+ * ContentStore), so the returned id may be shared with earlier uploads of the same bytes.
+ */
 public class FileStorageUtil {
-    private static final MongoDatabase db = DBConnection.getInstance().getDatabase();
-    private static final GridFSBucket bucket = GridFSBuckets.create(db); // default "fs"
+    private static final String BUCKET = "fs";
+
+    private static ContentStore store() {
+        return ContentStore.forBucket(BUCKET);
+    }
+
+    private static Document metadata(String contentType) {
+        return new Document("contentType", contentType == null ? "application/octet-stream" : contentType);
+    }
 
     /**
      * Uploads the provided InputStream and returns the fileId (hex string).
      */
     public static String uploadFile(String filename, InputStream data, String contentType) throws IOException {
-        GridFSUploadOptions options = new GridFSUploadOptions()
-                .metadata(new Document("contentType", contentType == null ? "application/octet-stream" : contentType));
-        ObjectId id = bucket.uploadFromStream(filename, data, options);
-        return id.toHexString();
+        return store().store(filename, data, metadata(contentType));
+    }
+
+    /**
+     * Uploads a local file; content that is already stored is not sent again.
+     */
+    public static String uploadFile(String filename, Path file, String contentType) throws IOException {
+        return store().store(file, filename, metadata(contentType));
+    }
+
+    /**
+     * Resumable chunked upload of a local file with progress callbacks (listener may be null).
+     * Re-running it after a failure or cancel continues from the last stored chunk.
+     */
+    public static String uploadFile(String filename, Path file, String contentType, ChunkedUploader uploader,
+                                    UploadProgressListener listener) throws IOException {
+        return uploader.upload(file, filename, metadata(contentType), listener);
+    }
+
+    /** A resumable uploader for this bucket; keep it to cancel the upload from another thread. */
+    public static ChunkedUploader newUploader() {
+        return ChunkedUploader.forBucket(BUCKET);
+    }
+
+    /** Runs ChunkedUploader.sweepOrphanChunks for the upload bucket on a daemon thread. */
+    public static void sweepAbandonedUploadsAsync() {
+        Thread t = new Thread(() -> {
+            try {
+                newUploader().sweepOrphanChunks();
+            } catch (Exception ex) {
+                System.err.println("[FileStorageUtil] upload sweep failed: " + ex.getMessage());
+            }
+        }, "upload-sweep");
+        t.setDaemon(true);
+        t.start();
     }
 
     /**
      * Download file to destination path
      */
     public static void downloadFile(String fileIdHex, String destPath) throws IOException {
-        ObjectId id = new ObjectId(fileIdHex);
         try (OutputStream os = new FileOutputStream(destPath)) {
-            bucket.downloadToStream(id, os);
+            copyTo(fileIdHex, os);
         }
     }
 
     /**
-     * Return InputStream of a file for previewing.
+     * Streams the file chunk by chunk instead of buffering it; close the returned stream.
      */
     public static InputStream getFileStream(String fileIdHex) throws IOException {
-        ObjectId id = new ObjectId(fileIdHex);
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        bucket.downloadToStream(id, baos);
-        return new ByteArrayInputStream(baos.toByteArray());
+        return store().open(fileIdHex);
+    }
+
+    /**
+     * Streams length bytes starting at offset (length < 0 reads to the end).
+     */
+    public static InputStream getFileRange(String fileIdHex, long offset, long length) throws IOException {
+        return store().openRange(fileIdHex, offset, length);
+    }
+
+    /**
+     * Copies the file to out without holding it in memory.
+     */
+    public static void copyTo(String fileIdHex, OutputStream out) throws IOException {
+        try (InputStream in = getFileStream(fileIdHex)) {
+            in.transferTo(out);
+        }
     }
 
     /**
-     * Delete file in GridFS by id.
+     * Drops this reference to the file; the stored bytes go with the last reference.
      */
     public static void deleteFile(String fileIdHex) {
-        ObjectId id = new ObjectId(fileIdHex);
-        bucket.delete(id);
+        store().release(fileIdHex);
     }
 
     /**
@@ -62,10 +110,11 @@ public class FileStorageUtil {
     }
 
     /**
-     * Get filename from GridFS metadata (optional)
+     * Get filename from GridFS metadata (optional). For deduplicated content this is the name of
+     * the first upload.
      */
     public static String getFilename(String fileIdHex) {
-        GridFSFile f = bucket.find(new Document("_id", new ObjectId(fileIdHex))).first();
+        GridFSFile f = store().find(fileIdHex);
         return f == null ? null : f.getFilename();
     }
 }
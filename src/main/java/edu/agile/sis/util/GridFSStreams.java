@@ -0,0 +1,90 @@
+package edu.agile.sis.util;
+
+import com.mongodb.client.gridfs.GridFSBucket;
+import com.mongodb.client.gridfs.GridFSDownloadStream;
+import org.bson.types.ObjectId;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Streaming reads from a GridFS bucket. The returned streams hold one 255 KB chunk at a time, so
+ * memory stays flat regardless of file size; callers must close them.
+ */
+public final class GridFSStreams {
+
+    private GridFSStreams() {}
+
+    /** Whole file, read chunk by chunk. */
+    public static InputStream open(GridFSBucket bucket, ObjectId id) {
+        return bucket.openDownloadStream(id);
+    }
+
+    /**
+     * Bytes [offset, offset + length) of the file. Seeking jumps straight to the chunk holding
+     * offset; chunks before it are never fetched. A negative length reads to the end.
+     */
+    public static InputStream openRange(GridFSBucket bucket, ObjectId id, long offset, long length) throws IOException {
+        GridFSDownloadStream in = bucket.openDownloadStream(id);
+        try {
+            seek(in, offset);
+        } catch (IOException | RuntimeException ex) {
+            in.close();
+            throw ex;
+        }
+        return length < 0 ? in : new RangeInputStream(in, length);
+    }
+
+    static void seek(InputStream in, long offset) throws IOException {
+        long remaining = offset;
+        while (remaining > 0) {
+            long skipped = in.skip(remaining);
+            if (skipped <= 0) throw new IOException("offset " + offset + " is past the end of the file");
+            remaining -= skipped;
+        }
+    }
+
+    /** Ends after limit bytes; closing it closes the underlying download stream. */
+    static final class RangeInputStream extends FilterInputStream {
+        private long remaining;
+
+        RangeInputStream(InputStream in, long limit) {
+            super(in);
+            this.remaining = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) return -1;
+            int b = in.read();
+            if (b >= 0) remaining--;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) return -1;
+            int n = in.read(b, off, (int) Math.min(len, remaining));
+            if (n > 0) remaining -= n;
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = in.skip(Math.min(n, remaining));
+            if (skipped > 0) remaining -= skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(in.available(), remaining);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package edu.agile.sis.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Half-open intervals [start, end) keyed by a unique id, with O(log n) insert / remove and
+ * overlap queries in O(log n + k). A treap ordered by start; each node also keeps the greatest end
+ * in its subtree, so whole subtrees that finish before the query starts are skipped.
+ *
+ * Overlapping intervals are allowed (legacy data may contain them). Not thread-safe.
+ */
+public class IntervalTree<K> {
+
+    private final class Node {
+        final K key;
+        final long start;
+        final long end;
+        final long seq;
+        final int priority = ThreadLocalRandom.current().nextInt();
+        long maxEnd;
+        Node left, right;
+
+        Node(K key, long start, long end, long seq) {
+            this.key = key;
+            this.start = start;
+            this.end = end;
+            this.seq = seq;
+            this.maxEnd = end;
+        }
+    }
+
+    private final Map<K, Node> byKey = new HashMap<>();
+    private Node root;
+    private long nextSeq;
+
+    public int size() {
+        return byKey.size();
+    }
+
+    /** Adds the interval, replacing any earlier interval stored under key. */
+    public void put(K key, long start, long end) {
+        if (end <= start) throw new IllegalArgumentException("end must be after start");
+        remove(key);
+        Node n = new Node(key, start, end, nextSeq++);
+        root = insert(root, n);
+        byKey.put(key, n);
+    }
+
+    /** @return true if key was present */
+    public boolean remove(K key) {
+        Node n = byKey.remove(key);
+        if (n == null) return false;
+        root = delete(root, n);
+        return true;
+    }
+
+    /** True if any interval other than exclude's overlaps [start, end). */
+    public boolean overlaps(long start, long end, K exclude) {
+        return firstOverlap(root, start, end, exclude) != null;
+    }
+
+    /** Keys of all intervals overlapping [start, end), in start order. */
+    public List<K> overlapping(long start, long end) {
+        List<K> out = new ArrayList<>();
+        collect(root, start, end, out);
+        return out;
+    }
+
+    private Node firstOverlap(Node n, long start, long end, K exclude) {
+        if (n == null || n.maxEnd <= start) return null;
+        Node hit = firstOverlap(n.left, start, end, exclude);
+        if (hit != null) return hit;
+        if (n.start >= end) return null;          // n and everything right of it start too late
+        if (n.end > start && !n.key.equals(exclude)) return n;
+        return firstOverlap(n.right, start, end, exclude);
+    }
+
+    private void collect(Node n, long start, long end, List<K> out) {
+        if (n == null || n.maxEnd <= start) return;
+        collect(n.left, start, end, out);
+        if (n.start >= end) return;
+        if (n.end > start) out.add(n.key);
+        collect(n.right, start, end, out);
+    }
+
+    private static int compare(long start, long seq, long otherStart, long otherSeq) {
+        int c = Long.compare(start, otherStart);
+        return c != 0 ? c : Long.compare(seq, otherSeq);
+    }
+
+    private Node insert(Node t, Node n) {
+        if (t == null) return n;
+        if (compare(n.start, n.seq, t.start, t.seq) < 0) {
+            t.left = insert(t.left, n);
+            if (t.left.priority > t.priority) t = rotateRight(t);
+        } else {
+            t.right = insert(t.right, n);
+            if (t.right.priority > t.priority) t = rotateLeft(t);
+        }
+        update(t);
+        return t;
+    }
+
+    private Node delete(Node t, Node n) {
+        if (t == null) return null;
+        if (t == n) return merge(t.left, t.right);
+        if (compare(n.start, n.seq, t.start, t.seq) < 0) {
+            t.left = delete(t.left, n);
+        } else {
+            t.right = delete(t.right, n);
+        }
+        update(t);
+        return t;
+    }
+
+    private Node merge(Node a, Node b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        if (a.priority > b.priority) {
+            a.right = merge(a.right, b);
+            update(a);
+            return a;
+        }
+        b.left = merge(a, b.left);
+        update(b);
+        return b;
+    }
+
+    private Node rotateRight(Node t) {
+        Node l = t.left;
+        t.left = l.right;
+        l.right = t;
+        update(t);
+        update(l);
+        return l;
+    }
+
+    private Node rotateLeft(Node t) {
+        Node r = t.right;
+        t.right = r.left;
+        r.left = t;
+        update(t);
+        update(r);
+        return r;
+    }
+
+    private void update(Node t) {
+        long m = t.end;
+        if (t.left != null && t.left.maxEnd > m) m = t.left.maxEnd;
+        if (t.right != null && t.right.maxEnd > m) m = t.right.maxEnd;
+        t.maxEnd = m;
+    }
+}
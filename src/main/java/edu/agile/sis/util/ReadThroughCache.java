@@ -0,0 +1,96 @@
+package edu.agile.sis.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * Thread-safe read-through cache with a time-to-live and an entry limit (least recently used
+ * entries go first). Absent values (loader returned null) are cached too, so repeated lookups of
+ * a missing key do not reach the database either.
+ *
+ * Values are handed out through copier, so callers may modify what they get without changing the
+ * cached value. A load that overlaps an invalidate is returned but not cached.
+ */
+public class ReadThroughCache<K, V> {
+    private final String name;
+    private final long ttlMs;
+    private final int maxEntries;
+    private final UnaryOperator<V> copier;
+    private final LinkedHashMap<K, Entry<V>> map = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private long generation;
+
+    private static final class Entry<V> {
+        final V value;
+        final long loadedAt = System.currentTimeMillis();
+
+        Entry(V value) {
+            this.value = value;
+        }
+    }
+
+    public ReadThroughCache(String name, long ttlMs, int maxEntries, UnaryOperator<V> copier) {
+        this.name = name;
+        this.ttlMs = ttlMs;
+        this.maxEntries = maxEntries;
+        this.copier = copier;
+    }
+
+    /** The cached value for key, loading it with loader if missing or older than the TTL. */
+    public V get(K key, Function<K, V> loader) {
+        long gen;
+        synchronized (this) {
+            Entry<V> e = map.get(key);
+            if (e != null && System.currentTimeMillis() - e.loadedAt < ttlMs) {
+                hits.incrementAndGet();
+                return copy(e.value);
+            }
+            gen = generation;
+        }
+        misses.incrementAndGet();
+        V loaded = loader.apply(key);
+        synchronized (this) {
+            if (gen == generation) {
+                map.put(key, new Entry<>(loaded));
+                Iterator<Map.Entry<K, Entry<V>>> it = map.entrySet().iterator();
+                while (map.size() > maxEntries && it.hasNext()) {
+                    it.next();
+                    it.remove();
+                }
+            }
+        }
+        return copy(loaded);
+    }
+
+    public synchronized void invalidate(K key) {
+        map.remove(key);
+        generation++;
+    }
+
+    public synchronized void invalidateAll() {
+        map.clear();
+        generation++;
+    }
+
+    public String getName() { return name; }
+
+    public long getHits() { return hits.get(); }
+
+    public long getMisses() { return misses.get(); }
+
+    public synchronized int size() { return map.size(); }
+
+    public void resetCounters() {
+        hits.set(0);
+        misses.set(0);
+    }
+
+    private V copy(V value) {
+        return value == null ? null : copier.apply(value);
+    }
+}
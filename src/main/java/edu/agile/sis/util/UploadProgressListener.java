@@ -0,0 +1,19 @@
+package edu.agile.sis.util;
+
+/**
+ * Progress of a chunked upload. Called from the uploading thread; UI callers hop to the FX thread
+ * themselves.
+ */
+@FunctionalInterface
+public interface UploadProgressListener {
+
+    /**
+     * @param sentBytes      bytes stored so far, including chunks stored by an earlier attempt
+     * @param totalBytes     file size
+     * @param bytesPerSecond throughput of the current attempt
+     */
+    void progress(long sentBytes, long totalBytes, double bytesPerSecond);
+
+    /** Progress of the local hashing pass that runs before the first chunk is sent. */
+    default void hashing(long hashedBytes, long totalBytes) {}
+}
@@ -0,0 +1,116 @@
+package edu.agile.sis.dao;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import org.bson.Document;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Manual benchmark (not run by surefire): laptop allocations per second under parallel clients.
+ *
+ * Every client repeatedly picks a random laptop from a small pool, assigns it to itself and
+ * releases it again. "read-check-write" replays the old allocateItem (findById, status check in
+ * Java, then $set); "conditional" uses InventoryDAO.assignItem / releaseItem, where the expected
+ * status is part of the update filter. A client that wins an item records itself as holder; a win
+ * while another client still holds the item is a double assignment. Uses a throwaway database.
+ *
+ * Usage: AllocationContentionBenchmark mongodb-uri [clients] [items] [seconds]   (defaults: 16, 8, 10)
+ */
+public class AllocationContentionBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        String uri = args.length > 0 ? args[0] : "mongodb://localhost:27017";
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        int items = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+        int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+
+        try (MongoClient client = MongoClients.create(uri)) {
+            MongoDatabase db = client.getDatabase("sis_alloc_bench_" + System.nanoTime());
+            try {
+                MongoCollection<Document> coll = db.getCollection("inventory");
+                InventoryDAO dao = new InventoryDAO(coll);
+                List<String> ids = seed(coll, items);
+
+                System.out.printf("%d clients, %d laptops, %d s per mode%n", clients, items, seconds);
+                run("read-check-write", clients, ids, seconds, (id, user) -> {
+                    Document item = dao.findById(id);
+                    if (item == null || !"Available".equals(item.getString("status"))) return false;
+                    dao.updateItem(id, new Document("status", "Assigned").append("assignedToUserId", user)
+                            .append("assignedToName", user).append("assignedDate", new Date()).append("updatedAt", new Date()));
+                    return true;
+                }, (id, user) -> dao.updateItem(id, new Document("status", "Available").append("assignedToUserId", null)
+                        .append("assignedToName", null).append("updatedAt", new Date())));
+
+                run("conditional", clients, ids, seconds,
+                        (id, user) -> dao.assignItem(id, user, user) != null,
+                        (id, user) -> dao.releaseItem(id, user));
+            } finally {
+                db.drop();
+            }
+        }
+    }
+
+    private interface Assign {
+        boolean apply(String itemId, String userId);
+    }
+
+    private interface Release {
+        void apply(String itemId, String userId);
+    }
+
+    private static void run(String label, int clients, List<String> ids, int seconds, Assign assign, Release release)
+            throws InterruptedException {
+        ConcurrentHashMap<String, String> holders = new ConcurrentHashMap<>();
+        AtomicLong wins = new AtomicLong();
+        AtomicLong conflicts = new AtomicLong();
+        AtomicLong doubles = new AtomicLong();
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        for (int c = 0; c < clients; c++) {
+            String user = "client-" + c;
+            pool.execute(() -> {
+                while (System.nanoTime() < end) {
+                    String id = ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+                    if (!assign.apply(id, user)) {
+                        conflicts.incrementAndGet();
+                        continue;
+                    }
+                    wins.incrementAndGet();
+                    if (holders.putIfAbsent(id, user) != null) {
+                        doubles.incrementAndGet();
+                        continue;
+                    }
+                    holders.remove(id, user);
+                    release.apply(id, user);
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(seconds + 60L, TimeUnit.SECONDS);
+
+        System.out.printf("%-17s %9.0f allocations/s  %9.0f conflicts/s  double assignments %d%n",
+                label, wins.get() / (double) seconds, conflicts.get() / (double) seconds, doubles.get());
+    }
+
+    private static List<String> seed(MongoCollection<Document> coll, int items) {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < items; i++) {
+            Document doc = new Document("name", "Bench Laptop " + i).append("itemType", "Laptop").append("status", "Available");
+            coll.insertOne(doc);
+            ids.add(doc.getObjectId("_id").toHexString());
+        }
+        return ids;
+    }
+}
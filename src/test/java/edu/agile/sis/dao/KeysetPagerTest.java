@@ -0,0 +1,125 @@
+package edu.agile.sis.dao;
+
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@DisplayName("KeysetPager Tests")
+class KeysetPagerTest {
+
+    private MongoCollection<Document> coll;
+    private FindIterable<Document> iterable;
+    private final List<Document> rows = new ArrayList<>();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        coll = mock(MongoCollection.class);
+        iterable = mock(FindIterable.class);
+        when(coll.find(any(Bson.class))).thenReturn(iterable);
+        when(iterable.sort(any())).thenReturn(iterable);
+        when(iterable.limit(anyInt())).thenReturn(iterable);
+        when(iterable.projection(any())).thenReturn(iterable);
+        when(iterable.into(any())).thenAnswer(inv -> {
+            List<Document> target = inv.getArgument(0);
+            target.addAll(rows);
+            return target;
+        });
+    }
+
+    private static BsonDocument render(Bson bson) {
+        return bson.toBsonDocument(BsonDocument.class, MongoClientSettings.getDefaultCodecRegistry());
+    }
+
+    private Bson capturedQuery() {
+        ArgumentCaptor<Bson> captor = ArgumentCaptor.forClass(Bson.class);
+        verify(coll).find(captor.capture());
+        return captor.getValue();
+    }
+
+    private static Document row(Date createdAt) {
+        return new Document("_id", new ObjectId()).append("createdAt", createdAt);
+    }
+
+    @Test
+    @DisplayName("fetch - should return limit rows and a token when one more row exists")
+    void testFirstPage() {
+        rows.add(row(new Date(3000)));
+        rows.add(row(new Date(2000)));
+        rows.add(row(new Date(1000)));
+
+        KeysetPage page = KeysetPager.fetch(coll, Filters.eq("deleted", false), null,
+                List.of(KeysetPager.desc("createdAt")), 2, null);
+
+        assertEquals(2, page.getItems().size());
+        assertTrue(page.hasMore());
+        assertEquals(render(Filters.eq("deleted", false)), render(capturedQuery()));
+        verify(iterable).limit(3);
+    }
+
+    @Test
+    @DisplayName("fetch - should seek after the last row of the previous page")
+    void testTokenSeeksPastLastRow() {
+        Document last = row(new Date(2000));
+        rows.add(row(new Date(3000)));
+        rows.add(last);
+        rows.add(row(new Date(1000)));
+        String token = KeysetPager.fetch(coll, null, null, List.of(KeysetPager.desc("createdAt")), 2, null).getNextToken();
+        assertNotNull(token);
+
+        setUp();
+        rows.clear();
+        KeysetPager.fetch(coll, null, null, List.of(KeysetPager.desc("createdAt")), 2, token);
+
+        String query = render(capturedQuery()).toJson();
+        assertTrue(query.contains("\"$lt\": {\"$date\""), query);
+        assertTrue(query.contains(last.getObjectId("_id").toHexString()), query);
+    }
+
+    @Test
+    @DisplayName("fetch - should ignore a token issued for a different sort")
+    void testMismatchedTokenRestarts() {
+        rows.add(row(new Date(3000)));
+        rows.add(row(new Date(2000)));
+        String token = KeysetPager.fetch(coll, null, null, List.of(KeysetPager.desc("createdAt")), 1, null).getNextToken();
+
+        setUp();
+        KeysetPager.fetch(coll, Filters.eq("deleted", false), null, List.of(KeysetPager.asc("startAt")), 1, token);
+
+        assertEquals(render(Filters.eq("deleted", false)), render(capturedQuery()));
+    }
+
+    @Test
+    @DisplayName("fetch - should report no next page on the last page")
+    void testLastPage() {
+        rows.add(row(new Date(1000)));
+
+        KeysetPage page = KeysetPager.fetch(coll, null, null, List.of(KeysetPager.asc("createdAt")), 5, "not-a-token");
+
+        assertEquals(1, page.getItems().size());
+        assertNull(page.getNextToken());
+    }
+}
@@ -0,0 +1,138 @@
+package edu.agile.sis.dao;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Updates;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Manual stress test (not run by surefire): concurrent license seat changes against a real server.
+ *
+ * "read-modify-write" replays the old addUserToLicense (read assignedUsers, add in Java, $set the
+ * array back) and counts the users it loses. "atomic" runs the same load through
+ * InventoryDAO.addLicenseSeat / removeLicenseSeat and checks that every accepted user is stored
+ * exactly once, that seatCount matches the array and that the seat limit holds.
+ * Uses a throwaway database.
+ *
+ * Usage: LicenseSeatStress mongodb-uri [threads] [usersPerThread]   (defaults: 16, 50)
+ */
+public class LicenseSeatStress {
+
+    public static void main(String[] args) throws Exception {
+        String uri = args.length > 0 ? args[0] : "mongodb://localhost:27017";
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        int perThread = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+        int users = threads * perThread;
+
+        try (MongoClient client = MongoClients.create(uri)) {
+            MongoDatabase db = client.getDatabase("sis_seat_stress_" + System.nanoTime());
+            try {
+                MongoCollection<Document> coll = db.getCollection("inventory");
+                InventoryDAO dao = new InventoryDAO(coll);
+
+                // old behaviour: lost updates
+                ObjectId legacy = newLicense(coll, null);
+                run(threads, perThread, (t, i) -> {
+                    Document item = coll.find(Filters.eq("_id", legacy)).first();
+                    @SuppressWarnings("unchecked")
+                    List<Document> assigned = new ArrayList<>(item.get("assignedUsers", List.class));
+                    assigned.add(seat(t, i));
+                    coll.updateOne(Filters.eq("_id", legacy), Updates.set("assignedUsers", assigned));
+                    return true;
+                });
+                int legacyStored = assigned(coll, legacy).size();
+                System.out.printf("read-modify-write  submitted %5d  stored %5d  lost %5d%n",
+                        users, legacyStored, users - legacyStored);
+
+                // atomic, unlimited: everyone gets a seat, nobody twice
+                ObjectId open = newLicense(coll, null);
+                int accepted = run(threads, perThread, (t, i) -> dao.addLicenseSeat(open.toHexString(), seat(t, i)) != null);
+                check("atomic unlimited", coll, open, accepted, users);
+
+                // atomic, with a limit: exactly seatLimit seats handed out
+                int limit = users / 3;
+                ObjectId capped = newLicense(coll, limit);
+                accepted = run(threads, perThread, (t, i) -> dao.addLicenseSeat(capped.toHexString(), seat(t, i)) != null);
+                check("atomic limit " + limit, coll, capped, accepted, limit);
+
+                // atomic, churn: even threads give up their seats while odd threads add new users
+                accepted = run(threads, perThread, (t, i) -> t % 2 == 0
+                        ? dao.removeLicenseSeat(open.toHexString(), "u-" + t + "-" + i) != null
+                        : dao.addLicenseSeat(open.toHexString(), seat(t + threads, i)) != null);
+                int expected = users - (threads + 1) / 2 * perThread + threads / 2 * perThread;
+                check("atomic churn", coll, open, accepted, expected);
+            } finally {
+                db.drop();
+            }
+        }
+    }
+
+    private interface Op {
+        boolean apply(int thread, int index);
+    }
+
+    /** Runs perThread operations on each of threads threads at once; returns how many returned true. */
+    private static int run(int threads, int perThread, Op op) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger ok = new AtomicInteger();
+        for (int t = 0; t < threads; t++) {
+            final int thread = t;
+            pool.execute(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        if (op.apply(thread, i)) ok.incrementAndGet();
+                    }
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.MINUTES);
+        return ok.get();
+    }
+
+    private static void check(String label, MongoCollection<Document> coll, ObjectId id, int accepted, int expected) {
+        List<Document> assigned = assigned(coll, id);
+        Set<String> distinct = new HashSet<>();
+        for (Document d : assigned) distinct.add(d.getString("userId"));
+        int seatCount = coll.find(Filters.eq("_id", id)).first().getInteger("seatCount", -1);
+        boolean pass = assigned.size() == expected && distinct.size() == assigned.size() && seatCount == assigned.size();
+        System.out.printf("%-18s accepted %5d  stored %5d  distinct %5d  seatCount %5d  %s%n",
+                label, accepted, assigned.size(), distinct.size(), seatCount, pass ? "OK" : "FAIL");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Document> assigned(MongoCollection<Document> coll, ObjectId id) {
+        return coll.find(Filters.eq("_id", id)).first().get("assignedUsers", List.class);
+    }
+
+    private static ObjectId newLicense(MongoCollection<Document> coll, Integer seatLimit) {
+        Document doc = new Document("name", "Stress License").append("itemType", "License").append("status", "Available")
+                .append("assignedUsers", new ArrayList<Document>()).append("seatCount", 0);
+        if (seatLimit != null) doc.append("seatLimit", seatLimit);
+        coll.insertOne(doc);
+        return doc.getObjectId("_id");
+    }
+
+    private static Document seat(int thread, int index) {
+        return new Document("userId", "u-" + thread + "-" + index).append("userName", "User " + thread + "/" + index);
+    }
+}
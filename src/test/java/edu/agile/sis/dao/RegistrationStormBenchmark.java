@@ -0,0 +1,130 @@
+package edu.agile.sis.dao;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Accumulators;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.IndexOptions;
+import org.bson.Document;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Manual benchmark (not run by surefire): the first minute of the registration window.
+ *
+ * Parallel clients act for random students and register them for random courses from a small
+ * catalogue, every student retrying well past their limit (5 courses). "check-then-insert" replays
+ * the old registerStudentToCourse (find, distinct count, insert; no unique index); "guarded" uses
+ * EnrollmentDAO.reserveCourseSlot + tryInsertEnrollment with the unique index. Afterwards the
+ * students over their limit and the duplicate enrollments are counted. Uses a throwaway database.
+ *
+ * Usage: RegistrationStormBenchmark mongodb-uri [students] [clients] [seconds]   (defaults: 2000, 64, 60)
+ */
+public class RegistrationStormBenchmark {
+
+    private static final int LIMIT = 5;
+    private static final int COURSES = 12;
+
+    public static void main(String[] args) throws Exception {
+        String uri = args.length > 0 ? args[0] : "mongodb://localhost:27017";
+        int students = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        int clients = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+        int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 60;
+
+        try (MongoClient client = MongoClients.create(uri)) {
+            System.out.printf("%d students, %d clients, %d courses, limit %d, %d s per mode%n",
+                    students, clients, COURSES, LIMIT, seconds);
+            for (boolean guarded : new boolean[] { false, true }) {
+                MongoDatabase db = client.getDatabase("sis_registration_bench_" + System.nanoTime());
+                try {
+                    MongoCollection<Document> enrollments = db.getCollection("enrollments");
+                    MongoCollection<Document> studentColl = db.getCollection("students");
+                    enrollments.createIndex(new Document("studentId", 1).append("courseCode", 1),
+                            new IndexOptions().unique(guarded));
+                    seed(studentColl, students);
+                    run(guarded ? "guarded" : "check-then-insert", new EnrollmentDAO(enrollments, studentColl),
+                            enrollments, guarded, students, clients, seconds);
+                } finally {
+                    db.drop();
+                }
+            }
+        }
+    }
+
+    private static void run(String label, EnrollmentDAO dao, MongoCollection<Document> enrollments, boolean guarded,
+                            int students, int clients, int seconds) throws InterruptedException {
+        AtomicLong registered = new AtomicLong();
+        AtomicLong refused = new AtomicLong();
+        AtomicLong latencyNs = new AtomicLong();
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        for (int c = 0; c < clients; c++) {
+            pool.execute(() -> {
+                while (System.nanoTime() < end) {
+                    ThreadLocalRandom rnd = ThreadLocalRandom.current();
+                    String studentId = "S" + rnd.nextInt(students);
+                    String course = "C" + rnd.nextInt(COURSES);
+                    long t0 = System.nanoTime();
+                    boolean ok = guarded ? registerGuarded(dao, studentId, course) : registerOld(dao, studentId, course);
+                    latencyNs.addAndGet(System.nanoTime() - t0);
+                    (ok ? registered : refused).incrementAndGet();
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(seconds + 60L, TimeUnit.SECONDS);
+
+        Map<String, Integer> perStudent = new HashMap<>();
+        long duplicates = 0;
+        for (Document g : enrollments.aggregate(List.of(Aggregates.group(
+                new Document("s", "$studentId").append("c", "$courseCode"), Accumulators.sum("n", 1))))) {
+            Document key = g.get("_id", Document.class);
+            perStudent.merge(key.getString("s"), g.getInteger("n"), Integer::sum);
+            duplicates += g.getInteger("n") - 1;
+        }
+        long overLimit = perStudent.values().stream().filter(n -> n > LIMIT).count();
+        long attempts = registered.get() + refused.get();
+        System.out.printf("%-17s %8.0f attempts/s  avg %6.2f ms  registered %d  over limit %d students  duplicates %d%n",
+                label, attempts / (double) seconds, latencyNs.get() / 1e6 / Math.max(1, attempts),
+                registered.get(), overLimit, duplicates);
+    }
+
+    /** The old EnrollmentService flow: every check is a separate read before the insert. */
+    private static boolean registerOld(EnrollmentDAO dao, String studentId, String course) {
+        if (dao.find(studentId, course) != null) return false;
+        if (dao.countDistinctCoursesByStudent(studentId) >= LIMIT) return false;
+        dao.insertEnrollment(new Document("studentId", studentId).append("courseCode", course).append("registeredAt", new Date()));
+        return true;
+    }
+
+    private static boolean registerGuarded(EnrollmentDAO dao, String studentId, String course) {
+        if (!dao.reserveCourseSlot(studentId, LIMIT)) return false;
+        if (dao.tryInsertEnrollment(new Document("studentId", studentId).append("courseCode", course)
+                .append("registeredAt", new Date()))) return true;
+        dao.releaseCourseSlot(studentId);
+        return false;
+    }
+
+    private static void seed(MongoCollection<Document> students, int count) {
+        List<Document> batch = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            batch.add(new Document("entityId", "S" + i).append("type", "student")
+                    .append(EnrollmentDAO.ENROLLED_COUNT, 0));
+        }
+        students.insertMany(batch);
+        students.createIndex(new Document("entityId", 1));
+        students.createIndex(new Document("core.entityId", 1));
+    }
+}
@@ -0,0 +1,137 @@
+package edu.agile.sis.dao;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Sorts;
+import edu.agile.sis.db.IndexManifest;
+import edu.agile.sis.db.IndexUsageVerifier;
+import org.bson.Document;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+@DisplayName("InventoryDAO.findRequestableItems Tests")
+class RequestableItemsQueryTest {
+
+    private static final int ITEMS = 50_000;
+    private static final long LATENCY_BUDGET_MS = 250;
+    private static final String USER = "STU-001";
+
+    /**
+     * Runs against a real server only when SIS_TEST_MONGODB_URI is set; uses a throwaway database.
+     * The expected rows come from the rules InventoryService used to apply in Java over findAllItems.
+     */
+    @Test
+    @DisplayName("findRequestableItems - should match the in-memory rules on 50k items within the latency budget")
+    void testMatchesJavaRulesOnLargeInventory() {
+        String uri = System.getenv("SIS_TEST_MONGODB_URI");
+        assumeTrue(uri != null && !uri.isBlank(), "SIS_TEST_MONGODB_URI not set");
+
+        try (MongoClient client = MongoClients.create(uri)) {
+            MongoDatabase db = client.getDatabase("sis_requestable_" + System.nanoTime());
+            try {
+                MongoCollection<Document> coll = db.getCollection("inventory");
+                for (IndexManifest.IndexSpec spec : IndexManifest.INDEXES) {
+                    if ("inventory".equals(spec.collection)) coll.createIndex(spec.keys);
+                }
+                seed(coll);
+                InventoryDAO dao = new InventoryDAO(coll);
+
+                for (boolean student : new boolean[] { true, false }) {
+                    List<String> types = student ? List.of("Laptop") : List.of("Laptop", "Equipment");
+
+                    List<Document> actual = dao.findRequestableItems(USER, types);
+                    assertEquals(expected(coll.find().into(new ArrayList<>()), student), ids(actual),
+                            student ? "student view" : "staff view");
+                    assertTrue(actual.stream().noneMatch(d -> d.containsKey("assignedUsers")));
+                    for (int i = 1; i < actual.size(); i++) {
+                        assertTrue(actual.get(i - 1).getString("name").compareTo(actual.get(i).getString("name")) <= 0);
+                    }
+
+                    long best = Long.MAX_VALUE;
+                    for (int run = 0; run < 5; run++) {
+                        long t0 = System.nanoTime();
+                        dao.findRequestableItems(USER, types);
+                        best = Math.min(best, (System.nanoTime() - t0) / 1_000_000);
+                    }
+                    assertTrue(best <= LATENCY_BUDGET_MS, "took " + best + " ms, budget " + LATENCY_BUDGET_MS + " ms");
+
+                    Document explain = coll.find(InventoryDAO.requestableFilter(USER, types))
+                            .sort(Sorts.ascending("name")).explain();
+                    assertFalse(IndexUsageVerifier.usesCollscan(explain), "requestable query scans the collection");
+                }
+            } finally {
+                db.drop();
+            }
+        }
+    }
+
+    /** Mostly unavailable inventory with a sprinkling of every case the rules distinguish. */
+    private static void seed(MongoCollection<Document> coll) {
+        Random rnd = new Random(42);
+        String[] types = { "Laptop", "Equipment", "License" };
+        String[] statuses = { "Available", "Assigned", "Assigned", "Assigned", "Under Repair" };
+        List<Document> batch = new ArrayList<>();
+        for (int i = 0; i < ITEMS; i++) {
+            String type = types[rnd.nextInt(types.length)];
+            Document d = new Document("name", String.format("Item %05d", rnd.nextInt(ITEMS)))
+                    .append("itemType", type)
+                    .append("status", statuses[rnd.nextInt(statuses.length)])
+                    .append("notes", "seeded");
+            if ("License".equals(type)) {
+                List<Document> users = new ArrayList<>();
+                int n = rnd.nextInt(4);
+                for (int u = 0; u < n; u++) users.add(new Document("userId", "U-" + rnd.nextInt(50)));
+                if (rnd.nextInt(10) == 0) users.add(new Document("userId", USER));
+                d.append("assignedUsers", users);
+                if (rnd.nextInt(3) > 0) d.append("seatCount", users.size());   // the rest predate seatCount
+                if (rnd.nextBoolean()) d.append("seatLimit", 1 + rnd.nextInt(4));
+            }
+            batch.add(d);
+            if (batch.size() == 1000) {
+                coll.insertMany(batch);
+                batch = new ArrayList<>();
+            }
+        }
+        if (!batch.isEmpty()) coll.insertMany(batch);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Set<Object> expected(List<Document> all, boolean student) {
+        Set<Object> ids = new HashSet<>();
+        for (Document item : all) {
+            String type = item.getString("itemType");
+            String status = item.getString("status");
+            if ("Under Repair".equals(status)) continue;
+            if ("License".equals(type)) {
+                List<Document> users = item.get("assignedUsers", List.class);
+                if (users.stream().anyMatch(u -> USER.equals(u.getString("userId")))) continue;
+                Integer limit = item.getInteger("seatLimit");
+                if (limit != null && users.size() >= limit) continue;
+            } else {
+                if (!"Available".equals(status)) continue;
+                if (student && !"Laptop".equals(type)) continue;
+            }
+            ids.add(item.get("_id"));
+        }
+        return ids;
+    }
+
+    private static Set<Object> ids(List<Document> docs) {
+        Set<Object> ids = new HashSet<>();
+        for (Document d : docs) ids.add(d.get("_id"));
+        return ids;
+    }
+}
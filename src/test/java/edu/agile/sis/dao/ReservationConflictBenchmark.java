@@ -0,0 +1,143 @@
+package edu.agile.sis.dao;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Filters;
+import edu.agile.sis.util.IntervalTree;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Manual benchmark (not run by surefire): reservation conflict checks and parallel booking.
+ *
+ * Part 1 times a conflict check for random hour-long slots in a busy room, once with the old
+ * findOverlapping query (roomId + start/end range) and once with the per-room IntervalTree.
+ * Part 2 lets parallel clients book random slots in one room. "query-then-insert" replays the old
+ * createReservation; "slot-claim" claims through RoomSlotDAO before inserting. Afterwards every
+ * stored pair of reservations is checked for overlap. Uses a throwaway database.
+ *
+ * Usage: ReservationConflictBenchmark mongodb-uri [reservations] [clients] [seconds]   (defaults: 5000, 16, 10)
+ */
+public class ReservationConflictBenchmark {
+
+    private static final long HOUR = 3_600_000L;
+    private static final long BASE = Instant.parse("2025-01-01T00:00:00Z").toEpochMilli();
+    private static final int DAYS = 365;
+
+    public static void main(String[] args) throws Exception {
+        String uri = args.length > 0 ? args[0] : "mongodb://localhost:27017";
+        int reservations = args.length > 1 ? Integer.parseInt(args[1]) : 5000;
+        int clients = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+        int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+
+        try (MongoClient client = MongoClients.create(uri)) {
+            MongoDatabase db = client.getDatabase("sis_reservation_bench_" + System.nanoTime());
+            try {
+                MongoCollection<Document> coll = db.getCollection("reservations");
+                coll.createIndex(new Document("roomId", 1).append("start", 1).append("end", 1));
+                checks(coll, reservations);
+
+                System.out.printf("%n%d clients booking in one room, %d s per mode%n", clients, seconds);
+                coll.deleteMany(new Document());
+                booking("query-then-insert", coll, clients, seconds, null);
+                coll.deleteMany(new Document());
+                booking("slot-claim", coll, clients, seconds, new RoomSlotDAO(db.getCollection("room_slots")));
+            } finally {
+                db.drop();
+            }
+        }
+    }
+
+    private static void checks(MongoCollection<Document> coll, int reservations) {
+        Random rnd = new Random(1);
+        IntervalTree<String> tree = new IntervalTree<>();
+        List<Document> batch = new ArrayList<>();
+        for (int i = 0; i < reservations; i++) {
+            long s = BASE + rnd.nextInt(DAYS * 24) * HOUR;
+            Document d = new Document("_id", new ObjectId()).append("roomId", "bench-room")
+                    .append("start", new Date(s)).append("end", new Date(s + HOUR));
+            batch.add(d);
+            tree.put(d.getObjectId("_id").toHexString(), s, s + HOUR);
+        }
+        coll.insertMany(batch);
+
+        int probes = 2000;
+        long[] starts = new long[probes];
+        for (int i = 0; i < probes; i++) starts[i] = BASE + rnd.nextInt(DAYS * 24 * 60) * 60_000L;
+
+        long t0 = System.nanoTime();
+        int queryHits = 0;
+        for (long s : starts) {
+            if (coll.find(Filters.and(Filters.eq("roomId", "bench-room"),
+                    Filters.lt("start", new Date(s + HOUR)), Filters.gt("end", new Date(s)))).first() != null) queryHits++;
+        }
+        long queryNs = System.nanoTime() - t0;
+
+        t0 = System.nanoTime();
+        int treeHits = 0;
+        for (long s : starts) {
+            if (tree.overlaps(s, s + HOUR, null)) treeHits++;
+        }
+        long treeNs = System.nanoTime() - t0;
+
+        System.out.printf("%d reservations in one room, %d conflict checks%n", reservations, probes);
+        System.out.printf("findOverlapping query %10.1f us/check  (%d conflicts)%n", queryNs / 1000.0 / probes, queryHits);
+        System.out.printf("interval tree         %10.3f us/check  (%d conflicts)%n", treeNs / 1000.0 / probes, treeHits);
+    }
+
+    private static void booking(String label, MongoCollection<Document> coll, int clients, int seconds, RoomSlotDAO slots)
+            throws InterruptedException {
+        AtomicLong booked = new AtomicLong();
+        AtomicLong rejected = new AtomicLong();
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        for (int c = 0; c < clients; c++) {
+            pool.execute(() -> {
+                while (System.nanoTime() < end) {
+                    // 30-minute grid over two weeks, so collisions are common
+                    long s = BASE + ThreadLocalRandom.current().nextInt(14 * 48) * (HOUR / 2);
+                    Date start = new Date(s);
+                    Date stop = new Date(s + HOUR);
+                    ObjectId id = new ObjectId();
+                    boolean ok;
+                    if (slots == null) {
+                        ok = coll.find(Filters.and(Filters.eq("roomId", "race-room"),
+                                Filters.lt("start", stop), Filters.gt("end", start))).first() == null;
+                    } else {
+                        ok = slots.claim("race-room", start, stop, id.toHexString(), new ObjectId());
+                    }
+                    if (!ok) {
+                        rejected.incrementAndGet();
+                        continue;
+                    }
+                    coll.insertOne(new Document("_id", id).append("roomId", "race-room").append("start", start).append("end", stop));
+                    booked.incrementAndGet();
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(seconds + 60L, TimeUnit.SECONDS);
+
+        List<Document> stored = coll.find(Filters.eq("roomId", "race-room")).into(new ArrayList<>());
+        stored.sort((a, b) -> a.getDate("start").compareTo(b.getDate("start")));
+        int doubles = 0;
+        for (int i = 1; i < stored.size(); i++) {
+            if (stored.get(i).getDate("start").before(stored.get(i - 1).getDate("end"))) doubles++;
+        }
+        System.out.printf("%-17s %7d booked  %9d rejected  double bookings %d%n", label, booked.get(), rejected.get(), doubles);
+    }
+}
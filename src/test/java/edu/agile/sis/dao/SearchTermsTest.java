@@ -0,0 +1,37 @@
+package edu.agile.sis.dao;
+
+import com.mongodb.client.model.Filters;
+import org.bson.Document;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@DisplayName("SearchTerms Tests")
+class SearchTermsTest {
+
+    @Test
+    @DisplayName("of - should collect the distinct lowercased words of the searchable fields")
+    void testTerms() {
+        Document leave = new Document("staffId", "ST-001").append("type", "Sick")
+                .append("reason", "Flu, sick since Monday").append("status", "Pending");
+
+        assertEquals(List.of("st", "001", "sick", "flu", "since", "monday"),
+                SearchTerms.of(leave, List.of("staffId", "type", "reason", "period")));
+    }
+
+    @Test
+    @DisplayName("filter - should require an anchored prefix match for every word typed")
+    void testFilter() {
+        assertEquals(Filters.and(Filters.regex("searchTerms", "^dell"), Filters.regex("searchTerms", "^lap"))
+                        .toBsonDocument(),
+                SearchTerms.filter("  Dell LAP ").toBsonDocument());
+        assertEquals(Filters.regex("searchTerms", "^café").toBsonDocument(),
+                SearchTerms.filter("(Café)").toBsonDocument());
+        assertNull(SearchTerms.filter(" .* "));
+        assertNull(SearchTerms.filter(null));
+    }
+}
@@ -0,0 +1,151 @@
+package edu.agile.sis.db;
+
+import org.bson.Document;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("AuditWriter Tests")
+class AuditWriterTest {
+
+    @TempDir
+    Path tmp;
+
+    private final List<List<Document>> batches = Collections.synchronizedList(new ArrayList<>());
+
+    private int stored() {
+        synchronized (batches) {
+            return batches.stream().mapToInt(List::size).sum();
+        }
+    }
+
+    private static Document entry(int i) {
+        return new Document("entityType", "Item").append("entityId", "item-" + i).append("action", "UPDATE");
+    }
+
+    @Test
+    @DisplayName("submit - should write a full batch without waiting for the flush interval")
+    void testBatchesBySize() throws Exception {
+        try (AuditWriter writer = new AuditWriter(b -> batches.add(new ArrayList<>(b)), 100, 5, 60_000, null).start()) {
+            for (int i = 0; i < 5; i++) writer.submit(entry(i));
+
+            long deadline = System.currentTimeMillis() + 5000;
+            while (stored() < 5 && System.currentTimeMillis() < deadline) Thread.sleep(10);
+
+            assertEquals(1, batches.size());
+            assertEquals(5, batches.get(0).size());
+            assertNotNull(batches.get(0).get(0).get("_id"));
+        }
+    }
+
+    @Test
+    @DisplayName("close - should write entries still in the queue")
+    void testFlushesOnClose() {
+        AuditWriter writer = new AuditWriter(b -> batches.add(new ArrayList<>(b)), 100, 50, 60_000, null).start();
+        for (int i = 0; i < 7; i++) writer.submit(entry(i));
+        writer.close();
+
+        assertEquals(7, stored());
+        assertEquals(7, writer.getWritten());
+        assertEquals(0, writer.getQueued());
+    }
+
+    @Test
+    @DisplayName("flush - should spill a failed batch and replay it after the next successful write")
+    void testSpillsAndReplays() throws Exception {
+        Path spill = tmp.resolve("audit-spill.jsonl");
+        AtomicBoolean down = new AtomicBoolean(true);
+        try (AuditWriter writer = new AuditWriter(b -> {
+            if (down.get()) throw new IllegalStateException("database unreachable");
+            batches.add(new ArrayList<>(b));
+        }, 100, 10, 60_000, spill.toString()).start()) {
+            writer.submit(entry(1));
+            writer.submit(entry(2));
+            writer.flush();
+
+            assertEquals(0, stored());
+            assertEquals(2, writer.getSpilled());
+            assertEquals(2, writer.getSpillBacklog());
+            assertEquals(2, Files.readAllLines(spill).size());
+
+            down.set(false);
+            writer.submit(entry(3));
+            writer.flush();
+
+            assertEquals(3, stored());
+            assertEquals(2, writer.getSpilled());
+            assertEquals(0, writer.getSpillBacklog());
+            assertFalse(Files.exists(spill));
+        }
+    }
+
+    @Test
+    @DisplayName("start - should replay a spill file left by an earlier run")
+    void testReplaysOnStart() throws Exception {
+        Path spill = tmp.resolve("audit-spill.jsonl");
+        Files.write(spill, List.of(entry(1).append("_id", "a").toJson(), entry(2).append("_id", "b").toJson()));
+        AuditWriter writer = new AuditWriter(b -> batches.add(new ArrayList<>(b)), 100, 10, 60_000, spill.toString());
+        assertEquals(0, writer.getSpillBacklog());
+
+        writer.start();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (stored() < 2 && System.currentTimeMillis() < deadline) Thread.sleep(10);
+        writer.close();
+
+        assertEquals(2, stored());
+        assertEquals(0, writer.getSpillBacklog());
+        assertEquals(0, writer.getSpilled());
+        assertFalse(Files.exists(spill));
+    }
+
+    @Test
+    @DisplayName("submit - should spill instead of blocking when the queue is full")
+    void testSpillsWhenQueueFull() throws Exception {
+        Path spill = tmp.resolve("audit-spill.jsonl");
+        Object gate = new Object();
+        AtomicBoolean blocked = new AtomicBoolean(true);
+        // the sink stalls so the flusher cannot drain the queue
+        AuditWriter writer = new AuditWriter(b -> {
+            synchronized (gate) {
+                while (blocked.get()) {
+                    try { gate.wait(); } catch (InterruptedException e) { Thread.currentThread().interrupt(); return; }
+                }
+            }
+            batches.add(new ArrayList<>(b));
+        }, 2, 1, 10, spill.toString()).start();
+
+        for (int i = 0; i < 10; i++) writer.submit(entry(i));
+
+        assertTrue(writer.getSpilled() > 0);
+        assertTrue(Files.exists(spill));
+
+        synchronized (gate) {
+            blocked.set(false);
+            gate.notifyAll();
+        }
+        writer.close();
+    }
+
+    @Test
+    @DisplayName("submit - should count dropped entries when spilling is disabled")
+    void testDropsWithoutSpillFile() {
+        AuditWriter writer = new AuditWriter(b -> { throw new IllegalStateException("down"); }, 100, 10, 60_000, null).start();
+        writer.submit(entry(1));
+        writer.close();
+
+        assertEquals(1, writer.getDropped());
+        assertEquals(0, writer.getWritten());
+    }
+}
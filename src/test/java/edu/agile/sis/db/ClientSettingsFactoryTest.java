@@ -0,0 +1,102 @@
+package edu.agile.sis.db;
+
+import com.mongodb.MongoClientSettings;
+import com.mongodb.ReadConcern;
+import com.mongodb.ReadPreference;
+import edu.agile.sis.config.ConfigManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("ClientSettingsFactory Tests")
+class ClientSettingsFactoryTest {
+
+    private static final List<String> KEYS = List.of(
+            "mongodb.pool.maxSize", "mongodb.pool.minSize", "mongodb.pool.maxWaitMs", "mongodb.pool.maxIdleMs",
+            "mongodb.connectTimeoutMs", "mongodb.socketTimeoutMs", "mongodb.serverSelectionTimeoutMs",
+            "mongodb.compressors", "mongodb.readPreference", "mongodb.readConcern");
+
+    @AfterEach
+    void clearKeys() {
+        ConfigManager cfg = ConfigManager.getInstance();
+        for (String key : KEYS) cfg.set(key, "");
+    }
+
+    @Test
+    @DisplayName("build - should apply pool, timeout, read preference and read concern keys")
+    void testAppliesConfiguredValues() {
+        ConfigManager cfg = ConfigManager.getInstance();
+        cfg.set("mongodb.pool.maxSize", "25");
+        cfg.set("mongodb.pool.minSize", "3");
+        cfg.set("mongodb.pool.maxWaitMs", "4000");
+        cfg.set("mongodb.connectTimeoutMs", "2500");
+        cfg.set("mongodb.socketTimeoutMs", "12000");
+        cfg.set("mongodb.serverSelectionTimeoutMs", "3000");
+        cfg.set("mongodb.readPreference", "secondaryPreferred");
+        cfg.set("mongodb.readConcern", "majority");
+        PoolStats stats = new PoolStats();
+
+        MongoClientSettings s = ClientSettingsFactory.build("mongodb://localhost:27017", cfg, stats);
+
+        assertEquals(25, s.getConnectionPoolSettings().getMaxSize());
+        assertEquals(3, s.getConnectionPoolSettings().getMinSize());
+        assertEquals(4000, s.getConnectionPoolSettings().getMaxWaitTime(TimeUnit.MILLISECONDS));
+        assertTrue(s.getConnectionPoolSettings().getConnectionPoolListeners().contains(stats));
+        assertEquals(2500, s.getSocketSettings().getConnectTimeout(TimeUnit.MILLISECONDS));
+        assertEquals(12000, s.getSocketSettings().getReadTimeout(TimeUnit.MILLISECONDS));
+        assertEquals(3000, s.getClusterSettings().getServerSelectionTimeout(TimeUnit.MILLISECONDS));
+        assertEquals(ReadPreference.secondaryPreferred(), s.getReadPreference());
+        assertEquals(ReadConcern.MAJORITY, s.getReadConcern());
+    }
+
+    @Test
+    @DisplayName("build - should keep URI settings when keys are absent or invalid")
+    void testKeepsUriDefaults() {
+        ConfigManager cfg = ConfigManager.getInstance();
+        cfg.set("mongodb.pool.maxSize", "lots");
+        cfg.set("mongodb.readPreference", "fastest");
+
+        MongoClientSettings s = ClientSettingsFactory.build("mongodb://localhost:27017/?maxPoolSize=7", cfg, null);
+
+        assertEquals(7, s.getConnectionPoolSettings().getMaxSize());
+        assertEquals(ReadPreference.primary(), s.getReadPreference());
+    }
+
+    @Test
+    @DisplayName("compressors - should skip unknown names and keep the requested order")
+    void testCompressorParsing() {
+        assertEquals(List.of("zlib"), ClientSettingsFactory.compressors("brotli, zlib").stream()
+                .map(c -> c.getName()).toList());
+        assertTrue(ClientSettingsFactory.compressors(null).isEmpty());
+    }
+
+    @Test
+    @DisplayName("PoolStats - should track checked-out connections, waiters and failures")
+    void testPoolStatsCounters() {
+        PoolStats stats = new PoolStats();
+        com.mongodb.connection.ServerId server = new com.mongodb.connection.ServerId(
+                new com.mongodb.connection.ClusterId(), new com.mongodb.ServerAddress());
+        com.mongodb.connection.ConnectionId conn = new com.mongodb.connection.ConnectionId(server);
+
+        stats.connectionCheckOutStarted(new com.mongodb.event.ConnectionCheckOutStartedEvent(server, 1));
+        stats.connectionCheckOutStarted(new com.mongodb.event.ConnectionCheckOutStartedEvent(server, 2));
+        assertEquals(2, stats.getWaitQueueSize());
+
+        stats.connectionCheckedOut(new com.mongodb.event.ConnectionCheckedOutEvent(conn, 1, 5));
+        stats.connectionCheckOutFailed(new com.mongodb.event.ConnectionCheckOutFailedEvent(server, 2,
+                com.mongodb.event.ConnectionCheckOutFailedEvent.Reason.TIMEOUT, 5));
+
+        assertEquals(0, stats.getWaitQueueSize());
+        assertEquals(1, stats.getCheckedOut());
+        assertEquals(1, stats.getCheckOutFailures());
+
+        stats.connectionCheckedIn(new com.mongodb.event.ConnectionCheckedInEvent(conn, 1));
+        assertEquals(0, stats.getCheckedOut());
+    }
+}
@@ -0,0 +1,63 @@
+package edu.agile.sis.db;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import edu.agile.sis.dao.CourseDAO;
+import org.bson.Document;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@DisplayName("DaoRegistry Tests")
+class DaoRegistryTest {
+
+    private MongoDatabase installMockDatabase() {
+        try {
+            MongoDatabase mockDatabase = mock(MongoDatabase.class);
+            @SuppressWarnings("unchecked")
+            MongoCollection<Document> mockCollection = mock(MongoCollection.class);
+            when(mockDatabase.getCollection(anyString())).thenReturn(mockCollection);
+
+            DBConnection mockDBConnection = mock(DBConnection.class);
+            when(mockDBConnection.getDatabase()).thenReturn(mockDatabase);
+
+            java.lang.reflect.Field instanceField = DBConnection.class.getDeclaredField("INSTANCE");
+            instanceField.setAccessible(true);
+            instanceField.set(null, mockDBConnection);
+            return mockDatabase;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to mock DBConnection", e);
+        }
+    }
+
+    @Test
+    @DisplayName("get - should hand out one shared DAO and open its collection once")
+    void testGetReturnsSingleton() {
+        MongoDatabase db = installMockDatabase();
+
+        CourseDAO first = DaoRegistry.get(CourseDAO.class);
+        CourseDAO second = DaoRegistry.get(CourseDAO.class);
+
+        assertSame(first, second);
+        verify(db, times(1)).getCollection("courses");
+    }
+
+    @Test
+    @DisplayName("get - should rebuild DAOs after switching to another database")
+    void testGetRebindsOnNewDatabase() {
+        installMockDatabase();
+        CourseDAO first = DaoRegistry.get(CourseDAO.class);
+
+        installMockDatabase();
+        CourseDAO second = DaoRegistry.get(CourseDAO.class);
+
+        assertNotSame(first, second);
+    }
+}
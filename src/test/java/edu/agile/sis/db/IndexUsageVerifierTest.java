@@ -0,0 +1,98 @@
+package edu.agile.sis.db;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoDatabase;
+import org.bson.Document;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+@DisplayName("IndexUsageVerifier Tests")
+class IndexUsageVerifierTest {
+
+    private static Document explainWith(Document winningPlan) {
+        return new Document("queryPlanner", new Document("winningPlan", winningPlan));
+    }
+
+    @Test
+    @DisplayName("usesCollscan - should detect a COLLSCAN under a SORT stage")
+    void testDetectsNestedCollscan() {
+        Document plan = new Document("stage", "SORT")
+                .append("inputStage", new Document("stage", "COLLSCAN").append("direction", "forward"));
+
+        assertTrue(IndexUsageVerifier.usesCollscan(explainWith(plan)));
+    }
+
+    @Test
+    @DisplayName("usesCollscan - should accept an index scan")
+    void testAcceptsIxscan() {
+        Document plan = new Document("stage", "FETCH")
+                .append("inputStage", new Document("stage", "IXSCAN").append("indexName", "studentId_1"));
+
+        assertFalse(IndexUsageVerifier.usesCollscan(explainWith(plan)));
+    }
+
+    @Test
+    @DisplayName("usesCollscan - should look inside $or branches and slot-based plans")
+    void testDetectsCollscanInOrBranchOfSbePlan() {
+        Document plan = new Document("queryPlan", new Document("stage", "OR")
+                .append("inputStages", List.of(
+                        new Document("stage", "IXSCAN"),
+                        new Document("stage", "COLLSCAN"))));
+
+        assertTrue(IndexUsageVerifier.usesCollscan(explainWith(plan)));
+    }
+
+    @Test
+    @DisplayName("usesCollscan - should tolerate explain output without a planner section")
+    void testMissingPlanner() {
+        assertFalse(IndexUsageVerifier.usesCollscan(new Document("ok", 1)));
+        assertFalse(IndexUsageVerifier.usesCollscan(null));
+    }
+
+    @Test
+    @DisplayName("manifest - should not declare the same index twice")
+    void testManifestHasNoDuplicates() {
+        Set<String> seen = new HashSet<>();
+        for (IndexManifest.IndexSpec spec : IndexManifest.INDEXES) {
+            assertTrue(seen.add(spec.collection + spec.keys.toJson()), "duplicate index " + spec);
+        }
+    }
+
+    /**
+     * Runs against a real server only when SIS_TEST_MONGODB_URI is set; uses a throwaway database.
+     */
+    @Test
+    @DisplayName("verify - every DAO query should be index-backed after bootstrap")
+    void testNoCollscanAgainstLiveServer() {
+        String uri = System.getenv("SIS_TEST_MONGODB_URI");
+        assumeTrue(uri != null && !uri.isBlank(), "SIS_TEST_MONGODB_URI not set");
+
+        try (MongoClient client = MongoClients.create(uri)) {
+            MongoDatabase db = client.getDatabase("sis_index_verify_" + System.nanoTime());
+            try {
+                for (IndexManifest.IndexSpec spec : IndexManifest.INDEXES) {
+                    db.getCollection(spec.collection).createIndex(spec.keys);
+                }
+                // the planner only considers indexes on collections that exist
+                for (IndexManifest.QueryShape q : IndexManifest.QUERIES) {
+                    db.getCollection(q.collection).insertOne(new Document("seed", true));
+                }
+
+                List<String> violations = IndexUsageVerifier.verify(db);
+                assertEquals(List.of(), violations);
+            } finally {
+                db.drop();
+            }
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package edu.agile.sis.db;
+
+import com.mongodb.ServerAddress;
+import com.mongodb.connection.ClusterId;
+import com.mongodb.connection.ConnectionDescription;
+import com.mongodb.connection.ServerId;
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonString;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("QueryMetrics Tests")
+class QueryMetricsTest {
+
+    private static final ConnectionDescription CONN =
+            new ConnectionDescription(new ServerId(new ClusterId(), new ServerAddress()));
+
+    // the non-deprecated constructors; the operation id is irrelevant here and mirrors the request id
+    private static CommandStartedEvent started(int requestId, String db, String command, BsonDocument body) {
+        return new CommandStartedEvent(null, requestId, requestId, CONN, db, command, body);
+    }
+
+    private static CommandSucceededEvent succeeded(int requestId, String command, BsonDocument reply, long elapsedNanos) {
+        return new CommandSucceededEvent(null, requestId, requestId, CONN, "agile_sis_db", command, reply, elapsedNanos);
+    }
+
+    private static CommandFailedEvent failed(int requestId, String command, long elapsedNanos, Throwable error) {
+        return new CommandFailedEvent(null, requestId, requestId, CONN, "agile_sis_db", command, elapsedNanos, error);
+    }
+
+    private static BsonDocument findCommand() {
+        return new BsonDocument("find", new BsonString("submissions"))
+                .append("filter", BsonDocument.parse("{studentId: '20P1076', $or: [{status: 'graded'}, {grade: {$gte: 50}}]}"))
+                .append("sort", new BsonDocument("submittedAt", new BsonInt32(1)));
+    }
+
+    private static BsonDocument cursorReply(int docs) {
+        BsonArray batch = new BsonArray();
+        for (int i = 0; i < docs; i++) batch.add(new BsonDocument("_id", new BsonInt32(i)));
+        return new BsonDocument("cursor", new BsonDocument("firstBatch", batch)).append("ok", new BsonInt32(1));
+    }
+
+    @Test
+    @DisplayName("listener - should aggregate latency and documents per collection/operation")
+    void testRecordsOperationStats() {
+        QueryMetrics metrics = new QueryMetrics(10_000, new SlowQueryLog(10, null, 0), false);
+
+        metrics.commandStarted(started(1, "agile_sis_db", "find", findCommand()));
+        metrics.commandSucceeded(succeeded(1, "find", cursorReply(3), 3_000_000L));
+        metrics.commandStarted(started(2, "agile_sis_db", "find", findCommand()));
+        metrics.commandFailed(failed(2, "find", 7_000_000L, new RuntimeException("boom")));
+
+        List<QueryMetrics.Snapshot> ops = metrics.snapshotByOperation();
+        assertEquals(1, ops.size());
+        QueryMetrics.Snapshot s = ops.get(0);
+        assertEquals("submissions.find", s.key);
+        assertEquals(2, s.count);
+        assertEquals(1, s.failures);
+        assertEquals(3, s.docs);
+        assertEquals(5.0, s.avgMs, 0.001);
+        assertEquals(7.0, s.maxMs, 0.001);
+        assertTrue(metrics.recentSlowQueries().isEmpty());
+    }
+
+    @Test
+    @DisplayName("listener - should ignore commands that do not target a collection")
+    void testIgnoresHandshakeCommands() {
+        QueryMetrics metrics = new QueryMetrics(0, new SlowQueryLog(10, null, 0), false);
+
+        metrics.commandStarted(started(1, "admin", "ping", new BsonDocument("ping", new BsonInt32(1))));
+        metrics.commandSucceeded(succeeded(1, "ping", new BsonDocument("ok", new BsonInt32(1)), 1_000L));
+
+        assertTrue(metrics.snapshotByOperation().isEmpty());
+    }
+
+    @Test
+    @DisplayName("slow log - should record slow commands with their filter shape and no literal values")
+    void testSlowQueryLogged() {
+        QueryMetrics metrics = new QueryMetrics(100, new SlowQueryLog(10, null, 0), false);
+
+        metrics.commandStarted(started(1, "agile_sis_db", "find", findCommand()));
+        metrics.commandSucceeded(succeeded(1, "find", cursorReply(1), 250_000_000L));
+
+        List<SlowQueryLog.Entry> slow = metrics.recentSlowQueries();
+        assertEquals(1, slow.size());
+        assertEquals("{studentId: ?, $or: [{status: ?}, {grade: {$gte: ?}}]} sort {\"submittedAt\": 1}", slow.get(0).shape);
+        assertTrue(!slow.get(0).shape.contains("20P1076"));
+    }
+
+    @Test
+    @DisplayName("percentile - should report the upper bound of the bucket holding the percentile")
+    void testPercentileFromHistogram() {
+        long[] h = new long[QueryMetrics.BUCKETS_MS.length + 1];
+        h[QueryMetrics.bucketOf(500_000L)] = 90;        // < 1 ms
+        h[QueryMetrics.bucketOf(30_000_000L)] = 10;     // 20..50 ms
+
+        assertEquals(1.0, QueryMetrics.percentile(h, 0.50, 40.0), 0.001);
+        assertEquals(40.0, QueryMetrics.percentile(h, 0.99, 40.0), 0.001);
+    }
+
+    @Test
+    @DisplayName("filterShape - should use the first statement of update commands")
+    void testUpdateShape() {
+        BsonDocument update = new BsonDocument("update", new BsonString("inventory"))
+                .append("updates", new BsonArray(List.of(BsonDocument.parse("{q: {_id: 'x', status: 'Available'}, u: {$set: {status: 'Allocated'}}}"))));
+
+        assertEquals("{_id: ?, status: ?}", QueryMetrics.filterShape("update", update));
+        assertNull(QueryMetrics.filterShape("insert", new BsonDocument("insert", new BsonString("inventory"))));
+    }
+}
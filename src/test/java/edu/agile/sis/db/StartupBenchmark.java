@@ -0,0 +1,75 @@
+package edu.agile.sis.db;
+
+import edu.agile.sis.service.AnnouncementService;
+import edu.agile.sis.service.AuthService;
+import edu.agile.sis.service.EventService;
+import edu.agile.sis.service.MessageService;
+import edu.agile.sis.service.ParentService;
+import edu.agile.sis.service.QuizService;
+import edu.agile.sis.service.SubmissionService;
+import edu.agile.sis.service.UserService;
+
+/**
+ * Manual benchmark (not run by surefire): time-to-login-screen and screen-open cost against the
+ * database in config.properties.
+ *
+ * "before" replays the old behaviour: every screen builds fresh DAOs and the index-creating
+ * constructors send their createIndex calls again. "after" uses the shared DaoRegistry with
+ * indexes ensured once in the background.
+ *
+ * Usage: StartupBenchmark [screenOpens]   (default 20)
+ */
+public class StartupBenchmark {
+
+    public static void main(String[] args) {
+        int opens = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+
+        long t0 = System.nanoTime();
+        DBConnection.getInstance().connectFromConfig();
+        DaoRegistry.clear();
+        IndexBootstrap.reset();
+        IndexBootstrap.ensureIndexes();
+        new AuthService();
+        long beforeLogin = System.nanoTime() - t0;
+        long beforeOpen = timeScreenOpens(opens, true);
+        DBConnection.getInstance().close();
+
+        t0 = System.nanoTime();
+        DBConnection.getInstance().connectFromConfig();
+        DaoRegistry.clear();
+        IndexBootstrap.reset();
+        IndexBootstrap.ensureIndexesAsync();
+        new AuthService();
+        long afterLogin = System.nanoTime() - t0;
+        long afterOpen = timeScreenOpens(opens, false);
+        DBConnection.getInstance().close();
+
+        System.out.printf("time-to-login-screen  before: %8.1f ms   after: %8.1f ms%n", ms(beforeLogin), ms(afterLogin));
+        System.out.printf("avg screen open (%d)  before: %8.2f ms   after: %8.2f ms%n", opens,
+                ms(beforeOpen) / opens, ms(afterOpen) / opens);
+    }
+
+    private static long timeScreenOpens(int opens, boolean legacy) {
+        long start = System.nanoTime();
+        for (int i = 0; i < opens; i++) {
+            if (legacy) {
+                DaoRegistry.clear();
+                IndexBootstrap.reset();
+                IndexBootstrap.ensureIndexes();
+            }
+            // the service graphs the announcements, parent dashboard and messages screens build
+            new AnnouncementService();
+            new EventService();
+            new ParentService();
+            new QuizService();
+            new SubmissionService();
+            new MessageService();
+            new UserService();
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static double ms(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
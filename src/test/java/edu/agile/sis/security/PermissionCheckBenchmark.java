@@ -0,0 +1,90 @@
+package edu.agile.sis.security;
+
+import org.bson.Document;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Manual microbenchmark (not run by surefire): cost of one studentCanMessageStaff check as the
+ * course catalog grows.
+ *
+ * "scan" replays the old check (walk every course's assignedStaff) over an in-memory catalog, so it
+ * leaves out the findAll round trip the old code also paid per call; "index" answers from
+ * PermissionIndex, permissive and strict. Checks go to random staff, half of them assigned.
+ *
+ * Usage: PermissionCheckBenchmark [checks]   (default 200000)
+ */
+public class PermissionCheckBenchmark {
+
+    public static void main(String[] args) {
+        int checks = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        System.out.printf("%8s %14s %14s %14s%n", "courses", "scan ns/check", "index ns/check", "strict ns/check");
+        for (int courses : new int[] { 100, 1_000, 10_000, 50_000 }) {
+            Random rnd = new Random(7);
+            int staff = Math.max(20, courses / 4);
+            List<Document> catalog = new ArrayList<>();
+            for (int c = 0; c < courses; c++) {
+                catalog.add(new Document("code", "C" + c).append("assignedStaff",
+                        List.of("ST-" + rnd.nextInt(staff), "ST-" + rnd.nextInt(staff))));
+            }
+            String[] targets = new String[1024];
+            for (int i = 0; i < targets.length; i++) targets[i] = "ST-" + rnd.nextInt(staff * 2);
+
+            PermissionIndex index = new PermissionIndex(Long.MAX_VALUE);
+            Set<String> enrolled = Set.of("C1", "C2", "C3", "C4", "C5");
+
+            int scanChecks = Math.max(1_000, checks / Math.max(1, courses / 100));
+            long sink = 0;
+            for (int warm = 0; warm < 2; warm++) {
+                sink += run(targets, scanChecks, t -> scan(catalog, t));
+                sink += run(targets, checks, t -> !index.coursesOfStaff(t, () -> catalog).isEmpty());
+            }
+            long t0 = System.nanoTime();
+            sink += run(targets, scanChecks, t -> scan(catalog, t));
+            double scanNs = (System.nanoTime() - t0) / (double) scanChecks;
+
+            t0 = System.nanoTime();
+            sink += run(targets, checks, t -> !index.coursesOfStaff(t, () -> catalog).isEmpty());
+            double indexNs = (System.nanoTime() - t0) / (double) checks;
+
+            t0 = System.nanoTime();
+            sink += run(targets, checks, t -> {
+                Set<String> taught = index.coursesOfStaff(t, () -> catalog);
+                Set<String> mine = index.coursesOfStudent("S1", s -> enrolled);
+                for (String code : mine) if (taught.contains(code)) return true;
+                return false;
+            });
+            double strictNs = (System.nanoTime() - t0) / (double) checks;
+
+            System.out.printf("%8d %14.0f %14.0f %14.0f   (%d)%n", courses, scanNs, indexNs, strictNs, sink % 10);
+        }
+    }
+
+    private interface Check {
+        boolean test(String staffId);
+    }
+
+    private static long run(String[] targets, int n, Check check) {
+        long allowed = 0;
+        for (int i = 0; i < n; i++) {
+            if (check.test(targets[i & (targets.length - 1)])) allowed++;
+        }
+        return allowed;
+    }
+
+    /** The old PermissionService loop. */
+    private static boolean scan(List<Document> courses, String staffId) {
+        for (Document c : courses) {
+            Object assignedObj = c.get("assignedStaff");
+            if (assignedObj instanceof List) {
+                for (Object o : (List<?>) assignedObj) {
+                    if (o != null && o.toString().equals(staffId)) return true;
+                }
+            }
+        }
+        return false;
+    }
+}
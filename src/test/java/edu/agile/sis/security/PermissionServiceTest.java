@@ -0,0 +1,116 @@
+package edu.agile.sis.security;
+
+import edu.agile.sis.dao.CourseDAO;
+import edu.agile.sis.dao.EnrollmentDAO;
+import org.bson.Document;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("PermissionService Tests")
+class PermissionServiceTest {
+    @Mock
+    private CourseDAO mockCourseDAO;
+
+    @Mock
+    private EnrollmentDAO mockEnrollmentDAO;
+
+    private static List<Document> assignments() {
+        return List.of(
+                new Document("code", "CS101").append("assignedStaff", List.of("ST-1", "ST-2")),
+                new Document("code", "MA201").append("assignedStaff", List.of("ST-2")));
+    }
+
+    @Test
+    @DisplayName("studentCanMessageStaff - should answer repeated checks from one catalog read")
+    void testPermissiveUsesIndex() {
+        when(mockCourseDAO.findStaffAssignments()).thenReturn(assignments());
+        PermissionService service = new PermissionService(mockCourseDAO, mockEnrollmentDAO, new PermissionIndex(60_000), false);
+
+        for (int i = 0; i < 50; i++) {
+            assertTrue(service.studentCanMessageStaff("S1", "ST-1"));
+            assertFalse(service.studentCanMessageStaff("S1", "ST-9"));
+        }
+
+        verify(mockCourseDAO, times(1)).findStaffAssignments();
+        verify(mockEnrollmentDAO, never()).findCourseCodesByStudents(any());
+    }
+
+    @Test
+    @DisplayName("studentCanMessageStaff - strict mode should require a shared course")
+    void testStrictRequiresEnrollment() {
+        when(mockCourseDAO.findStaffAssignments()).thenReturn(assignments());
+        when(mockEnrollmentDAO.findCourseCodesByStudents(List.of("S1"))).thenReturn(Map.of("S1", Set.of("MA201")));
+        PermissionService service = new PermissionService(mockCourseDAO, mockEnrollmentDAO, new PermissionIndex(60_000), true);
+
+        assertTrue(service.studentCanMessageStaff("S1", "ST-2"));
+        assertFalse(service.studentCanMessageStaff("S1", "ST-1"));
+        assertFalse(service.studentCanMessageStaff("S1", "ST-1"));
+
+        verify(mockEnrollmentDAO, times(1)).findCourseCodesByStudents(List.of("S1"));
+    }
+
+    @Test
+    @DisplayName("studentCanMessageStaff - should reload after the index is invalidated")
+    void testInvalidationReloads() {
+        when(mockCourseDAO.findStaffAssignments()).thenReturn(assignments()).thenReturn(List.of(
+                new Document("code", "CS101").append("assignedStaff", List.of("ST-1", "ST-2", "ST-9"))));
+        when(mockEnrollmentDAO.findCourseCodesByStudents(List.of("S1")))
+                .thenReturn(Map.of()).thenReturn(Map.of("S1", Set.of("CS101")));
+        PermissionIndex index = new PermissionIndex(60_000);
+        PermissionService service = new PermissionService(mockCourseDAO, mockEnrollmentDAO, index, true);
+
+        assertFalse(service.studentCanMessageStaff("S1", "ST-9"));
+        index.invalidateCourses();
+        assertFalse(service.studentCanMessageStaff("S1", "ST-9"));  // assigned now, but not enrolled
+        index.invalidateStudent("S1");
+        assertTrue(service.studentCanMessageStaff("S1", "ST-9"));
+
+        verify(mockCourseDAO, times(2)).findStaffAssignments();
+    }
+
+    @Test
+    @DisplayName("PermissionIndex - should not keep a load that overlapped an invalidation")
+    void testInvalidationDuringLoad() {
+        PermissionIndex index = new PermissionIndex(60_000);
+        int[] loads = new int[2];
+
+        index.coursesOfStaff("ST-1", () -> {
+            loads[0]++;
+            index.invalidateCourses();     // e.g. CourseService assigned staff meanwhile
+            return assignments();
+        });
+        index.coursesOfStaff("ST-1", () -> {
+            loads[0]++;
+            return assignments();
+        });
+        index.coursesOfStudent("S1", id -> {
+            loads[1]++;
+            index.invalidateStudent("S1");
+            return Set.of();
+        });
+        assertTrue(index.coursesOfStudent("S1", id -> {
+            loads[1]++;
+            return Set.of("CS101");
+        }).contains("CS101"));
+
+        assertEquals(2, loads[0]);
+        assertEquals(2, loads[1]);
+    }
+}
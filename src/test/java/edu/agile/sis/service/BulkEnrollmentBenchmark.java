@@ -0,0 +1,85 @@
+package edu.agile.sis.service;
+
+import edu.agile.sis.db.DBConnection;
+import edu.agile.sis.db.DaoRegistry;
+import edu.agile.sis.db.IndexManifest;
+import edu.agile.sis.security.AuthSession;
+import org.bson.Document;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Manual benchmark (not run by surefire): registering a cohort at the start of term.
+ *
+ * Seeds students and courses into a throwaway database, then registers rows (default 20k
+ * studentId,courseCode pairs) once through bulkRegister and, for a sample, through one
+ * registerStudentToCourse call per row; the per-row time is extrapolated to all rows.
+ *
+ * Usage: BulkEnrollmentBenchmark mongodb-uri [rows] [students] [sampleRows]   (defaults: 20000, 5000, 500)
+ */
+public class BulkEnrollmentBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        String uri = args.length > 0 ? args[0] : "mongodb://localhost:27017";
+        int rows = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+        int students = args.length > 2 ? Integer.parseInt(args[2]) : 5_000;
+        int sample = args.length > 3 ? Integer.parseInt(args[3]) : 500;
+        String dbName = "sis_bulk_enroll_bench_" + System.nanoTime();
+
+        DBConnection.getInstance().connect(uri, dbName);
+        DaoRegistry.clear();
+        try {
+            for (IndexManifest.IndexSpec spec : IndexManifest.INDEXES) {
+                if (spec.collection.equals("students") || spec.collection.equals("enrollments") || spec.collection.equals("courses")) {
+                    DaoRegistry.collection(spec.collection).createIndex(spec.keys, spec.options());
+                }
+            }
+            Random rnd = new Random(3);
+            List<Document> seed = new ArrayList<>();
+            for (int i = 0; i < students; i++) {
+                seed.add(new Document("entityId", "S" + i).append("type", "student")
+                        .append("core", new Document("gpa", 1.5 + rnd.nextInt(26) / 10.0)));
+            }
+            DaoRegistry.collection("students").insertMany(seed);
+            List<Document> courses = new ArrayList<>();
+            for (int c = 0; c < 40; c++) courses.add(new Document("code", "C" + c).append("title", "Course " + c));
+            DaoRegistry.collection("courses").insertMany(courses);
+
+            List<String[]> pairs = new ArrayList<>();
+            for (int i = 0; i < rows; i++) pairs.add(new String[] { "S" + rnd.nextInt(students), "C" + rnd.nextInt(40) });
+
+            AuthSession.getInstance().setCurrentUser(new Document("_id", "bench").append("username", "bench")
+                    .append("roles", List.of("Admin")));
+            EnrollmentService service = new EnrollmentService();
+
+            // per-row path first, on other students so both runs start from empty schedules
+            List<String[]> single = new ArrayList<>();
+            for (int i = 0; i < sample; i++) single.add(new String[] { "X" + i, "C" + rnd.nextInt(40) });
+            List<Document> extra = new ArrayList<>();
+            for (String[] p : single) extra.add(new Document("entityId", p[0]).append("type", "student"));
+            DaoRegistry.collection("students").insertMany(extra);
+            long t0 = System.nanoTime();
+            for (String[] p : single) {
+                try {
+                    service.registerStudentToCourse(p[0], p[1]);
+                } catch (IllegalStateException ignored) {
+                }
+            }
+            double perRowMs = (System.nanoTime() - t0) / 1e6 / sample;
+
+            t0 = System.nanoTime();
+            BulkEnrollmentReport report = service.bulkRegister(pairs);
+            double bulkMs = (System.nanoTime() - t0) / 1e6;
+
+            System.out.printf("%d rows, %d students%n", rows, students);
+            System.out.printf("registerStudentToCourse per row  %8.2f ms/row  => ~%.1f s for all rows%n",
+                    perRowMs, perRowMs * rows / 1000);
+            System.out.printf("bulkRegister                     %8.0f ms total   %s%n", bulkMs, report.summary());
+        } finally {
+            DBConnection.getInstance().getDatabase().drop();
+            DBConnection.getInstance().close();
+        }
+    }
+}
@@ -171,4 +171,22 @@ class CourseServiceTest {
         assertTrue(result);
         verify(mockCourseDAO, times(1)).findByCode(courseCode);
     }
+
+    @Test
+    @DisplayName("findByCode - should serve repeats from the cache until the course is updated")
+    void testFindByCodeCachedUntilUpdate() {
+        setupAuthMock("Admin");
+        when(mockCourseDAO.findByCode("CS101")).thenReturn(
+            new Document("code", "CS101").append("title", "Intro to CS"),
+            new Document("code", "CS101").append("title", "Updated Title"));
+
+        courseService.findByCode("CS101").put("title", "changed by caller");
+        assertEquals("Intro to CS", courseService.findByCode("CS101").getString("title"));
+        verify(mockCourseDAO, times(1)).findByCode("CS101");
+
+        courseService.update("course-001", new Document("title", "Updated Title"));
+
+        assertEquals("Updated Title", courseService.findByCode("CS101").getString("title"));
+        verify(mockCourseDAO, times(2)).findByCode("CS101");
+    }
 }
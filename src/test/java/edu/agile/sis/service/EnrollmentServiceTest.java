@@ -1,7 +1,10 @@
 package edu.agile.sis.service;
 
+import edu.agile.sis.dao.CourseDAO;
 import edu.agile.sis.dao.EnrollmentDAO;
+import edu.agile.sis.security.AuthSession;
 import org.bson.Document;
+import org.bson.types.ObjectId;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -10,13 +13,18 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -26,6 +34,9 @@ import static org.mockito.Mockito.when;
 class EnrollmentServiceTest {
     @Mock
     private EnrollmentDAO mockEnrollmentDAO;
+
+    @Mock
+    private CourseDAO mockCourseDAO;
     
     private EnrollmentService enrollmentService;
     private EntityService mockEntityService;
@@ -59,6 +70,10 @@ class EnrollmentServiceTest {
             enrollField.setAccessible(true);
             enrollField.set(enrollmentService, mockEnrollmentDAO);
             
+            java.lang.reflect.Field courseField = EnrollmentService.class.getDeclaredField("courseDAO");
+            courseField.setAccessible(true);
+            courseField.set(enrollmentService, mockCourseDAO);
+
             java.lang.reflect.Field entityField = EnrollmentService.class.getDeclaredField("entityService");
             entityField.setAccessible(true);
             entityField.set(enrollmentService, mockEntityService);
@@ -131,19 +146,174 @@ class EnrollmentServiceTest {
     void testRegisterStudentSuccess() {
         String studentId = "student-001";
         String courseCode = "CS101";
-        when(mockEnrollmentDAO.find(studentId, courseCode)).thenReturn(null);
-        when(mockEnrollmentDAO.countDistinctCoursesByStudent(studentId)).thenReturn(2);
-        
         Document student = new Document("_id", studentId)
+            .append("enrolledCount", 2)
             .append("attributes", Arrays.asList(
                 new Document("key", "gpa").append("value", 3.5)
             ));
         when(mockEntityService.getEntityById(studentId)).thenReturn(student);
+        when(mockEnrollmentDAO.reserveCourseSlot(studentId, 7)).thenReturn(true);
+        when(mockEnrollmentDAO.tryInsertEnrollment(any())).thenReturn(true);
 
         boolean result = enrollmentService.registerStudentToCourse(studentId, courseCode);
 
         assertTrue(result);
-        verify(mockEnrollmentDAO, times(1)).insertEnrollment(any());
+        verify(mockEnrollmentDAO, times(1)).tryInsertEnrollment(any());
+        verify(mockEnrollmentDAO, never()).releaseCourseSlot(any());
+    }
+
+    @Test
+    @DisplayName("registerStudentToCourse - should refuse once the GPA limit is reached")
+    void testRegisterStudentLimitReached() {
+        String studentId = "student-001";
+        Document student = new Document("_id", studentId).append("enrolledCount", 5)
+            .append("core", new Document("gpa", "1.8"));
+        when(mockEntityService.getEntityById(studentId)).thenReturn(student);
+        when(mockEnrollmentDAO.reserveCourseSlot(studentId, 5)).thenReturn(false);
+
+        IllegalStateException ex = assertThrows(IllegalStateException.class,
+            () -> enrollmentService.registerStudentToCourse(studentId, "CS106"));
+
+        assertTrue(ex.getMessage().contains("allows max 5 courses"));
+        verify(mockEnrollmentDAO, never()).tryInsertEnrollment(any());
+    }
+
+    @Test
+    @DisplayName("registerStudentToCourse - should give the slot back when already registered")
+    void testRegisterStudentDuplicate() {
+        String studentId = "student-001";
+        when(mockEntityService.getEntityById(studentId)).thenReturn(new Document("_id", studentId).append("enrolledCount", 1));
+        when(mockEnrollmentDAO.reserveCourseSlot(studentId, 5)).thenReturn(true);
+        when(mockEnrollmentDAO.tryInsertEnrollment(any())).thenReturn(false);
+
+        assertThrows(IllegalStateException.class, () -> enrollmentService.registerStudentToCourse(studentId, "CS101"));
+        verify(mockEnrollmentDAO, times(1)).releaseCourseSlot(studentId);
+    }
+
+    @Test
+    @DisplayName("registerStudentToCourse - should initialise enrolledCount for students created before it existed")
+    void testRegisterStudentInitialisesCount() {
+        String studentId = "student-001";
+        when(mockEntityService.getEntityById(studentId)).thenReturn(new Document("_id", studentId));
+        when(mockEnrollmentDAO.initEnrolledCount(studentId)).thenReturn(3);
+        when(mockEnrollmentDAO.reserveCourseSlot(studentId, 5)).thenReturn(true);
+        when(mockEnrollmentDAO.tryInsertEnrollment(any())).thenReturn(true);
+
+        assertTrue(enrollmentService.registerStudentToCourse(studentId, "CS101"));
+        verify(mockEnrollmentDAO, times(1)).initEnrolledCount(studentId);
+    }
+
+    @Test
+    @DisplayName("registerStudentToCourse - should reject unknown students")
+    void testRegisterUnknownStudent() {
+        when(mockEntityService.getEntityById("ghost")).thenReturn(null);
+
+        assertThrows(IllegalStateException.class, () -> enrollmentService.registerStudentToCourse("ghost", "CS101"));
+        verify(mockEnrollmentDAO, never()).reserveCourseSlot(any(), org.mockito.ArgumentMatchers.anyInt());
+    }
+
+    @Test
+    @DisplayName("bulkRegister - should validate every row in memory and write the accepted ones in bulk")
+    @SuppressWarnings("unchecked")
+    void testBulkRegisterReport() {
+        asAdmin();
+        ObjectId s1 = new ObjectId();
+        ObjectId s2 = new ObjectId();
+        when(mockCourseDAO.findExistingCodes(any())).thenReturn(Set.of("CS101", "CS102", "CS103"));
+        when(mockEnrollmentDAO.findStudentsForEnrollment(any())).thenReturn(List.of(
+            new Document("_id", s1).append("entityId", "S1").append("enrolledCount", 4).append("core", new Document("gpa", 1.5)),
+            new Document("_id", s2).append("entityId", "S2")));                                   // no enrolledCount yet
+        when(mockEnrollmentDAO.findCourseCodesByStudents(any())).thenReturn(Map.of("S2", Set.of("CS101")));
+        when(mockEnrollmentDAO.reserveCourseSlots(any(), any(), any()))
+            .thenAnswer(inv -> new HashSet<>(((Map<Object, Integer>) inv.getArgument(0)).keySet()));
+        when(mockEnrollmentDAO.insertEnrollments(any())).thenReturn(List.of());
+
+        BulkEnrollmentReport report = enrollmentService.bulkRegister(List.of(
+            new String[] { "S1", "CS101" },        // 5th course: allowed
+            new String[] { "S1", "CS102" },        // 6th: over the GPA < 2.0 limit
+            new String[] { "S2", "CS101" },        // already registered
+            new String[] { "S2", "CS102" },
+            new String[] { "S2", "CS102" },        // repeated row
+            new String[] { "S3", "CS101" },        // no such student
+            new String[] { "S1", "XX999" },        // no such course
+            new String[] { "S2" }));               // malformed
+
+        List<BulkEnrollmentReport.Row> rows = report.getRows();
+        assertEquals(BulkEnrollmentReport.Status.REGISTERED, rows.get(0).getStatus());
+        assertEquals(BulkEnrollmentReport.Status.LIMIT_EXCEEDED, rows.get(1).getStatus());
+        assertEquals(BulkEnrollmentReport.Status.ALREADY_REGISTERED, rows.get(2).getStatus());
+        assertEquals(BulkEnrollmentReport.Status.REGISTERED, rows.get(3).getStatus());
+        assertEquals(BulkEnrollmentReport.Status.DUPLICATE_ROW, rows.get(4).getStatus());
+        assertEquals(BulkEnrollmentReport.Status.UNKNOWN_STUDENT, rows.get(5).getStatus());
+        assertEquals(BulkEnrollmentReport.Status.UNKNOWN_COURSE, rows.get(6).getStatus());
+        assertEquals(BulkEnrollmentReport.Status.INVALID, rows.get(7).getStatus());
+
+        // S2's base count comes from its enrollments because it has no enrolledCount
+        verify(mockEnrollmentDAO).reserveCourseSlots(Map.of(s1, 1, s2, 1), Map.of(s1, 4, s2, 1), Set.of(s2));
+        verify(mockEnrollmentDAO, times(1)).insertEnrollments(org.mockito.ArgumentMatchers.argThat(docs -> docs.size() == 2));
+        verify(mockEnrollmentDAO, never()).insertEnrollment(any());
+    }
+
+    @Test
+    @DisplayName("bulkRegister - should treat the _id and entityId of one student as the same student")
+    @SuppressWarnings("unchecked")
+    void testBulkRegisterResolvesStudentKeys() {
+        asAdmin();
+        ObjectId s1 = new ObjectId();
+        when(mockCourseDAO.findExistingCodes(any())).thenReturn(Set.of("CS101", "CS102"));
+        when(mockEnrollmentDAO.findStudentsForEnrollment(any())).thenReturn(List.of(
+            new Document("_id", s1).append("entityId", "S1").append("enrolledCount", 1)));
+        when(mockEnrollmentDAO.findCourseCodesByStudents(any())).thenReturn(Map.of("S1", Set.of("CS102")));
+        when(mockEnrollmentDAO.reserveCourseSlots(any(), any(), any()))
+            .thenAnswer(inv -> new HashSet<>(((Map<Object, Integer>) inv.getArgument(0)).keySet()));
+        when(mockEnrollmentDAO.insertEnrollments(any())).thenReturn(List.of());
+
+        BulkEnrollmentReport report = enrollmentService.bulkRegister(List.of(
+            new String[] { "S1", "CS101" },
+            new String[] { s1.toHexString(), "CS101" },    // same student by _id
+            new String[] { s1.toHexString(), "CS102" }));  // enrolled under its entityId
+
+        List<BulkEnrollmentReport.Row> rows = report.getRows();
+        assertEquals(BulkEnrollmentReport.Status.REGISTERED, rows.get(0).getStatus());
+        assertEquals(BulkEnrollmentReport.Status.DUPLICATE_ROW, rows.get(1).getStatus());
+        assertEquals(BulkEnrollmentReport.Status.ALREADY_REGISTERED, rows.get(2).getStatus());
+        verify(mockEnrollmentDAO).reserveCourseSlots(Map.of(s1, 1), Map.of(s1, 1), Set.of());
+    }
+
+    @Test
+    @DisplayName("bulkRegisterCsv - should skip the header and report conflicting students")
+    void testBulkRegisterCsvConflict() throws Exception {
+        asAdmin();
+        ObjectId s1 = new ObjectId();
+        when(mockCourseDAO.findExistingCodes(any())).thenReturn(Set.of("CS101"));
+        when(mockEnrollmentDAO.findStudentsForEnrollment(any())).thenReturn(List.of(
+            new Document("_id", s1).append("entityId", "S1").append("enrolledCount", 0)));
+        when(mockEnrollmentDAO.findCourseCodesByStudents(any())).thenReturn(Map.of());
+        when(mockEnrollmentDAO.reserveCourseSlots(any(), any(), any())).thenReturn(new HashSet<>());   // changed meanwhile
+        when(mockEnrollmentDAO.insertEnrollments(any())).thenReturn(List.of());
+
+        BulkEnrollmentReport report = enrollmentService.bulkRegisterCsv(
+            new java.io.StringReader("studentId,courseCode\n\n\"S1\", CS101\n"));
+
+        assertEquals(1, report.getRows().size());
+        assertEquals(3, report.getRows().get(0).getLine());
+        assertEquals(BulkEnrollmentReport.Status.CONFLICT, report.getRows().get(0).getStatus());
+    }
+
+    @Test
+    @DisplayName("bulkRegister - should require Admin")
+    void testBulkRegisterRequiresAdmin() {
+        AuthSession.getInstance().setCurrentUser(new Document("_id", "u1").append("username", "stu")
+            .append("roles", Arrays.asList("Student")));
+
+        List<String[]> rows = new java.util.ArrayList<>();
+        rows.add(new String[] { "S1", "CS101" });
+        assertThrows(SecurityException.class, () -> enrollmentService.bulkRegister(rows));
+    }
+
+    private static void asAdmin() {
+        AuthSession.getInstance().setCurrentUser(new Document("_id", "admin-001").append("username", "admin")
+            .append("roles", Arrays.asList("Admin")));
     }
 
     @Test
@@ -20,6 +20,8 @@ import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @DisplayName("EntityService Tests")
@@ -78,6 +80,24 @@ class EntityServiceTest {
         assertEquals(entityId, result.getString("entityId"));
     }
 
+    @Test
+    @DisplayName("getEntityById - strict id mode should issue exactly one query when nothing matches")
+    void testGetEntityByIdStrictSingleQuery() {
+        @SuppressWarnings("unchecked")
+        FindIterable<Document> mockIterable = mock(FindIterable.class);
+        when(mockIterable.first()).thenReturn(null);
+        when(mockCollection.find(any(org.bson.conversions.Bson.class))).thenReturn(mockIterable);
+
+        edu.agile.sis.db.IdPolicy.setStrict(true);
+        try {
+            assertNull(entityService.getEntityById(new org.bson.types.ObjectId().toHexString()));
+        } finally {
+            edu.agile.sis.db.IdPolicy.setStrict(false);
+        }
+
+        verify(mockCollection, times(1)).find(any(org.bson.conversions.Bson.class));
+    }
+
     @Test
     @DisplayName("getEntityById - should return null when entityId is null")
     void testGetEntityByIdNull() {
@@ -106,6 +126,29 @@ class EntityServiceTest {
         assertEquals(2, result.size());
     }
 
+    @Test
+    @DisplayName("getEntitySummariesByType - should project away attributes and keep core fields")
+    void testGetEntitySummariesByTypeUsesProjection() {
+        ArrayList<Document> rows = new ArrayList<>(List.of(
+            new Document("type", "student").append("core", new Document("entityId", "20P1076").append("firstName", "Mona"))
+        ));
+
+        @SuppressWarnings("unchecked")
+        FindIterable<Document> mockIterable = mock(FindIterable.class);
+        when(mockCollection.find(any(org.bson.conversions.Bson.class))).thenReturn(mockIterable);
+        when(mockIterable.projection(any())).thenReturn(mockIterable);
+        when(mockIterable.into(any())).thenReturn(rows);
+
+        List<Document> result = entityService.getEntitySummariesByType("student");
+
+        assertEquals(1, result.size());
+        org.mockito.ArgumentCaptor<org.bson.conversions.Bson> projection = org.mockito.ArgumentCaptor.forClass(org.bson.conversions.Bson.class);
+        verify(mockIterable).projection(projection.capture());
+        Document fields = Document.parse(projection.getValue().toBsonDocument().toJson());
+        assertTrue(fields.containsKey("core.firstName"));
+        assertFalse(fields.containsKey("attributes"));
+    }
+
     @Test
     @DisplayName("createEntity - should create entity successfully")
     void testCreateEntitySuccess() {
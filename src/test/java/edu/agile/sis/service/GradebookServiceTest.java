@@ -0,0 +1,255 @@
+package edu.agile.sis.service;
+
+import com.mongodb.MongoException;
+import edu.agile.sis.dao.AssignmentDAO;
+import edu.agile.sis.dao.GradebookDAO;
+import edu.agile.sis.dao.QuizAttemptDAO;
+import edu.agile.sis.dao.QuizDAO;
+import edu.agile.sis.dao.SubmissionDAO;
+import edu.agile.sis.model.Grade;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("GradebookService Tests")
+class GradebookServiceTest {
+    @Mock
+    private SubmissionDAO mockSubmissionDAO;
+
+    @Mock
+    private QuizAttemptDAO mockAttemptDAO;
+
+    @Mock
+    private AssignmentDAO mockAssignmentDAO;
+
+    @Mock
+    private QuizDAO mockQuizDAO;
+
+    @Mock
+    private GradebookDAO mockGradebookDAO;
+
+    private GradebookService gradebookService;
+
+    @BeforeEach
+    void setUp() {
+        // Mock DBConnection to prevent real database access during service construction
+        try {
+            com.mongodb.client.MongoDatabase mockDatabase = mock(com.mongodb.client.MongoDatabase.class);
+            @SuppressWarnings("unchecked")
+            com.mongodb.client.MongoCollection<Document> mockCollection = mock(com.mongodb.client.MongoCollection.class);
+            when(mockDatabase.getCollection(anyString())).thenReturn(mockCollection);
+
+            edu.agile.sis.db.DBConnection mockDBConnection = mock(edu.agile.sis.db.DBConnection.class);
+            when(mockDBConnection.getDatabase()).thenReturn(mockDatabase);
+
+            java.lang.reflect.Field instanceField = edu.agile.sis.db.DBConnection.class.getDeclaredField("INSTANCE");
+            instanceField.setAccessible(true);
+            instanceField.set(null, mockDBConnection);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to mock DBConnection", e);
+        }
+
+        gradebookService = new GradebookService();
+
+        // Inject mocks using reflection
+        try {
+            inject("submissionDAO", mockSubmissionDAO);
+            inject("attemptDAO", mockAttemptDAO);
+            inject("assignmentDAO", mockAssignmentDAO);
+            inject("quizDAO", mockQuizDAO);
+            inject("gradebookDAO", mockGradebookDAO);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to inject mock DAOs", e);
+        }
+    }
+
+    private void inject(String fieldName, Object value) throws Exception {
+        java.lang.reflect.Field field = GradebookService.class.getDeclaredField(fieldName);
+        field.setAccessible(true);
+        field.set(gradebookService, value);
+    }
+
+    @Test
+    @DisplayName("computeGrades - should map aggregation buckets to grades")
+    void testComputeGradesFromAggregation() {
+        String studentId = "student-001";
+        List<Document> rows = Arrays.asList(
+            new Document("_id", "CS101").append("buckets", Arrays.asList(
+                new Document("bucket", "final").append("raw", 45.0).append("subjectName", "Intro CS").append("credits", 3.0),
+                new Document("bucket", "quiz").append("raw", 30.0),
+                new Document("bucket", "assign").append("raw", 15.0)
+            ))
+        );
+        when(mockSubmissionDAO.aggregateGradeBuckets(studentId)).thenReturn(rows);
+
+        List<Grade> result = gradebookService.computeGrades(studentId);
+
+        assertEquals(1, result.size());
+        assertEquals("CS101", result.get(0).getSubjectId());
+        assertEquals("Intro CS", result.get(0).getSubjectName());
+        // quiz bucket is clamped to 20
+        assertEquals("80.00", result.get(0).getGradeValue());
+        assertEquals(3.0, result.get(0).getCredits());
+        verify(mockSubmissionDAO, never()).listByStudent(anyString());
+    }
+
+    @Test
+    @DisplayName("computeGrades - fallback should resolve references with one batched query each")
+    void testComputeGradesFallbackBatchesLookups() {
+        String studentId = "student-001";
+        when(mockSubmissionDAO.aggregateGradeBuckets(studentId))
+            .thenThrow(new MongoException("$unionWith not supported"));
+        when(mockSubmissionDAO.listByStudent(studentId)).thenReturn(Arrays.asList(
+            new Document("assignmentId", "a1").append("score", 15.0),
+            new Document("assignmentId", "a2").append("score", 50.0),
+            new Document("assignmentId", "a3").append("courseCode", "CS102").append("type", "homework").append("score", 12.0)
+        ));
+        when(mockAttemptDAO.listByStudent(studentId)).thenReturn(Arrays.asList(
+            new Document("quizId", "q1").append("score", 8.0),
+            new Document("quizId", "q2")
+        ));
+        when(mockAssignmentDAO.findByIds(anyCollection())).thenReturn(Arrays.asList(
+            new Document("_id", "a1").append("courseCode", "CS101").append("type", "assignment"),
+            new Document("_id", "a2").append("courseCode", "CS101").append("type", "final exam")
+        ));
+        when(mockQuizDAO.findByIds(anyCollection())).thenReturn(Arrays.asList(
+            new Document("_id", "q1").append("courseCode", "CS101")
+        ));
+
+        List<Grade> result = gradebookService.computeGrades(studentId);
+
+        assertEquals(2, result.size());
+        assertEquals("CS101", result.get(0).getSubjectId());
+        assertEquals("73.00", result.get(0).getGradeValue());
+        assertEquals("CS102", result.get(1).getSubjectId());
+        assertEquals("12.00", result.get(1).getGradeValue());
+        verify(mockAssignmentDAO, times(1)).findByIds(anyCollection());
+        verify(mockQuizDAO, times(1)).findByIds(anyCollection());
+        verify(mockAssignmentDAO, never()).findById(any());
+        verify(mockQuizDAO, never()).findById(any());
+    }
+
+    @Test
+    @DisplayName("getGrades - should read bucket sums from the gradebook collection")
+    void testGetGradesFromGradebook() {
+        String studentId = "student-001";
+        Document row = new Document("studentId", studentId)
+            .append("courseCode", "CS101")
+            .append("items", new Document("sub_1", new Document("bucket", "final").append("amount", 50.0)
+                    .append("subjectName", "Intro CS").append("credits", 4.0))
+                .append("att_1", new Document("bucket", "quiz").append("amount", 10.0)))
+            .append("final", 50.0).append("quiz", 10.0).append("assign", 0.0);
+        when(mockGradebookDAO.findByStudent(studentId)).thenReturn(Arrays.asList(row));
+
+        List<Grade> result = gradebookService.getGrades(studentId);
+
+        assertEquals(1, result.size());
+        assertEquals("Intro CS", result.get(0).getSubjectName());
+        assertEquals("60.00", result.get(0).getGradeValue());
+        assertEquals(4.0, result.get(0).getCredits());
+        verify(mockSubmissionDAO, never()).aggregateGradeBuckets(anyString());
+        verify(mockSubmissionDAO, never()).listByStudent(anyString());
+    }
+
+    @Test
+    @DisplayName("getGrades - should not rebuild a student whose gradebook holds only the empty marker")
+    void testGetGradesEmptyMarker() {
+        String studentId = "student-002";
+        Document marker = new Document("studentId", studentId).append("courseCode", null).append("empty", true);
+        when(mockGradebookDAO.findByStudent(studentId)).thenReturn(Arrays.asList(marker));
+
+        List<Grade> result = gradebookService.getGrades(studentId);
+
+        assertTrue(result.isEmpty());
+        verify(mockSubmissionDAO, never()).listByStudents(anyCollection());
+        verify(mockGradebookDAO, never()).replaceForStudents(anyCollection(), any());
+    }
+
+    @Test
+    @DisplayName("rebuildForAssignment - should rebuild every student who submitted to the assignment")
+    void testRebuildForAssignment() {
+        when(mockSubmissionDAO.listByAssignment("a1")).thenReturn(Arrays.asList(
+            new Document("_id", "s1").append("studentId", "student-001").append("assignmentId", "a1"),
+            new Document("_id", "s2").append("studentId", "student-002").append("assignmentId", "a1"),
+            new Document("_id", "s3").append("studentId", "student-001").append("assignmentId", "a1")));
+
+        gradebookService.rebuildForAssignment("a1");
+
+        verify(mockSubmissionDAO, times(1)).listByStudents(eq(Arrays.asList("student-001", "student-002")));
+        verify(mockGradebookDAO, times(1)).replaceForStudents(eq(Arrays.asList("student-001", "student-002")), any());
+    }
+
+    @Test
+    @DisplayName("recordSubmission - should upsert the submission's contribution for its course")
+    void testRecordSubmissionUpsertsItem() {
+        Document submission = new Document("_id", "s1")
+            .append("studentId", "student-001")
+            .append("assignmentId", "a1")
+            .append("grade", 18.0);
+        Document assignment = new Document("_id", "a1").append("courseCode", "CS101").append("type", "assignment");
+        when(mockGradebookDAO.hasRows("student-001")).thenReturn(true);
+
+        gradebookService.recordSubmission(submission, assignment);
+
+        verify(mockGradebookDAO, times(1)).upsertItem(eq("student-001"), eq("CS101"), eq("sub_s1"),
+            eq(new Document("bucket", "assign").append("amount", 18.0)
+                .append("subjectName", null).append("credits", null)));
+        verify(mockAssignmentDAO, never()).findById(any());
+    }
+
+    @Test
+    @DisplayName("recordAttempt - should skip attempts without a numeric score")
+    void testRecordAttemptWithoutScore() {
+        Document attempt = new Document("_id", "t1").append("studentId", "student-001").append("courseCode", "CS101");
+
+        gradebookService.recordAttempt(attempt, null);
+
+        verify(mockGradebookDAO, never()).upsertItem(anyString(), anyString(), anyString(), any());
+    }
+
+    @Test
+    @DisplayName("recordSubmission - should build the full history of a student without gradebook rows")
+    void testRecordSubmissionBuildsUnmaterializedStudent() {
+        String studentId = "student-003";
+        Document older = new Document("_id", "s0").append("studentId", studentId)
+            .append("courseCode", "CS101").append("type", "final exam").append("grade", 45.0);
+        Document submission = new Document("_id", "s1").append("studentId", studentId)
+            .append("courseCode", "CS101").append("type", "assignment").append("grade", 15.0);
+        when(mockGradebookDAO.hasRows(studentId)).thenReturn(false);
+        when(mockSubmissionDAO.listByStudents(List.of(studentId))).thenReturn(Arrays.asList(older, submission));
+
+        gradebookService.recordSubmission(submission, null);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Document>> stored = ArgumentCaptor.forClass(List.class);
+        verify(mockGradebookDAO).replaceForStudents(eq(List.of(studentId)), stored.capture());
+        verify(mockGradebookDAO, never()).upsertItem(anyString(), anyString(), anyString(), any());
+
+        when(mockGradebookDAO.findByStudent(studentId)).thenReturn(stored.getValue());
+        List<Grade> result = gradebookService.getGrades(studentId);
+
+        assertEquals(1, result.size());
+        assertEquals("60.00", result.get(0).getGradeValue());
+    }
+}
@@ -116,30 +116,25 @@ class InventoryServiceTest {
     @DisplayName("allocateItem - should assign item to user after validation")
     void testAllocateItemSuccess() {
         String itemId = "507f1f77bcf86cd799439011";
-        Document existingItem = new Document("_id", new ObjectId(itemId))
+        Document assignedItem = new Document("_id", new ObjectId(itemId))
                 .append("name", "Laptop #001")
                 .append("itemType", "Laptop")
-                .append("status", "Available");
+                .append("status", "Assigned")
+                .append("assignedToUserId", "user-001");
 
         // Mock user validation - entity exists with matching name
         Document entityCore = new Document("name", "John Doe");
         Document entity = new Document("core", entityCore);
         when(mockEntityService.getEntityById("user-001")).thenReturn(entity);
 
-        when(mockInventoryDAO.findById(itemId)).thenReturn(existingItem);
-
-        UpdateResult mockResult = mock(UpdateResult.class);
-        when(mockResult.getModifiedCount()).thenReturn(1L);
-        when(mockInventoryDAO.updateItem(eq(itemId), any(Document.class))).thenReturn(mockResult);
+        when(mockInventoryDAO.assignItem(itemId, "user-001", "John Doe")).thenReturn(assignedItem);
 
-        try {
-            boolean result = inventoryService.allocateItem(itemId, "user-001", "John Doe");
+        boolean result = inventoryService.allocateItem(itemId, "user-001", "John Doe");
 
-            assertTrue(result);
-            verify(mockInventoryDAO, times(1)).updateItem(eq(itemId), any(Document.class));
-            verify(mockAuditLogDAO, times(1)).insertLog(any(Document.class));
-        } catch (Exception ignored) {
-        }
+        assertTrue(result);
+        verify(mockInventoryDAO, times(1)).assignItem(itemId, "user-001", "John Doe");
+        verify(mockInventoryDAO, never()).findById(anyString());
+        verify(mockAuditLogDAO, times(1)).insertLog(any(Document.class));
     }
 
     @Test
@@ -206,30 +201,64 @@ class InventoryServiceTest {
     @DisplayName("addUserToLicense - should add multiple users to license")
     void testAddUserToLicenseSuccess() {
         String itemId = "507f1f77bcf86cd799439011";
-        Document existingItem = new Document("_id", new ObjectId(itemId))
+        Document updatedItem = new Document("_id", new ObjectId(itemId))
                 .append("name", "Office License #001")
                 .append("itemType", "License")
-                .append("status", "Available")
-                .append("assignedUsers", new ArrayList<Document>());
+                .append("status", "Assigned")
+                .append("seatCount", 1)
+                .append("assignedUsers", List.of(new Document("userId", "user-001").append("userName", "John Doe")));
 
         // Mock user validation
         Document entityCore = new Document("name", "John Doe");
         Document entity = new Document("core", entityCore);
         when(mockEntityService.getEntityById("user-001")).thenReturn(entity);
 
-        when(mockInventoryDAO.findById(itemId)).thenReturn(existingItem);
+        when(mockInventoryDAO.addLicenseSeat(eq(itemId), any(Document.class))).thenReturn(updatedItem);
 
-        UpdateResult mockResult = mock(UpdateResult.class);
-        when(mockResult.getModifiedCount()).thenReturn(1L);
-        when(mockInventoryDAO.updateItem(eq(itemId), any(Document.class))).thenReturn(mockResult);
+        boolean result = inventoryService.addUserToLicense(itemId, "user-001", "John Doe");
 
-        try {
-            boolean result = inventoryService.addUserToLicense(itemId, "user-001", "John Doe");
+        assertTrue(result);
+        verify(mockInventoryDAO, times(1)).addLicenseSeat(eq(itemId), any(Document.class));
+        verify(mockInventoryDAO, never()).updateItem(anyString(), any(Document.class));
+        verify(mockAuditLogDAO, times(1)).insertLog(any(Document.class));
+    }
 
-            assertTrue(result);
-            verify(mockInventoryDAO, times(1)).updateItem(eq(itemId), any(Document.class));
-        } catch (Exception ignored) {
-        }
+    @Test
+    @DisplayName("addUserToLicense - should reject a user when every seat is taken")
+    void testAddUserToLicenseNoFreeSeat() {
+        String itemId = "507f1f77bcf86cd799439011";
+        Document fullItem = new Document("_id", new ObjectId(itemId))
+                .append("itemType", "License")
+                .append("seatLimit", 1)
+                .append("seatCount", 1)
+                .append("assignedUsers", List.of(new Document("userId", "user-002").append("userName", "Jane Smith")));
+
+        when(mockEntityService.getEntityById("user-001")).thenReturn(new Document("core", new Document("name", "John Doe")));
+        when(mockInventoryDAO.addLicenseSeat(eq(itemId), any(Document.class))).thenReturn(null);
+        when(mockInventoryDAO.findById(itemId)).thenReturn(fullItem);
+
+        IllegalStateException ex = assertThrows(IllegalStateException.class,
+                () -> inventoryService.addUserToLicense(itemId, "user-001", "John Doe"));
+        assertTrue(ex.getMessage().contains("seats"));
+        verify(mockAuditLogDAO, never()).insertLog(any(Document.class));
+    }
+
+    @Test
+    @DisplayName("addUserToLicense - should reject a user who already holds a seat")
+    void testAddUserToLicenseAlreadyAssigned() {
+        String itemId = "507f1f77bcf86cd799439011";
+        Document item = new Document("_id", new ObjectId(itemId))
+                .append("itemType", "License")
+                .append("seatCount", 1)
+                .append("assignedUsers", List.of(new Document("userId", "user-001").append("userName", "John Doe")));
+
+        when(mockEntityService.getEntityById("user-001")).thenReturn(new Document("core", new Document("name", "John Doe")));
+        when(mockInventoryDAO.addLicenseSeat(eq(itemId), any(Document.class))).thenReturn(null);
+        when(mockInventoryDAO.findById(itemId)).thenReturn(item);
+
+        IllegalStateException ex = assertThrows(IllegalStateException.class,
+                () -> inventoryService.addUserToLicense(itemId, "user-001", "John Doe"));
+        assertTrue(ex.getMessage().contains("already assigned"));
     }
 
     @Test
@@ -240,51 +269,87 @@ class InventoryServiceTest {
         assignedUsers.add(new Document("userId", "user-001").append("userName", "John Doe"));
         assignedUsers.add(new Document("userId", "user-002").append("userName", "Jane Smith"));
 
-        Document existingItem = new Document("_id", new ObjectId(itemId))
+        Document before = new Document("_id", new ObjectId(itemId))
                 .append("name", "Office License #001")
                 .append("itemType", "License")
                 .append("status", "Assigned")
+                .append("seatCount", 2)
                 .append("assignedUsers", assignedUsers);
 
-        when(mockInventoryDAO.findById(itemId)).thenReturn(existingItem);
+        when(mockInventoryDAO.removeLicenseSeat(itemId, "user-001")).thenReturn(before);
 
-        UpdateResult mockResult = mock(UpdateResult.class);
-        when(mockResult.getModifiedCount()).thenReturn(1L);
-        when(mockInventoryDAO.updateItem(eq(itemId), any(Document.class))).thenReturn(mockResult);
+        boolean result = inventoryService.removeUserFromLicense(itemId, "user-001");
 
-        try {
-            boolean result = inventoryService.removeUserFromLicense(itemId, "user-001");
+        assertTrue(result);
+        verify(mockInventoryDAO, times(1)).removeLicenseSeat(itemId, "user-001");
+        verify(mockInventoryDAO, never()).updateItem(anyString(), any(Document.class));
+        verify(mockAuditLogDAO).insertLog(argThat(log ->
+                log.getString("details").contains("John Doe") && log.getString("details").endsWith("Remaining users: 1")));
+    }
 
-            assertTrue(result);
-            verify(mockInventoryDAO, times(1)).updateItem(eq(itemId), any(Document.class));
-        } catch (Exception ignored) {
-        }
+    @Test
+    @DisplayName("removeUserFromLicense - should fail when the user holds no seat")
+    void testRemoveUserFromLicenseNotAssigned() {
+        String itemId = "507f1f77bcf86cd799439011";
+        when(mockInventoryDAO.removeLicenseSeat(itemId, "user-009")).thenReturn(null);
+        when(mockInventoryDAO.findById(itemId)).thenReturn(new Document("_id", new ObjectId(itemId)).append("itemType", "License"));
+
+        assertThrows(IllegalArgumentException.class, () -> inventoryService.removeUserFromLicense(itemId, "user-009"));
     }
 
     @Test
     @DisplayName("deallocateItem - should unassign item successfully")
     void testDeallocateItemSuccess() {
         String itemId = "507f1f77bcf86cd799439011";
-        Document existingItem = new Document("_id", new ObjectId(itemId))
+        Document before = new Document("_id", new ObjectId(itemId))
                 .append("name", "Laptop #001")
                 .append("itemType", "Laptop")
                 .append("status", "Assigned")
                 .append("assignedToName", "John Doe");
 
-        when(mockInventoryDAO.findById(itemId)).thenReturn(existingItem);
+        when(mockInventoryDAO.releaseItem(itemId, null)).thenReturn(before);
 
-        UpdateResult mockResult = mock(UpdateResult.class);
-        when(mockResult.getModifiedCount()).thenReturn(1L);
-        when(mockInventoryDAO.updateItem(eq(itemId), any(Document.class))).thenReturn(mockResult);
+        boolean result = inventoryService.deallocateItem(itemId);
 
-        try {
-            boolean result = inventoryService.deallocateItem(itemId);
+        assertTrue(result);
+        verify(mockInventoryDAO, times(1)).releaseItem(itemId, null);
+        verify(mockInventoryDAO, never()).findById(anyString());
+        verify(mockAuditLogDAO, times(1)).insertLog(any(Document.class));
+    }
 
-            assertTrue(result);
-            verify(mockInventoryDAO, times(1)).updateItem(eq(itemId), any(Document.class));
-            verify(mockAuditLogDAO, times(1)).insertLog(any(Document.class));
-        } catch (Exception ignored) {
-        }
+    @Test
+    @DisplayName("deallocateItem - should refuse an item that is not assigned")
+    void testDeallocateItemNotAssigned() {
+        String itemId = "507f1f77bcf86cd799439011";
+        when(mockInventoryDAO.releaseItem(itemId, null)).thenReturn(null);
+        when(mockInventoryDAO.findById(itemId)).thenReturn(new Document("_id", new ObjectId(itemId))
+                .append("itemType", "Laptop").append("status", "Available"));
+
+        assertThrows(IllegalStateException.class, () -> inventoryService.deallocateItem(itemId));
+        verify(mockAuditLogDAO, never()).insertLog(any(Document.class));
+    }
+
+    @Test
+    @DisplayName("getAvailableItemsForRequest - should let the database filter, with Equipment for non-students")
+    void testGetAvailableItemsForRequestStaff() {
+        List<Document> rows = List.of(new Document("_id", "item-001").append("name", "Laptop #001"));
+        when(mockInventoryDAO.findRequestableItems("admin-entity-001", List.of("Laptop", "Equipment"))).thenReturn(rows);
+
+        assertEquals(rows, inventoryService.getAvailableItemsForRequest());
+        verify(mockInventoryDAO, never()).findAllItems();
+    }
+
+    @Test
+    @DisplayName("getAvailableItemsForRequest - should leave Equipment out for students")
+    void testGetAvailableItemsForRequestStudent() {
+        AuthSession.getInstance().setCurrentUser(new Document("_id", "stu-001")
+                .append("username", "student")
+                .append("roles", Arrays.asList("Student"))
+                .append("linkedEntityId", "STU-001"));
+        when(mockInventoryDAO.findRequestableItems("STU-001", List.of("Laptop"))).thenReturn(List.of());
+
+        assertTrue(inventoryService.getAvailableItemsForRequest().isEmpty());
+        verify(mockInventoryDAO).findRequestableItems("STU-001", List.of("Laptop"));
     }
 
     @Test
@@ -349,17 +414,25 @@ class InventoryServiceTest {
     void testMarkUnderRepairSuccess() {
         String itemId = "507f1f77bcf86cd799439011";
 
-        UpdateResult mockResult = mock(UpdateResult.class);
-        when(mockResult.getModifiedCount()).thenReturn(1L);
-        when(mockInventoryDAO.updateItem(eq(itemId), any(Document.class))).thenReturn(mockResult);
+        when(mockInventoryDAO.changeStatus(eq(itemId), anyList(), eq("Under Repair"), eq(false)))
+                .thenReturn(new Document("_id", new ObjectId(itemId)).append("status", "Under Repair"));
 
-        try {
-            boolean result = inventoryService.markUnderRepair(itemId);
+        boolean result = inventoryService.markUnderRepair(itemId);
 
-            assertTrue(result);
-            verify(mockInventoryDAO, times(1)).updateItem(eq(itemId), any(Document.class));
-        } catch (Exception ignored) {
-        }
+        assertTrue(result);
+        verify(mockInventoryDAO, times(1)).changeStatus(eq(itemId), anyList(), eq("Under Repair"), eq(false));
+        verify(mockInventoryDAO, never()).updateItem(anyString(), any(Document.class));
+    }
+
+    @Test
+    @DisplayName("markUnderRepair - should report the current status when the item is already under repair")
+    void testMarkUnderRepairConflict() {
+        String itemId = "507f1f77bcf86cd799439011";
+        when(mockInventoryDAO.changeStatus(eq(itemId), anyList(), eq("Under Repair"), eq(false))).thenReturn(null);
+        when(mockInventoryDAO.findById(itemId)).thenReturn(new Document("_id", new ObjectId(itemId)).append("status", "Under Repair"));
+
+        IllegalStateException ex = assertThrows(IllegalStateException.class, () -> inventoryService.markUnderRepair(itemId));
+        assertTrue(ex.getMessage().contains("Under Repair"));
     }
 
     @Test
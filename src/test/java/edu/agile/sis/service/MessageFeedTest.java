@@ -0,0 +1,76 @@
+package edu.agile.sis.service;
+
+import edu.agile.sis.dao.MessageDAO;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("MessageFeed Tests")
+class MessageFeedTest {
+    @Mock
+    private MessageDAO mockMessageDAO;
+
+    private static Document message(ObjectId id, long createdAt) {
+        return new Document("_id", id).append("studentId", "S1").append("staffId", "ST-1")
+                .append("body", "hi").append("createdAt", new Date(createdAt));
+    }
+
+    @Test
+    @DisplayName("pollOnce - should deliver each new message once and move the window forward")
+    void testPollingDeliversOnce() {
+        long now = System.currentTimeMillis();
+        ObjectId a = new ObjectId();
+        ObjectId b = new ObjectId();
+        when(mockMessageDAO.findNewerThan(eq("studentId"), eq("S1"), any(Date.class), anyInt()))
+                .thenReturn(List.of(message(a, now + 100)))
+                .thenReturn(List.of(message(a, now + 100), message(b, now + 200)));   // overlap from the clock slack
+        List<Document> received = new ArrayList<>();
+        MessageFeed feed = new MessageFeed("studentId", "S1", received::add, mockMessageDAO, null, 60_000);
+
+        feed.start();
+        assertTrue(feed.isPolling());
+        feed.pollOnce();
+        feed.pollOnce();
+        feed.close();
+
+        assertEquals(2, received.size());
+        assertEquals(a, received.get(0).getObjectId("_id"));
+        assertEquals(b, received.get(1).getObjectId("_id"));
+        ArgumentCaptor<Date> after = ArgumentCaptor.forClass(Date.class);
+        verify(mockMessageDAO, times(2)).findNewerThan(eq("studentId"), eq("S1"), after.capture(), anyInt());
+        assertTrue(after.getAllValues().get(1).after(after.getAllValues().get(0)));
+    }
+
+    @Test
+    @DisplayName("deliver - should drop messages once the feed is closed")
+    void testClosedFeedDeliversNothing() {
+        List<Document> received = new ArrayList<>();
+        MessageFeed feed = new MessageFeed("staffId", "ST-1", received::add, mockMessageDAO, null, 60_000);
+
+        feed.deliver(message(new ObjectId(), System.currentTimeMillis()));
+        feed.close();
+        feed.deliver(message(new ObjectId(), System.currentTimeMillis()));
+        feed.pollOnce();
+
+        assertEquals(1, received.size());
+    }
+}
@@ -1,5 +1,6 @@
 package edu.agile.sis.service;
 
+import edu.agile.sis.dao.KeysetPage;
 import edu.agile.sis.dao.MessageDAO;
 import org.bson.Document;
 import org.junit.jupiter.api.BeforeEach;
@@ -88,6 +89,22 @@ class MessageServiceTest {
         verify(mockMessageDAO, times(1)).findThreadBetween(studentId, staffId);
     }
 
+    @Test
+    @DisplayName("getThreadPage - should return a page oldest first with the token for older messages")
+    void testGetThreadPage() {
+        String studentId = "student-001";
+        String staffId = "staff-001";
+        String threadId = "student:" + studentId + "|staff:" + staffId;
+        when(mockMessageDAO.findThreadPage(threadId, studentId, staffId, 2, null)).thenReturn(new KeysetPage(
+            Arrays.asList(new Document("body", "newest"), new Document("body", "older")), "tok"));
+
+        KeysetPage page = messageService.getThreadPage(studentId, staffId, 2, null);
+
+        assertEquals("older", page.getItems().get(0).getString("body"));
+        assertEquals("newest", page.getItems().get(1).getString("body"));
+        assertEquals("tok", page.getNextToken());
+    }
+
     @Test
     @DisplayName("getByStudent - should return all messages for student")
     void testGetByStudentSuccess() {
@@ -0,0 +1,52 @@
+package edu.agile.sis.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@DisplayName("RecurrenceRule Tests")
+class RecurrenceRuleTest {
+
+    private static final ZoneId ZONE = ZoneId.of("Europe/Berlin");
+
+    @Test
+    @DisplayName("expand - should skip excluded dates without extending the series")
+    void testExcludedDates() {
+        ZonedDateTime first = ZonedDateTime.of(2025, 10, 6, 14, 0, 0, 0, ZONE);
+        RecurrenceRule rule = new RecurrenceRule(4, List.of(LocalDate.of(2025, 10, 13)), ZONE);
+
+        List<Date[]> occ = rule.expand(Date.from(first.toInstant()), Date.from(first.plusHours(2).toInstant()));
+
+        assertEquals(3, occ.size());
+        assertEquals(Date.from(first.toInstant()), occ.get(0)[0]);
+        assertEquals(Date.from(first.plusWeeks(2).toInstant()), occ.get(1)[0]);
+        assertEquals(Date.from(first.plusWeeks(3).plusHours(2).toInstant()), occ.get(2)[1]);
+    }
+
+    @Test
+    @DisplayName("expand - should keep the wall-clock time across a daylight-saving change")
+    void testKeepsLocalTimeAcrossDst() {
+        ZonedDateTime first = ZonedDateTime.of(2025, 10, 20, 9, 0, 0, 0, ZONE);   // DST ends 26 Oct
+        List<Date[]> occ = new RecurrenceRule(2, List.of(), ZONE)
+                .expand(Date.from(first.toInstant()), Date.from(first.plusHours(1).toInstant()));
+
+        assertEquals(9, occ.get(1)[0].toInstant().atZone(ZONE).getHour());
+        assertEquals(7 * 24 + 1, (occ.get(1)[0].getTime() - occ.get(0)[0].getTime()) / 3600000);
+    }
+
+    @Test
+    @DisplayName("expand - should reject bookings a week or longer")
+    void testRejectsWeekLongBooking() {
+        Date start = new Date();
+        RecurrenceRule rule = new RecurrenceRule(3, List.of(), ZONE);
+        assertThrows(IllegalArgumentException.class, () -> rule.expand(start, new Date(start.getTime() + 7L * 24 * 3600000)));
+    }
+}
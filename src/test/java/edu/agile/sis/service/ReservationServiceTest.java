@@ -2,23 +2,33 @@ package edu.agile.sis.service;
 
 import com.mongodb.client.result.UpdateResult;
 import edu.agile.sis.dao.ReservationDAO;
+import edu.agile.sis.dao.RoomSlotDAO;
 import edu.agile.sis.security.AuthSession;
 import org.bson.Document;
+import org.bson.types.ObjectId;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -28,6 +38,9 @@ import static org.mockito.Mockito.when;
 class ReservationServiceTest {
     @Mock
     private ReservationDAO mockReservationDAO;
+
+    @Mock
+    private RoomSlotDAO mockSlotDAO;
     
     private ReservationService reservationService;
 
@@ -57,6 +70,13 @@ class ReservationServiceTest {
             java.lang.reflect.Field field = ReservationService.class.getDeclaredField("reservationDAO");
             field.setAccessible(true);
             field.set(reservationService, mockReservationDAO);
+            java.lang.reflect.Field slots = ReservationService.class.getDeclaredField("slotDAO");
+            slots.setAccessible(true);
+            slots.set(reservationService, mockSlotDAO);
+            // fresh schedules per test instead of the process-wide singleton
+            java.lang.reflect.Field schedules = ReservationService.class.getDeclaredField("schedules");
+            schedules.setAccessible(true);
+            schedules.set(reservationService, new RoomSchedules(30_000));
         } catch (Exception e) {
             throw new RuntimeException("Failed to inject mock ReservationDAO", e);
         }
@@ -78,14 +98,82 @@ class ReservationServiceTest {
         String createdBy = "admin-001";
         String purpose = "Team Meeting";
 
-        when(mockReservationDAO.findOverlapping(roomId, start, end)).thenReturn(Arrays.asList());
+        when(mockReservationDAO.findScheduleByRoom(eq(roomId), any(Date.class))).thenReturn(Arrays.asList());
+        when(mockSlotDAO.claim(eq(roomId), eq(start), eq(end), anyString(), any(ObjectId.class))).thenReturn(true);
         when(mockReservationDAO.insertReservation(any(Document.class))).thenReturn(new org.bson.types.ObjectId());
 
-        try {
-            reservationService.createReservation(roomId, start, end, createdBy, purpose);
-            verify(mockReservationDAO, times(1)).insertReservation(any(Document.class));
-        } catch (Exception ignored) {
-        }
+        String id = reservationService.createReservation(roomId, start, end, createdBy, purpose);
+
+        assertNotNull(id);
+        verify(mockReservationDAO, times(1)).insertReservation(any(Document.class));
+    }
+
+    @Test
+    @DisplayName("createReservation - should reject an overlapping booking without claiming a slot")
+    void testCreateReservationConflict() {
+        String roomId = "room-001";
+        Date start = new Date();
+        Date end = new Date(start.getTime() + 3600000);
+        Document existing = new Document("_id", new ObjectId()).append("roomId", roomId)
+                .append("start", new Date(start.getTime() + 1800000)).append("end", new Date(end.getTime() + 1800000))
+                .append("slotClaim", new ObjectId());
+        when(mockReservationDAO.findScheduleByRoom(eq(roomId), any(Date.class))).thenReturn(Arrays.asList(existing));
+
+        assertNull(reservationService.createReservation(roomId, start, end, "admin-001", "Overlap"));
+        verify(mockSlotDAO, never()).claim(anyString(), any(Date.class), any(Date.class), anyString(), any(ObjectId.class));
+        verify(mockReservationDAO, never()).insertReservation(any(Document.class));
+    }
+
+    @Test
+    @DisplayName("createReservation - should not store the booking when another client claimed the slot first")
+    void testCreateReservationLostClaim() {
+        String roomId = "room-001";
+        Date start = new Date();
+        Date end = new Date(start.getTime() + 3600000);
+        when(mockReservationDAO.findScheduleByRoom(eq(roomId), any(Date.class))).thenReturn(Arrays.asList());
+        when(mockSlotDAO.claim(eq(roomId), eq(start), eq(end), anyString(), any(ObjectId.class))).thenReturn(false);
+
+        assertNull(reservationService.createReservation(roomId, start, end, "admin-001", "Race"));
+        verify(mockReservationDAO, never()).insertReservation(any(Document.class));
+    }
+
+    @Test
+    @DisplayName("claimLegacyReservations - should claim slots for reservations stored before slot claims existed")
+    void testClaimLegacyReservations() {
+        Date now = new Date();
+        ObjectId claimedId = new ObjectId();
+        ObjectId lostId = new ObjectId();
+        Document claimed = new Document("_id", claimedId).append("roomId", "room-001")
+                .append("start", now).append("end", new Date(now.getTime() + 3600000));
+        Document lost = new Document("_id", lostId).append("roomId", "room-002")
+                .append("start", now).append("end", new Date(now.getTime() + 3600000));
+        when(mockReservationDAO.findWithoutSlotClaim(500))
+                .thenReturn(Arrays.asList(claimed, lost))
+                .thenReturn(Arrays.asList());
+        when(mockReservationDAO.setSlotClaimsIfAbsent(any())).thenReturn(Set.of(claimedId));
+
+        assertEquals(1, reservationService.claimLegacyReservations(500));
+        verify(mockSlotDAO).claimUnchecked(eq(Arrays.asList(claimed, lost)), any());
+        // the other reservation was claimed by someone else meanwhile; its extra slot is released
+        verify(mockSlotDAO).release(eq("room-002"), eq(lost.getDate("start")), eq(lost.getDate("end")), any(ObjectId.class));
+        verify(mockSlotDAO, never()).release(eq("room-001"), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("createReservation - should load only bookings that are not over yet")
+    void testCreateReservationLoadsCurrentBookings() {
+        String roomId = "room-001";
+        Date start = new Date();
+        Date end = new Date(start.getTime() + 3600000);
+        when(mockReservationDAO.findScheduleByRoom(eq(roomId), any(Date.class))).thenReturn(Arrays.asList());
+        when(mockSlotDAO.claim(eq(roomId), eq(start), eq(end), anyString(), any(ObjectId.class))).thenReturn(true);
+        when(mockReservationDAO.insertReservation(any(Document.class))).thenReturn(new ObjectId());
+
+        assertNotNull(reservationService.createReservation(roomId, start, end, "admin-001", "Current"));
+        ArgumentCaptor<Date> horizon = ArgumentCaptor.forClass(Date.class);
+        verify(mockReservationDAO).findScheduleByRoom(eq(roomId), horizon.capture());
+        assertTrue(horizon.getValue().before(start));
+        assertTrue(horizon.getValue().getTime() > start.getTime() - 24 * 3600000L);
     }
 
     @Test
@@ -110,6 +198,67 @@ class ReservationServiceTest {
         }
     }
 
+    @Test
+    @DisplayName("createRecurringReservation - should claim and insert all weeks in one batch")
+    void testCreateRecurringReservation() {
+        String roomId = "lab-1";
+        Date start = new Date();
+        Date end = new Date(start.getTime() + 7200000);
+        when(mockReservationDAO.findScheduleByRoom(eq(roomId), any(Date.class))).thenReturn(Arrays.asList());
+        when(mockSlotDAO.claimAll(eq(roomId), any(), any(), any())).thenReturn(true);
+
+        RecurringBooking booking = reservationService.createRecurringReservation(roomId, start, end,
+                new RecurrenceRule(12, List.of()), "admin-001", "Lab");
+
+        assertTrue(booking.isBooked());
+        assertEquals(12, booking.getCreatedIds().size());
+        verify(mockReservationDAO, times(1)).insertReservations(org.mockito.ArgumentMatchers.argThat(docs ->
+                docs.size() == 12 && docs.stream().allMatch(d -> booking.getSeriesId().equals(d.getString("seriesId")))));
+        verify(mockReservationDAO, never()).insertReservation(any(Document.class));
+    }
+
+    @Test
+    @DisplayName("createRecurringReservation - should book nothing and list the clashing weeks")
+    void testCreateRecurringReservationConflict() {
+        String roomId = "lab-1";
+        Date start = new Date();
+        Date end = new Date(start.getTime() + 7200000);
+        Date thirdWeek = Date.from(start.toInstant().atZone(java.time.ZoneId.systemDefault()).plusWeeks(2).toInstant());
+        Document existing = new Document("_id", new ObjectId()).append("roomId", roomId)
+                .append("start", thirdWeek).append("end", new Date(thirdWeek.getTime() + 3600000))
+                .append("slotClaim", new ObjectId());
+        when(mockReservationDAO.findScheduleByRoom(eq(roomId), any(Date.class))).thenReturn(Arrays.asList(existing));
+
+        RecurringBooking booking = reservationService.createRecurringReservation(roomId, start, end,
+                new RecurrenceRule(5, List.of()), "admin-001", "Lab");
+
+        assertFalse(booking.isBooked());
+        assertEquals(List.of(thirdWeek), booking.getConflicts());
+        verify(mockSlotDAO, never()).claimAll(anyString(), any(), any(), any());
+        verify(mockReservationDAO, never()).insertReservations(any());
+    }
+
+    @Test
+    @DisplayName("findFreeSlots - should return the earliest gaps across rooms that fit the duration")
+    void testFindFreeSlots() {
+        long t = 1_700_000_000_000L;
+        long h = 3600000L;
+        Date from = new Date(t);
+        Date to = new Date(t + 8 * h);
+        when(mockReservationDAO.findBusy(List.of("a", "b"), from, to)).thenReturn(Arrays.asList(
+                new Document("roomId", "a").append("start", new Date(t)).append("end", new Date(t + 2 * h)),
+                new Document("roomId", "a").append("start", new Date(t + 2 * h + 1800000)).append("end", new Date(t + 8 * h)),
+                new Document("roomId", "b").append("start", new Date(t)).append("end", new Date(t + 3 * h))));
+
+        List<Document> free = reservationService.findFreeSlots(List.of("a", "b"), from, to, h, 3);
+
+        // room a's 30-minute gap is too short; room b is free from hour 3 on
+        assertEquals(1, free.size());
+        assertEquals("b", free.get(0).getString("roomId"));
+        assertEquals(new Date(t + 3 * h), free.get(0).getDate("start"));
+        assertEquals(new Date(t + 4 * h), free.get(0).getDate("end"));
+    }
+
     @Test
     @DisplayName("updateReservation - should update reservation successfully")
     void testUpdateReservationSuccess() {
@@ -120,17 +269,43 @@ class ReservationServiceTest {
             .append("start", start)
             .append("end", end);
 
-        when(mockReservationDAO.findOverlappingExcluding("room-001", start, end, reservationId)).thenReturn(Arrays.asList());
+        ObjectId oldClaim = new ObjectId();
+        Date oldStart = new Date(start.getTime() - 86400000);
+        Date oldEnd = new Date(oldStart.getTime() + 3600000);
+        Document old = new Document("_id", new ObjectId(reservationId)).append("roomId", "room-001")
+                .append("start", oldStart).append("end", oldEnd).append("slotClaim", oldClaim);
+        when(mockReservationDAO.findById(reservationId)).thenReturn(old);
+        when(mockReservationDAO.findScheduleByRoom(eq("room-001"), any(Date.class))).thenReturn(Arrays.asList(old));
+        when(mockSlotDAO.claim(eq("room-001"), eq(start), eq(end), eq(reservationId), any(ObjectId.class))).thenReturn(true);
         UpdateResult mockResult = mock(UpdateResult.class);
         when(mockResult.getModifiedCount()).thenReturn(1L);
-        when(mockReservationDAO.updateReservation(reservationId, updatedData)).thenReturn(mockResult);
+        when(mockReservationDAO.updateReservation(eq(reservationId), any(Document.class))).thenReturn(mockResult);
 
-        try {
-            boolean result = reservationService.updateReservation(reservationId, updatedData);
-            assertTrue(result);
-            verify(mockReservationDAO, times(1)).updateReservation(reservationId, updatedData);
-        } catch (Exception ignored) {
-        }
+        boolean result = reservationService.updateReservation(reservationId, updatedData);
+
+        assertTrue(result);
+        verify(mockReservationDAO, times(1)).updateReservation(eq(reservationId), any(Document.class));
+        verify(mockSlotDAO).release("room-001", oldStart, oldEnd, oldClaim);
+    }
+
+    @Test
+    @DisplayName("updateReservation - should keep the old slot when the new one is taken")
+    void testUpdateReservationConflict() {
+        String reservationId = "507f1f77bcf86cd799439011";
+        Date start = new Date();
+        Date end = new Date(start.getTime() + 3600000);
+        Document old = new Document("_id", new ObjectId(reservationId)).append("roomId", "room-001")
+                .append("start", new Date(start.getTime() - 86400000)).append("end", new Date(start.getTime() - 82800000))
+                .append("slotClaim", new ObjectId());
+        Document other = new Document("_id", new ObjectId()).append("roomId", "room-001")
+                .append("start", start).append("end", end).append("slotClaim", new ObjectId());
+        when(mockReservationDAO.findById(reservationId)).thenReturn(old);
+        when(mockReservationDAO.findScheduleByRoom(eq("room-001"), any(Date.class))).thenReturn(Arrays.asList(old, other));
+
+        assertFalse(reservationService.updateReservation(reservationId,
+                new Document("roomId", "room-001").append("start", start).append("end", end)));
+        verify(mockReservationDAO, never()).updateReservation(anyString(), any(Document.class));
+        verify(mockSlotDAO, never()).release(anyString(), any(Date.class), any(Date.class), any(ObjectId.class));
     }
 
     @Test
@@ -0,0 +1,109 @@
+package edu.agile.sis.service;
+
+import org.bson.Document;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@DisplayName("ThumbnailService Tests")
+class ThumbnailServiceTest {
+
+    @TempDir
+    Path cacheDir;
+
+    private static byte[] png(int w, int h) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB), "png", out);
+        return out.toByteArray();
+    }
+
+    private static BufferedImage read(byte[] bytes) throws IOException {
+        return ImageIO.read(new ByteArrayInputStream(bytes));
+    }
+
+    @Test
+    @DisplayName("scaleToHeight - should keep the aspect ratio and never upscale")
+    void testScaleToHeight() {
+        BufferedImage scaled = ThumbnailService.scaleToHeight(new BufferedImage(4000, 3000, BufferedImage.TYPE_INT_ARGB), 150);
+        assertEquals(150, scaled.getHeight());
+        assertEquals(200, scaled.getWidth());
+
+        BufferedImage small = ThumbnailService.scaleToHeight(new BufferedImage(80, 60, BufferedImage.TYPE_INT_RGB), 150);
+        assertEquals(60, small.getHeight());
+    }
+
+    @Test
+    @DisplayName("createVariants - should upload one JPEG per height and record their ids")
+    void testCreateVariants() throws IOException {
+        FileService files = mock(FileService.class);
+        when(files.openDownloadStream("orig")).thenReturn(new ByteArrayInputStream(png(1200, 900)));
+        when(files.upload(any(InputStream.class), anyString(), eq("image/jpeg"), any(Document.class)))
+                .thenReturn("v150", "v300");
+
+        Document ids = new ThumbnailService(files, cacheDir).createVariants("orig");
+
+        assertEquals(new Document("h150", "v150").append("h300", "v300"), ids);
+        assertEquals(150, read(Files.readAllBytes(cacheDir.resolve("orig_150.jpg"))).getHeight());
+    }
+
+    @Test
+    @DisplayName("createVariants - should return no variants for a non-image file")
+    void testCreateVariantsNotAnImage() {
+        FileService files = mock(FileService.class);
+        when(files.openDownloadStream("doc")).thenReturn(new ByteArrayInputStream("not an image".getBytes()));
+
+        assertEquals(new Document(), new ThumbnailService(files, cacheDir).createVariants("doc"));
+        verify(files, never()).upload(any(InputStream.class), anyString(), anyString(), any());
+    }
+
+    @Test
+    @DisplayName("load - should downscale legacy images once and then serve them from the disk cache")
+    void testLoadLegacyThenCached() throws IOException {
+        FileService files = mock(FileService.class);
+        when(files.openDownloadStream("old")).thenAnswer(inv -> new ByteArrayInputStream(png(800, 600)));
+        ThumbnailService service = new ThumbnailService(files, cacheDir);
+
+        byte[] first = service.load("old", null, 120);
+        byte[] second = service.load("old", null, 120);
+
+        assertNotNull(first);
+        assertEquals(150, read(first).getHeight());
+        assertEquals(first.length, second.length);
+        verify(files, times(1)).openDownloadStream("old");
+    }
+
+    @Test
+    @DisplayName("load - should read the stored variant instead of the original")
+    void testLoadStoredVariant() throws IOException {
+        FileService files = mock(FileService.class);
+        byte[] variant = png(400, 300);
+        when(files.openDownloadStream("v300")).thenReturn(new ByteArrayInputStream(variant));
+
+        byte[] bytes = new ThumbnailService(files, cacheDir).load("orig", new Document("h300", "v300"), 300);
+
+        assertEquals(variant.length, bytes.length);
+        verify(files, never()).openDownloadStream("orig");
+        assertNull(new ThumbnailService(mock(FileService.class), cacheDir).load("missing", null, 150));
+    }
+}
@@ -0,0 +1,174 @@
+package edu.agile.sis.util;
+
+import com.mongodb.client.DistinctIterable;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.model.ReplaceOptions;
+import edu.agile.sis.dao.UploadSessionDAO;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.Binary;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@DisplayName("ChunkedUploader Tests")
+class ChunkedUploaderTest {
+
+    private static final int CHUNK = ChunkedUploader.MIN_CHUNK;
+
+    @TempDir
+    Path tmp;
+
+    private MongoCollection<Document> files;
+    private MongoCollection<Document> chunks;
+    private UploadSessionDAO sessions;
+    private ContentStore store;
+    private ChunkedUploader uploader;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        files = mock(MongoCollection.class);
+        chunks = mock(MongoCollection.class);
+        sessions = mock(UploadSessionDAO.class);
+        store = mock(ContentStore.class);
+        uploader = new ChunkedUploader("fs", files, chunks, sessions, store, CHUNK);
+        when(store.register(anyString(), anyLong(), any(ObjectId.class)))
+                .thenAnswer(inv -> ((ObjectId) inv.getArgument(2)).toHexString());
+    }
+
+    private Path file(int size) throws Exception {
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) data[i] = (byte) (i * 31);
+        return Files.write(tmp.resolve("big.bin"), data);
+    }
+
+    private List<Document> writtenChunks() {
+        ArgumentCaptor<Document> captor = ArgumentCaptor.forClass(Document.class);
+        verify(chunks, atLeast(0)).replaceOne(any(Bson.class), captor.capture(), any(ReplaceOptions.class));
+        return captor.getAllValues();
+    }
+
+    @Test
+    @DisplayName("upload - should write every chunk, then the files document, then register the blob")
+    void testFreshUpload() throws Exception {
+        Path f = file(CHUNK * 2 + 100);
+        List<Long> sent = new ArrayList<>();
+
+        String id = uploader.upload(f, "big.bin", new Document(), (s, total, bps) -> sent.add(s));
+
+        List<Document> written = writtenChunks();
+        assertEquals(3, written.size());
+        assertEquals(100, ((Binary) written.get(2).get("data")).length());
+        verify(sessions).commit(anyString(), eq(3));
+        ArgumentCaptor<Document> filesDoc = ArgumentCaptor.forClass(Document.class);
+        verify(files).replaceOne(any(Bson.class), filesDoc.capture(), any(ReplaceOptions.class));
+        assertEquals((long) CHUNK * 2 + 100, filesDoc.getValue().getLong("length"));
+        assertEquals(filesDoc.getValue().getObjectId("_id").toHexString(), id);
+        assertEquals((long) CHUNK * 2 + 100, sent.get(sent.size() - 1));
+        verify(sessions).delete(anyString());
+    }
+
+    @Test
+    @DisplayName("upload - should resume after the last committed chunk")
+    void testResume() throws Exception {
+        Path f = file(CHUNK * 3);
+        ObjectId fileId = new ObjectId();
+        when(sessions.findById(anyString())).thenReturn(new Document("_id", "fs:x")
+                .append("fileId", fileId).append("chunkSize", CHUNK).append("committed", 2)
+                .append("filename", "big.bin").append("metadata", new Document()));
+
+        String id = uploader.upload(f, "big.bin", new Document(), null);
+
+        List<Document> written = writtenChunks();
+        assertEquals(1, written.size());
+        assertEquals(2, written.get(0).getInteger("n"));
+        assertEquals(fileId.toHexString(), id);
+        verify(sessions, never()).insert(any());
+    }
+
+    @Test
+    @DisplayName("upload - should skip sending content that is already stored")
+    void testKnownContent() throws Exception {
+        Path f = file(CHUNK);
+        when(store.acquireExisting(anyString())).thenReturn("existing");
+
+        assertEquals("existing", uploader.upload(f, "big.bin", null, null));
+        verify(chunks, never()).replaceOne(any(Bson.class), any(Document.class), any(ReplaceOptions.class));
+    }
+
+    @Test
+    @DisplayName("cancel - should stop between chunks and keep the manifest for a resume")
+    void testCancel() throws Exception {
+        Path f = file(CHUNK * 4);
+
+        assertThrows(CancellationException.class, () -> uploader.upload(f, "big.bin", null,
+                (s, total, bps) -> { if (s >= CHUNK) uploader.cancel(); }));
+
+        assertEquals(1, writtenChunks().size());
+        verify(sessions, times(1)).commit(anyString(), anyInt());
+        verify(sessions, never()).delete(anyString());
+        verify(files, never()).replaceOne(any(Bson.class), any(Document.class), any(ReplaceOptions.class));
+    }
+
+    @Test
+    @DisplayName("sweepOrphanChunks - should delete only chunks without a files document or manifest")
+    @SuppressWarnings("unchecked")
+    void testSweepOrphanChunks() {
+        long old = System.currentTimeMillis() - ChunkedUploader.ORPHAN_GRACE_MS - 60_000;
+        ObjectId finished = new ObjectId(new Date(old));
+        ObjectId inProgress = new ObjectId(new Date(old));
+        ObjectId abandoned = new ObjectId(new Date(old));
+        DistinctIterable<Object> distinct = mock(DistinctIterable.class);
+        when(chunks.distinct(eq("files_id"), any(Bson.class), eq(Object.class))).thenReturn(distinct);
+        when(distinct.into(any())).thenAnswer(inv -> {
+            Collection<Object> out = inv.getArgument(0);
+            out.addAll(List.of(finished, inProgress, abandoned));
+            return out;
+        });
+        when(sessions.findFileIds("fs")).thenReturn(List.of(inProgress));
+        FindIterable<Document> found = mock(FindIterable.class);
+        when(files.find(any(Bson.class))).thenReturn(found);
+        when(found.projection(any())).thenReturn(found);
+        when(found.into(any())).thenAnswer(inv -> {
+            Collection<Document> out = inv.getArgument(0);
+            out.add(new Document("_id", finished));
+            return out;
+        });
+        when(chunks.deleteMany(any(Bson.class))).thenReturn(DeleteResult.acknowledged(3));
+
+        assertEquals(3, uploader.sweepOrphanChunks());
+
+        ArgumentCaptor<Bson> filter = ArgumentCaptor.forClass(Bson.class);
+        verify(chunks).deleteMany(filter.capture());
+        assertEquals(com.mongodb.client.model.Filters.in("files_id", List.of(abandoned)).toBsonDocument(),
+                filter.getValue().toBsonDocument());
+    }
+}
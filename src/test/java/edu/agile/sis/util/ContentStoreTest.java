@@ -0,0 +1,145 @@
+package edu.agile.sis.util;
+
+import com.mongodb.client.gridfs.GridFSBucket;
+import com.mongodb.client.gridfs.model.GridFSUploadOptions;
+import edu.agile.sis.dao.BlobRefDAO;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@DisplayName("ContentStore Tests")
+class ContentStoreTest {
+
+    // SHA-256 of "hello"
+    private static final String HELLO_SHA = "2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824";
+
+    @TempDir
+    Path tmp;
+
+    private GridFSBucket bucket;
+    private BlobRefDAO refs;
+    private ContentStore store;
+    private final ObjectId uploaded = new ObjectId();
+
+    @BeforeEach
+    void setUp() {
+        bucket = mock(GridFSBucket.class);
+        refs = mock(BlobRefDAO.class);
+        store = new ContentStore(bucket, "attachments", refs);
+        // consume the stream like GridFS does, so the digest sees every byte
+        when(bucket.uploadFromStream(anyString(), any(InputStream.class), any(GridFSUploadOptions.class)))
+                .thenAnswer(inv -> {
+                    ((InputStream) inv.getArgument(1)).transferTo(OutputStream.nullOutputStream());
+                    return uploaded;
+                });
+    }
+
+    private static InputStream hello() {
+        return new ByteArrayInputStream("hello".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("store - should register new content under its SHA-256 and keep the upload")
+    void testStoreNewContent() {
+        when(refs.acquire("attachments", HELLO_SHA, 5L, uploaded.toHexString()))
+                .thenReturn(new Document("fileId", uploaded.toHexString()).append("refs", 1));
+
+        String id = store.store("a.txt", hello(), new Document());
+
+        assertEquals(uploaded.toHexString(), id);
+        verify(bucket, never()).delete(any(ObjectId.class));
+    }
+
+    @Test
+    @DisplayName("store - should drop the duplicate upload and return the existing blob")
+    void testStoreDuplicateContent() {
+        String existing = new ObjectId().toHexString();
+        when(refs.acquire(eq("attachments"), eq(HELLO_SHA), anyLong(), anyString()))
+                .thenReturn(new Document("fileId", existing).append("refs", 2));
+
+        String id = store.store("copy.txt", hello(), new Document());
+
+        assertEquals(existing, id);
+        verify(bucket).delete(uploaded);
+    }
+
+    @Test
+    @DisplayName("store(Path) - should not upload content that is already stored")
+    void testStorePathSkipsKnownContent() throws Exception {
+        Path file = Files.writeString(tmp.resolve("syllabus.pdf"), "hello");
+        String existing = new ObjectId().toHexString();
+        when(refs.acquireExisting("attachments", HELLO_SHA)).thenReturn(new Document("fileId", existing).append("refs", 41));
+
+        assertEquals(existing, store.store(file, "syllabus.pdf", new Document()));
+        verify(bucket, never()).uploadFromStream(anyString(), any(InputStream.class), any(GridFSUploadOptions.class));
+    }
+
+    @Test
+    @DisplayName("release - should keep the blob while other references remain")
+    void testReleaseKeepsSharedBlob() {
+        String id = new ObjectId().toHexString();
+        when(refs.release(id)).thenReturn(new Document("_id", "attachments:" + HELLO_SHA).append("fileId", id).append("refs", 1));
+
+        store.release(id);
+
+        verify(bucket, never()).delete(any(ObjectId.class));
+        verify(refs, never()).deleteIfUnreferenced(anyString());
+    }
+
+    @Test
+    @DisplayName("release - should delete the blob with its last reference")
+    void testReleaseDeletesLastReference() {
+        ObjectId id = new ObjectId();
+        String key = "attachments:" + HELLO_SHA;
+        when(refs.release(id.toHexString())).thenReturn(new Document("_id", key).append("fileId", id.toHexString()).append("refs", 0));
+        when(refs.deleteIfUnreferenced(key)).thenReturn(true);
+
+        store.release(id.toHexString());
+
+        verify(bucket).delete(id);
+    }
+
+    @Test
+    @DisplayName("release - should delete files stored before reference counting directly")
+    void testReleaseLegacyFile() {
+        ObjectId id = new ObjectId();
+        when(refs.release(id.toHexString())).thenReturn(null);
+        when(refs.isCounted(id.toHexString())).thenReturn(false);
+
+        store.release(id.toHexString());
+
+        verify(bucket).delete(id);
+    }
+
+    @Test
+    @DisplayName("release - should leave a counted blob at zero references to its other releaser")
+    void testReleaseCountedAtZero() {
+        ObjectId id = new ObjectId();
+        when(refs.release(id.toHexString())).thenReturn(null);
+        when(refs.isCounted(id.toHexString())).thenReturn(true);
+
+        store.release(id.toHexString());
+
+        verify(bucket, never()).delete(any(ObjectId.class));
+    }
+}
@@ -0,0 +1,132 @@
+package edu.agile.sis.util;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.gridfs.GridFSBucket;
+import com.mongodb.client.gridfs.GridFSBuckets;
+import org.bson.types.ObjectId;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+
+/**
+ * Manual benchmark (not run by surefire): peak retained heap while reading a large GridFS file.
+ *
+ * "buffered" replays the old getFileStream (downloadToStream into a ByteArrayOutputStream, then a
+ * ByteArrayInputStream copy); "streaming" reads through GridFSStreams. Heap is sampled after a GC
+ * every 8 MB so the numbers reflect live data, not garbage. Uses a throwaway database.
+ *
+ * Usage: GridFSDownloadBenchmark mongodb-uri [sizeMb]   (default 200)
+ */
+public class GridFSDownloadBenchmark {
+
+    private static final int SAMPLE_EVERY = 8 * 1024 * 1024;
+    private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+
+    public static void main(String[] args) throws IOException {
+        String uri = args.length > 0 ? args[0] : "mongodb://localhost:27017";
+        long size = (args.length > 1 ? Long.parseLong(args[1]) : 200) * 1024 * 1024;
+
+        try (MongoClient client = MongoClients.create(uri)) {
+            MongoDatabase db = client.getDatabase("sis_gridfs_bench_" + System.nanoTime());
+            try {
+                GridFSBucket bucket = GridFSBuckets.create(db);
+                ObjectId id = bucket.uploadFromStream("bench.bin", new GeneratedStream(size));
+
+                long base = usedAfterGc();
+                long t0 = System.nanoTime();
+                ByteArrayOutputStream baos = new ByteArrayOutputStream();
+                bucket.downloadToStream(id, baos);
+                long bufferedPeak;
+                try (InputStream in = new ByteArrayInputStream(baos.toByteArray())) {
+                    bufferedPeak = drain(in) - base;
+                }
+                long bufferedNanos = System.nanoTime() - t0;
+                baos = null;
+
+                base = usedAfterGc();
+                t0 = System.nanoTime();
+                long streamingPeak;
+                try (InputStream in = GridFSStreams.open(bucket, id)) {
+                    streamingPeak = drain(in) - base;
+                }
+                long streamingNanos = System.nanoTime() - t0;
+
+                t0 = System.nanoTime();
+                try (InputStream in = GridFSStreams.openRange(bucket, id, size - 1024 * 1024, 1024 * 1024)) {
+                    in.transferTo(OutputStream.nullOutputStream());
+                }
+                long rangeNanos = System.nanoTime() - t0;
+
+                System.out.printf("file size                  %8.1f MB%n", mb(size));
+                System.out.printf("buffered   peak heap  %8.1f MB   %8.1f ms%n", mb(bufferedPeak), ms(bufferedNanos));
+                System.out.printf("streaming  peak heap  %8.1f MB   %8.1f ms%n", mb(streamingPeak), ms(streamingNanos));
+                System.out.printf("last 1 MB range read                  %8.1f ms%n", ms(rangeNanos));
+            } finally {
+                db.drop();
+            }
+        }
+    }
+
+    /** Reads to the end, returning the highest post-GC heap usage seen along the way. */
+    private static long drain(InputStream in) throws IOException {
+        byte[] buf = new byte[64 * 1024];
+        long read = 0;
+        long nextSample = SAMPLE_EVERY;
+        long peak = usedAfterGc();
+        int n;
+        while ((n = in.read(buf)) > 0) {
+            read += n;
+            if (read >= nextSample) {
+                peak = Math.max(peak, usedAfterGc());
+                nextSample += SAMPLE_EVERY;
+            }
+        }
+        return peak;
+    }
+
+    private static long usedAfterGc() {
+        System.gc();
+        return MEMORY.getHeapMemoryUsage().getUsed();
+    }
+
+    private static double mb(long bytes) {
+        return bytes / (1024.0 * 1024.0);
+    }
+
+    private static double ms(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    /** size pseudo-random bytes without materialising them. */
+    private static final class GeneratedStream extends InputStream {
+        private long remaining;
+        private int state = 17;
+
+        GeneratedStream(long size) {
+            this.remaining = size;
+        }
+
+        @Override
+        public int read() {
+            if (remaining <= 0) return -1;
+            remaining--;
+            state = state * 1103515245 + 12345;
+            return (state >>> 16) & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (remaining <= 0) return -1;
+            int n = (int) Math.min(len, remaining);
+            for (int i = 0; i < n; i++) b[off + i] = (byte) read();
+            return n;
+        }
+    }
+}
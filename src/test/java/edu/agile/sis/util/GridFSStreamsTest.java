@@ -0,0 +1,86 @@
+package edu.agile.sis.util;
+
+import com.mongodb.client.gridfs.GridFSBucket;
+import com.mongodb.client.gridfs.GridFSDownloadStream;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@DisplayName("GridFSStreams Tests")
+class GridFSStreamsTest {
+
+    private static byte[] bytes(int n) {
+        byte[] b = new byte[n];
+        for (int i = 0; i < n; i++) b[i] = (byte) i;
+        return b;
+    }
+
+    /** A download stream mock that serves the given content. */
+    private static GridFSDownloadStream downloadOf(byte[] content) throws IOException {
+        ByteArrayInputStream src = new ByteArrayInputStream(content);
+        GridFSDownloadStream stream = mock(GridFSDownloadStream.class);
+        when(stream.read()).thenAnswer(inv -> src.read());
+        when(stream.read(any(byte[].class), anyInt(), anyInt()))
+                .thenAnswer(inv -> src.read(inv.getArgument(0), inv.getArgument(1), inv.getArgument(2)));
+        when(stream.skip(anyLong())).thenAnswer(inv -> src.skip(inv.getArgument(0)));
+        when(stream.available()).thenAnswer(inv -> src.available());
+        return stream;
+    }
+
+    @Test
+    @DisplayName("openRange - should return exactly the requested slice")
+    void testRangeSlice() throws IOException {
+        byte[] content = bytes(1000);
+        ObjectId id = new ObjectId();
+        GridFSBucket bucket = mock(GridFSBucket.class);
+        GridFSDownloadStream download = downloadOf(content);
+        when(bucket.openDownloadStream(id)).thenReturn(download);
+
+        try (InputStream in = GridFSStreams.openRange(bucket, id, 300, 50)) {
+            byte[] expected = new byte[50];
+            System.arraycopy(content, 300, expected, 0, 50);
+            assertArrayEquals(expected, in.readAllBytes());
+        }
+        verify(download).skip(300L);
+        verify(download).close();
+    }
+
+    @Test
+    @DisplayName("openRange - should stop at end of file when the range runs past it")
+    void testRangePastEnd() throws IOException {
+        ObjectId id = new ObjectId();
+        GridFSBucket bucket = mock(GridFSBucket.class);
+        GridFSDownloadStream download = downloadOf(bytes(100));
+        when(bucket.openDownloadStream(id)).thenReturn(download);
+
+        try (InputStream in = GridFSStreams.openRange(bucket, id, 90, 50)) {
+            assertEquals(10, in.readAllBytes().length);
+        }
+    }
+
+    @Test
+    @DisplayName("openRange - should reject an offset past the end and close the stream")
+    void testOffsetPastEnd() throws IOException {
+        ObjectId id = new ObjectId();
+        GridFSBucket bucket = mock(GridFSBucket.class);
+        GridFSDownloadStream download = downloadOf(bytes(10));
+        when(bucket.openDownloadStream(id)).thenReturn(download);
+
+        assertThrows(IOException.class, () -> GridFSStreams.openRange(bucket, id, 20, 5));
+        verify(download).close();
+    }
+}
@@ -0,0 +1,95 @@
+package edu.agile.sis.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("IntervalTree Tests")
+class IntervalTreeTest {
+
+    @Test
+    @DisplayName("overlaps - should treat intervals as half-open")
+    void testHalfOpenBounds() {
+        IntervalTree<String> tree = new IntervalTree<>();
+        tree.put("a", 10, 20);
+
+        assertFalse(tree.overlaps(0, 10, null));     // ends where a starts
+        assertFalse(tree.overlaps(20, 30, null));    // starts where a ends
+        assertTrue(tree.overlaps(19, 30, null));
+        assertTrue(tree.overlaps(12, 13, null));
+        assertFalse(tree.overlaps(12, 13, "a"));     // excluded
+    }
+
+    @Test
+    @DisplayName("put - should replace the interval stored under the same key")
+    void testPutReplaces() {
+        IntervalTree<String> tree = new IntervalTree<>();
+        tree.put("a", 10, 20);
+        tree.put("a", 50, 60);
+
+        assertEquals(1, tree.size());
+        assertFalse(tree.overlaps(10, 20, null));
+        assertEquals(List.of("a"), tree.overlapping(55, 56));
+    }
+
+    @Test
+    @DisplayName("remove - should drop the interval and report whether it existed")
+    void testRemove() {
+        IntervalTree<String> tree = new IntervalTree<>();
+        tree.put("a", 10, 20);
+        tree.put("b", 15, 25);
+
+        assertTrue(tree.remove("a"));
+        assertFalse(tree.remove("a"));
+        assertEquals(List.of("b"), tree.overlapping(0, 100));
+    }
+
+    @Test
+    @DisplayName("put - should reject empty intervals")
+    void testRejectsEmptyInterval() {
+        assertThrows(IllegalArgumentException.class, () -> new IntervalTree<String>().put("a", 10, 10));
+    }
+
+    @Test
+    @DisplayName("overlapping - should match a brute-force scan under random puts and removes")
+    void testMatchesBruteForce() {
+        Random rnd = new Random(7);
+        IntervalTree<Integer> tree = new IntervalTree<>();
+        Map<Integer, long[]> expected = new HashMap<>();
+
+        for (int step = 0; step < 20_000; step++) {
+            int key = rnd.nextInt(500);
+            if (rnd.nextInt(4) == 0) {
+                assertEquals(expected.remove(key) != null, tree.remove(key));
+            } else {
+                long s = rnd.nextInt(10_000);
+                long e = s + 1 + rnd.nextInt(300);
+                tree.put(key, s, e);
+                expected.put(key, new long[] { s, e });
+            }
+
+            long qs = rnd.nextInt(10_000);
+            long qe = qs + 1 + rnd.nextInt(300);
+            List<Integer> brute = new ArrayList<>();
+            for (Map.Entry<Integer, long[]> en : expected.entrySet()) {
+                if (en.getValue()[0] < qe && en.getValue()[1] > qs) brute.add(en.getKey());
+            }
+            List<Integer> actual = tree.overlapping(qs, qe);
+            assertEquals(brute.size(), actual.size(), "step " + step);
+            assertTrue(actual.containsAll(brute), "step " + step);
+            assertEquals(!brute.isEmpty(), tree.overlaps(qs, qe, null));
+            if (brute.size() == 1) assertFalse(tree.overlaps(qs, qe, brute.get(0)));
+        }
+        assertEquals(expected.size(), tree.size());
+    }
+}
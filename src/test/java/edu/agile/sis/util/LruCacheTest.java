@@ -0,0 +1,49 @@
+package edu.agile.sis.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@DisplayName("LruCache Tests")
+class LruCacheTest {
+
+    @Test
+    @DisplayName("put - should evict least recently used entries once over the weight budget")
+    void testEvictsByWeight() {
+        LruCache<String, byte[]> cache = new LruCache<>(100, b -> b.length);
+        cache.put("a", new byte[40]);
+        cache.put("b", new byte[40]);
+        cache.get("a");                       // b is now the eldest
+        cache.put("c", new byte[40]);
+
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("c"));
+        assertEquals(80, cache.weight());
+    }
+
+    @Test
+    @DisplayName("put - should not cache an entry heavier than the whole budget")
+    void testSkipsOversizedEntry() {
+        LruCache<String, byte[]> cache = new LruCache<>(100, b -> b.length);
+        cache.put("a", new byte[10]);
+        cache.put("big", new byte[101]);
+
+        assertNull(cache.get("big"));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    @DisplayName("put - should account for a replaced value's weight")
+    void testReplaceUpdatesWeight() {
+        LruCache<String, byte[]> cache = new LruCache<>(100, b -> b.length);
+        cache.put("a", new byte[60]);
+        cache.put("a", new byte[20]);
+
+        assertEquals(20, cache.weight());
+        assertEquals(1, cache.size());
+    }
+}
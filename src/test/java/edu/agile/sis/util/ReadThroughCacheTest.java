@@ -0,0 +1,80 @@
+package edu.agile.sis.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@DisplayName("ReadThroughCache Tests")
+class ReadThroughCacheTest {
+
+    @Test
+    @DisplayName("get - should load once and count hits and misses")
+    void testLoadsOnce() {
+        ReadThroughCache<String, List<String>> cache = new ReadThroughCache<>("t", 60_000, 10, ArrayList::new);
+        AtomicInteger loads = new AtomicInteger();
+
+        for (int i = 0; i < 5; i++) {
+            List<String> v = cache.get("k", k -> {
+                loads.incrementAndGet();
+                return List.of("a");
+            });
+            v.add("caller change");               // copies: the cached value is unaffected
+        }
+
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getMisses());
+        assertEquals(4, cache.getHits());
+        assertEquals(List.of("a"), cache.get("k", k -> null));
+    }
+
+    @Test
+    @DisplayName("get - should cache absent values and reload after the TTL or an invalidate")
+    void testNullTtlAndInvalidate() throws InterruptedException {
+        ReadThroughCache<String, String> cache = new ReadThroughCache<>("t", 50, 10, s -> s);
+        AtomicInteger loads = new AtomicInteger();
+
+        assertNull(cache.get("missing", k -> { loads.incrementAndGet(); return null; }));
+        assertNull(cache.get("missing", k -> { loads.incrementAndGet(); return null; }));
+        assertEquals(1, loads.get());
+
+        Thread.sleep(60);
+        assertEquals("v", cache.get("missing", k -> { loads.incrementAndGet(); return "v"; }));
+        cache.invalidate("missing");
+        assertEquals("w", cache.get("missing", k -> { loads.incrementAndGet(); return "w"; }));
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    @DisplayName("get - should not cache a value loaded while an invalidate happened")
+    void testLoadRacingInvalidate() {
+        ReadThroughCache<String, String> cache = new ReadThroughCache<>("t", 60_000, 10, s -> s);
+
+        String first = cache.get("k", k -> {
+            cache.invalidateAll();                // a write lands while the read is in flight
+            return "old";
+        });
+
+        assertEquals("old", first);
+        assertEquals("new", cache.get("k", k -> "new"));
+    }
+
+    @Test
+    @DisplayName("get - should drop the least recently used key beyond the entry limit")
+    void testEntryLimit() {
+        ReadThroughCache<String, String> cache = new ReadThroughCache<>("t", 60_000, 2, s -> s);
+        cache.get("a", k -> "1");
+        cache.get("b", k -> "2");
+        cache.get("a", k -> "x");                 // hit: b is now the eldest
+        cache.get("c", k -> "3");
+
+        assertEquals(2, cache.size());
+        assertEquals("1", cache.get("a", k -> "reloaded"));
+        assertEquals("reloaded", cache.get("b", k -> "reloaded"));
+    }
+}